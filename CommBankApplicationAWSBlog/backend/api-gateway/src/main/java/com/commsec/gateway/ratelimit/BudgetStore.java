@@ -0,0 +1,25 @@
+package com.commsec.gateway.ratelimit;
+
+import java.util.Map;
+
+/**
+ * Shared record of what every gateway instance has let through, which each
+ * instance reads back to size its share of a key's rate.
+ * <p>
+ * Usage is counted per key in fixed windows of {@code windowMillis}, aligned
+ * to the epoch so that all instances agree on where a window starts.
+ */
+public interface BudgetStore {
+
+    /** Instances seen recently, and the fleet's tokens used per key in the window before the current one. */
+    record FleetUsage(int instances, Map<String, Long> previousWindow) {
+    }
+
+    /**
+     * Adds {@code consumed} to each key's usage in the window starting at
+     * {@code windowStart}, marks the instance as live, and returns the fleet's
+     * usage of the same keys in the previous window. Keys with nothing to add
+     * may be passed with 0 to read them only.
+     */
+    FleetUsage sync(String instanceId, long nowMillis, long windowStart, long windowMillis, Map<String, Long> consumed);
+}
@@ -0,0 +1,45 @@
+package com.commsec.gateway.ratelimit;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cloud.gateway.filter.ratelimit.KeyResolver;
+import org.springframework.cloud.gateway.support.ipresolver.RemoteAddressResolver;
+import org.springframework.cloud.gateway.support.ipresolver.XForwardedRemoteAddressResolver;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+
+import java.net.InetSocketAddress;
+
+/**
+ * Rate-limits by who is calling rather than by anything the caller sends:
+ * the authenticated principal when there is one, otherwise the client
+ * address. A header such as {@code X-Account-Id} would let a client take a
+ * fresh bucket on every request.
+ * <p>
+ * The client address is read from {@code X-Forwarded-For}, counting back past
+ * the {@code gateway.rate-limit.trusted-proxies} load balancers in front of
+ * the gateway, so entries the client adds itself are never used.
+ */
+@Component("clientKeyResolver")
+public class ClientKeyResolver implements KeyResolver {
+
+    private final RemoteAddressResolver addressResolver;
+
+    public ClientKeyResolver(@Value("${gateway.rate-limit.trusted-proxies:1}") int trustedProxies) {
+        this.addressResolver = trustedProxies > 0
+            ? XForwardedRemoteAddressResolver.maxTrustedIndex(trustedProxies)
+            : new RemoteAddressResolver() { };
+    }
+
+    @Override
+    public Mono<String> resolve(ServerWebExchange exchange) {
+        return exchange.getPrincipal()
+            .map(principal -> "principal:" + principal.getName())
+            .switchIfEmpty(Mono.defer(() -> Mono.justOrEmpty(address(exchange))));
+    }
+
+    private String address(ServerWebExchange exchange) {
+        InetSocketAddress remote = addressResolver.resolve(exchange);
+        return remote != null ? "address:" + remote.getHostString() : null;
+    }
+}
@@ -0,0 +1,282 @@
+package com.commsec.gateway.ratelimit;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import jakarta.validation.constraints.Min;
+import lombok.Data;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cloud.gateway.filter.ratelimit.AbstractRateLimiter;
+import org.springframework.cloud.gateway.support.ConfigurationService;
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * Rate limiter for {@code RequestRateLimiter} that decides every request from
+ * a token bucket in this instance's memory, and reconciles with the rest of
+ * the gateway fleet through a {@link BudgetStore} off the request path.
+ * <p>
+ * Each key's rate and burst are split between instances. Every
+ * {@code gateway.rate-limit.sync-interval-ms} the tokens spent since the last
+ * sync are added to the store's count for the current
+ * {@code gateway.rate-limit.window-ms} window, and the fleet's count for the
+ * previous window is read back. The instance then takes whatever the others
+ * left unused in that window, but never less than an even split between the
+ * live instances, so a key busy on one instance gets close to the full rate
+ * while one spread across all of them gets an even share. A key that is new
+ * to the instance, or went a window unused, holds the even share until it
+ * has been in use through a whole window. The fleet can go over a key's rate
+ * for about a window when its traffic moves between instances.
+ * <p>
+ * If the store cannot be reached, requests are still decided locally: shares
+ * stay as they were and, once the last good sync is
+ * {@code gateway.rate-limit.instance-stale-ms} old, fall back to an even
+ * split between the instances last seen.
+ */
+@Primary
+@Component
+@Slf4j
+public class HybridRateLimiter extends AbstractRateLimiter<HybridRateLimiter.Config> {
+
+    public static final String CONFIGURATION_PROPERTY_NAME = "hybrid-rate-limiter";
+    public static final String REMAINING_HEADER = "X-RateLimit-Remaining";
+    public static final String REPLENISH_RATE_HEADER = "X-RateLimit-Replenish-Rate";
+    public static final String BURST_CAPACITY_HEADER = "X-RateLimit-Burst-Capacity";
+    public static final String REQUESTED_TOKENS_HEADER = "X-RateLimit-Requested-Tokens";
+
+    /** Per-route settings, bound from the filter's {@code hybrid-rate-limiter.*} args. */
+    @Data
+    public static class Config {
+
+        /** Tokens per second across the whole fleet. */
+        @Min(1)
+        private int replenishRate;
+
+        /** Tokens a key can hold across the whole fleet. */
+        @Min(1)
+        private long burstCapacity = 1;
+
+        @Min(1)
+        private int requestedTokens = 1;
+    }
+
+    private final BudgetStore budgetStore;
+    private final String instanceId = UUID.randomUUID().toString();
+    private final long windowMillis;
+    private final long staleMillis;
+    private final long idleMillis;
+    private final LongSupplier millisClock;
+    private final LongSupplier nanoClock;
+    private final Map<String, TokenBucket> buckets = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService syncer;
+    private final Counter allowed;
+    private final Counter denied;
+    private final Counter syncFailures;
+    private volatile int instances;
+    private volatile long lastSyncMillis;
+    private long currentWindow;
+    private boolean degraded;
+
+    @Autowired
+    public HybridRateLimiter(ConfigurationService configurationService,
+                             BudgetStore budgetStore,
+                             MeterRegistry meterRegistry,
+                             @Value("${gateway.rate-limit.sync-interval-ms:100}") long syncIntervalMs,
+                             @Value("${gateway.rate-limit.window-ms:1000}") long windowMillis,
+                             @Value("${gateway.rate-limit.instance-stale-ms:5000}") long staleMillis,
+                             @Value("${gateway.rate-limit.idle-ms:120000}") long idleMillis,
+                             @Value("${gateway.rate-limit.fallback-instances:3}") int fallbackInstances) {
+        this(configurationService, budgetStore, meterRegistry, syncIntervalMs, windowMillis, staleMillis,
+            idleMillis, fallbackInstances, System::currentTimeMillis, System::nanoTime);
+    }
+
+    /**
+     * Reads time from the given clocks, and only syncs in the background when
+     * {@code syncIntervalMs} is positive; otherwise {@link #sync} is left to
+     * the caller.
+     */
+    HybridRateLimiter(ConfigurationService configurationService,
+                      BudgetStore budgetStore,
+                      MeterRegistry meterRegistry,
+                      long syncIntervalMs,
+                      long windowMillis,
+                      long staleMillis,
+                      long idleMillis,
+                      int fallbackInstances,
+                      LongSupplier millisClock,
+                      LongSupplier nanoClock) {
+        super(Config.class, CONFIGURATION_PROPERTY_NAME, configurationService);
+        this.budgetStore = budgetStore;
+        this.windowMillis = windowMillis;
+        this.staleMillis = staleMillis;
+        this.idleMillis = idleMillis;
+        this.instances = Math.max(1, fallbackInstances);
+        this.millisClock = millisClock;
+        this.nanoClock = nanoClock;
+        this.lastSyncMillis = millisClock.getAsLong();
+
+        this.allowed = Counter.builder("gateway.rate-limit.allowed")
+            .description("Requests let through by the local token buckets")
+            .register(meterRegistry);
+
+        this.denied = Counter.builder("gateway.rate-limit.denied")
+            .description("Requests refused by the local token buckets")
+            .register(meterRegistry);
+
+        this.syncFailures = Counter.builder("gateway.rate-limit.sync.failures")
+            .description("Budget syncs that could not reach the store")
+            .register(meterRegistry);
+
+        Gauge.builder("gateway.rate-limit.keys", buckets, Map::size)
+            .description("Keys with a local token bucket")
+            .register(meterRegistry);
+
+        Gauge.builder("gateway.rate-limit.instances", this, limiter -> limiter.instances)
+            .description("Gateway instances sharing each key's rate")
+            .register(meterRegistry);
+
+        this.syncer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "rate-limit-sync");
+            thread.setDaemon(true);
+            return thread;
+        });
+        if (syncIntervalMs > 0) {
+            syncer.scheduleWithFixedDelay(this::sync, syncIntervalMs, syncIntervalMs, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    @Override
+    public Mono<Response> isAllowed(String routeId, String id) {
+        Config config = getConfig().get(routeId);
+        if (config == null) {
+            throw new IllegalArgumentException("No Configuration found for route " + routeId + " or defaultFilters");
+        }
+        TokenBucket bucket = buckets.computeIfAbsent(routeId + ':' + id,
+            key -> new TokenBucket(routeId, 1.0 / instances));
+        double share = bucket.share();
+        long remaining = bucket.tryConsume(config.getRequestedTokens(),
+            config.getReplenishRate() * share,
+            Math.max(config.getRequestedTokens(), config.getBurstCapacity() * share),
+            nanoClock.getAsLong(), millisClock.getAsLong());
+
+        if (remaining < 0) {
+            denied.increment();
+        } else {
+            allowed.increment();
+        }
+        return Mono.just(new Response(remaining >= 0, headers(config, Math.max(remaining, 0))));
+    }
+
+    /**
+     * Reports local spend to the store and resizes each active key's share
+     * from the fleet's use of it in the previous window.
+     */
+    void sync() {
+        try {
+            long now = millisClock.getAsLong();
+            long window = now - now % windowMillis;
+            if (window != currentWindow) {
+                long advanced = currentWindow == 0 ? 2 : (window - currentWindow) / windowMillis;
+                double even = 1.0 / instances;
+                buckets.values().forEach(bucket -> bucket.advance(advanced, even));
+                currentWindow = window;
+            }
+
+            Map<String, Long> spent = new HashMap<>();
+            for (Map.Entry<String, TokenBucket> entry : buckets.entrySet()) {
+                TokenBucket bucket = entry.getValue();
+                if (bucket.active()) {
+                    spent.put(entry.getKey(), bucket.drain());
+                }
+            }
+
+            BudgetStore.FleetUsage usage;
+            try {
+                usage = budgetStore.sync(instanceId, now, window, windowMillis, spent);
+            } catch (RuntimeException e) {
+                syncFailed(now, spent, e);
+                return;
+            }
+            lastSyncMillis = now;
+            instances = Math.max(1, usage.instances());
+            if (degraded) {
+                degraded = false;
+                log.info("Rate-limit budgets syncing again across {} instances", instances);
+            }
+
+            for (Map.Entry<String, Long> entry : spent.entrySet()) {
+                TokenBucket bucket = buckets.get(entry.getKey());
+                if (bucket == null) {
+                    continue;
+                }
+                bucket.reported(entry.getValue());
+                Config config = getConfig().get(bucket.routeId());
+                if (config != null && bucket.warm()) {
+                    long fleetUsed = usage.previousWindow().getOrDefault(entry.getKey(), 0L);
+                    bucket.share(share(config, fleetUsed - bucket.reportedPrevious()));
+                }
+            }
+
+            long cutoff = now - idleMillis;
+            for (String key : buckets.keySet()) {
+                buckets.computeIfPresent(key, (k, bucket) -> bucket.idleSince(cutoff) ? null : bucket);
+            }
+        } catch (RuntimeException e) {
+            log.warn("Rate-limit sync failed: {}", e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        syncer.shutdownNow();
+    }
+
+    /** Fraction of the route's rate left by the other instances, at least an even split. */
+    private double share(Config config, long usedByOthers) {
+        double windowTokens = config.getReplenishRate() * (windowMillis / 1000d);
+        double even = 1.0 / instances;
+        return Math.min(1.0, Math.max(even, 1.0 - Math.max(0, usedByOthers) / windowTokens));
+    }
+
+    private void syncFailed(long now, Map<String, Long> spent, RuntimeException e) {
+        syncFailures.increment();
+        spent.forEach((key, tokens) -> {
+            TokenBucket bucket = buckets.get(key);
+            if (bucket != null) {
+                bucket.undrain(tokens);
+            }
+        });
+        if (now - lastSyncMillis < staleMillis) {
+            log.debug("Rate-limit sync failed, keeping current shares: {}", e.getMessage());
+            return;
+        }
+        double even = 1.0 / instances;
+        buckets.values().forEach(bucket -> bucket.share(even));
+        if (!degraded) {
+            degraded = true;
+            log.warn("Rate-limit budgets not synced for {} ms, using an even split over {} instances: {}",
+                now - lastSyncMillis, instances, e.getMessage());
+        }
+    }
+
+    private static Map<String, String> headers(Config config, long remaining) {
+        return Map.of(
+            REMAINING_HEADER, Long.toString(remaining),
+            REPLENISH_RATE_HEADER, Integer.toString(config.getReplenishRate()),
+            BURST_CAPACITY_HEADER, Long.toString(config.getBurstCapacity()),
+            REQUESTED_TOKENS_HEADER, Integer.toString(config.getRequestedTokens()));
+    }
+}
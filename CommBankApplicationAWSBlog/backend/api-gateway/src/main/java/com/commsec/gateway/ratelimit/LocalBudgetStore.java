@@ -0,0 +1,47 @@
+package com.commsec.gateway.ratelimit;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * In-process budget store with the same semantics as {@link RedisBudgetStore},
+ * for a single gateway run without Redis ({@code gateway.rate-limit.redis.enabled=false}).
+ * Several limiters sharing one instance behave as a fleet sharing Redis.
+ */
+@Component
+@ConditionalOnProperty(name = "gateway.rate-limit.redis.enabled", havingValue = "false")
+public class LocalBudgetStore implements BudgetStore {
+
+    private final long staleMillis;
+    private final Map<Long, Map<String, Long>> windows = new HashMap<>();
+    private final Map<String, Long> instances = new HashMap<>();
+
+    public LocalBudgetStore(@Value("${gateway.rate-limit.instance-stale-ms:5000}") long staleMillis) {
+        this.staleMillis = staleMillis;
+    }
+
+    @Override
+    public synchronized FleetUsage sync(String instanceId, long nowMillis, long windowStart, long windowMillis,
+                                        Map<String, Long> consumed) {
+        instances.put(instanceId, nowMillis);
+        instances.values().removeIf(seen -> seen < nowMillis - staleMillis);
+
+        long previousStart = windowStart - windowMillis;
+        windows.keySet().removeIf(start -> start < previousStart);
+        Map<String, Long> current = windows.computeIfAbsent(windowStart, start -> new HashMap<>());
+        Map<String, Long> previousUsage = windows.getOrDefault(previousStart, Map.of());
+
+        Map<String, Long> previous = new HashMap<>(consumed.size() * 2);
+        consumed.forEach((key, count) -> {
+            if (count > 0) {
+                current.merge(key, count, Long::sum);
+            }
+            previous.put(key, previousUsage.getOrDefault(key, 0L));
+        });
+        return new FleetUsage(instances.size(), previous);
+    }
+}
@@ -0,0 +1,95 @@
+package com.commsec.gateway.ratelimit;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Budget store shared by the gateway fleet through Redis. A sync is one
+ * script call, whatever the number of keys: usage is added to a hash per
+ * window and the previous window's hash is read back, while a sorted set of
+ * instances by last sync gives the fleet size.
+ * <p>
+ * Every key carries the {@code {gw-rl}} hash tag so the script's keys share a
+ * slot on a Redis cluster.
+ */
+@Component
+@ConditionalOnProperty(name = "gateway.rate-limit.redis.enabled", havingValue = "true", matchIfMissing = true)
+public class RedisBudgetStore implements BudgetStore {
+
+    private static final String KEY_PREFIX = "{gw-rl}:";
+
+    /*
+     * KEYS: current window hash, previous window hash, instance set
+     * ARGV: instance id, now, stale millis, window ttl millis, then key/count pairs
+     * Returns the live instance count followed by each key's previous-window usage.
+     */
+    private static final String SYNC_SCRIPT = """
+        local now = tonumber(ARGV[2])
+        redis.call('ZADD', KEYS[3], now, ARGV[1])
+        redis.call('ZREMRANGEBYSCORE', KEYS[3], '-inf', now - tonumber(ARGV[3]))
+        local result = { tostring(redis.call('ZCARD', KEYS[3])) }
+        for i = 5, #ARGV, 2 do
+            local count = tonumber(ARGV[i + 1])
+            if count > 0 then
+                redis.call('HINCRBY', KEYS[1], ARGV[i], count)
+            end
+            result[#result + 1] = redis.call('HGET', KEYS[2], ARGV[i]) or '0'
+        end
+        if redis.call('EXISTS', KEYS[1]) == 1 then
+            redis.call('PEXPIRE', KEYS[1], ARGV[4])
+        end
+        return result
+        """;
+
+    @SuppressWarnings("rawtypes")
+    private static final RedisScript<List> SCRIPT = new DefaultRedisScript<>(SYNC_SCRIPT, List.class);
+
+    private final StringRedisTemplate redisTemplate;
+    private final long staleMillis;
+
+    public RedisBudgetStore(StringRedisTemplate redisTemplate,
+                            @Value("${gateway.rate-limit.instance-stale-ms:5000}") long staleMillis) {
+        this.redisTemplate = redisTemplate;
+        this.staleMillis = staleMillis;
+    }
+
+    @Override
+    public FleetUsage sync(String instanceId, long nowMillis, long windowStart, long windowMillis,
+                           Map<String, Long> consumed) {
+        List<String> keys = List.of(
+            KEY_PREFIX + "used:" + windowStart,
+            KEY_PREFIX + "used:" + (windowStart - windowMillis),
+            KEY_PREFIX + "instances");
+
+        List<String> names = new ArrayList<>(consumed.keySet());
+        Object[] args = new Object[4 + 2 * names.size()];
+        args[0] = instanceId;
+        args[1] = Long.toString(nowMillis);
+        args[2] = Long.toString(staleMillis);
+        // Read back as the previous window during the next one, then left to expire
+        args[3] = Long.toString(3 * windowMillis);
+        for (int i = 0; i < names.size(); i++) {
+            args[4 + 2 * i] = names.get(i);
+            args[5 + 2 * i] = Long.toString(consumed.get(names.get(i)));
+        }
+
+        List<?> result = redisTemplate.execute(SCRIPT, keys, args);
+        if (result == null || result.size() != names.size() + 1) {
+            throw new IllegalStateException("Unexpected rate-limit sync result: " + result);
+        }
+        Map<String, Long> previous = new HashMap<>(names.size() * 2);
+        for (int i = 0; i < names.size(); i++) {
+            previous.put(names.get(i), Long.parseLong(String.valueOf(result.get(i + 1))));
+        }
+        return new FleetUsage(Integer.parseInt(String.valueOf(result.get(0))), previous);
+    }
+}
@@ -0,0 +1,111 @@
+package com.commsec.gateway.ratelimit;
+
+/**
+ * One key's local token bucket. Requests spend from it under its own lock;
+ * the sync drains what was spent, records what it reported for the current
+ * and previous windows, and sets {@code share}, the fraction of the route's
+ * rate and burst this instance holds for the key.
+ */
+final class TokenBucket {
+
+    private final String routeId;
+    private volatile double share;
+    private volatile long lastUsedMillis;
+    private double tokens = -1;
+    private long refilledNanos;
+    private long unsynced;
+    private long reportedCurrent;
+    private long reportedPrevious;
+    private int warmWindows;
+
+    TokenBucket(String routeId, double share) {
+        this.routeId = routeId;
+        this.share = share;
+    }
+
+    String routeId() {
+        return routeId;
+    }
+
+    double share() {
+        return share;
+    }
+
+    void share(double share) {
+        this.share = share;
+    }
+
+    /**
+     * Refills at {@code ratePerSecond} up to {@code capacity}, then takes
+     * {@code requested} tokens if there are enough. Returns the whole tokens
+     * left, or -1 if the request is refused. A new bucket starts full.
+     */
+    synchronized long tryConsume(int requested, double ratePerSecond, double capacity, long nowNanos, long nowMillis) {
+        if (tokens < 0) {
+            tokens = capacity;
+        } else {
+            tokens = Math.min(capacity, tokens + (nowNanos - refilledNanos) * ratePerSecond / 1_000_000_000d);
+        }
+        refilledNanos = nowNanos;
+        lastUsedMillis = nowMillis;
+        if (tokens < requested) {
+            return -1;
+        }
+        tokens -= requested;
+        unsynced += requested;
+        return (long) tokens;
+    }
+
+    /** Tokens spent since the last call, now owed to the store. */
+    synchronized long drain() {
+        long spent = unsynced;
+        unsynced = 0;
+        return spent;
+    }
+
+    /** Gives back what a failed sync drained, to be reported with the next one. */
+    synchronized void undrain(long spent) {
+        unsynced += spent;
+    }
+
+    synchronized void reported(long spent) {
+        reportedCurrent += spent;
+    }
+
+    /**
+     * Moves to a new window, {@code windows} after the one reported into so
+     * far. A key this instance did not use in the window just ended goes back
+     * to the {@code even} share.
+     */
+    synchronized void advance(long windows, double even) {
+        reportedPrevious = windows == 1 ? reportedCurrent : 0;
+        reportedCurrent = 0;
+        if (reportedPrevious > 0) {
+            warmWindows++;
+        } else {
+            warmWindows = 0;
+            share = even;
+        }
+    }
+
+    /**
+     * True once the key has been in use here through a whole window, so the
+     * fleet's count for the previous window covers the key's real traffic.
+     */
+    synchronized boolean warm() {
+        return warmWindows >= 2;
+    }
+
+    synchronized long reportedPrevious() {
+        return reportedPrevious;
+    }
+
+    /** True if there is usage to report or to size a share from. */
+    synchronized boolean active() {
+        return unsynced > 0 || reportedCurrent > 0 || reportedPrevious > 0;
+    }
+
+    boolean idleSince(long cutoff) {
+        return lastUsedMillis < cutoff && !active();
+    }
+}
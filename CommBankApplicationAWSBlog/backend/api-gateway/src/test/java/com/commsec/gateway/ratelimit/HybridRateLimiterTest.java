@@ -0,0 +1,204 @@
+package com.commsec.gateway.ratelimit;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Drives limiters on a shared test clock, syncing by hand every 100 ms, with
+ * {@link LocalBudgetStore} standing in for Redis. The route allows 10 requests
+ * a second with a burst of 10 across the fleet.
+ */
+class HybridRateLimiterTest {
+
+    private static final String ROUTE = "orders";
+    private static final String KEY = "account-1";
+    private static final long WINDOW_MS = 1000;
+    private static final long STALE_MS = 5000;
+    private static final long STEP_MS = 100;
+
+    private final AtomicLong millis = new AtomicLong(1_000_000);
+    private final List<HybridRateLimiter> limiters = new ArrayList<>();
+    private BudgetStore store;
+
+    @BeforeEach
+    void setUp() {
+        store = new LocalBudgetStore(STALE_MS);
+    }
+
+    @AfterEach
+    void tearDown() {
+        limiters.forEach(HybridRateLimiter::shutdown);
+    }
+
+    @Test
+    void newKeyStartsWithAFullBurstAndRefillsAtTheRouteRate() {
+        HybridRateLimiter limiter = limiter(1);
+
+        assertEquals(10, request(limiter, 15));
+
+        millis.addAndGet(500);
+        assertEquals(5, request(limiter, 10));
+
+        millis.addAndGet(10_000);
+        assertEquals(10, request(limiter, 20), "refill is capped at the burst");
+    }
+
+    @Test
+    void newKeyHoldsAnEvenShareUntilTheFleetIsKnown() {
+        HybridRateLimiter limiter = limiter(2);
+
+        assertEquals(5, request(limiter, 10));
+    }
+
+    @Test
+    void busyInstanceBorrowsWhatTheRestOfTheFleetLeavesUnused() {
+        HybridRateLimiter busy = limiter(1);
+        HybridRateLimiter idle = limiter(1);
+        syncAll();
+        syncAll();
+
+        long[] allowed = perWindow(6, () -> request(busy, 10));
+
+        assertTrue(allowed[1] <= 6, "even share of two instances before warming up: " + allowed[1]);
+        assertTrue(allowed[5] >= 9 && allowed[5] <= 11, "whole route rate once borrowed: " + allowed[5]);
+    }
+
+    @Test
+    void instancesSharingAKeyReconcileToTheRouteRate() {
+        HybridRateLimiter first = limiter(1);
+        HybridRateLimiter second = limiter(1);
+        syncAll();
+        syncAll();
+
+        long[] allowed = perWindow(6, () -> request(first, 10) + request(second, 10));
+
+        for (int window = 2; window < allowed.length; window++) {
+            assertTrue(allowed[window] >= 9 && allowed[window] <= 11,
+                "fleet total in window " + window + ": " + allowed[window]);
+        }
+    }
+
+    @Test
+    void lightUserKeepsItsEvenShareWhileAnotherInstanceBorrows() {
+        HybridRateLimiter heavy = limiter(1);
+        HybridRateLimiter light = limiter(1);
+        syncAll();
+        syncAll();
+
+        long[] lightAllowed = new long[1];
+        long[] allowed = perWindow(6, () -> {
+            long taken = request(heavy, 10);
+            if (millis.get() % WINDOW_MS == 0) {
+                long lightTaken = request(light, 1);
+                lightAllowed[0] += lightTaken;
+                taken += lightTaken;
+            }
+            return taken;
+        });
+
+        assertEquals(6, lightAllowed[0], "the light user is never refused");
+        for (int window = 3; window < allowed.length; window++) {
+            assertTrue(allowed[window] <= 11, "fleet total in window " + window + ": " + allowed[window]);
+        }
+    }
+
+    @Test
+    void keepsDecidingLocallyWhenTheStoreIsDown() {
+        AtomicBoolean down = new AtomicBoolean();
+        BudgetStore local = store;
+        store = (instanceId, nowMillis, windowStart, windowMillis, consumed) -> {
+            if (down.get()) {
+                throw new IllegalStateException("Connection refused");
+            }
+            return local.sync(instanceId, nowMillis, windowStart, windowMillis, consumed);
+        };
+        HybridRateLimiter busy = limiter(1);
+        HybridRateLimiter idle = limiter(1);
+        syncAll();
+        syncAll();
+
+        long[] borrowed = perWindow(5, () -> request(busy, 10));
+        assertTrue(borrowed[4] >= 9, "borrowed the whole rate: " + borrowed[4]);
+
+        down.set(true);
+        long[] allowed = perWindow(8, () -> request(busy, 10));
+
+        assertTrue(allowed[1] >= 9, "shares kept while the last sync is recent: " + allowed[1]);
+        assertTrue(allowed[7] >= 4 && allowed[7] <= 6, "even split once the last sync is stale: " + allowed[7]);
+    }
+
+    @Test
+    void storeDownFromStartUsesTheFallbackInstanceCount() {
+        store = (instanceId, nowMillis, windowStart, windowMillis, consumed) -> {
+            throw new IllegalStateException("Connection refused");
+        };
+        HybridRateLimiter limiter = limiter(2);
+
+        long[] allowed = perWindow(8, () -> request(limiter, 10));
+
+        // The first window also spends the starting burst
+        for (int window = 1; window < allowed.length; window++) {
+            assertTrue(allowed[window] >= 4 && allowed[window] <= 6,
+                "even share of two instances in window " + window + ": " + allowed[window]);
+        }
+    }
+
+    /** A limiter on the test clock that only syncs when the test says so. */
+    private HybridRateLimiter limiter(int fallbackInstances) {
+        HybridRateLimiter limiter = new HybridRateLimiter(null, store, new SimpleMeterRegistry(),
+            0, WINDOW_MS, STALE_MS, 120_000, fallbackInstances,
+            millis::get, () -> millis.get() * 1_000_000);
+        HybridRateLimiter.Config config = new HybridRateLimiter.Config();
+        config.setReplenishRate(10);
+        config.setBurstCapacity(10);
+        limiter.getConfig().put(ROUTE, config);
+        limiters.add(limiter);
+        return limiter;
+    }
+
+    private static long request(HybridRateLimiter limiter, int requests) {
+        long allowed = 0;
+        for (int i = 0; i < requests; i++) {
+            if (limiter.isAllowed(ROUTE, KEY).block().isAllowed()) {
+                allowed++;
+            }
+        }
+        return allowed;
+    }
+
+    private void syncAll() {
+        limiters.forEach(HybridRateLimiter::sync);
+    }
+
+    /**
+     * Runs {@code windows} whole windows in 100 ms steps, calling {@code step}
+     * and then syncing every limiter at each one, and returns the requests
+     * allowed in each window.
+     */
+    private long[] perWindow(int windows, StepLoad step) {
+        long[] allowed = new long[windows];
+        for (int window = 0; window < windows; window++) {
+            for (long elapsed = 0; elapsed < WINDOW_MS; elapsed += STEP_MS) {
+                millis.addAndGet(STEP_MS);
+                allowed[window] += step.run();
+                syncAll();
+            }
+        }
+        return allowed;
+    }
+
+    @FunctionalInterface
+    private interface StepLoad {
+        long run();
+    }
+}
@@ -0,0 +1,112 @@
+package com.commsec.marketdata.benchmark;
+
+import com.commsec.marketdata.model.FixedPrice;
+import com.commsec.marketdata.model.QuoteState;
+import com.commsec.marketdata.model.StockQuote;
+import org.openjdk.jmh.annotations.*;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.Instant;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-tick cost of a quote update: the previous BigDecimal/StockQuote path
+ * against the fixed-point in-place update. Run with the GC profiler to see the
+ * allocation rate alongside ns/op:
+ * <pre>
+ * mvn -Pjmh compile exec:exec
+ * </pre>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class QuoteUpdateBenchmark {
+
+    private static final int SYMBOLS = 2048;
+
+    private StockQuote[] bigDecimalQuotes;
+    private QuoteState[] fixedQuotes;
+    private double[] moves;
+    private int cursor;
+
+    @Setup
+    public void setUp() {
+        SplittableRandom random = new SplittableRandom(42);
+        bigDecimalQuotes = new StockQuote[SYMBOLS];
+        fixedQuotes = new QuoteState[SYMBOLS];
+        moves = new double[SYMBOLS * 16];
+        for (int i = 0; i < SYMBOLS; i++) {
+            double price = random.nextDouble(1.0, 300.0);
+            BigDecimal lastPrice = BigDecimal.valueOf(price).setScale(4, RoundingMode.HALF_UP);
+            bigDecimalQuotes[i] = StockQuote.builder()
+                .symbol("S" + i)
+                .companyName("Symbol " + i)
+                .lastPrice(lastPrice)
+                .change(BigDecimal.ZERO)
+                .changePercent(BigDecimal.ZERO)
+                .open(lastPrice)
+                .high(lastPrice)
+                .low(lastPrice)
+                .previousClose(lastPrice)
+                .volume(0L)
+                .marketCap(0L)
+                .timestamp(Instant.now())
+                .build();
+            long fixed = FixedPrice.of(price);
+            fixedQuotes[i] = new QuoteState("S" + i, "Symbol " + i, fixed, fixed, fixed, fixed, fixed, 0L, 0L,
+                System.currentTimeMillis());
+        }
+        for (int i = 0; i < moves.length; i++) {
+            moves[i] = random.nextDouble(-0.5, 0.5);
+        }
+    }
+
+    @Benchmark
+    public StockQuote bigDecimal() {
+        int i = next();
+        StockQuote current = bigDecimalQuotes[i & (SYMBOLS - 1)];
+        BigDecimal priceChange = current.getLastPrice().multiply(BigDecimal.valueOf(moves[i] / 100))
+            .setScale(4, RoundingMode.HALF_UP);
+        BigDecimal newPrice = current.getLastPrice().add(priceChange);
+        BigDecimal newChange = newPrice.subtract(current.getPreviousClose());
+        BigDecimal newChangePercent = newChange.divide(current.getPreviousClose(), 4, RoundingMode.HALF_UP)
+            .multiply(BigDecimal.valueOf(100));
+        StockQuote updated = StockQuote.builder()
+            .symbol(current.getSymbol())
+            .companyName(current.getCompanyName())
+            .lastPrice(newPrice)
+            .change(newChange)
+            .changePercent(newChangePercent)
+            .open(current.getOpen())
+            .high(newPrice.max(current.getHigh()))
+            .low(newPrice.min(current.getLow()))
+            .previousClose(current.getPreviousClose())
+            .volume(current.getVolume() + 100_000)
+            .marketCap(current.getMarketCap())
+            .timestamp(Instant.now())
+            .build();
+        bigDecimalQuotes[i & (SYMBOLS - 1)] = updated;
+        return updated;
+    }
+
+    @Benchmark
+    public long fixedPoint() {
+        int i = next();
+        QuoteState quote = fixedQuotes[i & (SYMBOLS - 1)];
+        long lastPrice = quote.lastPrice();
+        long newPrice = lastPrice + FixedPrice.percentOf(lastPrice, moves[i]);
+        quote.update(newPrice, 100_000, System.currentTimeMillis());
+        return newPrice;
+    }
+
+    private int next() {
+        int i = cursor;
+        cursor = (i + 1) % moves.length;
+        return i;
+    }
+}
@@ -0,0 +1,105 @@
+package com.commsec.marketdata.bars;
+
+import com.commsec.marketdata.feed.SyntheticFeed;
+import com.commsec.marketdata.feed.TickListener;
+import com.commsec.marketdata.model.Bar;
+import com.commsec.marketdata.model.FixedPrice;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * Rolls every feed tick into 1s, 1m, 5m and 1h OHLCV bars as it happens, so
+ * serving a chart is a copy out of a ring buffer rather than a scan of ticks.
+ * <p>
+ * The feed thread holds the write lock for a whole publish interval of ticks.
+ * Readers copy optimistically and only fall back to the read lock if an
+ * interval was applied while they were copying.
+ */
+@Component
+@Slf4j
+public class BarAggregator implements TickListener {
+
+    private final SyntheticFeed syntheticFeed;
+    private final BarRing[] rings = new BarRing[BarInterval.values().length];
+    private final StampedLock lock = new StampedLock();
+    private long writeStamp;
+
+    public BarAggregator(SyntheticFeed syntheticFeed,
+                         @Value("${market.bars.capacity-1s:60}") int secondBars,
+                         @Value("${market.bars.capacity-1m:360}") int minuteBars,
+                         @Value("${market.bars.capacity-5m:144}") int fiveMinuteBars,
+                         @Value("${market.bars.capacity-1h:60}") int hourBars) {
+        this.syntheticFeed = syntheticFeed;
+        int symbols = syntheticFeed.size();
+        rings[BarInterval.ONE_SECOND.ordinal()] = new BarRing(BarInterval.ONE_SECOND, symbols, secondBars);
+        rings[BarInterval.ONE_MINUTE.ordinal()] = new BarRing(BarInterval.ONE_MINUTE, symbols, minuteBars);
+        rings[BarInterval.FIVE_MINUTES.ordinal()] = new BarRing(BarInterval.FIVE_MINUTES, symbols, fiveMinuteBars);
+        rings[BarInterval.ONE_HOUR.ordinal()] = new BarRing(BarInterval.ONE_HOUR, symbols, hourBars);
+        syntheticFeed.addTickListener(this);
+        log.info("Bar aggregation for {} symbols: {} x 1s, {} x 1m, {} x 5m, {} x 1h",
+            symbols, secondBars, minuteBars, fiveMinuteBars, hourBars);
+    }
+
+    @Override
+    public void beginTicks() {
+        writeStamp = lock.writeLock();
+    }
+
+    @Override
+    public void onTick(int symbolIndex, long price, long volume, long timestamp) {
+        for (int i = 0; i < rings.length; i++) {
+            rings[i].add(symbolIndex, price, volume, timestamp);
+        }
+    }
+
+    @Override
+    public void endTicks() {
+        lock.unlockWrite(writeStamp);
+    }
+
+    /**
+     * The symbol's latest {@code limit} bars for {@code interval}, oldest
+     * first, or empty if the symbol isn't in the feed. The last bar is the
+     * one still being built.
+     */
+    public Optional<List<Bar>> bars(String symbol, BarInterval interval, int limit) {
+        int index = syntheticFeed.indexOf(symbol.toUpperCase());
+        if (index < 0) {
+            return Optional.empty();
+        }
+        BarRing ring = rings[interval.ordinal()];
+        long[] copied = new long[Math.min(limit, ring.capacity()) * BarRing.FIELDS];
+
+        long stamp = lock.tryOptimisticRead();
+        int count = ring.copy(index, limit, copied);
+        if (!lock.validate(stamp)) {
+            stamp = lock.readLock();
+            try {
+                count = ring.copy(index, limit, copied);
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+
+        List<Bar> bars = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            int at = i * BarRing.FIELDS;
+            bars.add(Bar.builder()
+                .time(Instant.ofEpochMilli(copied[at + BarRing.START]))
+                .open(FixedPrice.toBigDecimal(copied[at + BarRing.OPEN]))
+                .high(FixedPrice.toBigDecimal(copied[at + BarRing.HIGH]))
+                .low(FixedPrice.toBigDecimal(copied[at + BarRing.LOW]))
+                .close(FixedPrice.toBigDecimal(copied[at + BarRing.CLOSE]))
+                .volume(copied[at + BarRing.VOLUME])
+                .build());
+        }
+        return Optional.of(bars);
+    }
+}
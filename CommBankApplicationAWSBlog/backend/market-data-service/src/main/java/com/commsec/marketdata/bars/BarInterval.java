@@ -0,0 +1,41 @@
+package com.commsec.marketdata.bars;
+
+import java.util.Optional;
+
+public enum BarInterval {
+
+    ONE_SECOND("1s", 1_000L),
+    ONE_MINUTE("1m", 60_000L),
+    FIVE_MINUTES("5m", 300_000L),
+    ONE_HOUR("1h", 3_600_000L);
+
+    private final String code;
+    private final long millis;
+
+    BarInterval(String code, long millis) {
+        this.code = code;
+        this.millis = millis;
+    }
+
+    public String code() {
+        return code;
+    }
+
+    public long millis() {
+        return millis;
+    }
+
+    /** Start of the bar containing {@code timestamp}; bars are aligned to the epoch. */
+    public long barStart(long timestamp) {
+        return timestamp - Math.floorMod(timestamp, millis);
+    }
+
+    public static Optional<BarInterval> fromCode(String code) {
+        for (BarInterval interval : values()) {
+            if (interval.code.equalsIgnoreCase(code)) {
+                return Optional.of(interval);
+            }
+        }
+        return Optional.empty();
+    }
+}
@@ -0,0 +1,83 @@
+package com.commsec.marketdata.bars;
+
+/**
+ * The most recent {@code capacity} bars of one interval for every symbol, in
+ * one flat array of {@link #FIELDS} longs per bar so a tick touches a single
+ * cache line. Symbol {@code s} owns bar slots
+ * {@code [s * capacity, (s + 1) * capacity)} and writes them as a ring:
+ * {@code head[s]} is the slot of the bar currently being built, and the
+ * oldest bar is overwritten once the ring is full.
+ * <p>
+ * Not thread-safe; {@link BarAggregator} guards it.
+ */
+final class BarRing {
+
+    static final int START = 0;
+    static final int OPEN = 1;
+    static final int HIGH = 2;
+    static final int LOW = 3;
+    static final int CLOSE = 4;
+    static final int VOLUME = 5;
+    static final int FIELDS = 6;
+
+    private final BarInterval interval;
+    private final int capacity;
+    private final long[] bars;
+    private final int[] head;
+    private final int[] count;
+    /** End of each symbol's current bar, so most ticks skip the bar-start arithmetic. */
+    private final long[] currentEnd;
+
+    BarRing(BarInterval interval, int symbols, int capacity) {
+        this.interval = interval;
+        this.capacity = capacity;
+        this.bars = new long[symbols * capacity * FIELDS];
+        this.head = new int[symbols];
+        this.count = new int[symbols];
+        this.currentEnd = new long[symbols];
+    }
+
+    void add(int symbol, long price, long tradedVolume, long timestamp) {
+        int at = (symbol * capacity + head[symbol]) * FIELDS;
+        if (count[symbol] > 0 && timestamp < currentEnd[symbol]) {
+            bars[at + HIGH] = Math.max(bars[at + HIGH], price);
+            bars[at + LOW] = Math.min(bars[at + LOW], price);
+            bars[at + CLOSE] = price;
+            bars[at + VOLUME] += tradedVolume;
+            return;
+        }
+        if (count[symbol] > 0) {
+            head[symbol] = (head[symbol] + 1) % capacity;
+            at = (symbol * capacity + head[symbol]) * FIELDS;
+        }
+        count[symbol] = Math.min(count[symbol] + 1, capacity);
+        long barStart = interval.barStart(timestamp);
+        currentEnd[symbol] = barStart + interval.millis();
+        bars[at + START] = barStart;
+        bars[at + OPEN] = price;
+        bars[at + HIGH] = price;
+        bars[at + LOW] = price;
+        bars[at + CLOSE] = price;
+        bars[at + VOLUME] = tradedVolume;
+    }
+
+    /**
+     * Copies up to {@code limit} of the symbol's latest bars, oldest first,
+     * into {@code into} as {@link #FIELDS} longs per bar. Returns the number
+     * of bars copied.
+     */
+    int copy(int symbol, int limit, long[] into) {
+        int n = Math.min(Math.min(limit, count[symbol]), into.length / FIELDS);
+        int base = symbol * capacity;
+        int first = head[symbol] - n + 1;
+        for (int i = 0; i < n; i++) {
+            int slot = base + Math.floorMod(first + i, capacity);
+            System.arraycopy(bars, slot * FIELDS, into, i * FIELDS, FIELDS);
+        }
+        return n;
+    }
+
+    int capacity() {
+        return capacity;
+    }
+}
@@ -0,0 +1,23 @@
+package com.commsec.marketdata.config;
+
+import com.commsec.marketdata.stream.QuoteStreamHandler;
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.socket.config.annotation.EnableWebSocket;
+import org.springframework.web.socket.config.annotation.WebSocketConfigurer;
+import org.springframework.web.socket.config.annotation.WebSocketHandlerRegistry;
+
+@Configuration
+@EnableWebSocket
+@RequiredArgsConstructor
+public class QuoteStreamConfig implements WebSocketConfigurer {
+
+    private final QuoteStreamHandler quoteStreamHandler;
+
+    @Override
+    public void registerWebSocketHandlers(WebSocketHandlerRegistry registry) {
+        // Plain WebSocket quote stream; format negotiated by subprotocol (binary or JSON)
+        registry.addHandler(quoteStreamHandler, "/ws/quotes")
+            .setAllowedOrigins("*");
+    }
+}
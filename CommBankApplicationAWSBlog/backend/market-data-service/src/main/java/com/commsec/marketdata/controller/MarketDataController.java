@@ -1,13 +1,21 @@
 package com.commsec.marketdata.controller;
 
-import com.commsec.marketdata.model.StockQuote;
+import com.commsec.marketdata.bars.BarAggregator;
+import com.commsec.marketdata.bars.BarInterval;
+import com.commsec.marketdata.model.Bar;
+import com.commsec.marketdata.model.Tick;
 import com.commsec.marketdata.service.MarketDataService;
+import com.commsec.marketdata.ticks.TickStore;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.time.Instant;
 import java.util.List;
 
 @RestController
@@ -16,27 +24,87 @@ import java.util.List;
 @Tag(name = "Market Data", description = "Stock quotes and market data endpoints")
 public class MarketDataController {
 
+    private static final String FEED_EPOCH = "X-Feed-Epoch";
+    private static final String FEED_SEQUENCE = "X-Feed-Sequence";
+    private static final String FEED_RESET = "X-Feed-Reset";
+
     private final MarketDataService marketDataService;
+    private final BarAggregator barAggregator;
+    private final TickStore tickStore;
+
+    @GetMapping({"/quotes", "/quotes/snapshot"})
+    @Operation(summary = "Get all available stock quotes, with the feed position they are current to")
+    public ResponseEntity<byte[]> getAllQuotes(
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
+        return feedResponse(marketDataService.getSnapshotJson(), acceptEncoding);
+    }
 
-    @GetMapping("/quotes")
-    @Operation(summary = "Get all available stock quotes")
-    public ResponseEntity<List<StockQuote>> getAllQuotes() {
-        return ResponseEntity.ok(marketDataService.getAllQuotes());
+    @GetMapping("/quotes/delta")
+    @Operation(summary = "Get quotes published since a feed sequence, or a full snapshot if it is from another feed epoch")
+    public ResponseEntity<byte[]> getQuotesSince(
+            @RequestParam long since,
+            @RequestParam(required = false) Long epoch,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
+        if (since < 0) {
+            return ResponseEntity.badRequest().build();
+        }
+        return feedResponse(marketDataService.getDeltaJson(since, epoch), acceptEncoding);
     }
 
     @GetMapping("/quotes/{symbol}")
     @Operation(summary = "Get quote for a specific symbol")
-    public ResponseEntity<StockQuote> getQuote(@PathVariable String symbol) {
-        StockQuote quote = marketDataService.getQuote(symbol);
+    public ResponseEntity<byte[]> getQuote(@PathVariable String symbol) {
+        byte[] quote = marketDataService.getQuoteJson(symbol);
         if (quote == null) {
             return ResponseEntity.notFound().build();
         }
-        return ResponseEntity.ok(quote);
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(quote);
     }
 
     @GetMapping("/quotes/batch")
     @Operation(summary = "Get quotes for multiple symbols")
-    public ResponseEntity<List<StockQuote>> getQuotes(@RequestParam List<String> symbols) {
-        return ResponseEntity.ok(marketDataService.getQuotes(symbols));
+    public ResponseEntity<byte[]> getQuotes(@RequestParam List<String> symbols) {
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(marketDataService.getQuotesJson(symbols));
+    }
+
+    @GetMapping("/quotes/{symbol}/bars")
+    @Operation(summary = "Get recent OHLCV bars for a symbol (interval 1s, 1m, 5m or 1h)")
+    public ResponseEntity<List<Bar>> getBars(@PathVariable String symbol,
+                                             @RequestParam(defaultValue = "1m") String interval,
+                                             @RequestParam(defaultValue = "100") int limit) {
+        BarInterval barInterval = BarInterval.fromCode(interval).orElse(null);
+        if (barInterval == null || limit < 1) {
+            return ResponseEntity.badRequest().build();
+        }
+        return barAggregator.bars(symbol, barInterval, limit)
+            .map(ResponseEntity::ok)
+            .orElseGet(() -> ResponseEntity.notFound().build());
+    }
+
+    @GetMapping("/quotes/{symbol}/ticks")
+    @Operation(summary = "Get recorded ticks for a symbol between two instants")
+    public ResponseEntity<List<Tick>> getTicks(@PathVariable String symbol,
+                                               @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant from,
+                                               @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant to,
+                                               @RequestParam(defaultValue = "1000") int limit) {
+        if (!from.isBefore(to) || limit < 1 || limit > 10_000) {
+            return ResponseEntity.badRequest().build();
+        }
+        return tickStore.ticks(symbol, from, to, limit)
+            .map(ResponseEntity::ok)
+            .orElseGet(() -> ResponseEntity.notFound().build());
+    }
+
+    private static ResponseEntity<byte[]> feedResponse(MarketDataService.FeedQuotes quotes, String acceptEncoding) {
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+            .contentType(MediaType.APPLICATION_JSON)
+            .header(FEED_EPOCH, Long.toString(quotes.epoch()))
+            .header(FEED_SEQUENCE, Long.toString(quotes.sequence()))
+            .header(FEED_RESET, Boolean.toString(quotes.reset()))
+            .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        if (quotes.gzip() != null && acceptEncoding != null && acceptEncoding.contains("gzip")) {
+            return response.header(HttpHeaders.CONTENT_ENCODING, "gzip").body(quotes.gzip());
+        }
+        return response.body(quotes.json());
     }
 }
@@ -0,0 +1,49 @@
+package com.commsec.marketdata.controller;
+
+import com.commsec.marketdata.model.SymbolInfo;
+import com.commsec.marketdata.symbols.SymbolMaster;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/v1/market/symbols")
+@RequiredArgsConstructor
+@Tag(name = "Symbols", description = "Symbol reference data and search")
+public class SymbolController {
+
+    private static final int MAX_SEARCH_RESULTS = 50;
+
+    private final SymbolMaster symbolMaster;
+
+    @GetMapping
+    @Operation(summary = "Get reference data for every symbol")
+    public ResponseEntity<List<SymbolInfo>> getSymbols() {
+        return ResponseEntity.ok(symbolMaster.all());
+    }
+
+    @GetMapping("/search")
+    @Operation(summary = "Search symbols by code or company name prefix, for typeahead")
+    public ResponseEntity<List<SymbolInfo>> search(
+            @RequestParam String q,
+            @Parameter(description = "Most matches to return, at most 50")
+            @RequestParam(defaultValue = "10") int limit) {
+        if (limit < 1 || limit > MAX_SEARCH_RESULTS) {
+            return ResponseEntity.badRequest().build();
+        }
+        return ResponseEntity.ok(symbolMaster.search(q, limit));
+    }
+
+    @GetMapping("/{code}")
+    @Operation(summary = "Get reference data for a symbol")
+    public ResponseEntity<SymbolInfo> getSymbol(@PathVariable String code) {
+        return symbolMaster.get(code)
+            .map(ResponseEntity::ok)
+            .orElseGet(() -> ResponseEntity.notFound().build());
+    }
+}
@@ -0,0 +1,8 @@
+package com.commsec.marketdata.feed;
+
+/**
+ * One line of the feed universe file. {@code ticksPerSecond} is 0 when the
+ * line does not set it, meaning the configured default applies.
+ */
+public record SymbolDefinition(String symbol, String name, double basePrice, int ticksPerSecond) {
+}
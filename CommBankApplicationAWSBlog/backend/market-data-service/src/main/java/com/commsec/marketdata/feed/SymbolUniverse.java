@@ -0,0 +1,71 @@
+package com.commsec.marketdata.feed;
+
+import org.springframework.core.io.Resource;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Reads the feed universe: one {@code symbol,name,basePrice[,ticksPerSecond]}
+ * line per symbol. Blank lines and lines starting with {@code #} are ignored.
+ */
+public final class SymbolUniverse {
+
+    private SymbolUniverse() {
+    }
+
+    public static List<SymbolDefinition> load(Resource resource) {
+        List<SymbolDefinition> symbols = new ArrayList<>();
+        Set<String> seen = new HashSet<>();
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(resource.getInputStream(), StandardCharsets.UTF_8))) {
+            String line;
+            int lineNumber = 0;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                line = line.strip();
+                if (line.isEmpty() || line.startsWith("#")) {
+                    continue;
+                }
+                SymbolDefinition definition = parse(line, lineNumber, resource);
+                if (!seen.add(definition.symbol())) {
+                    throw new IllegalStateException(
+                        "Duplicate symbol " + definition.symbol() + " at " + resource.getDescription() + ":" + lineNumber);
+                }
+                symbols.add(definition);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read symbol universe " + resource.getDescription(), e);
+        }
+        if (symbols.isEmpty()) {
+            throw new IllegalStateException("Symbol universe " + resource.getDescription() + " is empty");
+        }
+        return symbols;
+    }
+
+    private static SymbolDefinition parse(String line, int lineNumber, Resource resource) {
+        String[] fields = line.split(",");
+        if (fields.length < 3 || fields.length > 4) {
+            throw new IllegalStateException(
+                "Expected symbol,name,basePrice[,ticksPerSecond] at " + resource.getDescription() + ":" + lineNumber);
+        }
+        try {
+            double basePrice = Double.parseDouble(fields[2].strip());
+            int ticksPerSecond = fields.length == 4 ? Integer.parseInt(fields[3].strip()) : 0;
+            if (basePrice <= 0 || ticksPerSecond < 0) {
+                throw new NumberFormatException("must be positive");
+            }
+            return new SymbolDefinition(fields[0].strip().toUpperCase(), fields[1].strip(), basePrice, ticksPerSecond);
+        } catch (NumberFormatException e) {
+            throw new IllegalStateException(
+                "Invalid number at " + resource.getDescription() + ":" + lineNumber + ": " + e.getMessage(), e);
+        }
+    }
+}
@@ -0,0 +1,190 @@
+package com.commsec.marketdata.feed;
+
+import com.commsec.marketdata.model.FixedPrice;
+import com.commsec.marketdata.model.QuoteState;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.Resource;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+/**
+ * Synthetic market feed for load testing: a seeded random walk over a symbol
+ * universe loaded from a file.
+ * <p>
+ * Walk state is held in primitive arrays indexed by symbol position, and each
+ * symbol ticks at its own rate. Time is simulated: every {@link #advance} call
+ * moves the feed on by exactly one publish interval regardless of wall-clock
+ * jitter, so the same seed and universe always produce the same price path.
+ * <p>
+ * Only the publishing thread calls {@link #advance}; readers see the results
+ * through the {@link QuoteState}s. Each trade is also passed to the registered
+ * {@link TickListener}s, timestamped evenly across the interval.
+ */
+@Component
+@Slf4j
+public class SyntheticFeed {
+
+    /** Fraction of the gap back to the base price closed on each tick, so prices wander but don't drift away. */
+    private static final double REVERSION = 0.0005;
+
+    private final QuoteState[] quotes;
+    private final Map<String, Integer> indexBySymbol = new HashMap<>();
+    private final double[] fairPrice;
+    private final double[] basePrice;
+    private final int[] ticksPerSecond;
+    private final long[] tickCredit;
+    private final long intervalMs;
+    private final double maxStep;
+    private final SplittableRandom random;
+    private volatile TickListener[] listeners = new TickListener[0];
+    private final Counter ticks;
+
+    public SyntheticFeed(@Value("${market.feed.symbols:classpath:symbols/asx-universe.csv}") Resource symbols,
+                         @Value("${market.feed.seed:42}") long seed,
+                         @Value("${market.feed.ticks-per-second:200}") int defaultTicksPerSecond,
+                         @Value("${market.feed.tick-step-bps:2}") int tickStepBps,
+                         @Value("${market.feed.publish-interval-ms:250}") long intervalMs,
+                         MeterRegistry meterRegistry) {
+        List<SymbolDefinition> universe = SymbolUniverse.load(symbols);
+        int size = universe.size();
+        this.quotes = new QuoteState[size];
+        this.fairPrice = new double[size];
+        this.basePrice = new double[size];
+        this.ticksPerSecond = new int[size];
+        this.tickCredit = new long[size];
+        this.intervalMs = intervalMs;
+        this.maxStep = tickStepBps / 10_000.0;
+        this.random = new SplittableRandom(seed);
+
+        long now = System.currentTimeMillis();
+        for (int i = 0; i < size; i++) {
+            SymbolDefinition definition = universe.get(i);
+            basePrice[i] = definition.basePrice();
+            fairPrice[i] = definition.basePrice();
+            ticksPerSecond[i] = definition.ticksPerSecond() > 0 ? definition.ticksPerSecond() : defaultTicksPerSecond;
+            quotes[i] = openingQuote(definition, now);
+            indexBySymbol.put(definition.symbol(), i);
+        }
+
+        this.ticks = Counter.builder("market.feed.ticks")
+            .description("Synthetic trades generated by the feed")
+            .register(meterRegistry);
+
+        log.info("Synthetic feed loaded {} symbols from {} (seed {}, default {} ticks/s)",
+            size, symbols.getDescription(), seed, defaultTicksPerSecond);
+    }
+
+    public List<QuoteState> quotes() {
+        return Arrays.asList(quotes);
+    }
+
+    public int size() {
+        return quotes.length;
+    }
+
+    /** Position of {@code symbol} in {@link #quotes()}, or -1 if it isn't in the universe. */
+    public int indexOf(String symbol) {
+        return indexBySymbol.getOrDefault(symbol, -1);
+    }
+
+    public synchronized void addTickListener(TickListener listener) {
+        TickListener[] added = Arrays.copyOf(listeners, listeners.length + 1);
+        added[listeners.length] = listener;
+        listeners = added;
+    }
+
+    /**
+     * Runs one publish interval of ticks for every symbol and returns the
+     * quotes that traded, stamped with {@code now}.
+     */
+    public List<QuoteState> advance(long now) {
+        List<QuoteState> updated = new ArrayList<>();
+        long generated = 0;
+        long intervalStart = now - intervalMs;
+        TickListener[] listeners = this.listeners;
+        int begun = 0;
+        try {
+            for (TickListener listener : listeners) {
+                listener.beginTicks();
+                begun++;
+            }
+            for (int i = 0; i < quotes.length; i++) {
+                // Credit is in tick-milliseconds, so fractional ticks carry over to the next interval
+                long credit = tickCredit[i] + ticksPerSecond[i] * intervalMs;
+                int due = (int) (credit / 1000);
+                tickCredit[i] = credit % 1000;
+                if (due == 0) {
+                    continue;
+                }
+
+                double fair = fairPrice[i];
+                long high = Long.MIN_VALUE;
+                long low = Long.MAX_VALUE;
+                long price = 0;
+                long tradedVolume = 0;
+                for (int t = 0; t < due; t++) {
+                    fair += fair * maxStep * (2 * random.nextDouble() - 1) + (basePrice[i] - fair) * REVERSION;
+                    price = roundToTick(FixedPrice.of(fair));
+                    high = Math.max(high, price);
+                    low = Math.min(low, price);
+                    long volume = 100L * random.nextInt(1, 51);
+                    tradedVolume += volume;
+                    if (listeners.length > 0) {
+                        long timestamp = intervalStart + (t + 1) * intervalMs / due;
+                        for (TickListener listener : listeners) {
+                            listener.onTick(i, price, volume, timestamp);
+                        }
+                    }
+                }
+                fairPrice[i] = fair;
+                quotes[i].update(price, high, low, tradedVolume, now);
+                updated.add(quotes[i]);
+                generated += due;
+            }
+        } finally {
+            // Ended even if a listener threw, so none is left holding what it took in beginTicks
+            for (int l = 0; l < begun; l++) {
+                listeners[l].endTicks();
+            }
+        }
+        ticks.increment(generated);
+        return updated;
+    }
+
+    private QuoteState openingQuote(SymbolDefinition definition, long now) {
+        long price = roundToTick(FixedPrice.of(definition.basePrice()));
+        long change = roundToTick(FixedPrice.percentOf(price, random.nextDouble(-3.0, 3.0)));
+        long open = roundToTick(price - FixedPrice.percentOf(price, random.nextDouble(-1.0, 1.0)));
+
+        return new QuoteState(
+            definition.symbol(),
+            definition.name(),
+            price,
+            open,
+            Math.max(price, open),
+            Math.min(price, open),
+            price - change,
+            0,
+            price * random.nextLong(10_000_000, 2_000_000_000L) / FixedPrice.ONE,
+            now
+        );
+    }
+
+    /**
+     * Rounds to the ASX price step: 0.1c below 10c, 0.5c below $2, 1c above,
+     * and never below the smallest step.
+     */
+    static long roundToTick(long price) {
+        long step = price < 1_000 ? 10 : price < 20_000 ? 50 : 100;
+        return Math.max(step, Math.round((double) price / step) * step);
+    }
+}
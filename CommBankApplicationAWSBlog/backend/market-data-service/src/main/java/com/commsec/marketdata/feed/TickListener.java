@@ -0,0 +1,19 @@
+package com.commsec.marketdata.feed;
+
+/**
+ * Receives every synthetic trade, in time order per symbol. Calls come from
+ * the single publishing thread, bracketed by {@link #beginTicks} and
+ * {@link #endTicks} once per publish interval; {@code endTicks} is called
+ * even if a listener throws part way through. {@code symbolIndex} is the
+ * symbol's position in {@link SyntheticFeed#quotes()}.
+ */
+public interface TickListener {
+
+    default void beginTicks() {
+    }
+
+    void onTick(int symbolIndex, long price, long volume, long timestamp);
+
+    default void endTicks() {
+    }
+}
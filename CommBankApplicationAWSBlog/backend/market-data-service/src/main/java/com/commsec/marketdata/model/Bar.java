@@ -0,0 +1,18 @@
+package com.commsec.marketdata.model;
+
+import lombok.*;
+import java.math.BigDecimal;
+import java.time.Instant;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class Bar {
+    private Instant time;
+    private BigDecimal open;
+    private BigDecimal high;
+    private BigDecimal low;
+    private BigDecimal close;
+    private Long volume;
+}
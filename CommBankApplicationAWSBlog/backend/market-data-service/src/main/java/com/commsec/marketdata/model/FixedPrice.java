@@ -0,0 +1,46 @@
+package com.commsec.marketdata.model;
+
+import java.math.BigDecimal;
+
+/**
+ * Fixed-point arithmetic on prices held as scaled longs (4 decimal places).
+ * Static methods over primitives rather than a value class, so the quote hot
+ * path allocates nothing; BigDecimal only appears when a quote is rendered.
+ */
+public final class FixedPrice {
+
+    public static final int SCALE = 4;
+    public static final long ONE = 10_000L;
+
+    /** Percentages are carried in basis points, i.e. with 2 decimal places. */
+    public static final int PERCENT_SCALE = 2;
+
+    private FixedPrice() {
+    }
+
+    public static long of(double price) {
+        return Math.round(price * ONE);
+    }
+
+    public static BigDecimal toBigDecimal(long price) {
+        return BigDecimal.valueOf(price, SCALE);
+    }
+
+    /**
+     * {@code price * percent / 100}, rounded half up to the price scale.
+     */
+    public static long percentOf(long price, double percent) {
+        return Math.round(price * percent / 100);
+    }
+
+    /**
+     * {@code change / base} as a percentage in basis points, rounded half up.
+     */
+    public static long percentChange(long change, long base) {
+        return Math.round(change * 10_000.0 / base);
+    }
+
+    public static BigDecimal percentToBigDecimal(long basisPoints) {
+        return BigDecimal.valueOf(basisPoints, PERCENT_SCALE);
+    }
+}
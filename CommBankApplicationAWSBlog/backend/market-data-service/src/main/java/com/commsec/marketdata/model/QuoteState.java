@@ -0,0 +1,125 @@
+package com.commsec.marketdata.model;
+
+import java.time.Instant;
+
+/**
+ * Mutable live state of one symbol's quote, held as primitives and updated in
+ * place on every tick. {@link StockQuote} is only built from it when a quote is
+ * published or requested.
+ */
+public final class QuoteState {
+
+    private final String symbol;
+    private final String companyName;
+    private final long open;
+    private final long previousClose;
+    private final long marketCap;
+    private long lastPrice;
+    private long high;
+    private long low;
+    private long volume;
+    private long timestamp;
+    private long version;
+    private long sequence;
+    private long feedSequence;
+
+    public QuoteState(String symbol, String companyName, long lastPrice, long open, long high, long low,
+                      long previousClose, long volume, long marketCap, long timestamp) {
+        this.symbol = symbol;
+        this.companyName = companyName;
+        this.lastPrice = lastPrice;
+        this.open = open;
+        this.high = high;
+        this.low = low;
+        this.previousClose = previousClose;
+        this.volume = volume;
+        this.marketCap = marketCap;
+        this.timestamp = timestamp;
+    }
+
+    /**
+     * Applies a trade at {@code price} for {@code tradedVolume} shares.
+     */
+    public synchronized void update(long price, long tradedVolume, long timestamp) {
+        update(price, price, price, tradedVolume, timestamp);
+    }
+
+    /**
+     * Applies a run of trades ending at {@code price}, whose highest and
+     * lowest prices were {@code tradedHigh} and {@code tradedLow}.
+     */
+    public synchronized void update(long price, long tradedHigh, long tradedLow, long tradedVolume, long timestamp) {
+        this.lastPrice = price;
+        this.high = Math.max(high, tradedHigh);
+        this.low = Math.min(low, tradedLow);
+        this.volume += tradedVolume;
+        this.timestamp = timestamp;
+        this.version++;
+    }
+
+    /**
+     * Copies the quote's fields into {@code into} in the order lastPrice, open,
+     * high, low, previousClose, volume, marketCap, timestamp (epoch millis).
+     */
+    public synchronized void copyTo(long[] into) {
+        into[0] = lastPrice;
+        into[1] = open;
+        into[2] = high;
+        into[3] = low;
+        into[4] = previousClose;
+        into[5] = volume;
+        into[6] = marketCap;
+        into[7] = timestamp;
+    }
+
+    public synchronized long lastPrice() {
+        return lastPrice;
+    }
+
+    /**
+     * Stamps the quote as published in feed cycle {@code feedSequence}. The
+     * quote's own sequence advances by exactly one per publish, so a client
+     * that sees it jump knows it missed an update.
+     */
+    public synchronized void published(long feedSequence) {
+        this.sequence++;
+        this.feedSequence = feedSequence;
+        this.version++;
+    }
+
+    /** Feed cycle in which the quote was last published; 0 if never. */
+    public synchronized long feedSequence() {
+        return feedSequence;
+    }
+
+    /**
+     * Number of changes applied so far; a quote with the same version has the
+     * same content.
+     */
+    public synchronized long version() {
+        return version;
+    }
+
+    public String symbol() {
+        return symbol;
+    }
+
+    public synchronized StockQuote toStockQuote() {
+        long change = lastPrice - previousClose;
+        return StockQuote.builder()
+            .symbol(symbol)
+            .companyName(companyName)
+            .lastPrice(FixedPrice.toBigDecimal(lastPrice))
+            .change(FixedPrice.toBigDecimal(change))
+            .changePercent(FixedPrice.percentToBigDecimal(FixedPrice.percentChange(change, previousClose)))
+            .open(FixedPrice.toBigDecimal(open))
+            .high(FixedPrice.toBigDecimal(high))
+            .low(FixedPrice.toBigDecimal(low))
+            .previousClose(FixedPrice.toBigDecimal(previousClose))
+            .volume(volume)
+            .marketCap(marketCap)
+            .timestamp(Instant.ofEpochMilli(timestamp))
+            .sequence(sequence)
+            .build();
+    }
+}
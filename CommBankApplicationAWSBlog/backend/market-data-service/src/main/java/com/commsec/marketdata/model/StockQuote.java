@@ -21,4 +21,8 @@ public class StockQuote {
     private Long volume;
     private Long marketCap;
     private Instant timestamp;
+    /**
+     * Per-symbol publish sequence; consecutive for consecutive publishes.
+     */
+    private Long sequence;
 }
@@ -0,0 +1,16 @@
+package com.commsec.marketdata.model;
+
+import lombok.*;
+import java.math.BigDecimal;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class SymbolInfo {
+    private String code;
+    private String name;
+    private String sector;
+    private int lotSize;
+    private BigDecimal tickSize;
+}
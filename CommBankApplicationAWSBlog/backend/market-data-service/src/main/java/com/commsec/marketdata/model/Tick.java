@@ -0,0 +1,15 @@
+package com.commsec.marketdata.model;
+
+import lombok.*;
+import java.math.BigDecimal;
+import java.time.Instant;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class Tick {
+    private Instant time;
+    private BigDecimal price;
+    private Long volume;
+}
@@ -1,141 +1,152 @@
 package com.commsec.marketdata.service;
 
-import com.commsec.marketdata.model.StockQuote;
+import com.commsec.marketdata.feed.SyntheticFeed;
+import com.commsec.marketdata.model.QuoteState;
+import com.commsec.marketdata.stream.QuoteStreamHandler;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
 import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.messaging.support.MessageBuilder;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
+import org.springframework.util.MimeTypeUtils;
 
-import java.math.BigDecimal;
-import java.math.RoundingMode;
-import java.time.Instant;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ThreadLocalRandom;
-
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Owns the live quotes and publishes them every interval.
+ * <p>
+ * Each publish is one feed cycle with its own sequence number, and every
+ * quote in it has its per-symbol sequence advanced. Feed sequences restart
+ * when the service does, so they are paired with a feed epoch (the start
+ * time); a client presenting another epoch's sequence gets a full snapshot.
+ * <p>
+ * The {@code /topic/quotes} broadcast of a cycle is split into frames of at
+ * most {@code market.feed.broadcast-batch-size} quotes, all carrying the
+ * cycle's sequence. With the whole universe moving every cycle one frame
+ * would be hundreds of KB, past the default STOMP client and send-buffer
+ * limits.
+ */
 @Service
 @Slf4j
 public class MarketDataService {
 
-    private final SimpMessagingTemplate messagingTemplate;
-    private final Map<String, StockQuote> stockCache = new ConcurrentHashMap<>();
+    /** Quotes as of feed cycle {@code sequence}; {@code reset} when this is a full snapshot. */
+    public record FeedQuotes(long epoch, long sequence, boolean reset, byte[] json, byte[] gzip) {
+    }
 
-    private static final List<Map<String, Object>> ASX_STOCKS = List.of(
-        Map.of("symbol", "CBA", "name", "Commonwealth Bank of Australia", "basePrice", 134.28),
-        Map.of("symbol", "BHP", "name", "BHP Group Ltd", "basePrice", 45.67),
-        Map.of("symbol", "CSL", "name", "CSL Limited", "basePrice", 289.45),
-        Map.of("symbol", "WBC", "name", "Westpac Banking Corporation", "basePrice", 28.94),
-        Map.of("symbol", "NAB", "name", "National Australia Bank", "basePrice", 35.12),
-        Map.of("symbol", "ANZ", "name", "ANZ Group Holdings Ltd", "basePrice", 29.45),
-        Map.of("symbol", "WES", "name", "Wesfarmers Ltd", "basePrice", 73.82),
-        Map.of("symbol", "MQG", "name", "Macquarie Group Ltd", "basePrice", 198.50),
-        Map.of("symbol", "RIO", "name", "Rio Tinto Ltd", "basePrice", 118.45),
-        Map.of("symbol", "TLS", "name", "Telstra Group Ltd", "basePrice", 3.92)
-    );
+    public static final String EPOCH_HEADER = "feed-epoch";
+    public static final String SEQUENCE_HEADER = "feed-sequence";
 
-    public MarketDataService(SimpMessagingTemplate messagingTemplate) {
+    private final SimpMessagingTemplate messagingTemplate;
+    private final QuoteFanout quoteFanout;
+    private final QuoteStreamHandler quoteStreamHandler;
+    private final SyntheticFeed syntheticFeed;
+    private final QuoteSnapshotCache quoteCache;
+    private final Map<String, QuoteState> stockCache = new ConcurrentHashMap<>();
+    private final long feedEpoch = System.currentTimeMillis();
+    private final AtomicLong feedSequence = new AtomicLong();
+    private final int broadcastBatchSize;
+
+    public MarketDataService(SimpMessagingTemplate messagingTemplate,
+                             QuoteFanout quoteFanout,
+                             QuoteStreamHandler quoteStreamHandler,
+                             SyntheticFeed syntheticFeed,
+                             QuoteSnapshotCache quoteCache,
+                             @Value("${market.feed.broadcast-batch-size:100}") int broadcastBatchSize) {
         this.messagingTemplate = messagingTemplate;
-        initializeCache();
-    }
-
-    private void initializeCache() {
-        for (Map<String, Object> stock : ASX_STOCKS) {
-            String symbol = (String) stock.get("symbol");
-            double basePrice = (Double) stock.get("basePrice");
-            stockCache.put(symbol, generateQuote(symbol, (String) stock.get("name"), basePrice));
+        this.broadcastBatchSize = Math.max(1, broadcastBatchSize);
+        this.quoteFanout = quoteFanout;
+        this.quoteStreamHandler = quoteStreamHandler;
+        this.syntheticFeed = syntheticFeed;
+        this.quoteCache = quoteCache;
+        for (QuoteState quote : syntheticFeed.quotes()) {
+            stockCache.put(quote.symbol(), quote);
         }
+        quoteStreamHandler.register(syntheticFeed.quotes());
     }
 
-    @Scheduled(fixedRate = 1000)
+    @Scheduled(fixedRateString = "${market.feed.publish-interval-ms:250}")
     public void publishMarketUpdates() {
-        List<StockQuote> updates = new ArrayList<>();
-        
-        for (Map<String, Object> stock : ASX_STOCKS) {
-            if (ThreadLocalRandom.current().nextDouble() < 0.3) { // 30% chance of update
-                String symbol = (String) stock.get("symbol");
-                StockQuote currentQuote = stockCache.get(symbol);
-                StockQuote newQuote = updateQuote(currentQuote);
-                stockCache.put(symbol, newQuote);
-                updates.add(newQuote);
-            }
-        }
-        
-        if (!updates.isEmpty()) {
-            messagingTemplate.convertAndSend("/topic/quotes", updates);
-            log.debug("Published {} quote updates", updates.size());
+        List<QuoteState> updated = syntheticFeed.advance(System.currentTimeMillis());
+        if (updated.isEmpty()) {
+            return;
         }
-    }
 
-    public StockQuote getQuote(String symbol) {
-        return stockCache.get(symbol.toUpperCase());
-    }
+        long sequence = feedSequence.get() + 1;
+        for (QuoteState quote : updated) {
+            quote.published(sequence);
+        }
+        feedSequence.set(sequence);
 
-    public List<StockQuote> getAllQuotes() {
-        return new ArrayList<>(stockCache.values());
+        List<QuoteSnapshotCache.EncodedQuote> updates = new ArrayList<>(updated.size());
+        for (QuoteState quote : updated) {
+            updates.add(quoteCache.encode(quote));
+        }
+        // Broadcast kept for clients that need every symbol; per-symbol subscribers are served by the fan-out
+        for (int from = 0; from < updates.size(); from += broadcastBatchSize) {
+            List<QuoteSnapshotCache.EncodedQuote> frame =
+                updates.subList(from, Math.min(updates.size(), from + broadcastBatchSize));
+            messagingTemplate.send("/topic/quotes", jsonMessage(QuoteSnapshotCache.jsonArray(frame), sequence));
+        }
+        quoteFanout.publish(updates);
+        quoteStreamHandler.publish(updated);
+        log.debug("Published {} quote updates", updates.size());
     }
 
-    public List<StockQuote> getQuotes(List<String> symbols) {
-        return symbols.stream()
-            .map(String::toUpperCase)
-            .filter(stockCache::containsKey)
-            .map(stockCache::get)
-            .toList();
+    /** The quote's cached JSON, or null for an unknown symbol. */
+    public byte[] getQuoteJson(String symbol) {
+        QuoteState quote = stockCache.get(symbol.toUpperCase());
+        return quote != null ? quoteCache.encode(quote).json() : null;
     }
 
-    private StockQuote generateQuote(String symbol, String name, double basePrice) {
-        BigDecimal price = BigDecimal.valueOf(basePrice);
-        BigDecimal change = randomChange(price);
-        BigDecimal changePercent = change.divide(price, 4, RoundingMode.HALF_UP)
-            .multiply(BigDecimal.valueOf(100));
-
-        return StockQuote.builder()
-            .symbol(symbol)
-            .companyName(name)
-            .lastPrice(price)
-            .change(change)
-            .changePercent(changePercent)
-            .open(price.subtract(randomChange(price)))
-            .high(price.add(BigDecimal.valueOf(ThreadLocalRandom.current().nextDouble(0.5, 2.0))))
-            .low(price.subtract(BigDecimal.valueOf(ThreadLocalRandom.current().nextDouble(0.5, 2.0))))
-            .previousClose(price.subtract(change))
-            .volume(ThreadLocalRandom.current().nextLong(1_000_000, 50_000_000))
-            .marketCap(price.multiply(BigDecimal.valueOf(ThreadLocalRandom.current().nextLong(1_000_000_000, 200_000_000_000L))).longValue())
-            .timestamp(Instant.now())
-            .build();
+    /** Every quote, labelled with the feed cycle it is at least as new as. */
+    public FeedQuotes getSnapshotJson() {
+        // Read the sequence first: anything that changes after this is published with a later one
+        long sequence = feedSequence.get();
+        QuoteSnapshotCache.EncodedBody body = quoteCache.encodeAll(stockCache.values());
+        return new FeedQuotes(feedEpoch, sequence, true, body.json(), body.gzip());
     }
 
-    private StockQuote updateQuote(StockQuote current) {
-        BigDecimal priceChange = randomSmallChange(current.getLastPrice());
-        BigDecimal newPrice = current.getLastPrice().add(priceChange);
-        BigDecimal newChange = newPrice.subtract(current.getPreviousClose());
-        BigDecimal newChangePercent = newChange.divide(current.getPreviousClose(), 4, RoundingMode.HALF_UP)
-            .multiply(BigDecimal.valueOf(100));
-
-        return StockQuote.builder()
-            .symbol(current.getSymbol())
-            .companyName(current.getCompanyName())
-            .lastPrice(newPrice)
-            .change(newChange)
-            .changePercent(newChangePercent)
-            .open(current.getOpen())
-            .high(newPrice.max(current.getHigh()))
-            .low(newPrice.min(current.getLow()))
-            .previousClose(current.getPreviousClose())
-            .volume(current.getVolume() + ThreadLocalRandom.current().nextLong(10_000, 500_000))
-            .marketCap(current.getMarketCap())
-            .timestamp(Instant.now())
-            .build();
+    /**
+     * The quotes published after feed cycle {@code since} of feed
+     * {@code epoch}, or a full snapshot if that position is not from the
+     * current feed.
+     */
+    public FeedQuotes getDeltaJson(long since, Long epoch) {
+        long sequence = feedSequence.get();
+        if ((epoch != null && epoch != feedEpoch) || since > sequence) {
+            return getSnapshotJson();
+        }
+        List<QuoteSnapshotCache.EncodedQuote> changed = new ArrayList<>();
+        for (QuoteState quote : stockCache.values()) {
+            if (quote.feedSequence() > since) {
+                changed.add(quoteCache.encode(quote));
+            }
+        }
+        return new FeedQuotes(feedEpoch, sequence, false, QuoteSnapshotCache.jsonArray(changed), null);
     }
 
-    private BigDecimal randomChange(BigDecimal price) {
-        double percentChange = ThreadLocalRandom.current().nextDouble(-3.0, 3.0);
-        return price.multiply(BigDecimal.valueOf(percentChange / 100))
-            .setScale(2, RoundingMode.HALF_UP);
+    public byte[] getQuotesJson(List<String> symbols) {
+        return QuoteSnapshotCache.jsonArray(symbols.stream()
+            .map(String::toUpperCase)
+            .map(stockCache::get)
+            .filter(Objects::nonNull)
+            .map(quoteCache::encode)
+            .toList());
     }
 
-    private BigDecimal randomSmallChange(BigDecimal price) {
-        double percentChange = ThreadLocalRandom.current().nextDouble(-0.5, 0.5);
-        return price.multiply(BigDecimal.valueOf(percentChange / 100))
-            .setScale(4, RoundingMode.HALF_UP);
+    private Message<byte[]> jsonMessage(byte[] payload, long sequence) {
+        SimpMessageHeaderAccessor headers = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+        headers.setContentType(MimeTypeUtils.APPLICATION_JSON);
+        headers.setNativeHeader(EPOCH_HEADER, Long.toString(feedEpoch));
+        headers.setNativeHeader(SEQUENCE_HEADER, Long.toString(sequence));
+        headers.setLeaveMutable(true);
+        return MessageBuilder.createMessage(payload, headers.getMessageHeaders());
     }
 }
@@ -0,0 +1,243 @@
+package com.commsec.marketdata.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.context.event.EventListener;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.MessageHandler;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.support.ExecutorChannelInterceptor;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.stereotype.Service;
+import org.springframework.util.MimeTypeUtils;
+import org.springframework.web.socket.messaging.SessionDisconnectEvent;
+import org.springframework.web.socket.messaging.SessionSubscribeEvent;
+import org.springframework.web.socket.messaging.SessionUnsubscribeEvent;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Delivers quotes on the per-symbol destinations {@code /topic/quotes/{symbol}}
+ * straight to the subscribed sessions, bypassing the broadcast broker.
+ * <p>
+ * Each session has at most one batch of messages in the outbound channel at a
+ * time. Quotes published while a batch is still being written are held in a
+ * per-session queue keyed by subscription, so a newer quote replaces an older
+ * one for the same symbol. A slow client therefore never holds more than one
+ * quote per subscribed symbol.
+ * <p>
+ * Registered as an interceptor on the client outbound channel to learn when a
+ * session's batch has been handed to its socket.
+ */
+@Service
+@Slf4j
+public class QuoteFanout implements ExecutorChannelInterceptor {
+
+    public static final String DESTINATION_PREFIX = "/topic/quotes/";
+
+    private static final String CONFLATED_HEADER = "conflatedQuote";
+
+    private final MessageChannel clientOutboundChannel;
+    private final Map<String, SessionQueue> sessions = new ConcurrentHashMap<>();
+    private final Map<String, Set<Subscriber>> subscribersBySymbol = new ConcurrentHashMap<>();
+    private final DistributionSummary queueDepth;
+    private final Counter quotesConflated;
+    private final Counter quotesDelivered;
+
+    public QuoteFanout(@Lazy @Qualifier("clientOutboundChannel") MessageChannel clientOutboundChannel,
+                       MeterRegistry meterRegistry) {
+        this.clientOutboundChannel = clientOutboundChannel;
+
+        this.queueDepth = DistributionSummary.builder("market.quotes.session.queue.depth")
+            .description("Quotes waiting for a session when a new quote is queued")
+            .publishPercentiles(0.5, 0.99)
+            .register(meterRegistry);
+
+        this.quotesConflated = Counter.builder("market.quotes.conflated")
+            .description("Quotes replaced by a newer quote before reaching a slow session")
+            .register(meterRegistry);
+
+        this.quotesDelivered = Counter.builder("market.quotes.delivered")
+            .description("Quotes sent on per-symbol destinations")
+            .register(meterRegistry);
+
+        Gauge.builder("market.quotes.session.queue.depth.max", this, QuoteFanout::maxQueueDepth)
+            .description("Deepest per-session quote queue")
+            .register(meterRegistry);
+
+        Gauge.builder("market.quotes.sessions", sessions, Map::size)
+            .description("Sessions subscribed to at least one per-symbol quote destination")
+            .register(meterRegistry);
+    }
+
+    /**
+     * Queues each quote for every session subscribed to its symbol. All
+     * sessions share the quote's cached JSON bytes.
+     */
+    public void publish(List<QuoteSnapshotCache.EncodedQuote> quotes) {
+        for (QuoteSnapshotCache.EncodedQuote quote : quotes) {
+            Set<Subscriber> subscribers = subscribersBySymbol.get(quote.symbol());
+            if (subscribers == null || subscribers.isEmpty()) {
+                continue;
+            }
+            byte[] payload = quote.json();
+            for (Subscriber subscriber : subscribers) {
+                SessionQueue queue = sessions.get(subscriber.sessionId());
+                if (queue != null) {
+                    send(queue, queue.offer(subscriber, message(subscriber, payload)));
+                }
+            }
+        }
+    }
+
+    @EventListener
+    public void onSubscribe(SessionSubscribeEvent event) {
+        SimpMessageHeaderAccessor headers = SimpMessageHeaderAccessor.wrap(event.getMessage());
+        String destination = headers.getDestination();
+        if (destination == null || !destination.startsWith(DESTINATION_PREFIX)) {
+            return;
+        }
+        String symbol = destination.substring(DESTINATION_PREFIX.length()).toUpperCase();
+        Subscriber subscriber = new Subscriber(headers.getSessionId(), headers.getSubscriptionId(), destination, symbol);
+        sessions.computeIfAbsent(subscriber.sessionId(), key -> new SessionQueue()).subscribed(subscriber);
+        subscribersBySymbol.computeIfAbsent(symbol, key -> ConcurrentHashMap.newKeySet()).add(subscriber);
+    }
+
+    @EventListener
+    public void onUnsubscribe(SessionUnsubscribeEvent event) {
+        SimpMessageHeaderAccessor headers = SimpMessageHeaderAccessor.wrap(event.getMessage());
+        SessionQueue queue = sessions.get(headers.getSessionId());
+        if (queue != null) {
+            queue.unsubscribed(headers.getSubscriptionId()).ifPresent(this::removeSubscriber);
+        }
+    }
+
+    @EventListener
+    public void onDisconnect(SessionDisconnectEvent event) {
+        SessionQueue queue = sessions.remove(event.getSessionId());
+        if (queue != null) {
+            queue.subscribers().forEach(this::removeSubscriber);
+        }
+    }
+
+    @Override
+    public void afterMessageHandled(Message<?> message, MessageChannel channel, MessageHandler handler, Exception ex) {
+        if (message.getHeaders().containsKey(CONFLATED_HEADER)) {
+            SessionQueue queue = sessions.get(SimpMessageHeaderAccessor.getSessionId(message.getHeaders()));
+            if (queue != null) {
+                send(queue, queue.sent());
+            }
+        }
+    }
+
+    private void send(SessionQueue queue, List<Message<byte[]>> batch) {
+        for (Message<byte[]> message : batch) {
+            try {
+                clientOutboundChannel.send(message);
+                quotesDelivered.increment();
+            } catch (RuntimeException e) {
+                // Never reaches the handler, so release its in-flight slot here
+                log.debug("Failed to send quote to session: {}", e.getMessage());
+                send(queue, queue.sent());
+            }
+        }
+    }
+
+    private Message<byte[]> message(Subscriber subscriber, byte[] payload) {
+        SimpMessageHeaderAccessor headers = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+        headers.setSessionId(subscriber.sessionId());
+        headers.setSubscriptionId(subscriber.subscriptionId());
+        headers.setDestination(subscriber.destination());
+        headers.setContentType(MimeTypeUtils.APPLICATION_JSON);
+        headers.setHeader(CONFLATED_HEADER, Boolean.TRUE);
+        headers.setLeaveMutable(true);
+        return MessageBuilder.createMessage(payload, headers.getMessageHeaders());
+    }
+
+    private void removeSubscriber(Subscriber subscriber) {
+        Set<Subscriber> subscribers = subscribersBySymbol.get(subscriber.symbol());
+        if (subscribers != null) {
+            subscribers.remove(subscriber);
+        }
+    }
+
+    private double maxQueueDepth() {
+        int max = 0;
+        for (SessionQueue queue : sessions.values()) {
+            max = Math.max(max, queue.depth());
+        }
+        return max;
+    }
+
+    private record Subscriber(String sessionId, String subscriptionId, String destination, String symbol) {
+    }
+
+    /**
+     * Per-session conflating queue. {@code inFlight} counts messages handed to
+     * the outbound channel whose handling has not completed; new quotes are
+     * only released once it drops back to zero.
+     */
+    private final class SessionQueue {
+
+        private final Map<String, Subscriber> subscriptions = new ConcurrentHashMap<>();
+        private final Map<String, Message<byte[]>> pending = new LinkedHashMap<>();
+        private int inFlight;
+
+        void subscribed(Subscriber subscriber) {
+            subscriptions.put(subscriber.subscriptionId(), subscriber);
+        }
+
+        Optional<Subscriber> unsubscribed(String subscriptionId) {
+            Subscriber subscriber = subscriptions.remove(subscriptionId);
+            synchronized (this) {
+                pending.remove(subscriptionId);
+            }
+            return Optional.ofNullable(subscriber);
+        }
+
+        Collection<Subscriber> subscribers() {
+            return subscriptions.values();
+        }
+
+        synchronized List<Message<byte[]>> offer(Subscriber subscriber, Message<byte[]> message) {
+            if (pending.put(subscriber.subscriptionId(), message) != null) {
+                quotesConflated.increment();
+            }
+            queueDepth.record(pending.size());
+            return inFlight == 0 ? release() : List.of();
+        }
+
+        synchronized List<Message<byte[]>> sent() {
+            inFlight = Math.max(0, inFlight - 1);
+            return inFlight == 0 ? release() : List.of();
+        }
+
+        synchronized int depth() {
+            return pending.size();
+        }
+
+        private List<Message<byte[]>> release() {
+            if (pending.isEmpty()) {
+                return List.of();
+            }
+            List<Message<byte[]>> batch = new ArrayList<>(pending.values());
+            pending.clear();
+            inFlight = batch.size();
+            return batch;
+        }
+    }
+}
@@ -0,0 +1,136 @@
+package com.commsec.marketdata.service;
+
+import com.commsec.marketdata.model.QuoteState;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * JSON encoding of each quote, kept per quote version so that a quote is
+ * serialised once however many REST responses and broker messages carry it.
+ * <p>
+ * Arrays of quotes are assembled by copying the cached bytes of their
+ * elements. The array of every quote is also cached, with its gzip encoding,
+ * until any quote in it changes.
+ */
+@Component
+public class QuoteSnapshotCache {
+
+    /** A quote's JSON at one version. */
+    public record EncodedQuote(String symbol, long version, byte[] json) {
+    }
+
+    /** A JSON body and, if it is large enough to be worth compressing, its gzip encoding. */
+    public record EncodedBody(long fingerprint, byte[] json, byte[] gzip) {
+    }
+
+    private static final byte[] EMPTY_ARRAY = {'[', ']'};
+
+    private final ObjectMapper objectMapper;
+    private final int gzipMinBytes;
+    private final Map<String, EncodedQuote> quotes = new ConcurrentHashMap<>();
+    private final Counter hits;
+    private final Counter misses;
+    private volatile EncodedBody allQuotes = new EncodedBody(-1, EMPTY_ARRAY, null);
+
+    public QuoteSnapshotCache(ObjectMapper objectMapper,
+                              MeterRegistry meterRegistry,
+                              @Value("${market.quotes.gzip-min-bytes:1024}") int gzipMinBytes) {
+        this.objectMapper = objectMapper;
+        this.gzipMinBytes = gzipMinBytes;
+
+        this.hits = Counter.builder("market.quotes.encoded.hits")
+            .description("Quotes served from their cached JSON")
+            .register(meterRegistry);
+
+        this.misses = Counter.builder("market.quotes.encoded.misses")
+            .description("Quotes serialised because their version was not cached")
+            .register(meterRegistry);
+    }
+
+    /** The quote's JSON at its current version, serialising it only if that version is not cached. */
+    public EncodedQuote encode(QuoteState state) {
+        // Read before the content, so the cached bytes are never older than their version
+        long version = state.version();
+        EncodedQuote cached = quotes.get(state.symbol());
+        if (cached != null && cached.version() == version) {
+            hits.increment();
+            return cached;
+        }
+        misses.increment();
+        EncodedQuote encoded = new EncodedQuote(state.symbol(), version, serialise(state));
+        return quotes.merge(state.symbol(), encoded,
+            (previous, next) -> next.version() >= previous.version() ? next : previous);
+    }
+
+    /**
+     * JSON array of every given quote. Rebuilt, and compressed if large
+     * enough, only when one of the quotes has changed since the last call.
+     */
+    public EncodedBody encodeAll(Collection<QuoteState> states) {
+        // Versions only grow, so their sum changes whenever any quote does
+        long fingerprint = 0;
+        for (QuoteState state : states) {
+            fingerprint += state.version();
+        }
+        EncodedBody cached = allQuotes;
+        if (cached.fingerprint() == fingerprint) {
+            return cached;
+        }
+        byte[] json = jsonArray(states.stream().map(this::encode).toList());
+        EncodedBody body = new EncodedBody(fingerprint, json, json.length >= gzipMinBytes ? gzip(json) : null);
+        allQuotes = body;
+        return body;
+    }
+
+    /** Joins already-encoded quotes into a JSON array without re-serialising them. */
+    public static byte[] jsonArray(List<EncodedQuote> encoded) {
+        if (encoded.isEmpty()) {
+            return EMPTY_ARRAY;
+        }
+        int length = 1 + encoded.size();
+        for (EncodedQuote quote : encoded) {
+            length += quote.json().length;
+        }
+        byte[] array = new byte[length];
+        int position = 0;
+        for (EncodedQuote quote : encoded) {
+            array[position] = (byte) (position == 0 ? '[' : ',');
+            position++;
+            System.arraycopy(quote.json(), 0, array, position, quote.json().length);
+            position += quote.json().length;
+        }
+        array[position] = ']';
+        return array;
+    }
+
+    private byte[] serialise(QuoteState state) {
+        try {
+            return objectMapper.writeValueAsBytes(state.toStockQuote());
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Failed to serialise quote for " + state.symbol(), e);
+        }
+    }
+
+    private static byte[] gzip(byte[] json) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(json.length / 4);
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+            gzip.write(json);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,95 @@
+package com.commsec.marketdata.stream;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Writes the binary quote stream format. Integers other than the u8/u16
+ * headers are unsigned LEB128 varints; signed values are zig-zag encoded first.
+ * Multi-byte fixed-width values are big-endian.
+ * <pre>
+ * SYMBOL_TABLE  u8 0x01, varint count, count x (varint index, u8 length, ASCII symbol)
+ * QUOTES        u8 0x02, u16 count, count x (varint index, u8 field mask, one varint per set bit)
+ * </pre>
+ * Quote fields, by mask bit: 0 lastPrice, 1 open, 2 high, 3 low, 4 previousClose,
+ * 5 volume, 6 marketCap, 7 timestamp (epoch millis). Prices carry 4 decimal
+ * places. Each field is sent as the zig-zag delta from the value last sent to
+ * that client for that symbol, starting from zero, and only when it changed.
+ */
+final class BinaryQuoteEncoder {
+
+    static final byte SYMBOL_TABLE = 0x01;
+    static final byte QUOTES = 0x02;
+    static final int FIELDS = 8;
+
+    private static final int MAX_QUOTE_SIZE = 5 + 1 + FIELDS * 10;
+    private static final int QUOTES_HEADER = 3;
+
+    private BinaryQuoteEncoder() {
+    }
+
+    /** Encodes a symbol table where {@code symbols[i]} has index {@code indexes[i]}. */
+    static ByteBuffer symbolTable(int[] indexes, String[] symbols) {
+        ByteBuffer out = ByteBuffer.allocate(1 + 5 + symbols.length * (5 + 1 + 255));
+        out.put(SYMBOL_TABLE);
+        putVarint(out, symbols.length);
+        for (int i = 0; i < symbols.length; i++) {
+            byte[] symbol = symbols[i].getBytes(StandardCharsets.US_ASCII);
+            putVarint(out, indexes[i]);
+            out.put((byte) symbol.length);
+            out.put(symbol);
+        }
+        return out.flip();
+    }
+
+    static ByteBuffer allocateQuotes(int count) {
+        ByteBuffer out = ByteBuffer.allocate(QUOTES_HEADER + count * MAX_QUOTE_SIZE);
+        out.position(QUOTES_HEADER);
+        return out;
+    }
+
+    /**
+     * Appends one quote as deltas from {@code sent}, then updates {@code sent}
+     * to the current values. Returns false, writing nothing, if no field
+     * changed.
+     */
+    static boolean putQuote(ByteBuffer out, int index, long[] current, long[] sent) {
+        int mask = 0;
+        for (int field = 0; field < FIELDS; field++) {
+            if (current[field] != sent[field]) {
+                mask |= 1 << field;
+            }
+        }
+        if (mask == 0) {
+            return false;
+        }
+        putVarint(out, index);
+        out.put((byte) mask);
+        for (int field = 0; field < FIELDS; field++) {
+            if ((mask & (1 << field)) != 0) {
+                putVarint(out, zigZag(current[field] - sent[field]));
+            }
+        }
+        System.arraycopy(current, 0, sent, 0, FIELDS);
+        return true;
+    }
+
+    /** Writes the header for {@code count} quotes and flips the buffer for sending. */
+    static ByteBuffer finishQuotes(ByteBuffer out, int count) {
+        out.put(0, QUOTES);
+        out.putShort(1, (short) count);
+        return out.flip();
+    }
+
+    private static long zigZag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static void putVarint(ByteBuffer out, long value) {
+        while ((value & ~0x7FL) != 0) {
+            out.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.put((byte) value);
+    }
+}
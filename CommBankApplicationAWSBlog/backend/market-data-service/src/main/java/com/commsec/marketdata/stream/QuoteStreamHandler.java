@@ -0,0 +1,386 @@
+package com.commsec.marketdata.stream;
+
+import com.commsec.marketdata.model.QuoteState;
+import com.commsec.marketdata.service.QuoteSnapshotCache;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.BinaryMessage;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.SubProtocolCapable;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketMessage;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.handler.AbstractWebSocketHandler;
+import org.springframework.web.socket.handler.ConcurrentWebSocketSessionDecorator;
+import org.springframework.web.util.UriComponentsBuilder;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Streams quotes over the plain WebSocket endpoint {@code /ws/quotes}, without
+ * STOMP framing.
+ * <p>
+ * Clients pick the format with the WebSocket subprotocol: {@value #BINARY_PROTOCOL}
+ * for compact binary frames (see {@link BinaryQuoteEncoder}) or
+ * {@value #JSON_PROTOCOL} for JSON arrays of quotes, which is also the default
+ * when no subprotocol is requested. An optional {@code symbols} query
+ * parameter, e.g. {@code ?symbols=CBA,BHP}, limits the stream to those symbols.
+ * <p>
+ * Binary clients first receive the symbol table for their subscription, then
+ * quote frames carrying only the fields that changed since the last frame,
+ * as deltas. The first quote frame carries every field of every symbol.
+ * <p>
+ * Quotes are conflated per session: publishing marks symbols dirty, and a
+ * sender thread writes one frame with the latest values of everything dirty.
+ * A client that cannot keep up with the send time or buffer limits is
+ * disconnected; on reconnect it starts again from a full frame.
+ */
+@Component
+@Slf4j
+public class QuoteStreamHandler extends AbstractWebSocketHandler implements SubProtocolCapable {
+
+    public static final String BINARY_PROTOCOL = "commsec.quotes.v1.binary";
+    public static final String JSON_PROTOCOL = "commsec.quotes.v1.json";
+
+    private final QuoteSnapshotCache quoteCache;
+    private final ExecutorService sender;
+    private final int sendTimeLimitMs;
+    private final int bufferSizeLimit;
+    private final Map<String, StreamSession> sessions = new ConcurrentHashMap<>();
+    private final AtomicInteger jsonSessions = new AtomicInteger();
+    private final Counter binaryBytes;
+    private final Counter jsonBytes;
+    private final Counter framesSent;
+
+    private volatile Universe universe = new Universe(List.of());
+
+    public QuoteStreamHandler(QuoteSnapshotCache quoteCache,
+                              MeterRegistry meterRegistry,
+                              @Value("${market.stream.sender-threads:2}") int senderThreads,
+                              @Value("${market.stream.send-time-limit-ms:5000}") int sendTimeLimitMs,
+                              @Value("${market.stream.buffer-size-limit-kb:512}") int bufferSizeLimitKb) {
+        this.quoteCache = quoteCache;
+        this.sendTimeLimitMs = sendTimeLimitMs;
+        this.bufferSizeLimit = bufferSizeLimitKb * 1024;
+        this.sender = Executors.newFixedThreadPool(senderThreads, runnable -> {
+            Thread thread = new Thread(runnable, "quote-stream-sender");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        this.binaryBytes = Counter.builder("market.stream.bytes")
+            .description("Bytes sent on the quote stream")
+            .tag("format", "binary")
+            .register(meterRegistry);
+
+        this.jsonBytes = Counter.builder("market.stream.bytes")
+            .description("Bytes sent on the quote stream")
+            .tag("format", "json")
+            .register(meterRegistry);
+
+        this.framesSent = Counter.builder("market.stream.frames")
+            .description("Quote frames sent on the quote stream")
+            .register(meterRegistry);
+
+        Gauge.builder("market.stream.sessions", sessions, Map::size)
+            .description("Open quote stream sessions")
+            .register(meterRegistry);
+    }
+
+    /**
+     * Sets the symbols that can be streamed. Symbol indexes are positions in
+     * {@code quotes} and stay fixed for the life of a session.
+     */
+    public void register(List<QuoteState> quotes) {
+        universe = new Universe(quotes);
+    }
+
+    /**
+     * Marks the given quotes as changed for every session streaming them.
+     */
+    public void publish(List<QuoteState> updated) {
+        if (sessions.isEmpty()) {
+            return;
+        }
+        Universe current = universe;
+        boolean json = jsonSessions.get() > 0;
+        Set<StreamSession> touched = new LinkedHashSet<>();
+        for (QuoteState quote : updated) {
+            Integer index = current.indexBySymbol.get(quote.symbol());
+            if (index == null) {
+                continue;
+            }
+            if (json) {
+                current.storeJson(index, json(quote));
+            }
+            for (Subscriber subscriber : current.subscribers[index]) {
+                if (subscriber.session.markDirty(subscriber.slot)) {
+                    touched.add(subscriber.session);
+                }
+            }
+        }
+        for (StreamSession session : touched) {
+            schedule(session);
+        }
+    }
+
+    @Override
+    public List<String> getSubProtocols() {
+        return List.of(BINARY_PROTOCOL, JSON_PROTOCOL);
+    }
+
+    @Override
+    public void afterConnectionEstablished(WebSocketSession session) throws Exception {
+        Universe current = universe;
+        boolean binary = BINARY_PROTOCOL.equals(session.getAcceptedProtocol());
+        int[] indexes = requestedIndexes(session, current);
+
+        StreamSession stream = new StreamSession(
+            new ConcurrentWebSocketSessionDecorator(session, sendTimeLimitMs, bufferSizeLimit),
+            current, binary, indexes);
+        sessions.put(session.getId(), stream);
+        if (!binary) {
+            jsonSessions.incrementAndGet();
+            for (int index : indexes) {
+                current.storeJson(index, json(current.quotes[index]));
+            }
+        }
+        for (int slot = 0; slot < indexes.length; slot++) {
+            current.subscribers[indexes[slot]].add(new Subscriber(stream, slot));
+        }
+
+        if (binary) {
+            String[] symbols = new String[indexes.length];
+            for (int slot = 0; slot < indexes.length; slot++) {
+                symbols[slot] = current.quotes[indexes[slot]].symbol();
+            }
+            stream.send(new BinaryMessage(BinaryQuoteEncoder.symbolTable(indexes, symbols)));
+        }
+        // Every subscribed symbol starts dirty, so the first frame is a full snapshot
+        schedule(stream);
+        log.debug("Quote stream session {} opened: {} symbols, {}", session.getId(), indexes.length,
+            binary ? "binary" : "json");
+    }
+
+    @Override
+    public void afterConnectionClosed(WebSocketSession session, CloseStatus status) {
+        StreamSession stream = sessions.remove(session.getId());
+        if (stream == null) {
+            return;
+        }
+        if (!stream.binary) {
+            jsonSessions.decrementAndGet();
+        }
+        for (int index : stream.indexes) {
+            stream.universe.subscribers[index].removeIf(subscriber -> subscriber.session == stream);
+        }
+        log.debug("Quote stream session {} closed: {}", session.getId(), status);
+    }
+
+    @Override
+    public void handleTransportError(WebSocketSession session, Throwable exception) {
+        log.debug("Quote stream session {} transport error: {}", session.getId(), exception.getMessage());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        sender.shutdownNow();
+    }
+
+    private void schedule(StreamSession stream) {
+        try {
+            sender.execute(stream::flush);
+        } catch (RejectedExecutionException e) {
+            log.debug("Quote stream sender stopped, dropping flush for {}", stream.session.getId());
+        }
+    }
+
+    private int[] requestedIndexes(WebSocketSession session, Universe current) {
+        String requested = session.getUri() == null ? null
+            : UriComponentsBuilder.fromUri(session.getUri()).build().getQueryParams().getFirst("symbols");
+        if (requested == null || requested.isBlank()) {
+            int[] all = new int[current.quotes.length];
+            for (int index = 0; index < all.length; index++) {
+                all[index] = index;
+            }
+            return all;
+        }
+        Set<Integer> indexes = new LinkedHashSet<>();
+        for (String symbol : requested.split(",")) {
+            Integer index = current.indexBySymbol.get(symbol.trim().toUpperCase());
+            if (index != null) {
+                indexes.add(index);
+            }
+        }
+        return indexes.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    private String json(QuoteState quote) {
+        return new String(quoteCache.encode(quote).json(), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * The streamable symbols, their indexes, and the sessions streaming each.
+     */
+    private static final class Universe {
+
+        private final QuoteState[] quotes;
+        private final Map<String, Integer> indexBySymbol = new HashMap<>();
+        private final List<Subscriber>[] subscribers;
+        private final AtomicReferenceArray<String> latestJson;
+
+        @SuppressWarnings("unchecked")
+        private Universe(List<QuoteState> quotes) {
+            this.quotes = quotes.toArray(new QuoteState[0]);
+            this.subscribers = new List[this.quotes.length];
+            this.latestJson = new AtomicReferenceArray<>(this.quotes.length);
+            for (int index = 0; index < this.quotes.length; index++) {
+                indexBySymbol.put(this.quotes[index].symbol(), index);
+                subscribers[index] = new CopyOnWriteArrayList<>();
+            }
+        }
+
+        private void storeJson(int index, String json) {
+            if (json != null) {
+                latestJson.set(index, json);
+            }
+        }
+    }
+
+    private record Subscriber(StreamSession session, int slot) {
+    }
+
+    /**
+     * One client. {@code dirty} is indexed by slot, the position of a symbol
+     * in this session's subscription; {@code sent} holds the last values
+     * written for each slot and is only touched by the flushing thread.
+     */
+    private final class StreamSession {
+
+        private final WebSocketSession session;
+        private final Universe universe;
+        private final boolean binary;
+        private final int[] indexes;
+        private final long[][] sent;
+        private final long[] current = new long[BinaryQuoteEncoder.FIELDS];
+        private final BitSet dirty;
+        private boolean flushing;
+
+        private StreamSession(WebSocketSession session, Universe universe, boolean binary, int[] indexes) {
+            this.session = session;
+            this.universe = universe;
+            this.binary = binary;
+            this.indexes = indexes;
+            this.sent = binary ? new long[indexes.length][BinaryQuoteEncoder.FIELDS] : null;
+            this.dirty = new BitSet(indexes.length);
+            this.dirty.set(0, indexes.length);
+            this.flushing = true;
+        }
+
+        /**
+         * Returns true if the caller must schedule a flush, i.e. no flush is
+         * pending or running for this session.
+         */
+        private synchronized boolean markDirty(int slot) {
+            dirty.set(slot);
+            if (flushing) {
+                return false;
+            }
+            flushing = true;
+            return true;
+        }
+
+        private synchronized BitSet takeDirty() {
+            if (dirty.isEmpty()) {
+                flushing = false;
+                return null;
+            }
+            BitSet taken = (BitSet) dirty.clone();
+            dirty.clear();
+            return taken;
+        }
+
+        private void flush() {
+            BitSet slots;
+            while ((slots = takeDirty()) != null) {
+                if (!session.isOpen()) {
+                    return;
+                }
+                if (binary) {
+                    sendBinary(slots);
+                } else {
+                    sendJson(slots);
+                }
+            }
+        }
+
+        private void sendBinary(BitSet slots) {
+            ByteBuffer frame = BinaryQuoteEncoder.allocateQuotes(slots.cardinality());
+            int count = 0;
+            for (int slot = slots.nextSetBit(0); slot >= 0; slot = slots.nextSetBit(slot + 1)) {
+                int index = indexes[slot];
+                universe.quotes[index].copyTo(current);
+                if (BinaryQuoteEncoder.putQuote(frame, index, current, sent[slot])) {
+                    count++;
+                }
+            }
+            if (count > 0) {
+                ByteBuffer payload = BinaryQuoteEncoder.finishQuotes(frame, count);
+                binaryBytes.increment(payload.remaining());
+                send(new BinaryMessage(payload));
+            }
+        }
+
+        private void sendJson(BitSet slots) {
+            StringBuilder payload = new StringBuilder("[");
+            for (int slot = slots.nextSetBit(0); slot >= 0; slot = slots.nextSetBit(slot + 1)) {
+                String json = universe.latestJson.get(indexes[slot]);
+                if (json != null) {
+                    if (payload.length() > 1) {
+                        payload.append(',');
+                    }
+                    payload.append(json);
+                }
+            }
+            if (payload.length() > 1) {
+                TextMessage message = new TextMessage(payload.append(']'));
+                jsonBytes.increment(message.getPayloadLength());
+                send(message);
+            }
+        }
+
+        private void send(WebSocketMessage<?> message) {
+            try {
+                session.sendMessage(message);
+                framesSent.increment();
+            } catch (IOException | RuntimeException e) {
+                log.debug("Closing quote stream session {}: {}", session.getId(), e.getMessage());
+                try {
+                    session.close(CloseStatus.SESSION_NOT_RELIABLE);
+                } catch (IOException ignored) {
+                    // Already broken; afterConnectionClosed cleans up
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,197 @@
+package com.commsec.marketdata.symbols;
+
+import com.commsec.marketdata.model.SymbolInfo;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Immutable typeahead index over symbol codes and company names.
+ * <p>
+ * Codes and every word of every name are held in one sorted array of keys,
+ * so a prefix is a binary search followed by a scan of the keys that start
+ * with it. When a query of three or more characters finds fewer prefix
+ * matches than were asked for, names and codes sharing at least half of its
+ * trigrams are added, which catches infixes and small typos. Matches are
+ * ranked exact code, code prefix, first-word prefix, later-word prefix, then
+ * trigram similarity; ties go to the shorter code.
+ */
+final class SymbolIndex {
+
+    private static final int EXACT_CODE = 1_000;
+    private static final int CODE_PREFIX = 800;
+    private static final int FIRST_WORD_PREFIX = 600;
+    private static final int WORD_PREFIX = 500;
+    private static final int TRIGRAM = 300;
+
+    private static final int[] NO_POSTINGS = new int[0];
+
+    private final SymbolInfo[] symbols;
+    private final String[] codes;
+    private final String[][] words;
+    /** Sorted keys; {@code keySymbol[i]} and {@code keyWord[i]} say where key i came from, -1 for the code. */
+    private final String[] keys;
+    private final int[] keySymbol;
+    private final int[] keyWord;
+    private final Map<Integer, int[]> trigrams;
+
+    SymbolIndex(List<SymbolInfo> symbols) {
+        this.symbols = symbols.toArray(new SymbolInfo[0]);
+        this.codes = new String[this.symbols.length];
+        this.words = new String[this.symbols.length][];
+
+        List<Object[]> entries = new ArrayList<>();
+        Map<Integer, List<Integer>> postings = new HashMap<>();
+        for (int id = 0; id < this.symbols.length; id++) {
+            codes[id] = normalise(this.symbols[id].getCode());
+            words[id] = words(this.symbols[id].getName());
+            entries.add(new Object[] {codes[id], id, -1});
+            addTrigrams(postings, codes[id], id);
+            for (int w = 0; w < words[id].length; w++) {
+                entries.add(new Object[] {words[id][w], id, w});
+                addTrigrams(postings, words[id][w], id);
+            }
+        }
+        entries.sort((a, b) -> ((String) a[0]).compareTo((String) b[0]));
+        this.keys = new String[entries.size()];
+        this.keySymbol = new int[entries.size()];
+        this.keyWord = new int[entries.size()];
+        for (int i = 0; i < keys.length; i++) {
+            Object[] entry = entries.get(i);
+            keys[i] = (String) entry[0];
+            keySymbol[i] = (Integer) entry[1];
+            keyWord[i] = (Integer) entry[2];
+        }
+
+        this.trigrams = new HashMap<>(postings.size() * 2);
+        postings.forEach((trigram, ids) -> trigrams.put(trigram, ids.stream().mapToInt(Integer::intValue).distinct().toArray()));
+    }
+
+    int size() {
+        return symbols.length;
+    }
+
+    /** Up to {@code limit} best matches for {@code query}, best first. */
+    List<SymbolInfo> search(String query, int limit) {
+        String[] terms = words(query);
+        if (terms.length == 0 || limit < 1) {
+            return List.of();
+        }
+        Map<Integer, Integer> scores = new HashMap<>();
+        prefixMatches(terms, scores);
+        String joined = String.join("", terms);
+        if (scores.size() < limit && joined.length() >= 3) {
+            trigramMatches(joined, scores);
+        }
+
+        Integer[] ranked = scores.keySet().toArray(new Integer[0]);
+        Arrays.sort(ranked, (a, b) -> {
+            int byScore = Integer.compare(scores.get(b), scores.get(a));
+            if (byScore != 0) {
+                return byScore;
+            }
+            int byLength = Integer.compare(codes[a].length(), codes[b].length());
+            return byLength != 0 ? byLength : codes[a].compareTo(codes[b]);
+        });
+        List<SymbolInfo> results = new ArrayList<>(Math.min(limit, ranked.length));
+        for (int i = 0; i < ranked.length && i < limit; i++) {
+            results.add(symbols[ranked[i]]);
+        }
+        return results;
+    }
+
+    /**
+     * Symbols with a key starting with the first term and, for a query of
+     * several words, a name word starting with each of the others.
+     */
+    private void prefixMatches(String[] terms, Map<Integer, Integer> scores) {
+        String first = terms[0];
+        for (int i = lowerBound(first); i < keys.length && keys[i].startsWith(first); i++) {
+            int id = keySymbol[i];
+            int score;
+            if (keyWord[i] < 0) {
+                score = codes[id].equals(first) && terms.length == 1
+                    ? EXACT_CODE : CODE_PREFIX - (codes[id].length() - first.length());
+            } else {
+                score = keyWord[i] == 0 ? FIRST_WORD_PREFIX : WORD_PREFIX;
+            }
+            if (terms.length > 1 && !allTermsMatch(id, terms)) {
+                continue;
+            }
+            scores.merge(id, score, Math::max);
+        }
+    }
+
+    private boolean allTermsMatch(int id, String[] terms) {
+        for (int t = 1; t < terms.length; t++) {
+            boolean found = false;
+            for (String word : words[id]) {
+                if (word.startsWith(terms[t])) {
+                    found = true;
+                    break;
+                }
+            }
+            if (!found) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void trigramMatches(String query, Map<Integer, Integer> scores) {
+        int total = query.length() - 2;
+        Map<Integer, Integer> shared = new HashMap<>();
+        for (int i = 0; i < total; i++) {
+            for (int id : trigrams.getOrDefault(trigram(query, i), NO_POSTINGS)) {
+                shared.merge(id, 1, Integer::sum);
+            }
+        }
+        shared.forEach((id, count) -> {
+            if (count * 2 >= total) {
+                scores.merge(id, TRIGRAM * count / total, Math::max);
+            }
+        });
+    }
+
+    private int lowerBound(String prefix) {
+        int low = 0;
+        int high = keys.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (keys[mid].compareTo(prefix) < 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private static void addTrigrams(Map<Integer, List<Integer>> postings, String word, int id) {
+        for (int i = 0; i + 3 <= word.length(); i++) {
+            postings.computeIfAbsent(trigram(word, i), t -> new ArrayList<>()).add(id);
+        }
+    }
+
+    private static int trigram(String word, int at) {
+        return word.charAt(at) << 16 | word.charAt(at + 1) << 8 | word.charAt(at + 2);
+    }
+
+    /** Upper-cased ASCII letters and digits; anything else separates words. */
+    static String[] words(String text) {
+        if (text == null) {
+            return new String[0];
+        }
+        return Arrays.stream(text.toUpperCase(Locale.ROOT).split("[^A-Z0-9]+"))
+            .filter(word -> !word.isEmpty())
+            .toArray(String[]::new);
+    }
+
+    static String normalise(String code) {
+        return String.join("", words(code));
+    }
+}
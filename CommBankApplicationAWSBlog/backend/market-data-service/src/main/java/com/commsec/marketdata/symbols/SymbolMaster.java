@@ -0,0 +1,142 @@
+package com.commsec.marketdata.symbols;
+
+import com.commsec.marketdata.feed.SymbolDefinition;
+import com.commsec.marketdata.feed.SymbolUniverse;
+import com.commsec.marketdata.model.SymbolInfo;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.Resource;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reference data for every symbol in the feed universe, held in memory with
+ * a typeahead index over codes and names (see {@link SymbolIndex}).
+ * <p>
+ * The universe file gives the symbols; {@code market.symbols.reference}
+ * supplies the name, sector, lot size and tick size where it lists them.
+ * Anything it doesn't list is Unclassified, trades in lots of 1, and has the
+ * ASX price step for its base price. Both are read once at startup and the
+ * index never changes afterwards, so searches take no lock.
+ */
+@Component
+@Slf4j
+public class SymbolMaster {
+
+    public static final String UNCLASSIFIED = "Unclassified";
+
+    private record Reference(String name, String sector, Integer lotSize, BigDecimal tickSize) {
+    }
+
+    private final Map<String, SymbolInfo> byCode = new HashMap<>();
+    private final List<SymbolInfo> symbols;
+    private final SymbolIndex index;
+    private final Timer searchTime;
+
+    public SymbolMaster(@Value("${market.feed.symbols:classpath:symbols/asx-universe.csv}") Resource universe,
+                        @Value("${market.symbols.reference:classpath:symbols/asx-reference.csv}") Resource reference,
+                        MeterRegistry meterRegistry) {
+        Map<String, Reference> references = loadReference(reference);
+        List<SymbolInfo> loaded = new ArrayList<>();
+        for (SymbolDefinition definition : SymbolUniverse.load(universe)) {
+            Reference known = references.get(definition.symbol());
+            SymbolInfo info = new SymbolInfo(
+                definition.symbol(),
+                known != null ? known.name() : definition.name(),
+                known != null && known.sector() != null ? known.sector() : UNCLASSIFIED,
+                known != null && known.lotSize() != null ? known.lotSize() : 1,
+                known != null && known.tickSize() != null ? known.tickSize() : asxPriceStep(definition.basePrice()));
+            loaded.add(info);
+            byCode.put(info.getCode(), info);
+        }
+        this.symbols = List.copyOf(loaded);
+        this.index = new SymbolIndex(this.symbols);
+
+        this.searchTime = Timer.builder("market.symbols.search.time")
+            .description("Time to answer a symbol typeahead query")
+            .register(meterRegistry);
+
+        log.info("Symbol master loaded {} symbols, {} with reference data from {}",
+            symbols.size(), references.size(), reference.getDescription());
+    }
+
+    public Optional<SymbolInfo> get(String code) {
+        return Optional.ofNullable(byCode.get(SymbolIndex.normalise(code)));
+    }
+
+    public List<SymbolInfo> all() {
+        return symbols;
+    }
+
+    /** Best matches for a partial code or company name, best first. */
+    public List<SymbolInfo> search(String query, int limit) {
+        long start = System.nanoTime();
+        List<SymbolInfo> matches = index.search(query, limit);
+        searchTime.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        return matches;
+    }
+
+    /** The ASX minimum price step for a price: 0.1c below 10c, 0.5c below $2, else 1c. */
+    static BigDecimal asxPriceStep(double price) {
+        if (price < 0.10) {
+            return new BigDecimal("0.001");
+        }
+        return price < 2.00 ? new BigDecimal("0.005") : new BigDecimal("0.01");
+    }
+
+    private static Map<String, Reference> loadReference(Resource resource) {
+        Map<String, Reference> references = new HashMap<>();
+        if (!resource.exists()) {
+            log.warn("Symbol reference data {} not found; all symbols are unclassified", resource.getDescription());
+            return references;
+        }
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(resource.getInputStream(), StandardCharsets.UTF_8))) {
+            String line;
+            int lineNumber = 0;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                line = line.strip();
+                if (line.isEmpty() || line.startsWith("#")) {
+                    continue;
+                }
+                String[] fields = line.split(",", -1);
+                if (fields.length != 5) {
+                    throw new IllegalStateException(
+                        "Expected code,name,sector,lotSize,tickSize at " + resource.getDescription() + ":" + lineNumber);
+                }
+                try {
+                    references.put(fields[0].strip().toUpperCase(), new Reference(
+                        blankToNull(fields[1]),
+                        blankToNull(fields[2]),
+                        blankToNull(fields[3]) != null ? Integer.valueOf(fields[3].strip()) : null,
+                        blankToNull(fields[4]) != null ? new BigDecimal(fields[4].strip()) : null));
+                } catch (NumberFormatException e) {
+                    throw new IllegalStateException(
+                        "Invalid number at " + resource.getDescription() + ":" + lineNumber + ": " + e.getMessage(), e);
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read symbol reference data " + resource.getDescription(), e);
+        }
+        return references;
+    }
+
+    private static String blankToNull(String field) {
+        return field.isBlank() ? null : field.strip();
+    }
+}
@@ -0,0 +1,211 @@
+package com.commsec.marketdata.ticks;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * One symbol's ticks for one day: a memory-mapped file of fixed-width
+ * records in time order, plus a sparse in-memory index holding the time of
+ * every {@value #INDEX_STRIDE}th record.
+ * <p>
+ * Layout: a {@value #HEADER_SIZE}-byte header {@code [int magic][int unused]
+ * [long dayStart][long count]}, then {@value #RECORD_SIZE}-byte records
+ * {@code [int millis since dayStart][long price][int volume]}. The count is
+ * updated after each record is written, so a record torn by a crash is
+ * beyond the count and ignored. The index is saved beside the data file on
+ * close and rebuilt from the records if missing or stale.
+ * <p>
+ * One thread appends; any number of threads may read concurrently.
+ */
+final class TickFile {
+
+    static final int HEADER_SIZE = 64;
+    static final int RECORD_SIZE = 16;
+    static final int INDEX_STRIDE = 128;
+
+    private static final int MAGIC = 0x54434B31;
+    private static final int COUNT_OFFSET = 16;
+    private static final long MAX_GROWTH = 64L * 1024 * 1024;
+
+    private final Path path;
+    private final Path indexPath;
+    private final FileChannel channel;
+    private final long dayStart;
+    private volatile MappedByteBuffer buffer;
+    private volatile long count;
+    private volatile long[] indexTimes = new long[64];
+    private volatile int indexSize;
+
+    private TickFile(Path path, FileChannel channel, MappedByteBuffer buffer, long dayStart, long count) {
+        this.path = path;
+        this.indexPath = path.resolveSibling(path.getFileName() + ".idx");
+        this.channel = channel;
+        this.buffer = buffer;
+        this.dayStart = dayStart;
+        this.count = count;
+    }
+
+    /** Opens the file for appending, creating it with {@code initialSize} bytes if needed. */
+    static TickFile openForAppend(Path path, long dayStart, int initialSize) throws IOException {
+        Files.createDirectories(path.getParent());
+        boolean exists = Files.exists(path);
+        FileChannel channel = FileChannel.open(path,
+            StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        long size = Math.max(channel.size(), HEADER_SIZE + (long) initialSize);
+        MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+        long count = 0;
+        if (exists && buffer.getInt(0) == MAGIC) {
+            count = buffer.getLong(COUNT_OFFSET);
+        } else {
+            buffer.putInt(0, MAGIC);
+            buffer.putLong(8, dayStart);
+            buffer.putLong(COUNT_OFFSET, 0);
+        }
+        TickFile file = new TickFile(path, channel, buffer, dayStart, count);
+        file.loadIndex();
+        return file;
+    }
+
+    /** Opens a file read-only, or returns null if it doesn't exist. */
+    static TickFile openForRead(Path path) throws IOException {
+        if (!Files.exists(path)) {
+            return null;
+        }
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (channel.size() < HEADER_SIZE || buffer.getInt(0) != MAGIC) {
+                throw new IOException("Not a tick file: " + path);
+            }
+            long count = Math.min(buffer.getLong(COUNT_OFFSET), (channel.size() - HEADER_SIZE) / RECORD_SIZE);
+            TickFile file = new TickFile(path, null, buffer, buffer.getLong(8), count);
+            file.loadIndex();
+            return file;
+        }
+    }
+
+    void append(long timestamp, long price, long volume) throws IOException {
+        long at = HEADER_SIZE + count * RECORD_SIZE;
+        if (at + RECORD_SIZE > buffer.capacity()) {
+            grow();
+        }
+        MappedByteBuffer target = buffer;
+        int position = (int) at;
+        target.putInt(position, (int) (timestamp - dayStart));
+        target.putLong(position + 4, price);
+        target.putInt(position + 12, (int) volume);
+        if (count % INDEX_STRIDE == 0) {
+            addIndexEntry(timestamp);
+        }
+        target.putLong(COUNT_OFFSET, count + 1);
+        count++;
+    }
+
+    /**
+     * Passes each tick with {@code from <= time < to} to {@code sink}, in time
+     * order, stopping after {@code limit}. Returns the number passed.
+     */
+    int read(long from, long to, int limit, TickSink sink) {
+        long total = count;
+        ByteBuffer records = buffer;
+        long[] index = indexTimes;
+        int entries = Math.min(indexSize, index.length);
+
+        // Last index entry before 'from'; ticks between it and the next entry are scanned
+        int low = 0;
+        int high = entries - 1;
+        int block = 0;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            if (index[mid] < from) {
+                block = mid;
+                low = mid + 1;
+            } else {
+                high = mid - 1;
+            }
+        }
+
+        int passed = 0;
+        for (long record = (long) block * INDEX_STRIDE; record < total && passed < limit; record++) {
+            int position = (int) (HEADER_SIZE + record * RECORD_SIZE);
+            long time = dayStart + records.getInt(position);
+            if (time < from) {
+                continue;
+            }
+            if (time >= to) {
+                break;
+            }
+            sink.accept(time, records.getLong(position + 4), records.getInt(position + 12));
+            passed++;
+        }
+        return passed;
+    }
+
+    long count() {
+        return count;
+    }
+
+    long dayStart() {
+        return dayStart;
+    }
+
+    /** Saves the sparse index and releases the channel. The mapping stays valid for in-flight reads. */
+    void close() throws IOException {
+        if (channel == null) {
+            return;
+        }
+        saveIndex();
+        channel.close();
+    }
+
+    private void grow() throws IOException {
+        long current = buffer.capacity();
+        long size = current + Math.min(current, MAX_GROWTH);
+        if (size > Integer.MAX_VALUE) {
+            throw new IOException("Tick file full: " + path);
+        }
+        buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+    }
+
+    private void addIndexEntry(long timestamp) {
+        long[] index = indexTimes;
+        int size = indexSize;
+        if (size == index.length) {
+            index = Arrays.copyOf(index, size * 2);
+            indexTimes = index;
+        }
+        index[size] = timestamp;
+        indexSize = size + 1;
+    }
+
+    private void loadIndex() throws IOException {
+        long expected = (count + INDEX_STRIDE - 1) / INDEX_STRIDE;
+        if (Files.exists(indexPath) && Files.size(indexPath) == expected * Long.BYTES) {
+            ByteBuffer saved = ByteBuffer.wrap(Files.readAllBytes(indexPath));
+            while (saved.hasRemaining()) {
+                addIndexEntry(saved.getLong());
+            }
+            return;
+        }
+        for (long record = 0; record < count; record += INDEX_STRIDE) {
+            addIndexEntry(dayStart + buffer.getInt((int) (HEADER_SIZE + record * RECORD_SIZE)));
+        }
+    }
+
+    private void saveIndex() throws IOException {
+        int size = indexSize;
+        ByteBuffer saved = ByteBuffer.allocate(size * Long.BYTES);
+        saved.asLongBuffer().put(indexTimes, 0, size);
+        Files.write(indexPath, saved.array());
+    }
+
+    @FunctionalInterface
+    interface TickSink {
+        void accept(long timestamp, long price, long volume);
+    }
+}
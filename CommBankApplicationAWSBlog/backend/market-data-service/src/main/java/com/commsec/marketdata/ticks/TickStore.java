@@ -0,0 +1,248 @@
+package com.commsec.marketdata.ticks;
+
+import com.commsec.marketdata.feed.SyntheticFeed;
+import com.commsec.marketdata.feed.TickListener;
+import com.commsec.marketdata.model.FixedPrice;
+import com.commsec.marketdata.model.QuoteState;
+import com.commsec.marketdata.model.Tick;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Append-only history of every feed tick, one {@link TickFile} per symbol per
+ * exchange day under {@code <directory>/<yyyy-MM-dd>/<SYMBOL>.ticks}.
+ * <p>
+ * Ticks are written to the page cache as they arrive and are not forced to
+ * disk: the store is for replay and chart backfill, so losing the last few
+ * seconds to an OS crash is acceptable. Day directories older than
+ * {@code market.ticks.retention-days} are deleted when the day rolls.
+ * <p>
+ * Only the symbols listed in {@code market.ticks.symbols} are recorded, or
+ * every symbol if it is {@code *}; nothing is recorded when it is blank. Each
+ * tick is a {@value TickFile#RECORD_SIZE}-byte record, so a symbol ticking 500
+ * times a second writes about 8 KB/s, roughly 700 MB a day. The whole
+ * load-test universe would be several hundred GB a day across thousands of
+ * mapped files.
+ */
+@Component
+@Slf4j
+public class TickStore implements TickListener {
+
+    private static final String SUFFIX = ".ticks";
+    private static final String ALL_SYMBOLS = "*";
+
+    private final SyntheticFeed syntheticFeed;
+    private final Path directory;
+    private final ZoneId zone;
+    private final int retentionDays;
+    private final int initialFileSize;
+    private final boolean[] recorded;
+    private final TickFile[] files;
+    private final ReentrantLock writeLock = new ReentrantLock();
+    private final Counter ticksStored;
+
+    private LocalDate currentDay;
+    private long currentDayEnd;
+    private boolean failed;
+
+    public TickStore(SyntheticFeed syntheticFeed,
+                     @Value("${market.ticks.enabled:true}") boolean enabled,
+                     @Value("${market.ticks.directory:data/ticks}") String directory,
+                     @Value("${market.ticks.zone:Australia/Sydney}") String zone,
+                     @Value("${market.ticks.retention-days:2}") int retentionDays,
+                     @Value("${market.ticks.initial-file-size-kb:256}") int initialFileSizeKb,
+                     @Value("${market.ticks.symbols:}") Set<String> symbols,
+                     MeterRegistry meterRegistry) {
+        this.syntheticFeed = syntheticFeed;
+        this.directory = Path.of(directory);
+        this.zone = ZoneId.of(zone);
+        this.retentionDays = retentionDays;
+        this.initialFileSize = initialFileSizeKb * 1024;
+        this.files = new TickFile[syntheticFeed.size()];
+        this.recorded = new boolean[syntheticFeed.size()];
+
+        Set<String> wanted = symbols.stream()
+            .map(String::trim)
+            .filter(symbol -> !symbol.isEmpty())
+            .map(String::toUpperCase)
+            .collect(Collectors.toSet());
+        boolean all = wanted.contains(ALL_SYMBOLS);
+        int recordedCount = 0;
+        List<QuoteState> quotes = syntheticFeed.quotes();
+        for (int i = 0; i < quotes.size(); i++) {
+            recorded[i] = all || wanted.contains(quotes.get(i).symbol());
+            if (recorded[i]) {
+                recordedCount++;
+            }
+        }
+
+        this.ticksStored = Counter.builder("market.ticks.stored")
+            .description("Ticks appended to the tick store")
+            .register(meterRegistry);
+
+        if (enabled && recordedCount > 0) {
+            syntheticFeed.addTickListener(this);
+            log.info("Tick store writing to {} ({} symbols)", this.directory.toAbsolutePath(), recordedCount);
+        } else if (enabled) {
+            log.info("Tick store not recording: no symbols in market.ticks.symbols");
+        }
+    }
+
+    @Override
+    public void beginTicks() {
+        writeLock.lock();
+    }
+
+    @Override
+    public void onTick(int symbolIndex, long price, long volume, long timestamp) {
+        if (!recorded[symbolIndex] || failed) {
+            return;
+        }
+        try {
+            if (timestamp >= currentDayEnd) {
+                rollDay(timestamp);
+            }
+            TickFile file = files[symbolIndex];
+            if (file == null) {
+                file = TickFile.openForAppend(path(currentDay, symbolIndex), dayStart(currentDay), initialFileSize);
+                files[symbolIndex] = file;
+            }
+            file.append(timestamp, price, volume);
+            ticksStored.increment();
+        } catch (IOException e) {
+            // Stop recording rather than fail the feed; the quotes themselves are unaffected
+            failed = true;
+            log.error("Tick store disabled after write failure: {}", e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public void endTicks() {
+        writeLock.unlock();
+    }
+
+    /**
+     * The symbol's ticks with {@code from <= time < to}, oldest first, at most
+     * {@code limit}, or empty if the symbol isn't in the feed.
+     */
+    public Optional<List<Tick>> ticks(String symbol, Instant from, Instant to, int limit) {
+        int index = syntheticFeed.indexOf(symbol.toUpperCase());
+        if (index < 0) {
+            return Optional.empty();
+        }
+        List<Tick> ticks = new ArrayList<>();
+        long fromMillis = from.toEpochMilli();
+        long toMillis = to.toEpochMilli();
+        LocalDate last = LocalDate.ofInstant(to, zone);
+        for (LocalDate day = LocalDate.ofInstant(from, zone);
+             !day.isAfter(last) && ticks.size() < limit;
+             day = day.plusDays(1)) {
+            TickFile file = fileFor(day, index);
+            if (file != null) {
+                file.read(fromMillis, toMillis, limit - ticks.size(), (time, price, volume) ->
+                    ticks.add(Tick.builder()
+                        .time(Instant.ofEpochMilli(time))
+                        .price(FixedPrice.toBigDecimal(price))
+                        .volume(volume)
+                        .build()));
+            }
+        }
+        return Optional.of(ticks);
+    }
+
+    @PreDestroy
+    public void close() {
+        writeLock.lock();
+        try {
+            closeFiles();
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    private TickFile fileFor(LocalDate day, int index) {
+        // Not under the write lock: a stale view of the live file just means reading it from disk
+        TickFile live = files[index];
+        if (live != null && live.dayStart() == dayStart(day)) {
+            return live;
+        }
+        try {
+            return TickFile.openForRead(path(day, index));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read ticks for " + day, e);
+        }
+    }
+
+    private void rollDay(long timestamp) throws IOException {
+        closeFiles();
+        LocalDate day = LocalDate.ofInstant(Instant.ofEpochMilli(timestamp), zone);
+        currentDayEnd = dayStart(day.plusDays(1));
+        currentDay = day;
+        purge(day.minusDays(retentionDays));
+    }
+
+    private void closeFiles() {
+        for (int i = 0; i < files.length; i++) {
+            if (files[i] != null) {
+                try {
+                    files[i].close();
+                } catch (IOException e) {
+                    log.warn("Failed to close tick file for {}: {}", syntheticFeed.quotes().get(i).symbol(), e.getMessage());
+                }
+                files[i] = null;
+            }
+        }
+    }
+
+    private void purge(LocalDate cutoff) throws IOException {
+        if (!Files.isDirectory(directory)) {
+            return;
+        }
+        try (Stream<Path> days = Files.list(directory)) {
+            for (Path day : days.filter(path -> isBefore(path, cutoff)).toList()) {
+                try (Stream<Path> contents = Files.walk(day)) {
+                    for (Path path : contents.sorted(Comparator.reverseOrder()).toList()) {
+                        Files.delete(path);
+                    }
+                }
+                log.info("Deleted tick history for {}", day.getFileName());
+            }
+        }
+    }
+
+    private static boolean isBefore(Path dayDirectory, LocalDate cutoff) {
+        try {
+            return LocalDate.parse(dayDirectory.getFileName().toString()).isBefore(cutoff);
+        } catch (RuntimeException e) {
+            return false;
+        }
+    }
+
+    private Path path(LocalDate day, int index) {
+        return directory.resolve(day.toString()).resolve(syntheticFeed.quotes().get(index).symbol() + SUFFIX);
+    }
+
+    private long dayStart(LocalDate day) {
+        return day.atStartOfDay(zone).toInstant().toEpochMilli();
+    }
+}
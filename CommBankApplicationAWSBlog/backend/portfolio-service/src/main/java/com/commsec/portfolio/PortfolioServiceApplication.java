@@ -2,8 +2,10 @@ package com.commsec.portfolio;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication
+@EnableScheduling
 public class PortfolioServiceApplication {
     public static void main(String[] args) {
         SpringApplication.run(PortfolioServiceApplication.class, args);
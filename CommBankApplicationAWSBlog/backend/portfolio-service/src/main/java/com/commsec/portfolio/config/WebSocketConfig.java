@@ -0,0 +1,30 @@
+package com.commsec.portfolio.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.messaging.simp.config.MessageBrokerRegistry;
+import org.springframework.web.socket.config.annotation.EnableWebSocketMessageBroker;
+import org.springframework.web.socket.config.annotation.StompEndpointRegistry;
+import org.springframework.web.socket.config.annotation.WebSocketMessageBrokerConfigurer;
+
+@Configuration
+@EnableWebSocketMessageBroker
+public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
+
+    @Override
+    public void configureMessageBroker(MessageBrokerRegistry registry) {
+        // Portfolio summaries are pushed on /topic/portfolio/{accountId}
+        registry.enableSimpleBroker("/topic");
+        registry.setApplicationDestinationPrefixes("/app");
+    }
+
+    @Override
+    public void registerStompEndpoints(StompEndpointRegistry registry) {
+        registry.addEndpoint("/ws/portfolio")
+            .setAllowedOrigins("*")
+            .withSockJS();
+
+        // Native WebSocket endpoint without SockJS fallback
+        registry.addEndpoint("/ws/portfolio")
+            .setAllowedOrigins("*");
+    }
+}
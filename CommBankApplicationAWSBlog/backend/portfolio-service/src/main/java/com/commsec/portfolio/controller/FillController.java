@@ -0,0 +1,30 @@
+package com.commsec.portfolio.controller;
+
+import com.commsec.portfolio.dto.FillMessage;
+import com.commsec.portfolio.positions.FillConsumer;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/v1/portfolio/fills")
+@RequiredArgsConstructor
+@Tag(name = "Fills", description = "Order fills relayed from trading-service")
+public class FillController {
+
+    private final FillConsumer fillConsumer;
+
+    @PostMapping
+    @Operation(summary = "Apply a batch of order fills to holdings")
+    public ResponseEntity<Void> applyFills(@RequestBody List<FillMessage> fills) {
+        if (!fillConsumer.deliver(fills)) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+        }
+        return ResponseEntity.noContent().build();
+    }
+}
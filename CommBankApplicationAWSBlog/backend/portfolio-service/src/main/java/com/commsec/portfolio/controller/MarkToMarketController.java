@@ -0,0 +1,56 @@
+package com.commsec.portfolio.controller;
+
+import com.commsec.portfolio.eod.MarkToMarketJob;
+import com.commsec.portfolio.eod.PartitionProgress;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/v1/portfolio/eod")
+@RequiredArgsConstructor
+@Tag(name = "End of day", description = "End-of-day mark-to-market runs")
+public class MarkToMarketController {
+
+    private final MarkToMarketJob markToMarketJob;
+
+    @GetMapping("/{date}")
+    @Operation(summary = "Get progress of a mark-to-market run by partition")
+    public ResponseEntity<Map<String, Object>> getProgress(
+            @PathVariable @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate date) {
+        List<PartitionProgress> partitions = markToMarketJob.progress(date);
+        if (partitions.isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+        long completed = partitions.stream().filter(p -> "COMPLETED".equals(p.status())).count();
+        long marked = partitions.stream().mapToLong(PartitionProgress::holdingsMarked).sum();
+        return ResponseEntity.ok(Map.of(
+            "runDate", date,
+            "partitionsTotal", partitions.size(),
+            "partitionsCompleted", completed,
+            "holdingsMarked", marked,
+            "partitions", partitions
+        ));
+    }
+
+    @PostMapping("/{date}/run")
+    @Operation(summary = "Start today's mark-to-market run, or resume an existing one")
+    public ResponseEntity<Void> run(
+            @PathVariable @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate date) {
+        if (!markToMarketJob.isRunnable(date)) {
+            return ResponseEntity.badRequest().build();
+        }
+        if (!markToMarketJob.start(date)) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).build();
+        }
+        return ResponseEntity.accepted().build();
+    }
+}
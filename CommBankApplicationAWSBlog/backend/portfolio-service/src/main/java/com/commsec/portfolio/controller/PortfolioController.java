@@ -1,8 +1,12 @@
 package com.commsec.portfolio.controller;
 
+import com.commsec.portfolio.dto.RiskAnalyticsResponse;
+import com.commsec.portfolio.dto.ValueSeriesResponse;
+import com.commsec.portfolio.history.ChartRange;
 import com.commsec.portfolio.model.Holding;
 import com.commsec.portfolio.service.PortfolioService;
 import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.ResponseEntity;
@@ -17,6 +21,8 @@ import java.util.Map;
 @Tag(name = "Portfolio", description = "Portfolio management endpoints")
 public class PortfolioController {
 
+    private static final int MAX_CHART_POINTS = 2000;
+
     private final PortfolioService portfolioService;
 
     @GetMapping("/holdings/{accountId}")
@@ -41,6 +47,28 @@ public class PortfolioController {
         return ResponseEntity.ok(portfolioService.getPortfolioSummary(accountId));
     }
 
+    @GetMapping("/risk/{accountId}")
+    @Operation(summary = "Get volatility, historical VaR and beta of an account's holdings")
+    public ResponseEntity<RiskAnalyticsResponse> getRiskAnalytics(@PathVariable String accountId) {
+        return ResponseEntity.ok(portfolioService.getRiskAnalytics(accountId));
+    }
+
+    @GetMapping("/history/{accountId}")
+    @Operation(summary = "Get portfolio value over a chart range")
+    public ResponseEntity<ValueSeriesResponse> getValueHistory(
+            @PathVariable String accountId,
+            @Parameter(description = "1H, 1D, 1W, 1M, 1Y or 5Y")
+            @RequestParam(defaultValue = "1D") String range,
+            @Parameter(description = "Most points to return, at most 2000")
+            @RequestParam(defaultValue = "500") int maxPoints) {
+        if (maxPoints < 1 || maxPoints > MAX_CHART_POINTS) {
+            return ResponseEntity.badRequest().build();
+        }
+        return ChartRange.of(range)
+                .map(chartRange -> ResponseEntity.ok(portfolioService.getValueHistory(accountId, chartRange, maxPoints)))
+                .orElse(ResponseEntity.badRequest().build());
+    }
+
     @GetMapping("/health")
     @Operation(summary = "Health check")
     public ResponseEntity<Map<String, String>> health() {
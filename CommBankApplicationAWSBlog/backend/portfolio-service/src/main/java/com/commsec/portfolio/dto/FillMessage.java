@@ -0,0 +1,28 @@
+package com.commsec.portfolio.dto;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import lombok.*;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * An order's cumulative fill as relayed from trading-service's outbox.
+ * Quantity and notional are totals for the order so far, not one execution.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class FillMessage {
+    private long id;
+    private UUID orderId;
+    private String accountId;
+    private String symbol;
+    private String side;
+    private BigDecimal filledQuantity;
+    private BigDecimal filledNotional;
+    private Instant createdAt;
+}
@@ -0,0 +1,31 @@
+package com.commsec.portfolio.dto;
+
+import lombok.*;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.LocalDate;
+
+/**
+ * Risk of an account's current holdings measured over the daily closes up to
+ * {@code asOf}. Volatility is annualised; value at risk is the one-day loss,
+ * in dollars, exceeded on 5% and 1% of observed days. The measures are null
+ * when there are too few observations or no holding has a price history.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class RiskAnalyticsResponse {
+    private String accountId;
+    private LocalDate asOf;
+    private int observations;
+    private BigDecimal portfolioValue;
+    private BigDecimal volatility;
+    private BigDecimal valueAtRisk95;
+    private BigDecimal valueAtRisk99;
+    private BigDecimal beta;
+    private String benchmark;
+    private int symbolsWithoutHistory;
+    private Instant calculatedAt;
+}
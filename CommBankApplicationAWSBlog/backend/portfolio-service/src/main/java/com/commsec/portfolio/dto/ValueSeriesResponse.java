@@ -0,0 +1,22 @@
+package com.commsec.portfolio.dto;
+
+import lombok.*;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+/**
+ * An account's portfolio value over a chart range. {@code timestamps} are
+ * epoch milliseconds, paired by position with {@code values}.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ValueSeriesResponse {
+    private String accountId;
+    private String range;
+    private String resolution;
+    private long[] timestamps;
+    private List<BigDecimal> values;
+}
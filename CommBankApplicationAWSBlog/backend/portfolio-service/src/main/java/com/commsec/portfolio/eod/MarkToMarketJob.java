@@ -0,0 +1,329 @@
+package com.commsec.portfolio.eod;
+
+import com.commsec.portfolio.dto.QuoteTick;
+import com.commsec.portfolio.history.ValueHistory;
+import com.commsec.portfolio.marketdata.MarketDataClient;
+import com.commsec.portfolio.valuation.PositionMath;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * End-of-day mark-to-market of every holding.
+ * <p>
+ * A run captures the closing prices once and splits holdings into ranges of
+ * account ids. Workers claim a range at a time, stream its holdings through a
+ * forward-only cursor, value them and write the marks back in JDBC batches,
+ * each committed together with a checkpoint of the last account written. A
+ * run interrupted part way resumes from those checkpoints: a range whose
+ * owner stops sending heartbeats for {@code portfolio.eod.stale-after-ms} is
+ * taken over, by this instance or another replica, from where it left off.
+ * Each batch's account totals become the day's points in the value history.
+ */
+@Service
+@Slf4j
+public class MarkToMarketJob {
+
+    private final MarkToMarketRepository repository;
+    private final MarketDataClient marketDataClient;
+    private final ValueHistory valueHistory;
+    private final TransactionTemplate cursorTransaction;
+    private final ZoneId zone;
+    private final int partitions;
+    private final int workers;
+    private final int batchSize;
+    private final long staleAfterMs;
+    private final String instanceId = UUID.randomUUID().toString().substring(0, 8);
+    private final AtomicBoolean running = new AtomicBoolean();
+    private final AtomicInteger partitionsTotal = new AtomicInteger();
+    private final AtomicInteger partitionsCompleted = new AtomicInteger();
+    private final ExecutorService coordinator;
+    private final ExecutorService workerPool;
+    private final Counter holdingsMarked;
+    private final Counter holdingsUnpriced;
+    private final Timer batchWriteTime;
+
+    public MarkToMarketJob(MarkToMarketRepository repository,
+                           MarketDataClient marketDataClient,
+                           ValueHistory valueHistory,
+                           PlatformTransactionManager transactionManager,
+                           MeterRegistry meterRegistry,
+                           @Value("${portfolio.eod.zone:Australia/Sydney}") String zone,
+                           @Value("${portfolio.eod.partitions:16}") int partitions,
+                           @Value("${portfolio.eod.workers:4}") int workers,
+                           @Value("${portfolio.eod.batch-size:1000}") int batchSize,
+                           @Value("${portfolio.eod.stale-after-ms:300000}") long staleAfterMs) {
+        this.repository = repository;
+        this.marketDataClient = marketDataClient;
+        this.valueHistory = valueHistory;
+        this.zone = ZoneId.of(zone);
+        this.partitions = partitions;
+        this.workers = workers;
+        this.batchSize = batchSize;
+        this.staleAfterMs = staleAfterMs;
+
+        this.cursorTransaction = new TransactionTemplate(transactionManager);
+        this.cursorTransaction.setReadOnly(true);
+
+        this.coordinator = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "eod-mark");
+            thread.setDaemon(true);
+            return thread;
+        });
+        AtomicInteger workerIds = new AtomicInteger();
+        this.workerPool = Executors.newFixedThreadPool(workers, runnable -> {
+            Thread thread = new Thread(runnable, "eod-mark-worker-" + workerIds.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        this.holdingsMarked = Counter.builder("portfolio.eod.holdings.marked")
+            .description("Holdings written by the end-of-day mark")
+            .register(meterRegistry);
+
+        this.holdingsUnpriced = Counter.builder("portfolio.eod.holdings.unpriced")
+            .description("Holdings skipped by the end-of-day mark for want of a closing price")
+            .register(meterRegistry);
+
+        this.batchWriteTime = Timer.builder("portfolio.eod.batch.write.time")
+            .description("Time to write one batch of marks and its checkpoint")
+            .register(meterRegistry);
+
+        Gauge.builder("portfolio.eod.partitions.total", partitionsTotal, AtomicInteger::get)
+            .description("Partitions in the current or last end-of-day run")
+            .register(meterRegistry);
+
+        Gauge.builder("portfolio.eod.partitions.completed", partitionsCompleted, AtomicInteger::get)
+            .description("Partitions completed by this instance in the current or last end-of-day run")
+            .register(meterRegistry);
+
+        Gauge.builder("portfolio.eod.running", running, flag -> flag.get() ? 1 : 0)
+            .description("Whether an end-of-day run is in progress on this instance")
+            .register(meterRegistry);
+    }
+
+    @Scheduled(cron = "${portfolio.eod.cron:0 30 16 * * MON-FRI}", zone = "${portfolio.eod.zone:Australia/Sydney}")
+    public void scheduledRun() {
+        if (!start(LocalDate.now(zone))) {
+            log.warn("End-of-day mark not started: a run is already in progress");
+        }
+    }
+
+    /**
+     * Starts, or resumes, the run for {@code runDate} in the background.
+     * Returns false if this instance is already running one.
+     */
+    public boolean start(LocalDate runDate) {
+        if (!running.compareAndSet(false, true)) {
+            return false;
+        }
+        coordinator.execute(() -> {
+            try {
+                run(runDate);
+            } catch (RuntimeException e) {
+                log.error("End-of-day mark for {} failed", runDate, e);
+            } finally {
+                running.set(false);
+            }
+        });
+        return true;
+    }
+
+    /**
+     * A run marks holdings at the quotes of the moment it starts, so it can
+     * only be started for the current exchange day. An existing run for
+     * another day may still be resumed; its prices were captured when it began.
+     */
+    public boolean isRunnable(LocalDate runDate) {
+        return runDate.equals(LocalDate.now(zone)) || repository.runExists(runDate);
+    }
+
+    public boolean isRunning() {
+        return running.get();
+    }
+
+    public List<PartitionProgress> progress(LocalDate runDate) {
+        return repository.progress(runDate);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        coordinator.shutdownNow();
+        workerPool.shutdownNow();
+    }
+
+    private void run(LocalDate runDate) {
+        long start = System.nanoTime();
+        prepare(runDate);
+        Map<String, BigDecimal> prices = repository.prices(runDate);
+        partitionsTotal.set(repository.progress(runDate).size());
+        partitionsCompleted.set(0);
+        log.info("End-of-day mark for {}: {} partitions, {} prices, {} workers",
+            runDate, partitionsTotal.get(), prices.size(), workers);
+
+        List<Future<?>> futures = new ArrayList<>(workers);
+        for (int i = 0; i < workers; i++) {
+            String owner = instanceId + "-" + i;
+            futures.add(workerPool.submit(() -> work(runDate, owner, prices)));
+        }
+        for (Future<?> future : futures) {
+            try {
+                future.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                log.error("End-of-day mark worker for {} failed", runDate, e);
+            }
+        }
+        log.info("End-of-day mark for {} finished on this instance in {} ms",
+            runDate, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+    }
+
+    /** Captures closing prices and partitions the holdings, unless the run already exists. */
+    private void prepare(LocalDate runDate) {
+        if (repository.runExists(runDate)) {
+            return;
+        }
+        Map<String, BigDecimal> prices = new HashMap<>();
+        for (QuoteTick quote : marketDataClient.allQuotes()) {
+            if (quote.getLastPrice() != null) {
+                prices.put(quote.getSymbol(), quote.getLastPrice());
+            }
+        }
+        repository.createRun(runDate, prices, repository.partitionBounds(partitions));
+    }
+
+    private void work(LocalDate runDate, String owner, Map<String, BigDecimal> prices) {
+        while (!Thread.currentThread().isInterrupted()) {
+            Instant now = Instant.now();
+            Optional<PartitionProgress> claimed = repository.claim(runDate, owner, now, now.minusMillis(staleAfterMs));
+            if (claimed.isEmpty()) {
+                return;
+            }
+            PartitionProgress partition = claimed.get();
+            try {
+                mark(runDate, owner, partition, prices);
+                if (repository.complete(runDate, partition.partition(), owner, Instant.now())) {
+                    partitionsCompleted.incrementAndGet();
+                }
+            } catch (IllegalStateException e) {
+                // Taken over after a stall; the new owner carries on from the last checkpoint
+                log.warn(e.getMessage());
+            }
+        }
+    }
+
+    private void mark(LocalDate runDate, String owner, PartitionProgress partition, Map<String, BigDecimal> prices) {
+        if (partition.lastAccountId() != null) {
+            log.info("Resuming partition {} of {} after account {}", partition.partition(), runDate, partition.lastAccountId());
+        }
+        String after = partition.lastAccountId() != null ? partition.lastAccountId() : partition.lowerBound();
+        PartitionWriter writer = new PartitionWriter(runDate, owner, partition.partition());
+        cursorTransaction.executeWithoutResult(status ->
+            repository.streamHoldings(after, partition.upperBound(), rs -> {
+                String accountId = rs.getString("account_id");
+                writer.beforeAccount(accountId);
+                BigDecimal price = prices.get(rs.getString("symbol"));
+                if (price == null) {
+                    holdingsUnpriced.increment();
+                    return;
+                }
+                writer.add(value(rs.getObject("id"), rs.getBigDecimal("quantity"), rs.getBigDecimal("total_cost"), price));
+            }));
+        writer.flush();
+    }
+
+    private static MarkedHolding value(Object id, BigDecimal quantity, BigDecimal totalCost, BigDecimal price) {
+        long scaledPrice = PositionMath.scaled(price, PositionMath.PRICE_SCALE);
+        long value = PositionMath.marketValue(PositionMath.scaled(quantity, PositionMath.QUANTITY_SCALE), scaledPrice);
+        long cost = PositionMath.scaled(totalCost, PositionMath.MONEY_SCALE);
+        return new MarkedHolding(id,
+            BigDecimal.valueOf(scaledPrice, PositionMath.PRICE_SCALE),
+            BigDecimal.valueOf(value, PositionMath.MONEY_SCALE),
+            BigDecimal.valueOf(value - cost, PositionMath.MONEY_SCALE),
+            PositionMath.pnlPercent(value - cost, cost));
+    }
+
+    /**
+     * Buffers one partition's marks and writes them once the batch is full.
+     * Batches only end between accounts, so the checkpoint never splits one.
+     */
+    private final class PartitionWriter {
+
+        private final LocalDate runDate;
+        private final String owner;
+        private final int partition;
+        private final List<MarkedHolding> batch = new ArrayList<>();
+        private final Map<String, Long> closes = new LinkedHashMap<>();
+        private String currentAccount;
+        private int scanned;
+
+        PartitionWriter(LocalDate runDate, String owner, int partition) {
+            this.runDate = runDate;
+            this.owner = owner;
+            this.partition = partition;
+        }
+
+        void beforeAccount(String accountId) {
+            if (!accountId.equals(currentAccount)) {
+                if (scanned >= batchSize) {
+                    flush();
+                }
+                currentAccount = accountId;
+            }
+            scanned++;
+        }
+
+        void add(MarkedHolding mark) {
+            batch.add(mark);
+            closes.merge(currentAccount, PositionMath.scaled(mark.value(), PositionMath.MONEY_SCALE), Long::sum);
+        }
+
+        void flush() {
+            if (currentAccount == null || scanned == 0) {
+                return;
+            }
+            long start = System.nanoTime();
+            repository.writeBatch(runDate, partition, owner, batch, currentAccount, Instant.now());
+            batchWriteTime.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            holdingsMarked.increment(batch.size());
+            batch.clear();
+            try {
+                valueHistory.recordCloses(runDate, closes);
+            } catch (DataAccessException e) {
+                // The marks are committed; a missing point only leaves a gap in the chart
+                log.warn("Failed to record {} closing values for {}: {}", closes.size(), runDate, e.getMessage());
+            }
+            closes.clear();
+            scanned = 0;
+        }
+    }
+}
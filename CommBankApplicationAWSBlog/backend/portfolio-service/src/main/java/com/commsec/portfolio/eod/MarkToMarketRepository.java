@@ -0,0 +1,252 @@
+package com.commsec.portfolio.eod;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.sql.DataSource;
+import java.math.BigDecimal;
+import java.sql.Array;
+import java.sql.Date;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * JDBC access for the end-of-day mark: the run's price snapshot and partition
+ * table, the holdings cursor, and the batched holding updates.
+ */
+@Repository
+public class MarkToMarketRepository {
+
+    private static final String RUN_EXISTS = """
+        SELECT EXISTS (SELECT 1 FROM eod_mark_partitions WHERE run_date = ?)
+        """;
+
+    private static final String INSERT_PRICE = """
+        INSERT INTO eod_mark_prices (run_date, symbol, price) VALUES (?, ?, ?)
+        ON CONFLICT (run_date, symbol) DO NOTHING
+        """;
+
+    private static final String INSERT_PARTITION = """
+        INSERT INTO eod_mark_partitions (run_date, partition_no, lower_bound, upper_bound, status)
+        VALUES (?, ?, ?, ?, 'PENDING')
+        ON CONFLICT (run_date, partition_no) DO NOTHING
+        """;
+
+    private static final String SELECT_PRICES = """
+        SELECT symbol, price FROM eod_mark_prices WHERE run_date = ?
+        """;
+
+    /** Account ids at the given quantiles, so partitions hold roughly equal numbers of holdings. */
+    private static final String ACCOUNT_QUANTILES = """
+        SELECT percentile_disc(?) WITHIN GROUP (ORDER BY account_id) FROM holdings
+        """;
+
+    /**
+     * Takes the lowest pending partition, or one whose owner stopped sending
+     * heartbeats. SKIP LOCKED lets several workers and replicas claim at once.
+     */
+    private static final String CLAIM_PARTITION = """
+        UPDATE eod_mark_partitions SET status = 'RUNNING', owner = ?, heartbeat_at = ?
+        WHERE run_date = ? AND partition_no = (
+            SELECT partition_no FROM eod_mark_partitions
+            WHERE run_date = ?
+              AND (status = 'PENDING' OR (status = 'RUNNING' AND heartbeat_at < ?))
+            ORDER BY partition_no
+            LIMIT 1
+            FOR UPDATE SKIP LOCKED)
+        RETURNING partition_no, lower_bound, upper_bound, last_account_id, holdings_marked,
+            status, owner, heartbeat_at, completed_at
+        """;
+
+    private static final String STREAM_HOLDINGS = """
+        SELECT id, account_id, symbol, quantity, total_cost FROM holdings
+        WHERE account_id > ? AND account_id <= ?
+        ORDER BY account_id
+        """;
+
+    private static final String STREAM_HOLDINGS_UNBOUNDED = """
+        SELECT id, account_id, symbol, quantity, total_cost FROM holdings
+        WHERE account_id > ?
+        ORDER BY account_id
+        """;
+
+    private static final String MARK_HOLDING = """
+        UPDATE holdings SET current_price = ?, current_value = ?, unrealized_pnl = ?,
+            unrealized_pnl_percent = ?, updated_at = ?
+        WHERE id = ?
+        """;
+
+    private static final String CHECKPOINT = """
+        UPDATE eod_mark_partitions
+        SET last_account_id = ?, holdings_marked = holdings_marked + ?, heartbeat_at = ?
+        WHERE run_date = ? AND partition_no = ? AND owner = ? AND status = 'RUNNING'
+        """;
+
+    private static final String COMPLETE_PARTITION = """
+        UPDATE eod_mark_partitions SET status = 'COMPLETED', completed_at = ?, heartbeat_at = ?
+        WHERE run_date = ? AND partition_no = ? AND owner = ? AND status = 'RUNNING'
+        """;
+
+    private static final String SELECT_PARTITIONS = """
+        SELECT partition_no, lower_bound, upper_bound, last_account_id, holdings_marked,
+            status, owner, heartbeat_at, completed_at
+        FROM eod_mark_partitions WHERE run_date = ? ORDER BY partition_no
+        """;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final JdbcTemplate cursorTemplate;
+
+    public MarkToMarketRepository(JdbcTemplate jdbcTemplate,
+                                  DataSource dataSource,
+                                  @Value("${portfolio.eod.fetch-size:1000}") int fetchSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        // The PostgreSQL driver only streams with a fetch size inside a transaction
+        this.cursorTemplate = new JdbcTemplate(dataSource);
+        this.cursorTemplate.setFetchSize(fetchSize);
+    }
+
+    public boolean runExists(LocalDate runDate) {
+        return Boolean.TRUE.equals(jdbcTemplate.queryForObject(RUN_EXISTS, Boolean.class, Date.valueOf(runDate)));
+    }
+
+    /**
+     * Upper bounds splitting all holdings into {@code partitions} ranges of
+     * account ids; fewer if there are too few accounts to split that finely.
+     */
+    public List<String> partitionBounds(int partitions) {
+        if (partitions < 2) {
+            return List.of();
+        }
+        Double[] quantiles = new Double[partitions - 1];
+        for (int i = 1; i < partitions; i++) {
+            quantiles[i - 1] = (double) i / partitions;
+        }
+        String[] bounds = jdbcTemplate.query(connection -> {
+            var ps = connection.prepareStatement(ACCOUNT_QUANTILES);
+            ps.setArray(1, connection.createArrayOf("float8", quantiles));
+            return ps;
+        }, rs -> rs.next() ? toStrings(rs.getArray(1)) : new String[0]);
+        return Arrays.stream(bounds).filter(bound -> bound != null).distinct().toList();
+    }
+
+    /**
+     * Records the run's closing prices and partitions. A second caller for the
+     * same date, e.g. another replica, leaves the first one's rows in place.
+     */
+    @Transactional
+    public void createRun(LocalDate runDate, Map<String, BigDecimal> prices, List<String> bounds) {
+        Date date = Date.valueOf(runDate);
+        List<Map.Entry<String, BigDecimal>> entries = new ArrayList<>(prices.entrySet());
+        jdbcTemplate.batchUpdate(INSERT_PRICE, entries, 1000, (ps, entry) -> {
+            ps.setDate(1, date);
+            ps.setString(2, entry.getKey());
+            ps.setBigDecimal(3, entry.getValue());
+        });
+        for (int partition = 0; partition <= bounds.size(); partition++) {
+            jdbcTemplate.update(INSERT_PARTITION, date, partition,
+                partition == 0 ? null : bounds.get(partition - 1),
+                partition == bounds.size() ? null : bounds.get(partition));
+        }
+    }
+
+    public Map<String, BigDecimal> prices(LocalDate runDate) {
+        Map<String, BigDecimal> prices = new HashMap<>();
+        jdbcTemplate.query(SELECT_PRICES, (RowCallbackHandler) rs ->
+            prices.put(rs.getString("symbol"), rs.getBigDecimal("price")), Date.valueOf(runDate));
+        return prices;
+    }
+
+    @Transactional
+    public Optional<PartitionProgress> claim(LocalDate runDate, String owner, Instant now, Instant staleBefore) {
+        Date date = Date.valueOf(runDate);
+        return jdbcTemplate.query(CLAIM_PARTITION, this::mapPartition,
+                owner, Timestamp.from(now), date, date, Timestamp.from(staleBefore))
+            .stream().findFirst();
+    }
+
+    /**
+     * Streams the partition's holdings after {@code afterAccountId} in account
+     * order. Must run inside a transaction for the cursor to be used.
+     */
+    public void streamHoldings(String afterAccountId, String upperBound, RowCallbackHandler handler) {
+        String after = afterAccountId != null ? afterAccountId : "";
+        if (upperBound != null) {
+            cursorTemplate.query(STREAM_HOLDINGS, handler, after, upperBound);
+        } else {
+            cursorTemplate.query(STREAM_HOLDINGS_UNBOUNDED, handler, after);
+        }
+    }
+
+    /**
+     * Writes a batch of marks and moves the partition's checkpoint past
+     * {@code lastAccountId} in one transaction of its own, separate from the
+     * one holding the cursor open.
+     *
+     * @throws IllegalStateException if the partition is no longer owned by
+     *                               {@code owner}; the batch is rolled back
+     */
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public void writeBatch(LocalDate runDate, int partition, String owner,
+                           List<MarkedHolding> marks, String lastAccountId, Instant now) {
+        Timestamp timestamp = Timestamp.from(now);
+        if (!marks.isEmpty()) {
+            jdbcTemplate.batchUpdate(MARK_HOLDING, marks, marks.size(), (ps, mark) -> {
+                ps.setBigDecimal(1, mark.price());
+                ps.setBigDecimal(2, mark.value());
+                ps.setBigDecimal(3, mark.pnl());
+                ps.setBigDecimal(4, mark.pnlPercent());
+                ps.setTimestamp(5, timestamp);
+                ps.setObject(6, mark.id());
+            });
+        }
+        int updated = jdbcTemplate.update(CHECKPOINT, lastAccountId, marks.size(), timestamp,
+            Date.valueOf(runDate), partition, owner);
+        if (updated == 0) {
+            throw new IllegalStateException("Partition " + partition + " of " + runDate + " is no longer owned by " + owner);
+        }
+    }
+
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public boolean complete(LocalDate runDate, int partition, String owner, Instant now) {
+        Timestamp timestamp = Timestamp.from(now);
+        return jdbcTemplate.update(COMPLETE_PARTITION, timestamp, timestamp, Date.valueOf(runDate), partition, owner) == 1;
+    }
+
+    public List<PartitionProgress> progress(LocalDate runDate) {
+        return jdbcTemplate.query(SELECT_PARTITIONS, this::mapPartition, Date.valueOf(runDate));
+    }
+
+    private PartitionProgress mapPartition(ResultSet rs, int rowNum) throws SQLException {
+        return new PartitionProgress(
+            rs.getInt("partition_no"),
+            rs.getString("lower_bound"),
+            rs.getString("upper_bound"),
+            rs.getString("last_account_id"),
+            rs.getLong("holdings_marked"),
+            rs.getString("status"),
+            rs.getString("owner"),
+            toInstant(rs.getTimestamp("heartbeat_at")),
+            toInstant(rs.getTimestamp("completed_at")));
+    }
+
+    private static Instant toInstant(Timestamp timestamp) {
+        return timestamp != null ? timestamp.toInstant() : null;
+    }
+
+    private static String[] toStrings(Array array) throws SQLException {
+        return array != null ? (String[]) array.getArray() : new String[0];
+    }
+}
@@ -0,0 +1,9 @@
+package com.commsec.portfolio.eod;
+
+import java.math.BigDecimal;
+
+/**
+ * New mark-to-market values for one holding row.
+ */
+record MarkedHolding(Object id, BigDecimal price, BigDecimal value, BigDecimal pnl, BigDecimal pnlPercent) {
+}
@@ -0,0 +1,18 @@
+package com.commsec.portfolio.eod;
+
+import java.time.Instant;
+
+/**
+ * State of one partition of a mark-to-market run. Bounds are account ids:
+ * the lower bound is exclusive, the upper inclusive, and null is unbounded.
+ */
+public record PartitionProgress(int partition,
+                                String lowerBound,
+                                String upperBound,
+                                String lastAccountId,
+                                long holdingsMarked,
+                                String status,
+                                String owner,
+                                Instant heartbeatAt,
+                                Instant completedAt) {
+}
@@ -0,0 +1,47 @@
+package com.commsec.portfolio.history;
+
+import java.util.Optional;
+
+/**
+ * Chart ranges offered by the history endpoint and the tier each is drawn
+ * from: the finest tier that still keeps the range to a few blocks.
+ */
+public enum ChartRange {
+    ONE_HOUR("1H", SeriesTier.TICK, 3_600),
+    ONE_DAY("1D", SeriesTier.MINUTE, 86_400),
+    ONE_WEEK("1W", SeriesTier.MINUTE, 7 * 86_400),
+    ONE_MONTH("1M", SeriesTier.DAY, 31 * 86_400),
+    ONE_YEAR("1Y", SeriesTier.DAY, 366 * 86_400),
+    FIVE_YEARS("5Y", SeriesTier.DAY, 5 * 366 * 86_400L);
+
+    private final String label;
+    private final SeriesTier tier;
+    private final long seconds;
+
+    ChartRange(String label, SeriesTier tier, long seconds) {
+        this.label = label;
+        this.tier = tier;
+        this.seconds = seconds;
+    }
+
+    public static Optional<ChartRange> of(String label) {
+        for (ChartRange range : values()) {
+            if (range.label.equalsIgnoreCase(label)) {
+                return Optional.of(range);
+            }
+        }
+        return Optional.empty();
+    }
+
+    public String label() {
+        return label;
+    }
+
+    public SeriesTier tier() {
+        return tier;
+    }
+
+    public long seconds() {
+        return seconds;
+    }
+}
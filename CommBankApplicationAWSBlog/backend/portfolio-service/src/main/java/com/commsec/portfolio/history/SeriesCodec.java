@@ -0,0 +1,92 @@
+package com.commsec.portfolio.history;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * Compact encoding of one block of a {@link ValueSeries}.
+ * <p>
+ * Layout: a version byte, the point count, then for each point the step
+ * count since the previous point (the first since the block start) and the
+ * change in value from the previous point (the first from zero), all as
+ * varints, with value changes zigzag-encoded. A block of evenly spaced points
+ * with small moves costs two or three bytes a point.
+ */
+final class SeriesCodec {
+
+    private static final byte VERSION = 1;
+
+    private SeriesCodec() {
+    }
+
+    /**
+     * @throws IllegalArgumentException if a point lies before the block start
+     *                                  or off the tier's step
+     */
+    static byte[] encode(SeriesTier tier, long blockStart, ValueSeries series) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(8 + series.size() * 3);
+        out.write(VERSION);
+        writeVarint(out, series.size());
+        long previousTime = blockStart;
+        long previousValue = 0;
+        for (int i = 0; i < series.size(); i++) {
+            long time = series.times()[i];
+            if (time < previousTime || (time - blockStart) % tier.stepSeconds() != 0) {
+                throw new IllegalArgumentException("Point at " + time + " does not fit block " + blockStart + " of " + tier);
+            }
+            writeVarint(out, (time - previousTime) / tier.stepSeconds());
+            writeVarint(out, zigzag(series.values()[i] - previousValue));
+            previousTime = time;
+            previousValue = series.values()[i];
+        }
+        return out.toByteArray();
+    }
+
+    static ValueSeries decode(SeriesTier tier, long blockStart, byte[] data) {
+        ByteBuffer in = ByteBuffer.wrap(data);
+        byte version = in.get();
+        if (version != VERSION) {
+            throw new IllegalArgumentException("Unknown value series encoding " + version);
+        }
+        int count = (int) readVarint(in);
+        long[] times = new long[count];
+        long[] values = new long[count];
+        long time = blockStart;
+        long value = 0;
+        for (int i = 0; i < count; i++) {
+            time += readVarint(in) * tier.stepSeconds();
+            value += unzigzag(readVarint(in));
+            times[i] = time;
+            values[i] = value;
+        }
+        return new ValueSeries(times, values);
+    }
+
+    private static void writeVarint(ByteArrayOutputStream out, long value) {
+        while ((value & ~0x7FL) != 0) {
+            out.write((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+
+    private static long readVarint(ByteBuffer in) {
+        long value = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = in.get();
+            value |= (long) (b & 0x7F) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0);
+        return value;
+    }
+
+    private static long zigzag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static long unzigzag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+}
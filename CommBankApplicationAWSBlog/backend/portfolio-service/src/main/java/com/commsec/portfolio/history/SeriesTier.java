@@ -0,0 +1,41 @@
+package com.commsec.portfolio.history;
+
+/**
+ * Resolutions at which portfolio values are kept. Each tier's points are
+ * stored in blocks of a fixed span, one row per account per block, so a chart
+ * reads a handful of adjacent rows whatever its range.
+ */
+public enum SeriesTier {
+    /** Every sample, held in memory for the last hour or so and never stored. */
+    TICK(1, 3_600),
+    /** Closing value of each minute; one block per UTC day. */
+    MINUTE(60, 86_400),
+    /** End-of-day mark; one block per 512 days. */
+    DAY(86_400, 512 * 86_400L);
+
+    private final long stepSeconds;
+    private final long blockSeconds;
+
+    SeriesTier(long stepSeconds, long blockSeconds) {
+        this.stepSeconds = stepSeconds;
+        this.blockSeconds = blockSeconds;
+    }
+
+    public long stepSeconds() {
+        return stepSeconds;
+    }
+
+    /** Start, in epoch seconds, of the block holding {@code epochSecond}. */
+    public long blockStart(long epochSecond) {
+        return Math.floorDiv(epochSecond, blockSeconds) * blockSeconds;
+    }
+
+    public long blockSeconds() {
+        return blockSeconds;
+    }
+
+    /** {@code epochSecond} rounded down to this tier's step. */
+    public long truncate(long epochSecond) {
+        return Math.floorDiv(epochSecond, stepSeconds) * stepSeconds;
+    }
+}
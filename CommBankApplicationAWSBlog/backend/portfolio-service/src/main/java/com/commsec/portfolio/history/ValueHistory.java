@@ -0,0 +1,233 @@
+package com.commsec.portfolio.history;
+
+import com.commsec.portfolio.valuation.ValuationEngine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Portfolio value history at three tiers (see {@link SeriesTier}).
+ * <p>
+ * Accounts held in memory by the {@link ValuationEngine} are sampled every
+ * {@code portfolio.history.sample-interval-ms}. The samples are the tick tier
+ * and stay in memory for {@code portfolio.history.tick-retention-ms}; the last
+ * sample of each minute is the minute tier, merged into the account's block
+ * for the day every {@code portfolio.history.flush-interval-ms}. The day tier
+ * is the end-of-day mark, so it covers every account with holdings, viewed or
+ * not. Charts read the blocks overlapping their range with one query and add
+ * the minutes not yet flushed.
+ */
+@Service
+@Slf4j
+public class ValueHistory {
+
+    /**
+     * One account's samples: a ring of recent ticks, the minute in progress,
+     * and closed minutes waiting to be flushed.
+     */
+    private static final class Intraday {
+
+        private final long[] tickTimes;
+        private final long[] tickValues;
+        private int tickHead;
+        private int tickCount;
+        private long minute = -1;
+        private long minuteValue;
+        private ValueSeries pending = ValueSeries.EMPTY;
+        private long lastSample;
+
+        private Intraday(int tickCapacity) {
+            this.tickTimes = new long[tickCapacity];
+            this.tickValues = new long[tickCapacity];
+        }
+
+        private synchronized void record(long second, long value) {
+            int slot = (tickHead + tickCount) % tickTimes.length;
+            if (tickCount == tickTimes.length) {
+                tickHead = (tickHead + 1) % tickTimes.length;
+            } else {
+                tickCount++;
+            }
+            tickTimes[slot] = second;
+            tickValues[slot] = value;
+            lastSample = second;
+
+            long current = SeriesTier.MINUTE.truncate(second);
+            if (current != minute) {
+                closeMinute();
+                minute = current;
+            }
+            minuteValue = value;
+        }
+
+        private synchronized ValueSeries ticks() {
+            long[] times = new long[tickCount];
+            long[] values = new long[tickCount];
+            for (int i = 0; i < tickCount; i++) {
+                int slot = (tickHead + i) % tickTimes.length;
+                times[i] = tickTimes[slot];
+                values[i] = tickValues[slot];
+            }
+            return new ValueSeries(times, values);
+        }
+
+        /** Minutes not yet flushed, including the one in progress. */
+        private synchronized ValueSeries minutes() {
+            return minute < 0 ? pending : pending.merge(point(minute, minuteValue));
+        }
+
+        private synchronized ValueSeries takePending() {
+            ValueSeries taken = pending;
+            pending = ValueSeries.EMPTY;
+            return taken;
+        }
+
+        /** Puts back minutes whose flush failed, under any taken since. */
+        private synchronized void restore(ValueSeries failed) {
+            pending = failed.merge(pending);
+        }
+
+        private synchronized boolean idleSince(long cutoff) {
+            if (lastSample >= cutoff) {
+                return false;
+            }
+            closeMinute();
+            return true;
+        }
+
+        private synchronized boolean isDrained() {
+            return pending.isEmpty() && minute < 0;
+        }
+
+        private void closeMinute() {
+            if (minute >= 0) {
+                pending = pending.merge(point(minute, minuteValue));
+                minute = -1;
+            }
+        }
+    }
+
+    private final ValuationEngine valuationEngine;
+    private final ValueHistoryRepository repository;
+    private final int tickCapacity;
+    private final long tickRetentionSeconds;
+    private final Map<String, Intraday> intraday = new ConcurrentHashMap<>();
+    private final Counter blocksWritten;
+    private final Counter flushFailures;
+
+    public ValueHistory(ValuationEngine valuationEngine,
+                        ValueHistoryRepository repository,
+                        MeterRegistry meterRegistry,
+                        @Value("${portfolio.history.sample-interval-ms:5000}") long sampleIntervalMs,
+                        @Value("${portfolio.history.tick-retention-ms:3600000}") long tickRetentionMs) {
+        this.valuationEngine = valuationEngine;
+        this.repository = repository;
+        this.tickCapacity = (int) Math.max(1, tickRetentionMs / Math.max(1000, sampleIntervalMs));
+        this.tickRetentionSeconds = tickRetentionMs / 1000;
+
+        this.blocksWritten = Counter.builder("portfolio.history.blocks.written")
+            .description("Value series blocks merged into the database")
+            .register(meterRegistry);
+
+        this.flushFailures = Counter.builder("portfolio.history.flush.failures")
+            .description("Minute-tier flushes that failed and were kept for the next attempt")
+            .register(meterRegistry);
+
+        Gauge.builder("portfolio.history.accounts", intraday, Map::size)
+            .description("Accounts with intraday samples in memory")
+            .register(meterRegistry);
+    }
+
+    @Scheduled(fixedDelayString = "${portfolio.history.sample-interval-ms:5000}")
+    public void sample() {
+        long now = Instant.now().getEpochSecond();
+        valuationEngine.forEachValue((accountId, value) ->
+            intraday.computeIfAbsent(accountId, id -> new Intraday(tickCapacity)).record(now, value));
+    }
+
+    /**
+     * Writes closed minutes to their day blocks. Accounts no longer sampled
+     * have their last minute closed and are dropped once it is written.
+     */
+    @Scheduled(fixedDelayString = "${portfolio.history.flush-interval-ms:60000}")
+    public void flush() {
+        long idleCutoff = Instant.now().getEpochSecond() - tickRetentionSeconds;
+        Map<Long, Map<String, ValueSeries>> byBlock = new HashMap<>();
+        for (Map.Entry<String, Intraday> entry : intraday.entrySet()) {
+            Intraday account = entry.getValue();
+            if (account.idleSince(idleCutoff) && account.isDrained()) {
+                intraday.remove(entry.getKey(), account);
+                continue;
+            }
+            ValueSeries minutes = account.takePending();
+            for (int start = 0; start < minutes.size(); ) {
+                long blockStart = SeriesTier.MINUTE.blockStart(minutes.times()[start]);
+                ValueSeries block = minutes.between(blockStart, blockStart + SeriesTier.MINUTE.blockSeconds());
+                byBlock.computeIfAbsent(blockStart, b -> new LinkedHashMap<>()).put(entry.getKey(), block);
+                start += block.size();
+            }
+        }
+        byBlock.forEach((blockStart, points) -> {
+            try {
+                repository.merge(SeriesTier.MINUTE, blockStart, points);
+                blocksWritten.increment(points.size());
+            } catch (DataAccessException e) {
+                flushFailures.increment();
+                log.warn("Failed to write {} minute blocks starting {}: {}", points.size(), blockStart, e.getMessage());
+                points.forEach((accountId, series) -> {
+                    Intraday account = intraday.get(accountId);
+                    if (account != null) {
+                        account.restore(series);
+                    }
+                });
+            }
+        });
+    }
+
+    /**
+     * Records each account's end-of-day value, in cents, as the day-tier
+     * point for {@code date}. Recording the same date again replaces it.
+     */
+    public void recordCloses(LocalDate date, Map<String, Long> values) {
+        if (values.isEmpty()) {
+            return;
+        }
+        long time = date.toEpochDay() * SeriesTier.DAY.stepSeconds();
+        Map<String, ValueSeries> points = new LinkedHashMap<>();
+        values.forEach((accountId, value) -> points.put(accountId, point(time, value)));
+        repository.merge(SeriesTier.DAY, SeriesTier.DAY.blockStart(time), points);
+        blocksWritten.increment(points.size());
+    }
+
+    /** The account's values over {@code range}, reduced to at most {@code maxPoints}. */
+    public ValueSeries series(String accountId, ChartRange range, int maxPoints) {
+        long to = Instant.now().getEpochSecond() + 1;
+        long from = to - range.seconds();
+        Intraday account = intraday.get(accountId);
+        ValueSeries series = switch (range.tier()) {
+            case TICK -> account != null ? account.ticks() : ValueSeries.EMPTY;
+            case MINUTE -> {
+                ValueSeries stored = repository.read(accountId, SeriesTier.MINUTE, from, to);
+                yield account != null ? stored.merge(account.minutes()) : stored;
+            }
+            case DAY -> repository.read(accountId, SeriesTier.DAY, from, to);
+        };
+        return series.between(from, to).downsample(maxPoints);
+    }
+
+    private static ValueSeries point(long time, long value) {
+        return new ValueSeries(new long[] {time}, new long[] {value});
+    }
+}
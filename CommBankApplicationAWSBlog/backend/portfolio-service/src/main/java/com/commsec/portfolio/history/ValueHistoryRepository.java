@@ -0,0 +1,106 @@
+package com.commsec.portfolio.history;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * JDBC access to {@code portfolio_value_blocks}: one row per account, tier
+ * and block, holding the block's points encoded by {@link SeriesCodec}. The
+ * primary key leads with the account, so a chart is one index range scan over
+ * adjacent rows.
+ */
+@Repository
+public class ValueHistoryRepository {
+
+    private static final String SELECT_BLOCKS = """
+        SELECT block_start, data FROM portfolio_value_blocks
+        WHERE account_id = ? AND tier = ? AND block_start >= ? AND block_start <= ?
+        ORDER BY block_start
+        """;
+
+    private static final String LOCK_BLOCKS = """
+        SELECT account_id, data FROM portfolio_value_blocks
+        WHERE tier = ? AND block_start = ? AND account_id = ANY(?)
+        ORDER BY account_id
+        FOR UPDATE
+        """;
+
+    private static final String UPSERT_BLOCK = """
+        INSERT INTO portfolio_value_blocks (account_id, tier, block_start, point_count, last_at, data, updated_at)
+        VALUES (?, ?, ?, ?, ?, ?, ?)
+        ON CONFLICT (account_id, tier, block_start) DO UPDATE
+        SET point_count = EXCLUDED.point_count, last_at = EXCLUDED.last_at,
+            data = EXCLUDED.data, updated_at = EXCLUDED.updated_at
+        """;
+
+    private record Block(String accountId, ValueSeries series) {
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public ValueHistoryRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /** The account's points in blocks overlapping {@code [from, to)}, in time order. */
+    public ValueSeries read(String accountId, SeriesTier tier, long from, long to) {
+        ValueSeries[] series = {ValueSeries.EMPTY};
+        jdbcTemplate.query(SELECT_BLOCKS, (RowCallbackHandler) rs -> {
+            long blockStart = rs.getLong("block_start");
+            series[0] = series[0].merge(SeriesCodec.decode(tier, blockStart, rs.getBytes("data")));
+        }, accountId, tier.name(), tier.blockStart(from), tier.blockStart(to - 1));
+        return series[0];
+    }
+
+    /**
+     * Merges new points into one block of each given account. Rows are locked
+     * while they are rewritten, so instances writing the same block add to it
+     * rather than overwrite each other. Always a transaction of its own: the
+     * end-of-day mark calls this while its read-only cursor transaction is
+     * open, and joining that would refuse the write and abort the cursor.
+     */
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public void merge(SeriesTier tier, long blockStart, Map<String, ValueSeries> points) {
+        if (points.isEmpty()) {
+            return;
+        }
+        Map<String, ValueSeries> existing = new HashMap<>();
+        jdbcTemplate.query(connection -> {
+            var ps = connection.prepareStatement(LOCK_BLOCKS);
+            ps.setString(1, tier.name());
+            ps.setLong(2, blockStart);
+            ps.setArray(3, connection.createArrayOf("varchar", points.keySet().toArray()));
+            return ps;
+        }, rs -> {
+            while (rs.next()) {
+                existing.put(rs.getString("account_id"), SeriesCodec.decode(tier, blockStart, rs.getBytes("data")));
+            }
+            return null;
+        });
+
+        List<Block> blocks = new ArrayList<>(points.size());
+        points.forEach((accountId, series) ->
+            blocks.add(new Block(accountId, existing.getOrDefault(accountId, ValueSeries.EMPTY).merge(series))));
+        Timestamp now = Timestamp.from(Instant.now());
+        jdbcTemplate.batchUpdate(UPSERT_BLOCK, blocks, 500, (ps, block) -> {
+            ValueSeries series = block.series();
+            ps.setString(1, block.accountId());
+            ps.setString(2, tier.name());
+            ps.setLong(3, blockStart);
+            ps.setInt(4, series.size());
+            ps.setLong(5, series.times()[series.size() - 1]);
+            ps.setBytes(6, SeriesCodec.encode(tier, blockStart, series));
+            ps.setTimestamp(7, now);
+        });
+    }
+}
@@ -0,0 +1,103 @@
+package com.commsec.portfolio.history;
+
+import java.util.Arrays;
+
+/**
+ * Portfolio values in time order: {@code times} in epoch seconds, strictly
+ * increasing, and {@code values} in cents. Series are immutable; the
+ * operations return new ones.
+ */
+public record ValueSeries(long[] times, long[] values) {
+
+    public static final ValueSeries EMPTY = new ValueSeries(new long[0], new long[0]);
+
+    public int size() {
+        return times.length;
+    }
+
+    public boolean isEmpty() {
+        return times.length == 0;
+    }
+
+    /**
+     * Union of both series. Where both have a point at the same time the one
+     * from {@code newer} is kept, so merging the same points again changes
+     * nothing.
+     */
+    public ValueSeries merge(ValueSeries newer) {
+        if (newer.isEmpty()) {
+            return this;
+        }
+        if (isEmpty()) {
+            return newer;
+        }
+        long[] mergedTimes = new long[size() + newer.size()];
+        long[] mergedValues = new long[mergedTimes.length];
+        int i = 0;
+        int j = 0;
+        int n = 0;
+        while (i < size() || j < newer.size()) {
+            if (j == newer.size() || (i < size() && times[i] < newer.times[j])) {
+                mergedTimes[n] = times[i];
+                mergedValues[n++] = values[i++];
+            } else {
+                if (i < size() && times[i] == newer.times[j]) {
+                    i++;
+                }
+                mergedTimes[n] = newer.times[j];
+                mergedValues[n++] = newer.values[j++];
+            }
+        }
+        return new ValueSeries(Arrays.copyOf(mergedTimes, n), Arrays.copyOf(mergedValues, n));
+    }
+
+    /** Points with {@code from <= time < to}. */
+    public ValueSeries between(long from, long to) {
+        int start = lowerBound(from);
+        int end = lowerBound(to);
+        if (start == 0 && end == size()) {
+            return this;
+        }
+        return new ValueSeries(Arrays.copyOfRange(times, start, end), Arrays.copyOfRange(values, start, end));
+    }
+
+    /**
+     * At most {@code maxPoints} points, keeping the last value in each of
+     * {@code maxPoints} equal spans of time: the close, as a chart would show it.
+     */
+    public ValueSeries downsample(int maxPoints) {
+        if (size() <= maxPoints || maxPoints < 1) {
+            return this;
+        }
+        long first = times[0];
+        long span = times[size() - 1] - first + 1;
+        long[] sampledTimes = new long[maxPoints];
+        long[] sampledValues = new long[maxPoints];
+        int n = 0;
+        long bucket = -1;
+        for (int i = 0; i < size(); i++) {
+            long b = (times[i] - first) * maxPoints / span;
+            if (b != bucket) {
+                bucket = b;
+                n++;
+            }
+            sampledTimes[n - 1] = times[i];
+            sampledValues[n - 1] = values[i];
+        }
+        return new ValueSeries(Arrays.copyOf(sampledTimes, n), Arrays.copyOf(sampledValues, n));
+    }
+
+    private int lowerBound(long time) {
+        int low = 0;
+        int high = size();
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (times[mid] < time) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+}
@@ -0,0 +1,31 @@
+package com.commsec.portfolio.marketdata;
+
+import com.commsec.portfolio.dto.QuoteTick;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.RestClient;
+
+import java.util.List;
+
+/**
+ * REST client for market-data-service snapshots, for jobs that need every
+ * price at once rather than the stream.
+ */
+@Component
+public class MarketDataClient {
+
+    private final RestClient restClient;
+
+    public MarketDataClient(RestClient.Builder builder,
+                            @Value("${portfolio.market-data.base-url}") String baseUrl) {
+        this.restClient = builder.baseUrl(baseUrl).build();
+    }
+
+    public List<QuoteTick> allQuotes() {
+        return restClient.get()
+            .uri("/api/v1/market/quotes")
+            .retrieve()
+            .body(new ParameterizedTypeReference<List<QuoteTick>>() { });
+    }
+}
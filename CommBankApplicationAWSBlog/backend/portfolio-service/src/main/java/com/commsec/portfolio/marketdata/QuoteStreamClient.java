@@ -0,0 +1,128 @@
+package com.commsec.portfolio.marketdata;
+
+import com.commsec.portfolio.dto.QuoteTick;
+import com.commsec.portfolio.valuation.ValuationEngine;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.messaging.converter.MappingJackson2MessageConverter;
+import org.springframework.messaging.simp.stomp.StompFrameHandler;
+import org.springframework.messaging.simp.stomp.StompHeaders;
+import org.springframework.messaging.simp.stomp.StompSession;
+import org.springframework.messaging.simp.stomp.StompSessionHandlerAdapter;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.client.standard.StandardWebSocketClient;
+import org.springframework.web.socket.messaging.WebSocketStompClient;
+
+import java.lang.reflect.Type;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * STOMP subscriber for market-data-service's per-symbol quote destinations.
+ * Only symbols held by accounts in the {@link ValuationEngine} are subscribed;
+ * the subscription set is brought in line with the held symbols by the same
+ * fixed-delay check that (re)establishes the connection.
+ */
+@Component
+@Slf4j
+public class QuoteStreamClient extends StompSessionHandlerAdapter {
+
+    private static final String QUOTES_PREFIX = "/topic/quotes/";
+
+    private final ValuationEngine valuationEngine;
+    private final WebSocketStompClient stompClient;
+    private final String streamUrl;
+    private final AtomicBoolean connecting = new AtomicBoolean();
+    private final Map<String, StompSession.Subscription> subscriptions = new ConcurrentHashMap<>();
+    private final StompFrameHandler frameHandler = new QuoteFrameHandler();
+    private volatile StompSession session;
+
+    public QuoteStreamClient(ValuationEngine valuationEngine,
+                             ObjectMapper objectMapper,
+                             @Value("${portfolio.market-data.stream-url}") String streamUrl) {
+        this.valuationEngine = valuationEngine;
+        this.streamUrl = streamUrl;
+
+        MappingJackson2MessageConverter converter = new MappingJackson2MessageConverter();
+        converter.setObjectMapper(objectMapper);
+        this.stompClient = new WebSocketStompClient(new StandardWebSocketClient());
+        this.stompClient.setMessageConverter(converter);
+    }
+
+    @Scheduled(fixedDelayString = "${portfolio.market-data.sync-interval-ms:1000}")
+    public void sync() {
+        StompSession current = session;
+        if (current != null && current.isConnected()) {
+            syncSubscriptions(current);
+            return;
+        }
+        if (!connecting.compareAndSet(false, true)) {
+            return;
+        }
+        subscriptions.clear();
+        log.info("Connecting to market data stream at {}", streamUrl);
+        stompClient.connectAsync(streamUrl, this).whenComplete((connected, ex) -> {
+            connecting.set(false);
+            if (ex != null) {
+                log.warn("Market data stream connection failed: {}", ex.getMessage());
+            }
+        });
+    }
+
+    @Override
+    public void afterConnected(StompSession session, StompHeaders connectedHeaders) {
+        this.session = session;
+        syncSubscriptions(session);
+        log.info("Connected to market data stream at {}", streamUrl);
+    }
+
+    @Override
+    public void handleTransportError(StompSession session, Throwable exception) {
+        log.warn("Market data stream transport error: {}", exception.getMessage());
+    }
+
+    @PreDestroy
+    public void disconnect() {
+        StompSession current = session;
+        if (current != null && current.isConnected()) {
+            current.disconnect();
+        }
+    }
+
+    private synchronized void syncSubscriptions(StompSession session) {
+        Set<String> held = valuationEngine.heldSymbols();
+        for (String symbol : held) {
+            if (!subscriptions.containsKey(symbol)) {
+                subscriptions.put(symbol, session.subscribe(QUOTES_PREFIX + symbol, frameHandler));
+            }
+        }
+        subscriptions.entrySet().removeIf(entry -> {
+            if (held.contains(entry.getKey())) {
+                return false;
+            }
+            entry.getValue().unsubscribe();
+            return true;
+        });
+    }
+
+    private final class QuoteFrameHandler implements StompFrameHandler {
+
+        @Override
+        public Type getPayloadType(StompHeaders headers) {
+            return QuoteTick.class;
+        }
+
+        @Override
+        public void handleFrame(StompHeaders headers, Object payload) {
+            QuoteTick tick = (QuoteTick) payload;
+            if (tick.getSymbol() != null && tick.getLastPrice() != null) {
+                valuationEngine.onQuote(tick.getSymbol(), tick.getLastPrice());
+            }
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package com.commsec.portfolio.positions;
+
+import com.commsec.portfolio.dto.FillMessage;
+import com.commsec.portfolio.valuation.ValuationEngine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Collects delivered fills for {@code portfolio.positions.window-ms} and
+ * applies everything collected as one batch, so a burst of child fills from
+ * one parent order becomes a single holdings write. A delivery is
+ * acknowledged once its batch has committed, which is when the sender may
+ * forget it.
+ */
+@Component
+@Slf4j
+public class FillConsumer {
+
+    private final PositionKeeper positionKeeper;
+    private final ValuationEngine valuationEngine;
+    private final Counter fillsReceived;
+    private final Counter accountsUpdated;
+    private final Timer applyTime;
+    private final long ackTimeoutMs;
+    private List<FillMessage> pending = new ArrayList<>();
+    private List<CompletableFuture<Void>> waiting = new ArrayList<>();
+
+    public FillConsumer(PositionKeeper positionKeeper,
+                        ValuationEngine valuationEngine,
+                        MeterRegistry meterRegistry,
+                        @Value("${portfolio.positions.ack-timeout-ms:10000}") long ackTimeoutMs) {
+        this.positionKeeper = positionKeeper;
+        this.valuationEngine = valuationEngine;
+        this.ackTimeoutMs = ackTimeoutMs;
+
+        this.fillsReceived = Counter.builder("portfolio.positions.fills.received")
+            .description("Fill messages delivered from trading-service")
+            .register(meterRegistry);
+
+        this.accountsUpdated = Counter.builder("portfolio.positions.accounts.updated")
+            .description("Accounts whose holdings were changed by a batch of fills")
+            .register(meterRegistry);
+
+        this.applyTime = Timer.builder("portfolio.positions.apply.time")
+            .description("Time to apply one coalesced batch of fills")
+            .register(meterRegistry);
+    }
+
+    /**
+     * Queues a delivery for the next batch and waits for it to be applied.
+     * Returns false if it failed or took longer than
+     * {@code portfolio.positions.ack-timeout-ms}; the sender should then
+     * deliver it again.
+     */
+    public boolean deliver(List<FillMessage> fills) {
+        try {
+            submit(fills).get(ackTimeoutMs, TimeUnit.MILLISECONDS);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } catch (ExecutionException | TimeoutException e) {
+            return false;
+        }
+    }
+
+    private synchronized CompletableFuture<Void> submit(List<FillMessage> fills) {
+        CompletableFuture<Void> applied = new CompletableFuture<>();
+        pending.addAll(fills);
+        waiting.add(applied);
+        fillsReceived.increment(fills.size());
+        return applied;
+    }
+
+    @Scheduled(fixedDelayString = "${portfolio.positions.window-ms:50}")
+    public void flush() {
+        List<FillMessage> batch;
+        List<CompletableFuture<Void>> deliveries;
+        synchronized (this) {
+            if (waiting.isEmpty()) {
+                return;
+            }
+            batch = pending;
+            deliveries = waiting;
+            pending = new ArrayList<>();
+            waiting = new ArrayList<>();
+        }
+        try {
+            Set<String> accounts = batch.isEmpty() ? Set.of() : applyTime.record(() -> positionKeeper.apply(batch));
+            accountsUpdated.increment(accounts.size());
+            deliveries.forEach(delivery -> delivery.complete(null));
+            valuationEngine.reload(accounts);
+            log.debug("Applied {} fills from {} deliveries to {} accounts", batch.size(), deliveries.size(), accounts.size());
+        } catch (RuntimeException e) {
+            log.error("Failed to apply {} fills: {}", batch.size(), e.getMessage());
+            deliveries.forEach(delivery -> delivery.completeExceptionally(e));
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package com.commsec.portfolio.positions;
+
+import com.commsec.portfolio.valuation.PositionMath;
+
+/**
+ * One account's position in one symbol while a batch of fills is applied to
+ * it. Quantity and cost are scaled longs (see {@link PositionMath}); buys add
+ * their notional to cost, sells release cost at the average price.
+ */
+final class Position {
+
+    private final String accountId;
+    private final String symbol;
+    private final boolean existing;
+    private long quantity;
+    private long cost;
+    private boolean changed;
+
+    Position(String accountId, String symbol, boolean existing, long quantity, long cost) {
+        this.accountId = accountId;
+        this.symbol = symbol;
+        this.existing = existing;
+        this.quantity = quantity;
+        this.cost = cost;
+    }
+
+    static Position empty(String accountId, String symbol) {
+        return new Position(accountId, symbol, false, 0, 0);
+    }
+
+    void buy(long quantityDelta, long notionalDelta) {
+        quantity += quantityDelta;
+        cost += notionalDelta;
+        changed = true;
+    }
+
+    /**
+     * Returns false if the sale was larger than the position, which is then
+     * closed rather than taken short.
+     */
+    boolean sell(long quantityDelta) {
+        changed = true;
+        if (quantityDelta >= quantity) {
+            boolean covered = quantityDelta == quantity;
+            quantity = 0;
+            cost = 0;
+            return covered;
+        }
+        cost -= PositionMath.marketValue(quantityDelta, averagePrice());
+        quantity -= quantityDelta;
+        return true;
+    }
+
+    long averagePrice() {
+        return PositionMath.averagePrice(cost, quantity);
+    }
+
+    String accountId() {
+        return accountId;
+    }
+
+    String symbol() {
+        return symbol;
+    }
+
+    boolean existing() {
+        return existing;
+    }
+
+    long quantity() {
+        return quantity;
+    }
+
+    long cost() {
+        return cost;
+    }
+
+    boolean changed() {
+        return changed;
+    }
+}
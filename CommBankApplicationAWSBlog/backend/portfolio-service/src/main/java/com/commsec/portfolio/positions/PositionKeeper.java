@@ -0,0 +1,103 @@
+package com.commsec.portfolio.positions;
+
+import com.commsec.portfolio.dto.FillMessage;
+import com.commsec.portfolio.valuation.PositionMath;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.UUID;
+
+/**
+ * Applies order fills to holdings.
+ * <p>
+ * Fills carry each order's cumulative quantity and notional, and the amount
+ * already applied per order is kept in {@code position_fills}, so only the
+ * difference is ever applied: redelivered, duplicated or out-of-date messages
+ * change nothing. A batch is reduced to one position per (account, symbol)
+ * before anything is written, however many fills it held for that pair.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class PositionKeeper {
+
+    private final PositionRepository positionRepository;
+
+    /**
+     * Applies a batch of fills in one transaction and returns the accounts
+     * whose holdings changed.
+     */
+    @Transactional
+    public Set<String> apply(List<FillMessage> fills) {
+        // Only the newest cumulative fill per order matters
+        Map<UUID, FillMessage> latest = new HashMap<>();
+        for (FillMessage fill : fills) {
+            latest.merge(fill.getOrderId(), fill,
+                (previous, next) -> next.getFilledQuantity().compareTo(previous.getFilledQuantity()) > 0 ? next : previous);
+        }
+
+        // Sorted so that concurrent batches take their locks in the same order
+        TreeMap<String, FillMessage> byKey = new TreeMap<>();
+        for (FillMessage fill : latest.values()) {
+            byKey.putIfAbsent(PositionRepository.key(fill.getAccountId(), fill.getSymbol()), fill);
+        }
+        positionRepository.lock(new ArrayList<>(byKey.keySet()));
+
+        Map<UUID, BigDecimal[]> applied = positionRepository.applied(latest.keySet());
+        List<String> accountIds = byKey.values().stream().map(FillMessage::getAccountId).toList();
+        List<String> symbols = byKey.values().stream().map(FillMessage::getSymbol).toList();
+        Map<String, Position> positions = positionRepository.positions(accountIds, symbols);
+
+        List<FillMessage> newFills = new ArrayList<>();
+        List<FillMessage> ordered = new ArrayList<>(latest.values());
+        ordered.sort(Comparator.comparingLong(FillMessage::getId));
+        for (FillMessage fill : ordered) {
+            BigDecimal[] previous = applied.get(fill.getOrderId());
+            long quantity = PositionMath.scaled(fill.getFilledQuantity(), PositionMath.QUANTITY_SCALE);
+            long notional = PositionMath.scaled(fill.getFilledNotional(), PositionMath.MONEY_SCALE);
+            if (previous != null) {
+                quantity -= PositionMath.scaled(previous[0], PositionMath.QUANTITY_SCALE);
+                notional -= PositionMath.scaled(previous[1], PositionMath.MONEY_SCALE);
+            }
+            if (quantity <= 0) {
+                continue;
+            }
+            Position position = positions.computeIfAbsent(PositionRepository.key(fill.getAccountId(), fill.getSymbol()),
+                key -> Position.empty(fill.getAccountId(), fill.getSymbol()));
+            if ("SELL".equals(fill.getSide())) {
+                if (!position.sell(quantity)) {
+                    log.warn("Sell of {} {} by order {} exceeds the position in account {}; position closed",
+                        BigDecimal.valueOf(quantity, PositionMath.QUANTITY_SCALE), fill.getSymbol(),
+                        fill.getOrderId(), fill.getAccountId());
+                }
+            } else {
+                position.buy(quantity, notional);
+            }
+            newFills.add(fill);
+        }
+        if (newFills.isEmpty()) {
+            return Set.of();
+        }
+
+        Instant now = Instant.now();
+        List<Position> changed = positions.values().stream().filter(Position::changed).toList();
+        positionRepository.save(changed, now);
+        positionRepository.saveApplied(newFills, now);
+
+        Set<String> accounts = new LinkedHashSet<>();
+        changed.forEach(position -> accounts.add(position.accountId()));
+        return accounts;
+    }
+}
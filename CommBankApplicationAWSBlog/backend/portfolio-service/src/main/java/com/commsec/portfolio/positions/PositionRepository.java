@@ -0,0 +1,157 @@
+package com.commsec.portfolio.positions;
+
+import com.commsec.portfolio.dto.FillMessage;
+import com.commsec.portfolio.valuation.PositionMath;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * JDBC access for position keeping: per-key locks, the fills already applied
+ * for each order, and batched writes to holdings.
+ */
+@Repository
+@RequiredArgsConstructor
+public class PositionRepository {
+
+    /**
+     * Transaction-scoped lock per (account, symbol), taken in array order.
+     * Covers holdings rows that do not exist yet, which row locks cannot.
+     */
+    private static final String LOCK_POSITIONS = """
+        SELECT pg_advisory_xact_lock(hashtext(key)) FROM unnest(?) AS key
+        """;
+
+    private static final String SELECT_APPLIED = """
+        SELECT order_id, filled_quantity, filled_notional FROM position_fills WHERE order_id = ANY (?)
+        """;
+
+    private static final String SELECT_HOLDINGS = """
+        SELECT account_id, symbol, quantity, total_cost FROM holdings
+        WHERE (account_id, symbol) IN (SELECT * FROM unnest(?, ?))
+        """;
+
+    private static final String UPSERT_HOLDING = """
+        INSERT INTO holdings (account_id, symbol, quantity, average_cost, total_cost, created_at, updated_at)
+        VALUES (?, ?, ?, ?, ?, ?, ?)
+        ON CONFLICT (account_id, symbol) DO UPDATE SET quantity = EXCLUDED.quantity,
+            average_cost = EXCLUDED.average_cost, total_cost = EXCLUDED.total_cost, updated_at = EXCLUDED.updated_at
+        """;
+
+    private static final String DELETE_HOLDING = """
+        DELETE FROM holdings WHERE account_id = ? AND symbol = ?
+        """;
+
+    /** Cumulative fills only grow, so an older value never overwrites a newer one. */
+    private static final String UPSERT_APPLIED = """
+        INSERT INTO position_fills (order_id, account_id, symbol, filled_quantity, filled_notional, updated_at)
+        VALUES (?, ?, ?, ?, ?, ?)
+        ON CONFLICT (order_id) DO UPDATE SET filled_quantity = EXCLUDED.filled_quantity,
+            filled_notional = EXCLUDED.filled_notional, updated_at = EXCLUDED.updated_at
+        WHERE position_fills.filled_quantity < EXCLUDED.filled_quantity
+        """;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /** Blocks until this transaction holds every key's lock. Keys must be sorted. */
+    public void lock(List<String> keys) {
+        jdbcTemplate.query(connection -> {
+            PreparedStatement ps = connection.prepareStatement(LOCK_POSITIONS);
+            ps.setArray(1, connection.createArrayOf("text", keys.toArray()));
+            return ps;
+        }, rs -> {
+            while (rs.next()) {
+                // Each row is one lock acquired
+            }
+            return null;
+        });
+    }
+
+    /** Cumulative quantity and notional already applied, by order. */
+    public Map<UUID, BigDecimal[]> applied(Collection<UUID> orderIds) {
+        Map<UUID, BigDecimal[]> applied = new HashMap<>();
+        jdbcTemplate.query(connection -> {
+            PreparedStatement ps = connection.prepareStatement(SELECT_APPLIED);
+            ps.setArray(1, connection.createArrayOf("uuid", orderIds.toArray()));
+            return ps;
+        }, rs -> {
+            while (rs.next()) {
+                applied.put(rs.getObject("order_id", UUID.class),
+                    new BigDecimal[] {rs.getBigDecimal("filled_quantity"), rs.getBigDecimal("filled_notional")});
+            }
+            return null;
+        });
+        return applied;
+    }
+
+    /** Existing holdings for the given keys, keyed by {@link #key}. */
+    Map<String, Position> positions(List<String> accountIds, List<String> symbols) {
+        Map<String, Position> positions = new HashMap<>();
+        jdbcTemplate.query(connection -> {
+            PreparedStatement ps = connection.prepareStatement(SELECT_HOLDINGS);
+            ps.setArray(1, connection.createArrayOf("varchar", accountIds.toArray()));
+            ps.setArray(2, connection.createArrayOf("varchar", symbols.toArray()));
+            return ps;
+        }, rs -> {
+            while (rs.next()) {
+                String accountId = rs.getString("account_id");
+                String symbol = rs.getString("symbol");
+                positions.put(key(accountId, symbol), new Position(accountId, symbol, true,
+                    PositionMath.scaled(rs.getBigDecimal("quantity"), PositionMath.QUANTITY_SCALE),
+                    PositionMath.scaled(rs.getBigDecimal("total_cost"), PositionMath.MONEY_SCALE)));
+            }
+            return null;
+        });
+        return positions;
+    }
+
+    /** Writes open positions and deletes closed ones. */
+    void save(Collection<Position> positions, Instant now) {
+        Timestamp timestamp = Timestamp.from(now);
+        List<Position> open = positions.stream().filter(p -> p.quantity() > 0).toList();
+        List<Position> closed = positions.stream().filter(p -> p.quantity() == 0 && p.existing()).toList();
+        if (!open.isEmpty()) {
+            jdbcTemplate.batchUpdate(UPSERT_HOLDING, open, open.size(), (ps, position) -> {
+                ps.setString(1, position.accountId());
+                ps.setString(2, position.symbol());
+                ps.setBigDecimal(3, BigDecimal.valueOf(position.quantity(), PositionMath.QUANTITY_SCALE));
+                ps.setBigDecimal(4, BigDecimal.valueOf(position.averagePrice(), PositionMath.PRICE_SCALE));
+                ps.setBigDecimal(5, BigDecimal.valueOf(position.cost(), PositionMath.MONEY_SCALE));
+                ps.setTimestamp(6, timestamp);
+                ps.setTimestamp(7, timestamp);
+            });
+        }
+        if (!closed.isEmpty()) {
+            jdbcTemplate.batchUpdate(DELETE_HOLDING, closed, closed.size(), (ps, position) -> {
+                ps.setString(1, position.accountId());
+                ps.setString(2, position.symbol());
+            });
+        }
+    }
+
+    public void saveApplied(Collection<FillMessage> fills, Instant now) {
+        Timestamp timestamp = Timestamp.from(now);
+        jdbcTemplate.batchUpdate(UPSERT_APPLIED, fills, fills.size(), (ps, fill) -> {
+            ps.setObject(1, fill.getOrderId());
+            ps.setString(2, fill.getAccountId());
+            ps.setString(3, fill.getSymbol());
+            ps.setBigDecimal(4, fill.getFilledQuantity());
+            ps.setBigDecimal(5, fill.getFilledNotional());
+            ps.setTimestamp(6, timestamp);
+        });
+    }
+
+    static String key(String accountId, String symbol) {
+        return accountId + ':' + symbol;
+    }
+}
@@ -0,0 +1,116 @@
+package com.commsec.portfolio.risk;
+
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Daily simple returns of every symbol over the lookback window, one
+ * {@code double[]} column per symbol, plus the benchmark's column.
+ * <p>
+ * Columns are contiguous in time, so a portfolio's return series is a few
+ * sequential multiply-adds over whole columns, which the JIT vectorises. A
+ * day a symbol has no close carries its previous close forward, i.e. a zero
+ * return.
+ */
+final class ReturnMatrix {
+
+    private final LocalDate asOf;
+    private final int days;
+    private final Map<String, Integer> columnBySymbol = new HashMap<>();
+    private final double[][] returns;
+    private final double[] lastCloses;
+    private final double[] benchmark;
+    private final String benchmarkName;
+
+    /**
+     * @param dates        close dates in ascending order
+     * @param closes       each symbol's closes aligned with {@code dates}, NaN where missing
+     * @param benchmarkSymbol symbol to measure beta against; if blank or not in
+     *                     {@code closes}, the equal-weighted mean of all symbols' returns
+     */
+    ReturnMatrix(List<LocalDate> dates, Map<String, double[]> closes, String benchmarkSymbol) {
+        this.asOf = dates.isEmpty() ? null : dates.get(dates.size() - 1);
+        this.days = Math.max(0, dates.size() - 1);
+        this.returns = new double[closes.size()][];
+        this.lastCloses = new double[closes.size()];
+        int column = 0;
+        for (Map.Entry<String, double[]> entry : closes.entrySet()) {
+            columnBySymbol.put(entry.getKey(), column);
+            double[] series = entry.getValue();
+            double[] symbolReturns = new double[days];
+            double previous = Double.NaN;
+            for (int day = 0; day < series.length; day++) {
+                double close = series[day];
+                if (Double.isNaN(close)) {
+                    close = previous;
+                } else if (day > 0 && previous > 0) {
+                    symbolReturns[day - 1] = close / previous - 1;
+                }
+                previous = close;
+            }
+            returns[column] = symbolReturns;
+            lastCloses[column] = Double.isNaN(previous) ? 0 : previous;
+            column++;
+        }
+
+        Integer benchmarkColumn = benchmarkSymbol == null ? null : columnBySymbol.get(benchmarkSymbol);
+        if (benchmarkColumn != null) {
+            this.benchmark = returns[benchmarkColumn];
+            this.benchmarkName = benchmarkSymbol;
+        } else {
+            this.benchmark = new double[days];
+            for (double[] symbolReturns : returns) {
+                for (int day = 0; day < days; day++) {
+                    benchmark[day] += symbolReturns[day];
+                }
+            }
+            if (returns.length > 0) {
+                for (int day = 0; day < days; day++) {
+                    benchmark[day] /= returns.length;
+                }
+            }
+            this.benchmarkName = "EQUAL_WEIGHTED";
+        }
+    }
+
+    LocalDate asOf() {
+        return asOf;
+    }
+
+    int days() {
+        return days;
+    }
+
+    double[] benchmark() {
+        return benchmark;
+    }
+
+    String benchmarkName() {
+        return benchmarkName;
+    }
+
+    /** Column of the symbol, or -1 if it has no price history. */
+    int column(String symbol) {
+        Integer column = columnBySymbol.get(symbol);
+        return column != null ? column : -1;
+    }
+
+    double lastClose(int column) {
+        return lastCloses[column];
+    }
+
+    /** Daily returns of a portfolio holding {@code weights[i]} of column {@code columns[i]}. */
+    double[] portfolioReturns(int[] columns, double[] weights, int count) {
+        double[] portfolio = new double[days];
+        for (int i = 0; i < count; i++) {
+            double weight = weights[i];
+            double[] column = returns[columns[i]];
+            for (int day = 0; day < days; day++) {
+                portfolio[day] += weight * column[day];
+            }
+        }
+        return portfolio;
+    }
+}
@@ -0,0 +1,312 @@
+package com.commsec.portfolio.risk;
+
+import com.commsec.portfolio.dto.RiskAnalyticsResponse;
+import com.commsec.portfolio.model.Holding;
+import com.commsec.portfolio.valuation.ValuationEngine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Volatility, historical value at risk and beta of each account's holdings.
+ * <p>
+ * Daily returns of every symbol over {@code portfolio.risk.lookback-days} of
+ * end-of-day closes are held as a {@link ReturnMatrix}. An account's return
+ * series is its current holdings, weighted by value at the last close, applied
+ * to those columns; the measures are single passes over that series. Beta is
+ * against {@code portfolio.risk.benchmark-symbol}, or an equal-weighted index
+ * of all symbols when it is not set or has no closes.
+ * <p>
+ * After the close the matrix is rebuilt and every account with holdings is
+ * analysed in chunks of {@code portfolio.risk.batch-size} accounts across
+ * {@code portfolio.risk.workers} threads. Requests are served from that run;
+ * an account it did not cover is analysed on request from the same matrix.
+ */
+@Service
+@Slf4j
+public class RiskAnalytics {
+
+    private record AccountHoldings(String accountId, String[] symbols, double[] quantities) {
+    }
+
+    private final RiskRepository repository;
+    private final ValuationEngine valuationEngine;
+    private final TransactionTemplate cursorTransaction;
+    private final int lookbackDays;
+    private final int minObservations;
+    private final String benchmarkSymbol;
+    private final int batchSize;
+    private final AtomicBoolean running = new AtomicBoolean();
+    private final ExecutorService coordinator;
+    private final ExecutorService workerPool;
+    private final Counter accountsAnalysed;
+    private final Timer batchTime;
+
+    private volatile ReturnMatrix matrix;
+    private volatile Map<String, RiskAnalyticsResponse> results = Map.of();
+
+    public RiskAnalytics(RiskRepository repository,
+                         ValuationEngine valuationEngine,
+                         PlatformTransactionManager transactionManager,
+                         MeterRegistry meterRegistry,
+                         @Value("${portfolio.risk.lookback-days:252}") int lookbackDays,
+                         @Value("${portfolio.risk.min-observations:20}") int minObservations,
+                         @Value("${portfolio.risk.benchmark-symbol:}") String benchmarkSymbol,
+                         @Value("${portfolio.risk.workers:4}") int workers,
+                         @Value("${portfolio.risk.batch-size:500}") int batchSize) {
+        this.repository = repository;
+        this.valuationEngine = valuationEngine;
+        this.lookbackDays = lookbackDays;
+        this.minObservations = Math.max(2, minObservations);
+        this.benchmarkSymbol = benchmarkSymbol.isBlank() ? null : benchmarkSymbol.strip().toUpperCase();
+        this.batchSize = batchSize;
+
+        this.cursorTransaction = new TransactionTemplate(transactionManager);
+        this.cursorTransaction.setReadOnly(true);
+
+        this.coordinator = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "risk-batch");
+            thread.setDaemon(true);
+            return thread;
+        });
+        AtomicInteger workerIds = new AtomicInteger();
+        this.workerPool = Executors.newFixedThreadPool(workers, runnable -> {
+            Thread thread = new Thread(runnable, "risk-batch-worker-" + workerIds.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        this.accountsAnalysed = Counter.builder("portfolio.risk.accounts.analysed")
+            .description("Accounts whose risk measures were calculated")
+            .register(meterRegistry);
+
+        this.batchTime = Timer.builder("portfolio.risk.batch.time")
+            .description("Time to analyse every account after the close")
+            .register(meterRegistry);
+
+        Gauge.builder("portfolio.risk.accounts", this, analytics -> analytics.results.size())
+            .description("Accounts covered by the last risk batch")
+            .register(meterRegistry);
+    }
+
+    /** The account's risk measures from the last batch, or calculated now if it was not covered. */
+    public RiskAnalyticsResponse analyse(String accountId) {
+        RiskAnalyticsResponse cached = results.get(accountId);
+        if (cached != null) {
+            return cached;
+        }
+        List<Holding> holdings = valuationEngine.holdings(accountId);
+        String[] symbols = new String[holdings.size()];
+        double[] quantities = new double[holdings.size()];
+        for (int i = 0; i < symbols.length; i++) {
+            symbols[i] = holdings.get(i).getSymbol();
+            quantities[i] = holdings.get(i).getQuantity().doubleValue();
+        }
+        accountsAnalysed.increment();
+        return analyse(new AccountHoldings(accountId, symbols, quantities), matrix(), Instant.now());
+    }
+
+    @Scheduled(cron = "${portfolio.risk.cron:0 45 16 * * MON-FRI}", zone = "${portfolio.eod.zone:Australia/Sydney}")
+    public void scheduledRun() {
+        if (!start()) {
+            log.warn("Risk batch not started: a run is already in progress");
+        }
+    }
+
+    /** Starts a batch in the background. Returns false if one is already running. */
+    public boolean start() {
+        if (!running.compareAndSet(false, true)) {
+            return false;
+        }
+        coordinator.execute(() -> {
+            try {
+                batchTime.record(this::run);
+            } catch (RuntimeException e) {
+                log.error("Risk batch failed", e);
+            } finally {
+                running.set(false);
+            }
+        });
+        return true;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        coordinator.shutdownNow();
+        workerPool.shutdownNow();
+    }
+
+    private void run() {
+        ReturnMatrix current = loadMatrix();
+        matrix = current;
+        Instant now = Instant.now();
+        Map<String, RiskAnalyticsResponse> analysed = new ConcurrentHashMap<>();
+        List<Future<?>> futures = new ArrayList<>();
+        List<AccountHoldings> chunk = new ArrayList<>(batchSize);
+        List<String> symbols = new ArrayList<>();
+        List<Double> quantities = new ArrayList<>();
+        String[] account = new String[1];
+
+        cursorTransaction.executeWithoutResult(status -> repository.streamHoldings(rs -> {
+            String accountId = rs.getString("account_id");
+            if (!accountId.equals(account[0])) {
+                if (account[0] != null) {
+                    chunk.add(holdings(account[0], symbols, quantities));
+                    if (chunk.size() >= batchSize) {
+                        futures.add(submit(List.copyOf(chunk), current, now, analysed));
+                        chunk.clear();
+                    }
+                }
+                account[0] = accountId;
+            }
+            symbols.add(rs.getString("symbol"));
+            quantities.add(rs.getBigDecimal("quantity").doubleValue());
+        }));
+        if (account[0] != null) {
+            chunk.add(holdings(account[0], symbols, quantities));
+        }
+        if (!chunk.isEmpty()) {
+            futures.add(submit(List.copyOf(chunk), current, now, analysed));
+        }
+
+        for (Future<?> future : futures) {
+            try {
+                future.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                log.error("Risk batch worker failed", e);
+            }
+        }
+        results = analysed;
+        log.info("Risk batch as of {}: {} accounts over {} daily returns", current.asOf(), analysed.size(), current.days());
+    }
+
+    private Future<?> submit(List<AccountHoldings> accounts, ReturnMatrix current, Instant now,
+                             Map<String, RiskAnalyticsResponse> analysed) {
+        return workerPool.submit(() -> {
+            for (AccountHoldings holdings : accounts) {
+                analysed.put(holdings.accountId(), analyse(holdings, current, now));
+            }
+            accountsAnalysed.increment(accounts.size());
+        });
+    }
+
+    private static AccountHoldings holdings(String accountId, List<String> symbols, List<Double> quantities) {
+        double[] values = new double[quantities.size()];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = quantities.get(i);
+        }
+        AccountHoldings holdings = new AccountHoldings(accountId, symbols.toArray(new String[0]), values);
+        symbols.clear();
+        quantities.clear();
+        return holdings;
+    }
+
+    private RiskAnalyticsResponse analyse(AccountHoldings holdings, ReturnMatrix current, Instant now) {
+        int size = holdings.symbols().length;
+        int[] columns = new int[size];
+        double[] weights = new double[size];
+        int count = 0;
+        int withoutHistory = 0;
+        double value = 0;
+        for (int i = 0; i < size; i++) {
+            int column = current.column(holdings.symbols()[i]);
+            double close = column >= 0 ? current.lastClose(column) : 0;
+            if (close <= 0) {
+                withoutHistory++;
+                continue;
+            }
+            columns[count] = column;
+            weights[count] = holdings.quantities()[i] * close;
+            value += weights[count];
+            count++;
+        }
+
+        RiskAnalyticsResponse response = RiskAnalyticsResponse.builder()
+            .accountId(holdings.accountId())
+            .asOf(current.asOf())
+            .observations(current.days())
+            .portfolioValue(BigDecimal.valueOf(value).setScale(2, RoundingMode.HALF_UP))
+            .benchmark(current.benchmarkName())
+            .symbolsWithoutHistory(withoutHistory)
+            .calculatedAt(now)
+            .build();
+        if (count == 0 || value <= 0 || current.days() < minObservations) {
+            return response;
+        }
+        for (int i = 0; i < count; i++) {
+            weights[i] /= value;
+        }
+
+        double[] returns = current.portfolioReturns(columns, weights, count);
+        double[] sorted = RiskMath.sortedCopy(returns);
+        response.setVolatility(ratio(RiskMath.annualisedVolatility(returns)));
+        response.setBeta(ratio(RiskMath.beta(returns, current.benchmark())));
+        response.setValueAtRisk95(money(RiskMath.historicalVar(sorted, 0.95) * value));
+        response.setValueAtRisk99(money(RiskMath.historicalVar(sorted, 0.99) * value));
+        return response;
+    }
+
+    private synchronized ReturnMatrix matrix() {
+        if (matrix == null) {
+            matrix = loadMatrix();
+        }
+        return matrix;
+    }
+
+    /** Reads the last {@code lookbackDays + 1} days of closes, giving {@code lookbackDays} returns. */
+    private ReturnMatrix loadMatrix() {
+        int maxDays = lookbackDays + 1;
+        List<LocalDate> dates = new ArrayList<>();
+        Map<String, double[]> closes = new LinkedHashMap<>();
+        repository.closes(maxDays, rs -> {
+            LocalDate date = rs.getDate("run_date").toLocalDate();
+            if (dates.isEmpty() || !dates.get(dates.size() - 1).equals(date)) {
+                dates.add(date);
+            }
+            double[] series = closes.computeIfAbsent(rs.getString("symbol"), symbol -> {
+                double[] empty = new double[maxDays];
+                Arrays.fill(empty, Double.NaN);
+                return empty;
+            });
+            series[dates.size() - 1] = rs.getBigDecimal("price").doubleValue();
+        });
+        closes.replaceAll((symbol, series) -> Arrays.copyOf(series, dates.size()));
+        return new ReturnMatrix(dates, closes, benchmarkSymbol);
+    }
+
+    private static BigDecimal ratio(double value) {
+        return BigDecimal.valueOf(value).setScale(4, RoundingMode.HALF_UP);
+    }
+
+    private static BigDecimal money(double value) {
+        return BigDecimal.valueOf(value).setScale(2, RoundingMode.HALF_UP);
+    }
+}
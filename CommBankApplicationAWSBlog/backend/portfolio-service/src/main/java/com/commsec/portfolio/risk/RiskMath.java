@@ -0,0 +1,63 @@
+package com.commsec.portfolio.risk;
+
+import java.util.Arrays;
+
+/**
+ * Statistics over daily return series, as plain loops over {@code double[]}.
+ */
+final class RiskMath {
+
+    static final double TRADING_DAYS = 252;
+
+    private RiskMath() {
+    }
+
+    static double mean(double[] values) {
+        double sum = 0;
+        for (double value : values) {
+            sum += value;
+        }
+        return sum / values.length;
+    }
+
+    /** Sample standard deviation of daily returns, annualised. */
+    static double annualisedVolatility(double[] returns) {
+        double mean = mean(returns);
+        double sum = 0;
+        for (double value : returns) {
+            double deviation = value - mean;
+            sum += deviation * deviation;
+        }
+        return Math.sqrt(sum / (returns.length - 1) * TRADING_DAYS);
+    }
+
+    /** Covariance with {@code benchmark} over the benchmark's variance; 0 if the benchmark never moves. */
+    static double beta(double[] returns, double[] benchmark) {
+        double meanReturn = mean(returns);
+        double meanBenchmark = mean(benchmark);
+        double covariance = 0;
+        double variance = 0;
+        for (int i = 0; i < returns.length; i++) {
+            double deviation = benchmark[i] - meanBenchmark;
+            covariance += (returns[i] - meanReturn) * deviation;
+            variance += deviation * deviation;
+        }
+        return variance == 0 ? 0 : covariance / variance;
+    }
+
+    /**
+     * One-day historical value at risk as a fraction of value: the loss
+     * exceeded on {@code 1 - confidence} of the observed days, never below 0.
+     * {@code sorted} must be in ascending order.
+     */
+    static double historicalVar(double[] sorted, double confidence) {
+        int index = (int) Math.floor((1 - confidence) * sorted.length);
+        return Math.max(0, -sorted[Math.min(index, sorted.length - 1)]);
+    }
+
+    static double[] sortedCopy(double[] values) {
+        double[] sorted = values.clone();
+        Arrays.sort(sorted);
+        return sorted;
+    }
+}
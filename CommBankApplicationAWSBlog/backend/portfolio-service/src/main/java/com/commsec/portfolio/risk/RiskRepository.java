@@ -0,0 +1,51 @@
+package com.commsec.portfolio.risk;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Repository;
+
+import javax.sql.DataSource;
+
+/**
+ * JDBC reads for risk analytics: the closing prices captured by the
+ * end-of-day mark and a cursor over all holdings.
+ */
+@Repository
+public class RiskRepository {
+
+    /** Every symbol's closes on the last {@code ?} run dates. */
+    private static final String SELECT_CLOSES = """
+        SELECT run_date, symbol, price FROM eod_mark_prices
+        WHERE run_date IN (SELECT DISTINCT run_date FROM eod_mark_prices ORDER BY run_date DESC LIMIT ?)
+        ORDER BY run_date
+        """;
+
+    private static final String STREAM_HOLDINGS = """
+        SELECT account_id, symbol, quantity FROM holdings
+        WHERE quantity > 0
+        ORDER BY account_id
+        """;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final JdbcTemplate cursorTemplate;
+
+    public RiskRepository(JdbcTemplate jdbcTemplate,
+                          DataSource dataSource,
+                          @Value("${portfolio.risk.fetch-size:1000}") int fetchSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        // The PostgreSQL driver only streams with a fetch size inside a transaction
+        this.cursorTemplate = new JdbcTemplate(dataSource);
+        this.cursorTemplate.setFetchSize(fetchSize);
+    }
+
+    /** Rows of {@code run_date, symbol, price} in date order. */
+    public void closes(int days, RowCallbackHandler handler) {
+        jdbcTemplate.query(SELECT_CLOSES, handler, days);
+    }
+
+    /** Rows of {@code account_id, symbol, quantity} in account order. Must run inside a transaction. */
+    public void streamHoldings(RowCallbackHandler handler) {
+        cursorTemplate.query(STREAM_HOLDINGS, handler);
+    }
+}
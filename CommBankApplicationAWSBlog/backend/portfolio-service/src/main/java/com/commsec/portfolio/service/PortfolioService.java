@@ -1,12 +1,19 @@
 package com.commsec.portfolio.service;
 
+import com.commsec.portfolio.dto.RiskAnalyticsResponse;
+import com.commsec.portfolio.dto.ValueSeriesResponse;
+import com.commsec.portfolio.history.ChartRange;
+import com.commsec.portfolio.history.ValueHistory;
+import com.commsec.portfolio.history.ValueSeries;
 import com.commsec.portfolio.model.Holding;
-import com.commsec.portfolio.repository.HoldingRepository;
+import com.commsec.portfolio.risk.RiskAnalytics;
+import com.commsec.portfolio.valuation.PositionMath;
+import com.commsec.portfolio.valuation.ValuationEngine;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
 
 import java.math.BigDecimal;
-import java.util.HashMap;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
@@ -15,37 +22,36 @@ import java.util.Optional;
 @RequiredArgsConstructor
 public class PortfolioService {
 
-    private final HoldingRepository holdingRepository;
+    private final ValuationEngine valuationEngine;
+    private final ValueHistory valueHistory;
+    private final RiskAnalytics riskAnalytics;
 
     public List<Holding> getHoldingsByAccountId(String accountId) {
-        return holdingRepository.findByAccountId(accountId);
+        return valuationEngine.holdings(accountId);
     }
 
     public Optional<Holding> getHolding(String accountId, String symbol) {
-        return holdingRepository.findByAccountIdAndSymbol(accountId, symbol);
+        return valuationEngine.holdings(accountId).stream()
+                .filter(holding -> holding.getSymbol().equals(symbol))
+                .findFirst();
     }
 
     public Map<String, Object> getPortfolioSummary(String accountId) {
-        List<Holding> holdings = holdingRepository.findByAccountId(accountId);
-        
-        BigDecimal totalValue = holdings.stream()
-                .map(h -> h.getCurrentValue() != null ? h.getCurrentValue() : BigDecimal.ZERO)
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
-        
-        BigDecimal totalCost = holdings.stream()
-                .map(Holding::getTotalCost)
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
-        
-        BigDecimal totalPnl = totalValue.subtract(totalCost);
-        
-        Map<String, Object> summary = new HashMap<>();
-        summary.put("accountId", accountId);
-        summary.put("holdingsCount", holdings.size());
-        summary.put("totalValue", totalValue);
-        summary.put("totalCost", totalCost);
-        summary.put("totalPnl", totalPnl);
-        summary.put("holdings", holdings);
-        
-        return summary;
+        return valuationEngine.summary(accountId);
+    }
+
+    public RiskAnalyticsResponse getRiskAnalytics(String accountId) {
+        return riskAnalytics.analyse(accountId);
+    }
+
+    public ValueSeriesResponse getValueHistory(String accountId, ChartRange range, int maxPoints) {
+        ValueSeries series = valueHistory.series(accountId, range, maxPoints);
+        long[] timestamps = new long[series.size()];
+        List<BigDecimal> values = new ArrayList<>(series.size());
+        for (int i = 0; i < series.size(); i++) {
+            timestamps[i] = series.times()[i] * 1000;
+            values.add(BigDecimal.valueOf(series.values()[i], PositionMath.MONEY_SCALE));
+        }
+        return new ValueSeriesResponse(accountId, range.label(), range.tier().name(), timestamps, values);
     }
 }
@@ -0,0 +1,155 @@
+package com.commsec.portfolio.valuation;
+
+import com.commsec.portfolio.model.Holding;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * One account's holdings, valued in place as prices move. Quantities, costs,
+ * prices and values are scaled longs (see {@link PositionMath}) and the
+ * account totals are adjusted by each position's
+ * change, so a tick costs a multiply and a few adds.
+ */
+final class AccountBook {
+
+    private final String accountId;
+    private final Holding[] holdings;
+    private final long[] quantity;
+    private final long[] cost;
+    private final long[] price;
+    private final long[] value;
+    private final long loadedAt;
+    private long totalValue;
+    private long totalCost;
+    private boolean dirty = true;
+    private volatile long lastAccess;
+
+    /**
+     * @param prices latest known prices by symbol, scaled by 10^4; holdings
+     *               without one keep their stored current price
+     */
+    AccountBook(String accountId, List<Holding> holdings, Map<String, Long> prices, long now) {
+        this.accountId = accountId;
+        this.holdings = holdings.toArray(new Holding[0]);
+        int size = this.holdings.length;
+        this.quantity = new long[size];
+        this.cost = new long[size];
+        this.price = new long[size];
+        this.value = new long[size];
+        this.loadedAt = now;
+        this.lastAccess = now;
+        for (int i = 0; i < size; i++) {
+            Holding holding = this.holdings[i];
+            quantity[i] = PositionMath.scaled(holding.getQuantity(), PositionMath.QUANTITY_SCALE);
+            cost[i] = PositionMath.scaled(holding.getTotalCost(), PositionMath.MONEY_SCALE);
+            Long known = prices.get(holding.getSymbol());
+            price[i] = known != null ? known
+                : holding.getCurrentPrice() != null ? PositionMath.scaled(holding.getCurrentPrice(), PositionMath.PRICE_SCALE)
+                : PositionMath.scaled(holding.getAverageCost(), PositionMath.PRICE_SCALE);
+            value[i] = PositionMath.marketValue(quantity[i], price[i]);
+            totalValue += value[i];
+            totalCost += cost[i];
+        }
+    }
+
+    String accountId() {
+        return accountId;
+    }
+
+    List<String> symbols() {
+        List<String> symbols = new ArrayList<>(holdings.length);
+        for (Holding holding : holdings) {
+            symbols.add(holding.getSymbol());
+        }
+        return symbols;
+    }
+
+    /**
+     * Re-values the holding in {@code symbol} at {@code newPrice}. Returns
+     * true if the account's value changed.
+     */
+    synchronized boolean reprice(String symbol, long newPrice) {
+        boolean changed = false;
+        for (int i = 0; i < holdings.length; i++) {
+            if (price[i] != newPrice && holdings[i].getSymbol().equals(symbol)) {
+                long newValue = PositionMath.marketValue(quantity[i], newPrice);
+                totalValue += newValue - value[i];
+                changed |= newValue != value[i];
+                value[i] = newValue;
+                price[i] = newPrice;
+                dirty = true;
+            }
+        }
+        return changed;
+    }
+
+    synchronized long totalValue() {
+        return totalValue;
+    }
+
+    synchronized void markDirty() {
+        dirty = true;
+    }
+
+    /** Returns true, and clears the flag, if the book changed since the last call. */
+    synchronized boolean takeDirty() {
+        boolean was = dirty;
+        dirty = false;
+        return was;
+    }
+
+    synchronized List<Holding> holdings() {
+        List<Holding> valued = new ArrayList<>(holdings.length);
+        for (int i = 0; i < holdings.length; i++) {
+            valued.add(valued(i));
+        }
+        return valued;
+    }
+
+    synchronized Map<String, Object> summary() {
+        Map<String, Object> summary = new HashMap<>();
+        summary.put("accountId", accountId);
+        summary.put("holdingsCount", holdings.length);
+        summary.put("totalValue", BigDecimal.valueOf(totalValue, 2));
+        summary.put("totalCost", BigDecimal.valueOf(totalCost, 2));
+        summary.put("totalPnl", BigDecimal.valueOf(totalValue - totalCost, 2));
+        summary.put("holdings", holdings());
+        return summary;
+    }
+
+    void touch(long now) {
+        lastAccess = now;
+    }
+
+    long lastAccess() {
+        return lastAccess;
+    }
+
+    long loadedAt() {
+        return loadedAt;
+    }
+
+    private Holding valued(int i) {
+        Holding source = holdings[i];
+        long pnl = value[i] - cost[i];
+        return Holding.builder()
+            .id(source.getId())
+            .accountId(source.getAccountId())
+            .symbol(source.getSymbol())
+            .companyName(source.getCompanyName())
+            .quantity(source.getQuantity())
+            .averageCost(source.getAverageCost())
+            .totalCost(source.getTotalCost())
+            .currentPrice(BigDecimal.valueOf(price[i], 4))
+            .currentValue(BigDecimal.valueOf(value[i], 2))
+            .unrealizedPnl(BigDecimal.valueOf(pnl, 2))
+            .unrealizedPnlPercent(PositionMath.pnlPercent(pnl, cost[i]))
+            .createdAt(source.getCreatedAt())
+            .updatedAt(source.getUpdatedAt())
+            .build();
+    }
+}
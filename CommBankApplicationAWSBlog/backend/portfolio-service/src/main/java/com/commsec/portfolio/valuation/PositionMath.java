@@ -0,0 +1,48 @@
+package com.commsec.portfolio.valuation;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * Fixed-point valuation arithmetic shared by live valuation, the end-of-day
+ * mark and position keeping. Quantities and money are scaled longs with 2 decimal
+ * places and prices with 4, matching the holdings columns.
+ */
+public final class PositionMath {
+
+    public static final int QUANTITY_SCALE = 2;
+    public static final int MONEY_SCALE = 2;
+    public static final int PRICE_SCALE = 4;
+
+    private static final long PRICE_ONE = 10_000L;
+
+    private PositionMath() {
+    }
+
+    /** Quantity (2 dp) times price (4 dp), rounded half up to cents. */
+    public static long marketValue(long quantity, long price) {
+        long product = Math.multiplyExact(quantity, price);
+        return product >= 0 ? (product + PRICE_ONE / 2) / PRICE_ONE : -((-product + PRICE_ONE / 2) / PRICE_ONE);
+    }
+
+    /** Cost (2 dp) per unit of quantity (2 dp), as a price to 4 decimal places rounded half up. */
+    public static long averagePrice(long cost, long quantity) {
+        if (quantity == 0) {
+            return 0;
+        }
+        long scaled = Math.multiplyExact(cost, PRICE_ONE);
+        return scaled >= 0 ? (scaled + quantity / 2) / quantity : -((-scaled + quantity / 2) / quantity);
+    }
+
+    /** Unrealised P&L as a percentage of cost, to 4 decimal places; zero when there is no cost. */
+    public static BigDecimal pnlPercent(long pnl, long cost) {
+        if (cost == 0) {
+            return BigDecimal.ZERO;
+        }
+        return BigDecimal.valueOf(pnl * 100, 0).divide(BigDecimal.valueOf(cost), 4, RoundingMode.HALF_UP);
+    }
+
+    public static long scaled(BigDecimal amount, int scale) {
+        return amount == null ? 0 : amount.setScale(scale, RoundingMode.HALF_UP).unscaledValue().longValueExact();
+    }
+}
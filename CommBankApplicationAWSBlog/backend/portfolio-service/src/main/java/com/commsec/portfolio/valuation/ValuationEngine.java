@@ -0,0 +1,213 @@
+package com.commsec.portfolio.valuation;
+
+import com.commsec.portfolio.model.Holding;
+import com.commsec.portfolio.repository.HoldingRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.ObjLongConsumer;
+
+/**
+ * In-memory valuation of the accounts currently being viewed.
+ * <p>
+ * An account is loaded from the database the first time it is asked for and
+ * then valued from quotes: a symbol-to-holders index means a tick only
+ * touches the accounts that hold that symbol. Books are reloaded every
+ * {@code portfolio.valuation.reload-interval-ms} to pick up holding changes
+ * and dropped once unused for {@code portfolio.valuation.idle-timeout-ms},
+ * unless a client is subscribed to them.
+ */
+@Service
+@Slf4j
+public class ValuationEngine {
+
+    private final HoldingRepository holdingRepository;
+    private final Map<String, AccountBook> books = new ConcurrentHashMap<>();
+    private final Map<String, Set<AccountBook>> holdersBySymbol = new ConcurrentHashMap<>();
+    private final Map<String, Long> lastPrices = new ConcurrentHashMap<>();
+    private final Map<String, Integer> pinned = new ConcurrentHashMap<>();
+    private final long reloadIntervalMs;
+    private final long idleTimeoutMs;
+    private final Counter revaluations;
+
+    public ValuationEngine(HoldingRepository holdingRepository,
+                           MeterRegistry meterRegistry,
+                           @Value("${portfolio.valuation.reload-interval-ms:60000}") long reloadIntervalMs,
+                           @Value("${portfolio.valuation.idle-timeout-ms:1800000}") long idleTimeoutMs) {
+        this.holdingRepository = holdingRepository;
+        this.reloadIntervalMs = reloadIntervalMs;
+        this.idleTimeoutMs = idleTimeoutMs;
+
+        this.revaluations = Counter.builder("portfolio.valuation.revaluations")
+            .description("Account values changed by a quote")
+            .register(meterRegistry);
+
+        Gauge.builder("portfolio.valuation.accounts", books, Map::size)
+            .description("Accounts held in memory for valuation")
+            .register(meterRegistry);
+
+        Gauge.builder("portfolio.valuation.symbols", holdersBySymbol, Map::size)
+            .description("Symbols held by at least one account in memory")
+            .register(meterRegistry);
+    }
+
+    public Map<String, Object> summary(String accountId) {
+        return book(accountId).summary();
+    }
+
+    public List<Holding> holdings(String accountId) {
+        return book(accountId).holdings();
+    }
+
+    /**
+     * Applies a quote to every in-memory account holding {@code symbol}.
+     */
+    public void onQuote(String symbol, BigDecimal lastPrice) {
+        long price = PositionMath.scaled(lastPrice, PositionMath.PRICE_SCALE);
+        lastPrices.put(symbol, price);
+        Set<AccountBook> holders = holdersBySymbol.get(symbol);
+        if (holders == null) {
+            return;
+        }
+        for (AccountBook book : holders) {
+            if (book.reprice(symbol, price)) {
+                revaluations.increment();
+            }
+        }
+    }
+
+    /** Passes the current value, in cents, of every account in memory. */
+    public void forEachValue(ObjLongConsumer<String> consumer) {
+        for (AccountBook book : books.values()) {
+            consumer.accept(book.accountId(), book.totalValue());
+        }
+    }
+
+    /** Symbols held by any in-memory account; the quote subscription follows this set. */
+    public Set<String> heldSymbols() {
+        return holdersBySymbol.keySet();
+    }
+
+    /**
+     * Keeps the account in memory while a client is subscribed to it, and
+     * flags it so the new subscriber is sent the current summary. Each
+     * {@code pin} must be matched by an {@link #unpin}.
+     */
+    public void pin(String accountId) {
+        pinned.merge(accountId, 1, Integer::sum);
+        book(accountId).markDirty();
+    }
+
+    public void unpin(String accountId) {
+        pinned.computeIfPresent(accountId, (id, count) -> count > 1 ? count - 1 : null);
+    }
+
+    /**
+     * Returns true, and clears the flag, if the account is in memory and its
+     * value changed since the last call.
+     */
+    public boolean takeChanged(String accountId) {
+        AccountBook book = books.get(accountId);
+        return book != null && book.takeDirty();
+    }
+
+    public Set<String> pinnedAccounts() {
+        return pinned.keySet();
+    }
+
+    /** Reloads the given accounts now if they are in memory, e.g. after their holdings changed. */
+    public void reload(Collection<String> accountIds) {
+        long now = System.currentTimeMillis();
+        for (String accountId : accountIds) {
+            if (books.containsKey(accountId)) {
+                load(accountId, now);
+            }
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${portfolio.valuation.sweep-interval-ms:10000}")
+    public void sweep() {
+        long now = System.currentTimeMillis();
+        int evicted = 0;
+        int reloaded = 0;
+        for (AccountBook book : new ArrayList<>(books.values())) {
+            boolean inUse = pinned.containsKey(book.accountId()) || now - book.lastAccess() < idleTimeoutMs;
+            if (!inUse) {
+                if (books.remove(book.accountId(), book)) {
+                    unindex(book);
+                    evicted++;
+                }
+            } else if (now - book.loadedAt() >= reloadIntervalMs) {
+                load(book.accountId(), now);
+                reloaded++;
+            }
+        }
+        if (evicted > 0 || reloaded > 0) {
+            log.debug("Valuation sweep: {} accounts evicted, {} reloaded, {} in memory", evicted, reloaded, books.size());
+        }
+    }
+
+    private AccountBook book(String accountId) {
+        long now = System.currentTimeMillis();
+        AccountBook book = books.get(accountId);
+        if (book == null) {
+            book = load(accountId, now);
+        }
+        book.touch(now);
+        return book;
+    }
+
+    /**
+     * Builds the account's book from the database and swaps it in. Prices are
+     * re-read once the book is indexed: a tick that arrived while it was being
+     * built is in {@code lastPrices} by then, and every later tick reaches the
+     * book through the index.
+     */
+    private AccountBook load(String accountId, long now) {
+        AccountBook book = new AccountBook(accountId, holdingRepository.findByAccountId(accountId), lastPrices, now);
+        AccountBook previous = books.put(accountId, book);
+        index(book);
+        for (String symbol : book.symbols()) {
+            Long price = lastPrices.get(symbol);
+            if (price != null) {
+                book.reprice(symbol, price);
+            }
+        }
+        if (previous != null) {
+            book.touch(previous.lastAccess());
+            unindex(previous);
+        }
+        return book;
+    }
+
+    private void index(AccountBook book) {
+        for (String symbol : book.symbols()) {
+            holdersBySymbol.compute(symbol, (s, holders) -> {
+                Set<AccountBook> updated = holders != null ? holders : ConcurrentHashMap.newKeySet();
+                updated.add(book);
+                return updated;
+            });
+        }
+    }
+
+    private void unindex(AccountBook book) {
+        for (String symbol : book.symbols()) {
+            holdersBySymbol.computeIfPresent(symbol, (s, holders) -> {
+                holders.remove(book);
+                return holders.isEmpty() ? null : holders;
+            });
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package com.commsec.portfolio.valuation;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.event.EventListener;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.messaging.SessionDisconnectEvent;
+import org.springframework.web.socket.messaging.SessionSubscribeEvent;
+import org.springframework.web.socket.messaging.SessionUnsubscribeEvent;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Pushes an account's summary to {@code /topic/portfolio/{accountId}} when its
+ * value changes. Changes are collected and sent once per push interval, so a
+ * subscriber gets at most one summary per interval however many ticks moved
+ * the account. A new subscriber gets the current summary on the next push.
+ */
+@Component
+@Slf4j
+public class ValuationPublisher {
+
+    public static final String DESTINATION_PREFIX = "/topic/portfolio/";
+
+    private final ValuationEngine valuationEngine;
+    private final SimpMessagingTemplate messagingTemplate;
+    /** Session id to subscription id to account id. */
+    private final Map<String, Map<String, String>> subscriptions = new ConcurrentHashMap<>();
+    private final Counter summariesPushed;
+
+    public ValuationPublisher(ValuationEngine valuationEngine,
+                              SimpMessagingTemplate messagingTemplate,
+                              MeterRegistry meterRegistry) {
+        this.valuationEngine = valuationEngine;
+        this.messagingTemplate = messagingTemplate;
+
+        this.summariesPushed = Counter.builder("portfolio.valuation.pushed")
+            .description("Portfolio summaries pushed to subscribers")
+            .register(meterRegistry);
+    }
+
+    @Scheduled(fixedDelayString = "${portfolio.valuation.push-interval-ms:1000}")
+    public void pushChanges() {
+        for (String accountId : valuationEngine.pinnedAccounts()) {
+            if (valuationEngine.takeChanged(accountId)) {
+                messagingTemplate.convertAndSend(DESTINATION_PREFIX + accountId, valuationEngine.summary(accountId));
+                summariesPushed.increment();
+            }
+        }
+    }
+
+    @EventListener
+    public void onSubscribe(SessionSubscribeEvent event) {
+        SimpMessageHeaderAccessor headers = SimpMessageHeaderAccessor.wrap(event.getMessage());
+        String destination = headers.getDestination();
+        if (destination == null || !destination.startsWith(DESTINATION_PREFIX)) {
+            return;
+        }
+        String accountId = destination.substring(DESTINATION_PREFIX.length());
+        subscriptions.computeIfAbsent(headers.getSessionId(), id -> new ConcurrentHashMap<>())
+            .put(headers.getSubscriptionId(), accountId);
+        valuationEngine.pin(accountId);
+    }
+
+    @EventListener
+    public void onUnsubscribe(SessionUnsubscribeEvent event) {
+        SimpMessageHeaderAccessor headers = SimpMessageHeaderAccessor.wrap(event.getMessage());
+        Map<String, String> session = subscriptions.get(headers.getSessionId());
+        if (session != null) {
+            String accountId = session.remove(headers.getSubscriptionId());
+            if (accountId != null) {
+                valuationEngine.unpin(accountId);
+            }
+        }
+    }
+
+    @EventListener
+    public void onDisconnect(SessionDisconnectEvent event) {
+        Map<String, String> session = subscriptions.remove(event.getSessionId());
+        if (session != null) {
+            session.values().forEach(valuationEngine::unpin);
+        }
+    }
+}
@@ -0,0 +1,218 @@
+package com.commsec.portfolio.positions;
+
+import com.commsec.portfolio.dto.FillMessage;
+import com.commsec.portfolio.valuation.PositionMath;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Applies fills as the outbox relay delivers them, at least once and in
+ * batches, against holdings kept in memory.
+ */
+class PositionKeeperTest {
+
+    private static final String ACCOUNT = "ACC-1";
+
+    private final InMemoryPositions repository = new InMemoryPositions();
+    private final PositionKeeper keeper = new PositionKeeper(repository);
+    private long nextId = 1;
+
+    @Test
+    void redeliveredBatchChangesNothing() {
+        UUID order = UUID.randomUUID();
+        List<FillMessage> batch = List.of(fill(order, "BHP", "BUY", 100, 4500));
+
+        assertEquals(Set.of(ACCOUNT), keeper.apply(batch));
+        assertEquals(Set.of(), keeper.apply(batch));
+
+        assertEquals(100, repository.quantity(ACCOUNT, "BHP"));
+        assertEquals(4500, repository.cost(ACCOUNT, "BHP"));
+    }
+
+    @Test
+    void olderCumulativeFillArrivingLateIsIgnored() {
+        UUID order = UUID.randomUUID();
+        FillMessage first = fill(order, "BHP", "BUY", 100, 4500);
+        FillMessage second = fill(order, "BHP", "BUY", 300, 13500);
+
+        keeper.apply(List.of(second));
+        keeper.apply(List.of(first));
+
+        assertEquals(300, repository.quantity(ACCOUNT, "BHP"));
+        assertEquals(13500, repository.cost(ACCOUNT, "BHP"));
+    }
+
+    @Test
+    void laterFillOfAnOrderAppliesOnlyTheDifference() {
+        UUID order = UUID.randomUUID();
+
+        keeper.apply(List.of(fill(order, "BHP", "BUY", 100, 4500)));
+        keeper.apply(List.of(fill(order, "BHP", "BUY", 300, 13500)));
+
+        assertEquals(300, repository.quantity(ACCOUNT, "BHP"));
+        assertEquals(13500, repository.cost(ACCOUNT, "BHP"));
+    }
+
+    @Test
+    void fillsOfOneOrderInABatchApplyTheNewestCumulativeOnce() {
+        UUID order = UUID.randomUUID();
+
+        keeper.apply(List.of(
+            fill(order, "BHP", "BUY", 100, 4500),
+            fill(order, "BHP", "BUY", 300, 13500),
+            fill(order, "BHP", "BUY", 200, 9000)));
+
+        assertEquals(300, repository.quantity(ACCOUNT, "BHP"));
+        assertEquals(13500, repository.cost(ACCOUNT, "BHP"));
+        assertEquals(1, repository.appliedWrites);
+    }
+
+    @Test
+    void ordersOnTheSamePositionAreWrittenOnce() {
+        keeper.apply(List.of(
+            fill(UUID.randomUUID(), "BHP", "BUY", 100, 4500),
+            fill(UUID.randomUUID(), "BHP", "BUY", 200, 9200),
+            fill(UUID.randomUUID(), "CBA", "BUY", 10, 1300)));
+
+        assertEquals(300, repository.quantity(ACCOUNT, "BHP"));
+        assertEquals(13700, repository.cost(ACCOUNT, "BHP"));
+        assertEquals(10, repository.quantity(ACCOUNT, "CBA"));
+        assertEquals(2, repository.positionWrites);
+    }
+
+    @Test
+    void sellsReduceAndThenClosePositions() {
+        keeper.apply(List.of(fill(UUID.randomUUID(), "BHP", "BUY", 100, 4500)));
+
+        keeper.apply(List.of(fill(UUID.randomUUID(), "BHP", "SELL", 40, 1900)));
+
+        assertEquals(60, repository.quantity(ACCOUNT, "BHP"));
+        assertEquals(2700, repository.cost(ACCOUNT, "BHP"));
+
+        keeper.apply(List.of(fill(UUID.randomUUID(), "BHP", "SELL", 60, 2900)));
+
+        assertFalse(repository.holds(ACCOUNT, "BHP"));
+    }
+
+    @Test
+    void sellLargerThanThePositionClosesIt() {
+        keeper.apply(List.of(fill(UUID.randomUUID(), "BHP", "BUY", 100, 4500)));
+
+        Set<String> changed = keeper.apply(List.of(fill(UUID.randomUUID(), "BHP", "SELL", 150, 7000)));
+
+        assertTrue(changed.contains(ACCOUNT));
+        assertFalse(repository.holds(ACCOUNT, "BHP"));
+    }
+
+    private FillMessage fill(UUID orderId, String symbol, String side, long cumulativeQuantity, long cumulativeNotional) {
+        return FillMessage.builder()
+            .id(nextId++)
+            .orderId(orderId)
+            .accountId(ACCOUNT)
+            .symbol(symbol)
+            .side(side)
+            .filledQuantity(BigDecimal.valueOf(cumulativeQuantity))
+            .filledNotional(BigDecimal.valueOf(cumulativeNotional))
+            .createdAt(Instant.now())
+            .build();
+    }
+
+    /**
+     * Holdings and applied fills in memory, keeping the repository's rule that
+     * an applied cumulative fill only ever grows.
+     */
+    private static final class InMemoryPositions extends PositionRepository {
+
+        private final Map<String, long[]> holdings = new HashMap<>();
+        private final Map<UUID, BigDecimal[]> applied = new HashMap<>();
+        private int positionWrites;
+        private int appliedWrites;
+
+        InMemoryPositions() {
+            super(null);
+        }
+
+        @Override
+        public void lock(List<String> keys) {
+            List<String> sorted = new ArrayList<>(keys);
+            sorted.sort(null);
+            assertEquals(sorted, keys, "locks are taken in key order");
+        }
+
+        @Override
+        public Map<UUID, BigDecimal[]> applied(Collection<UUID> orderIds) {
+            Map<UUID, BigDecimal[]> found = new HashMap<>();
+            for (UUID orderId : orderIds) {
+                if (applied.containsKey(orderId)) {
+                    found.put(orderId, applied.get(orderId).clone());
+                }
+            }
+            return found;
+        }
+
+        @Override
+        Map<String, Position> positions(List<String> accountIds, List<String> symbols) {
+            Map<String, Position> found = new HashMap<>();
+            for (int i = 0; i < accountIds.size(); i++) {
+                String key = key(accountIds.get(i), symbols.get(i));
+                long[] holding = holdings.get(key);
+                if (holding != null) {
+                    found.put(key, new Position(accountIds.get(i), symbols.get(i), true, holding[0], holding[1]));
+                }
+            }
+            return found;
+        }
+
+        @Override
+        void save(Collection<Position> positions, Instant now) {
+            for (Position position : positions) {
+                positionWrites++;
+                String key = key(position.accountId(), position.symbol());
+                if (position.quantity() > 0) {
+                    holdings.put(key, new long[] {position.quantity(), position.cost()});
+                } else {
+                    holdings.remove(key);
+                }
+            }
+        }
+
+        @Override
+        public void saveApplied(Collection<FillMessage> fills, Instant now) {
+            for (FillMessage fill : fills) {
+                appliedWrites++;
+                applied.merge(fill.getOrderId(),
+                    new BigDecimal[] {fill.getFilledQuantity(), fill.getFilledNotional()},
+                    (previous, next) -> previous[0].compareTo(next[0]) < 0 ? next : previous);
+            }
+        }
+
+        boolean holds(String accountId, String symbol) {
+            return holdings.containsKey(key(accountId, symbol));
+        }
+
+        long quantity(String accountId, String symbol) {
+            return unscaled(holdings.get(key(accountId, symbol))[0], PositionMath.QUANTITY_SCALE);
+        }
+
+        long cost(String accountId, String symbol) {
+            return unscaled(holdings.get(key(accountId, symbol))[1], PositionMath.MONEY_SCALE);
+        }
+
+        private static long unscaled(long value, int scale) {
+            return BigDecimal.valueOf(value, scale).longValueExact();
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package com.commsec.trading.service;
+
+import com.commsec.trading.engine.EngineScale;
+import org.openjdk.jmh.annotations.*;
+
+import java.math.BigDecimal;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Brokerage calculation per order: the previous BigDecimal arithmetic against
+ * {@link Brokerage} on scaled longs. Run with the GC profiler to see the
+ * allocation rate alongside ns/op:
+ * <pre>
+ * mvn -Pjmh compile exec:exec
+ * </pre>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class BrokerageBenchmark {
+
+    private static final int ORDERS = 1024;
+    private static final BigDecimal BROKERAGE_FEE = new BigDecimal("9.95");
+    private static final BigDecimal BROKERAGE_PERCENTAGE = new BigDecimal("0.0011");
+
+    private BigDecimal[] prices;
+    private BigDecimal[] quantities;
+    private long[] scaledPrices;
+    private long[] scaledQuantities;
+    private int cursor;
+
+    @Setup
+    public void setUp() {
+        SplittableRandom random = new SplittableRandom(42);
+        prices = new BigDecimal[ORDERS];
+        quantities = new BigDecimal[ORDERS];
+        scaledPrices = new long[ORDERS];
+        scaledQuantities = new long[ORDERS];
+        for (int i = 0; i < ORDERS; i++) {
+            prices[i] = BigDecimal.valueOf(random.nextLong(10_000, 3_000_000), EngineScale.PRICE_SCALE);
+            quantities[i] = BigDecimal.valueOf(random.nextLong(1, 50_000));
+            scaledPrices[i] = EngineScale.toPrice(prices[i]);
+            scaledQuantities[i] = EngineScale.toQuantity(quantities[i]);
+        }
+    }
+
+    @Benchmark
+    public BigDecimal bigDecimal() {
+        int i = next();
+        BigDecimal tradeValue = prices[i].multiply(quantities[i]);
+        BigDecimal percentageFee = tradeValue.multiply(BROKERAGE_PERCENTAGE);
+        return percentageFee.max(BROKERAGE_FEE);
+    }
+
+    @Benchmark
+    public long fixedPoint() {
+        int i = next();
+        return Brokerage.fee(scaledPrices[i], scaledQuantities[i]);
+    }
+
+    private int next() {
+        int i = cursor;
+        cursor = (i + 1) & (ORDERS - 1);
+        return i;
+    }
+}
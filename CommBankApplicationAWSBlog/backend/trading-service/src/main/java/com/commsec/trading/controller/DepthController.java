@@ -0,0 +1,32 @@
+package com.commsec.trading.controller;
+
+import com.commsec.trading.depth.DepthBook;
+import com.commsec.trading.dto.DepthResponse;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+@RestController
+@RequestMapping("/api/v1/orders/depth")
+@RequiredArgsConstructor
+@Tag(name = "Market Depth", description = "Aggregated order book depth")
+public class DepthController {
+
+    private final DepthBook depthBook;
+
+    @GetMapping("/{symbol}")
+    @Operation(summary = "Get aggregated price levels for a symbol; deltas stream on /topic/depth/{symbol}")
+    public ResponseEntity<DepthResponse> getDepth(
+            @PathVariable String symbol,
+            @Parameter(description = "Levels per side, at most trading.depth.levels")
+            @RequestParam(required = false) Integer levels) {
+        int requested = levels != null ? levels : depthBook.maxLevels();
+        if (requested < 1) {
+            return ResponseEntity.badRequest().build();
+        }
+        return ResponseEntity.ok(depthBook.depth(symbol.toUpperCase(), requested));
+    }
+}
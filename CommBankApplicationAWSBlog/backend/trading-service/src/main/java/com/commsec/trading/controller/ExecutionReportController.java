@@ -0,0 +1,43 @@
+package com.commsec.trading.controller;
+
+import com.commsec.trading.reports.ExecutionReportStream;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+@RestController
+@RequestMapping("/api/v1/orders/stream")
+@RequiredArgsConstructor
+@Tag(name = "Execution Reports", description = "Live order lifecycle events")
+public class ExecutionReportController {
+
+    private final ExecutionReportStream executionReportStream;
+
+    @GetMapping(produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    @Operation(summary = "Stream execution reports for an account; resumes after Last-Event-ID or since")
+    public ResponseEntity<SseEmitter> stream(
+            @RequestHeader("X-Account-Id") String accountId,
+            @RequestHeader(value = "Last-Event-ID", required = false) String lastEventId,
+            @Parameter(description = "Resume after this sequence; Last-Event-ID takes precedence")
+            @RequestParam(required = false) Long since) {
+        Long resumeFrom = since;
+        if (lastEventId != null && !lastEventId.isBlank()) {
+            try {
+                resumeFrom = Long.parseLong(lastEventId.trim());
+            } catch (NumberFormatException e) {
+                return ResponseEntity.badRequest().build();
+            }
+        }
+        if (resumeFrom != null && resumeFrom < 0) {
+            return ResponseEntity.badRequest().build();
+        }
+        return ResponseEntity.ok()
+            .header("X-Accel-Buffering", "no")
+            .body(executionReportStream.subscribe(accountId, resumeFrom));
+    }
+}
@@ -1,5 +1,8 @@
 package com.commsec.trading.controller;
 
+import com.commsec.trading.dto.BatchOrderRequest;
+import com.commsec.trading.dto.BatchOrderResponse;
+import com.commsec.trading.dto.OrderHistoryResponse;
 import com.commsec.trading.dto.OrderRequest;
 import com.commsec.trading.dto.OrderResponse;
 import com.commsec.trading.model.OrderStatus;
@@ -17,6 +20,7 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 
 @RestController
@@ -36,6 +40,15 @@ public class OrderController {
         return ResponseEntity.status(HttpStatus.CREATED).body(response);
     }
 
+    @PostMapping("/batch")
+    @Operation(summary = "Place a batch of orders")
+    public ResponseEntity<BatchOrderResponse> placeOrders(
+            @RequestHeader("X-Account-Id") String accountId,
+            @Valid @RequestBody BatchOrderRequest request) {
+        BatchOrderResponse response = tradingService.placeOrders(accountId, request.getOrders());
+        return ResponseEntity.status(HttpStatus.CREATED).body(response);
+    }
+
     @GetMapping
     @Operation(summary = "Get orders for an account")
     public ResponseEntity<Page<OrderResponse>> getOrders(
@@ -46,6 +59,17 @@ public class OrderController {
         return ResponseEntity.ok(tradingService.getOrders(accountId, status, pageable));
     }
 
+    @GetMapping("/history")
+    @Operation(summary = "Get order history, newest first, one page at a time")
+    public ResponseEntity<OrderHistoryResponse> getOrderHistory(
+            @RequestHeader("X-Account-Id") String accountId,
+            @Parameter(description = "Continuation token from the previous page")
+            @RequestParam(required = false) String cursor,
+            @Parameter(description = "Page size, at most 200")
+            @RequestParam(defaultValue = "50") int limit) {
+        return ResponseEntity.ok(tradingService.getOrderHistory(accountId, cursor, limit));
+    }
+
     @GetMapping("/{orderId}")
     @Operation(summary = "Get a specific order")
     public ResponseEntity<OrderResponse> getOrder(
@@ -61,6 +85,13 @@ public class OrderController {
         return ResponseEntity.ok(tradingService.getOpenOrders(accountId));
     }
 
+    @GetMapping("/buying-power")
+    @Operation(summary = "Get buying power and open-order exposure")
+    public ResponseEntity<Map<String, Object>> getBuyingPower(
+            @RequestHeader("X-Account-Id") String accountId) {
+        return ResponseEntity.ok(tradingService.getBuyingPower(accountId));
+    }
+
     @DeleteMapping("/{orderId}")
     @Operation(summary = "Cancel an order")
     public ResponseEntity<OrderResponse> cancelOrder(
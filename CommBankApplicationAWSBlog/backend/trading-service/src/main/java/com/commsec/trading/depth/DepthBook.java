@@ -0,0 +1,195 @@
+package com.commsec.trading.depth;
+
+import com.commsec.trading.dto.DepthLevelResponse;
+import com.commsec.trading.dto.DepthResponse;
+import com.commsec.trading.engine.DepthLevel;
+import com.commsec.trading.engine.DepthListener;
+import com.commsec.trading.engine.EngineScale;
+import com.commsec.trading.model.OrderSide;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Aggregated price-level depth of every book, kept from the level changes the
+ * matching engine reports rather than recomputed from orders.
+ * <p>
+ * Changes are applied to a full per-symbol ladder as they happen. Every
+ * {@code trading.depth.publish-interval-ms} the top {@code trading.depth.levels}
+ * of each changed symbol are compared with what was last published; the
+ * difference goes out on {@code /topic/depth/{symbol}} with the next sequence
+ * number and the new top levels become the REST snapshot. A level pushed out
+ * of the top levels is sent with quantity 0, so a client holding a snapshot
+ * and its later deltas always has exactly the top levels.
+ */
+@Component
+@Slf4j
+public class DepthBook implements DepthListener {
+
+    public static final String DESTINATION_PREFIX = "/topic/depth/";
+
+    private static final DepthLevel[] NO_LEVELS = new DepthLevel[0];
+
+    private record Published(long sequence, DepthLevel[] bids, DepthLevel[] asks, DepthResponse response) {
+    }
+
+    private static final class SymbolDepth {
+
+        private final TreeMap<Long, DepthLevel> bids = new TreeMap<>(Comparator.reverseOrder());
+        private final TreeMap<Long, DepthLevel> asks = new TreeMap<>();
+        private volatile Published published;
+
+        SymbolDepth(String symbol) {
+            this.published = new Published(0, NO_LEVELS, NO_LEVELS,
+                new DepthResponse(symbol, 0, List.of(), List.of(), Instant.now()));
+        }
+    }
+
+    private final SimpMessagingTemplate messagingTemplate;
+    private final int maxLevels;
+    private final Map<String, SymbolDepth> symbols = new ConcurrentHashMap<>();
+    private final Set<String> dirty = ConcurrentHashMap.newKeySet();
+    private final Counter deltasPublished;
+
+    public DepthBook(SimpMessagingTemplate messagingTemplate,
+                     MeterRegistry meterRegistry,
+                     @Value("${trading.depth.levels:10}") int maxLevels) {
+        this.messagingTemplate = messagingTemplate;
+        this.maxLevels = maxLevels;
+
+        this.deltasPublished = Counter.builder("trading.depth.deltas")
+            .description("Depth deltas published on per-symbol destinations")
+            .register(meterRegistry);
+
+        Gauge.builder("trading.depth.symbols", symbols, Map::size)
+            .description("Symbols with a depth ladder")
+            .register(meterRegistry);
+    }
+
+    @Override
+    public void onDepthChange(String symbol, List<DepthLevel> levels) {
+        SymbolDepth depth = symbols.computeIfAbsent(symbol, SymbolDepth::new);
+        synchronized (depth) {
+            for (DepthLevel level : levels) {
+                TreeMap<Long, DepthLevel> side = level.side() == OrderSide.BUY ? depth.bids : depth.asks;
+                if (level.quantity() > 0) {
+                    side.put(level.price(), level);
+                } else {
+                    side.remove(level.price());
+                }
+            }
+        }
+        dirty.add(symbol);
+    }
+
+    /**
+     * The top {@code levels} on each side as last published. A symbol with no
+     * resting orders has an empty book at sequence 0.
+     */
+    public DepthResponse depth(String symbol, int levels) {
+        SymbolDepth depth = symbols.get(symbol);
+        if (depth == null) {
+            return new DepthResponse(symbol, 0, List.of(), List.of(), Instant.now());
+        }
+        DepthResponse full = depth.published.response();
+        if (levels >= maxLevels) {
+            return full;
+        }
+        return new DepthResponse(symbol, full.getSequence(),
+            full.getBids().subList(0, Math.min(levels, full.getBids().size())),
+            full.getAsks().subList(0, Math.min(levels, full.getAsks().size())),
+            full.getTimestamp());
+    }
+
+    public int maxLevels() {
+        return maxLevels;
+    }
+
+    @Scheduled(fixedDelayString = "${trading.depth.publish-interval-ms:100}")
+    public void publish() {
+        for (String symbol : dirty) {
+            // Cleared before reading, so a change made meanwhile marks it again
+            dirty.remove(symbol);
+            SymbolDepth depth = symbols.get(symbol);
+            DepthLevel[] bids;
+            DepthLevel[] asks;
+            synchronized (depth) {
+                bids = top(depth.bids);
+                asks = top(depth.asks);
+            }
+            Published previous = depth.published;
+            List<DepthLevel> changedBids = diff(previous.bids(), bids, OrderSide.BUY);
+            List<DepthLevel> changedAsks = diff(previous.asks(), asks, OrderSide.SELL);
+            if (changedBids.isEmpty() && changedAsks.isEmpty()) {
+                continue;
+            }
+
+            long sequence = previous.sequence() + 1;
+            Instant now = Instant.now();
+            depth.published = new Published(sequence, bids, asks,
+                new DepthResponse(symbol, sequence, responses(List.of(bids)), responses(List.of(asks)), now));
+            try {
+                messagingTemplate.convertAndSend(DESTINATION_PREFIX + symbol,
+                    new DepthResponse(symbol, sequence, responses(changedBids), responses(changedAsks), now));
+                deltasPublished.increment();
+            } catch (RuntimeException e) {
+                log.warn("Failed to publish depth delta for {}: {}", symbol, e.getMessage());
+            }
+        }
+    }
+
+    private DepthLevel[] top(TreeMap<Long, DepthLevel> side) {
+        int count = Math.min(maxLevels, side.size());
+        DepthLevel[] levels = new DepthLevel[count];
+        int i = 0;
+        for (DepthLevel level : side.values()) {
+            if (i == count) {
+                break;
+            }
+            levels[i++] = level;
+        }
+        return levels;
+    }
+
+    /** Levels that are new or different in {@code current}, plus removed levels with quantity 0. */
+    private static List<DepthLevel> diff(DepthLevel[] previous, DepthLevel[] current, OrderSide side) {
+        Map<Long, DepthLevel> before = new HashMap<>();
+        for (DepthLevel level : previous) {
+            before.put(level.price(), level);
+        }
+        List<DepthLevel> changed = new ArrayList<>();
+        for (DepthLevel level : current) {
+            if (!level.equals(before.remove(level.price()))) {
+                changed.add(level);
+            }
+        }
+        for (DepthLevel removed : before.values()) {
+            changed.add(new DepthLevel(side, removed.price(), 0, 0));
+        }
+        return changed;
+    }
+
+    private static List<DepthLevelResponse> responses(List<DepthLevel> levels) {
+        List<DepthLevelResponse> responses = new ArrayList<>(levels.size());
+        for (DepthLevel level : levels) {
+            responses.add(new DepthLevelResponse(EngineScale.fromPrice(level.price()),
+                EngineScale.fromQuantity(level.quantity()), level.orders()));
+        }
+        return List.copyOf(responses);
+    }
+}
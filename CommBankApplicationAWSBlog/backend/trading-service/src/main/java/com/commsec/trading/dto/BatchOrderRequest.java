@@ -0,0 +1,22 @@
+package com.commsec.trading.dto;
+
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
+import lombok.*;
+
+import java.util.List;
+
+/**
+ * A basket of orders submitted together. Each order is validated on its own,
+ * so one bad order does not reject the rest of the basket.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class BatchOrderRequest {
+
+    @NotEmpty(message = "At least one order is required")
+    @Size(max = 500, message = "A batch may contain at most 500 orders")
+    private List<OrderRequest> orders;
+}
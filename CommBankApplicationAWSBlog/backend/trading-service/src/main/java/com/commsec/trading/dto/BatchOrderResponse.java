@@ -0,0 +1,29 @@
+package com.commsec.trading.dto;
+
+import lombok.*;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class BatchOrderResponse {
+    private int accepted;
+    private int rejected;
+    private List<Result> results;
+
+    /**
+     * Outcome of one order, in the same position as in the request.
+     */
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @Builder
+    public static class Result {
+        private int index;
+        private boolean accepted;
+        private OrderResponse order;
+        private String error;
+    }
+}
@@ -0,0 +1,19 @@
+package com.commsec.trading.dto;
+
+import lombok.*;
+
+import java.math.BigDecimal;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class DepthLevelResponse {
+    private BigDecimal price;
+    /**
+     * Total resting quantity at the price; 0 in a delta means the level has
+     * left the book or the top levels.
+     */
+    private BigDecimal quantity;
+    private int orders;
+}
@@ -0,0 +1,27 @@
+package com.commsec.trading.dto;
+
+import lombok.*;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Aggregated depth of one symbol's book, best price first on each side.
+ * <p>
+ * Over REST this is the top levels as of {@code sequence}. On
+ * {@code /topic/depth/{symbol}} it is a delta holding only the levels that
+ * changed; applying every delta after a snapshot's sequence, in order, keeps
+ * the snapshot current, and a skipped sequence means the client should fetch
+ * a new snapshot.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class DepthResponse {
+    private String symbol;
+    private long sequence;
+    private List<DepthLevelResponse> bids;
+    private List<DepthLevelResponse> asks;
+    private Instant timestamp;
+}
@@ -0,0 +1,31 @@
+package com.commsec.trading.dto;
+
+import com.commsec.trading.journal.OrderEventType;
+import com.commsec.trading.model.OrderStatus;
+import lombok.*;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * One change to an order's execution state, pushed on the account's
+ * execution-report stream. Quantities and values are cumulative for the order,
+ * so a report applied twice changes nothing. {@code sequence} is the order
+ * journal's: it grows across the service but is not contiguous per account.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ExecutionReport {
+    private long sequence;
+    private OrderEventType type;
+    private UUID orderId;
+    private String symbol;
+    private OrderStatus status;
+    private BigDecimal filledQuantity;
+    private BigDecimal avgFillPrice;
+    private BigDecimal filledValue;
+    private Instant timestamp;
+}
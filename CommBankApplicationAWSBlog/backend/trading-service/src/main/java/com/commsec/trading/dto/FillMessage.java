@@ -0,0 +1,27 @@
+package com.commsec.trading.dto;
+
+import lombok.*;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * An order's cumulative fill as sent to portfolio-service. Quantity and
+ * notional are totals for the order so far, so a message delivered twice or
+ * after a newer one changes nothing.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class FillMessage {
+    private long id;
+    private UUID orderId;
+    private String accountId;
+    private String symbol;
+    private String side;
+    private BigDecimal filledQuantity;
+    private BigDecimal filledNotional;
+    private Instant createdAt;
+}
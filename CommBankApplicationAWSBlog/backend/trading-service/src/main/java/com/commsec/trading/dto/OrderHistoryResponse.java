@@ -0,0 +1,17 @@
+package com.commsec.trading.dto;
+
+import lombok.*;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class OrderHistoryResponse {
+    private List<OrderResponse> orders;
+    /**
+     * Opaque token for the next page, or null when there are no older orders.
+     */
+    private String nextCursor;
+}
@@ -0,0 +1,20 @@
+package com.commsec.trading.dto;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import lombok.*;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+
+/**
+ * The subset of market-data-service's StockQuote that trading-service needs.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class QuoteTick {
+    private String symbol;
+    private BigDecimal lastPrice;
+    private Instant timestamp;
+}
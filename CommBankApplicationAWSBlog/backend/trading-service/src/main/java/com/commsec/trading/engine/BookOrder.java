@@ -0,0 +1,165 @@
+package com.commsec.trading.engine;
+
+import com.commsec.trading.model.OrderSide;
+import com.commsec.trading.model.OrderStatus;
+import com.commsec.trading.model.OrderType;
+import com.commsec.trading.model.TimeInForce;
+
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * Working copy of an order inside an {@link OrderBook}. Instances are mutated
+ * only by the thread that owns the book; everything handed back to callers is
+ * an immutable {@link OrderState} snapshot.
+ */
+public final class BookOrder {
+
+    private final UUID id;
+    private final String accountId;
+    private final String symbol;
+    private final OrderSide side;
+    private final OrderType type;
+    private final TimeInForce timeInForce;
+    private final long price;
+    private final long stopPrice;
+    private final long quantity;
+    private final Instant submittedAt;
+
+    private long filledQuantity;
+    private long filledNotional;
+    private OrderStatus status = OrderStatus.PENDING;
+
+    public BookOrder(UUID id, String accountId, String symbol, OrderSide side, OrderType type,
+                     TimeInForce timeInForce, long price, long stopPrice, long quantity, Instant submittedAt) {
+        this.id = id;
+        this.accountId = accountId;
+        this.symbol = symbol;
+        this.side = side;
+        this.type = type;
+        this.timeInForce = timeInForce != null ? timeInForce : TimeInForce.DAY;
+        this.price = price;
+        this.stopPrice = stopPrice;
+        this.quantity = quantity;
+        this.submittedAt = submittedAt;
+    }
+
+    /**
+     * Restores a resting order that already carries fills, e.g. on startup.
+     */
+    public BookOrder withFills(long filledQuantity, long filledNotional) {
+        this.filledQuantity = filledQuantity;
+        this.filledNotional = filledNotional;
+        this.status = filledQuantity > 0 ? OrderStatus.PARTIALLY_FILLED : OrderStatus.OPEN;
+        return this;
+    }
+
+    void fill(long fillPrice, long fillQuantity) {
+        filledQuantity += fillQuantity;
+        filledNotional = Math.addExact(filledNotional, Math.multiplyExact(fillPrice, fillQuantity));
+        status = filledQuantity == quantity ? OrderStatus.FILLED : OrderStatus.PARTIALLY_FILLED;
+    }
+
+    void rest() {
+        status = filledQuantity > 0 ? OrderStatus.PARTIALLY_FILLED : OrderStatus.OPEN;
+    }
+
+    void close(OrderStatus terminalStatus) {
+        status = terminalStatus;
+    }
+
+    /**
+     * STOP orders trade as market orders once triggered; STOP_LIMIT as limit orders.
+     */
+    boolean isMarket() {
+        return type == OrderType.MARKET || type == OrderType.STOP;
+    }
+
+    boolean isStop() {
+        return type == OrderType.STOP || type == OrderType.STOP_LIMIT;
+    }
+
+    /**
+     * Buy stops fire when the market trades at or above the stop price, sell
+     * stops at or below it.
+     */
+    boolean isTriggeredBy(long lastPrice) {
+        if (lastPrice <= 0) {
+            return false;
+        }
+        return side == OrderSide.BUY ? lastPrice >= stopPrice : lastPrice <= stopPrice;
+    }
+
+    /**
+     * Whether this order may trade against a resting order at the given price.
+     */
+    boolean crosses(long restingPrice) {
+        if (isMarket()) {
+            return true;
+        }
+        return side == OrderSide.BUY ? restingPrice <= price : restingPrice >= price;
+    }
+
+    public long remaining() {
+        return quantity - filledQuantity;
+    }
+
+    public long avgFillPrice() {
+        if (filledQuantity == 0) {
+            return 0L;
+        }
+        return Math.round((double) filledNotional / filledQuantity);
+    }
+
+    public OrderState snapshot(Instant timestamp) {
+        return new OrderState(id, accountId, symbol, status, filledQuantity, avgFillPrice(), filledNotional, timestamp);
+    }
+
+    public UUID getId() {
+        return id;
+    }
+
+    public String getAccountId() {
+        return accountId;
+    }
+
+    public String getSymbol() {
+        return symbol;
+    }
+
+    public OrderSide getSide() {
+        return side;
+    }
+
+    public OrderType getType() {
+        return type;
+    }
+
+    public TimeInForce getTimeInForce() {
+        return timeInForce;
+    }
+
+    public long getPrice() {
+        return price;
+    }
+
+    public long getStopPrice() {
+        return stopPrice;
+    }
+
+    public long getQuantity() {
+        return quantity;
+    }
+
+    public long getFilledQuantity() {
+        return filledQuantity;
+    }
+
+    public Instant getSubmittedAt() {
+        return submittedAt;
+    }
+
+    public OrderStatus getStatus() {
+        return status;
+    }
+}
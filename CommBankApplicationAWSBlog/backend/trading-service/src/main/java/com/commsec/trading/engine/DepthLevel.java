@@ -0,0 +1,10 @@
+package com.commsec.trading.engine;
+
+import com.commsec.trading.model.OrderSide;
+
+/**
+ * Aggregate of the resting orders at one price on one side of a book, in
+ * {@link EngineScale} units. A quantity of 0 means the level no longer exists.
+ */
+public record DepthLevel(OrderSide side, long price, long quantity, int orders) {
+}
@@ -0,0 +1,13 @@
+package com.commsec.trading.engine;
+
+import java.util.List;
+
+/**
+ * Receives the price levels a book operation changed, after the operation.
+ * Called on the engine thread that owns the book, so implementations must
+ * only hand the changes off.
+ */
+public interface DepthListener {
+
+    void onDepthChange(String symbol, List<DepthLevel> levels);
+}
@@ -0,0 +1,39 @@
+package com.commsec.trading.engine;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * Conversions between the BigDecimal values used by the API/JPA layer and the
+ * scaled longs used inside the matching engine. Prices carry 4 decimal places
+ * and quantities 2, matching the precision of the orders table.
+ */
+public final class EngineScale {
+
+    public static final int PRICE_SCALE = 4;
+    public static final int QUANTITY_SCALE = 2;
+    public static final int NOTIONAL_SCALE = PRICE_SCALE + QUANTITY_SCALE;
+
+    private EngineScale() {
+    }
+
+    public static long toPrice(BigDecimal price) {
+        return price == null ? 0L : price.setScale(PRICE_SCALE, RoundingMode.HALF_UP).unscaledValue().longValueExact();
+    }
+
+    public static long toQuantity(BigDecimal quantity) {
+        return quantity == null ? 0L : quantity.setScale(QUANTITY_SCALE, RoundingMode.HALF_UP).unscaledValue().longValueExact();
+    }
+
+    public static BigDecimal fromPrice(long price) {
+        return BigDecimal.valueOf(price, PRICE_SCALE);
+    }
+
+    public static BigDecimal fromQuantity(long quantity) {
+        return BigDecimal.valueOf(quantity, QUANTITY_SCALE);
+    }
+
+    public static BigDecimal fromNotional(long notional) {
+        return BigDecimal.valueOf(notional, NOTIONAL_SCALE).setScale(2, RoundingMode.HALF_UP);
+    }
+}
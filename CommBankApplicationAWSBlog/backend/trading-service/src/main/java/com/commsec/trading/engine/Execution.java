@@ -0,0 +1,21 @@
+package com.commsec.trading.engine;
+
+import com.commsec.trading.model.OrderSide;
+
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * A single trade between an incoming (taker) order and a resting (maker) order,
+ * always priced at the maker's level.
+ */
+public record Execution(
+    String symbol,
+    UUID takerOrderId,
+    UUID makerOrderId,
+    OrderSide takerSide,
+    long price,
+    long quantity,
+    Instant executedAt
+) {
+}
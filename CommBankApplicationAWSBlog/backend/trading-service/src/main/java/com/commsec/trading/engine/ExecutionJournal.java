@@ -0,0 +1,17 @@
+package com.commsec.trading.engine;
+
+import java.util.List;
+
+/**
+ * Durable record of every state change the engine decides. Called on the
+ * engine thread that owns the book, in book order, before the result is
+ * handed back to the caller, so anything acknowledged has been recorded.
+ */
+public interface ExecutionJournal {
+
+    void record(MatchResult result);
+
+    void record(OrderState state);
+
+    void record(List<OrderState> states);
+}
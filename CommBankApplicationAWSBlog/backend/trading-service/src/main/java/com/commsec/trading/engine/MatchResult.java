@@ -0,0 +1,18 @@
+package com.commsec.trading.engine;
+
+import java.util.List;
+
+/**
+ * Outcome of submitting one order: the taker's final state for this step,
+ * every maker touched along the way, and the executions produced.
+ */
+public record MatchResult(
+    OrderState taker,
+    List<OrderState> makers,
+    List<Execution> executions
+) {
+
+    public boolean hasExecutions() {
+        return !executions.isEmpty();
+    }
+}
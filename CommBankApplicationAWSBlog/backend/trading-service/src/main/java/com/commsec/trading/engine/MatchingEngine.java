@@ -0,0 +1,277 @@
+package com.commsec.trading.engine;
+
+import com.commsec.trading.model.OrderStatus;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * In-memory matching engine. Symbols are hashed onto a fixed set of
+ * single-threaded shards; each shard thread exclusively owns the
+ * {@link OrderBook}s of its symbols, so all work on a book is serialised
+ * through that thread without locking.
+ * <p>
+ * Market data ticks only hop onto a shard thread for symbols that currently
+ * have armed stops; every other tick just records the last price.
+ */
+@Component
+@Slf4j
+public class MatchingEngine {
+
+    private final EngineShard[] shards;
+    private final ExecutionJournal journal;
+    private final DepthListener depthListener;
+    private final Map<String, Long> lastPrices = new ConcurrentHashMap<>();
+    private final Set<String> symbolsWithStops = ConcurrentHashMap.newKeySet();
+    private final Timer matchTime;
+    private final Counter stopsTriggered;
+
+    public MatchingEngine(@Value("${trading.engine.threads:4}") int threads,
+                          ExecutionJournal journal,
+                          DepthListener depthListener,
+                          MeterRegistry meterRegistry) {
+        this.journal = journal;
+        this.depthListener = depthListener;
+        this.shards = new EngineShard[Math.max(1, threads)];
+        for (int i = 0; i < shards.length; i++) {
+            shards[i] = new EngineShard(i);
+        }
+
+        this.matchTime = Timer.builder("trading.engine.match.time")
+            .description("Time spent matching a single order on its book")
+            .register(meterRegistry);
+
+        this.stopsTriggered = Counter.builder("trading.engine.stops.triggered")
+            .description("Number of stop orders fired by market data")
+            .register(meterRegistry);
+
+        Gauge.builder("trading.engine.books", this, MatchingEngine::bookCount)
+            .description("Number of symbols with an order book")
+            .register(meterRegistry);
+
+        log.info("Matching engine started with {} shard threads", shards.length);
+    }
+
+    /**
+     * Matches an order on its symbol's book, resting or cancelling any remainder.
+     * Stop orders are armed instead and only match once triggered. The result is
+     * journaled before the future completes.
+     */
+    public CompletableFuture<MatchResult> submit(BookOrder order) {
+        if (order.isStop()) {
+            return onBook(order.getSymbol(), book -> arm(book, order));
+        }
+        return onBook(order.getSymbol(), book -> {
+            MatchResult result = matchTime.record(() -> book.process(order, Instant.now()));
+            journal.record(result);
+            return result;
+        });
+    }
+
+    /**
+     * Records the last traded price for a symbol and fires any stops it crossed.
+     */
+    public void onTick(String symbol, long lastPrice) {
+        lastPrices.put(symbol, lastPrice);
+        if (!symbolsWithStops.contains(symbol)) {
+            return;
+        }
+        onBook(symbol, book -> {
+            fire(book, book.triggerStops(lastPrice, Instant.now()));
+            return null;
+        });
+    }
+
+    /**
+     * Last price seen for the symbol in {@link EngineScale} units, 0 if none.
+     */
+    public long lastPrice(String symbol) {
+        return lastPrices.getOrDefault(symbol, 0L);
+    }
+
+    /**
+     * Removes a resting order from its book. Completes empty if the order is no
+     * longer resting, e.g. because it filled in the meantime.
+     */
+    public CompletableFuture<Optional<OrderState>> cancel(String symbol, UUID orderId) {
+        return remove(symbol, orderId, OrderStatus.CANCELLED);
+    }
+
+    public CompletableFuture<Optional<OrderState>> remove(String symbol, UUID orderId, OrderStatus terminalStatus) {
+        return onBook(symbol, book -> {
+            Optional<OrderState> removed = book.cancel(orderId, terminalStatus, Instant.now());
+            removed.ifPresent(journal::record);
+            trackStops(book);
+            return removed;
+        });
+    }
+
+    /**
+     * Expires a set of orders on one book in a single hop and journals them in
+     * one append. Orders no longer on the book are skipped.
+     */
+    public CompletableFuture<List<OrderState>> expire(String symbol, Collection<UUID> orderIds) {
+        return onBook(symbol, book -> {
+            Instant now = Instant.now();
+            List<OrderState> expired = new ArrayList<>(orderIds.size());
+            for (UUID orderId : orderIds) {
+                book.cancel(orderId, OrderStatus.EXPIRED, now).ifPresent(expired::add);
+            }
+            journal.record(expired);
+            trackStops(book);
+            return expired;
+        });
+    }
+
+    /**
+     * Rests (or re-arms, for untriggered stops) previously accepted orders
+     * without matching them, blocking until every book has been rebuilt.
+     */
+    public void restore(Collection<BookOrder> orders) {
+        CompletableFuture<?>[] pending = orders.stream()
+            .map(order -> onBook(order.getSymbol(), book -> {
+                if (order.isStop() && order.getStatus() == OrderStatus.PENDING) {
+                    book.arm(order);
+                    trackStops(book);
+                } else {
+                    book.rest(order);
+                }
+                return null;
+            }))
+            .toArray(CompletableFuture[]::new);
+        CompletableFuture.allOf(pending).join();
+        log.info("Restored {} resting orders into the order books", orders.size());
+    }
+
+    /**
+     * Runs an action on the thread that owns the symbol's book, then passes on
+     * any price levels it changed.
+     */
+    public <T> CompletableFuture<T> onBook(String symbol, Function<OrderBook, T> action) {
+        EngineShard shard = shardFor(symbol);
+        return CompletableFuture.supplyAsync(() -> {
+            OrderBook book = shard.book(symbol);
+            try {
+                return action.apply(book);
+            } finally {
+                List<DepthLevel> changed = book.drainDepthChanges();
+                if (!changed.isEmpty()) {
+                    depthListener.onDepthChange(symbol, changed);
+                }
+            }
+        }, shard.executor);
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        for (EngineShard shard : shards) {
+            shard.executor.shutdown();
+        }
+        for (EngineShard shard : shards) {
+            if (!shard.executor.awaitTermination(5, TimeUnit.SECONDS)) {
+                shard.executor.shutdownNow();
+            }
+        }
+    }
+
+    /**
+     * Arms the stop, then re-checks the last price. A tick that raced with the
+     * arming either sees the symbol in {@link #symbolsWithStops} or has already
+     * published its price here, so no crossing is missed.
+     */
+    private MatchResult arm(OrderBook book, BookOrder order) {
+        Instant now = Instant.now();
+        book.arm(order);
+        symbolsWithStops.add(book.getSymbol());
+
+        List<MatchResult> fired = book.triggerStops(lastPrices.getOrDefault(book.getSymbol(), 0L), now);
+        MatchResult own = null;
+        List<MatchResult> others = new ArrayList<>();
+        for (MatchResult result : fired) {
+            if (result.taker().orderId().equals(order.getId())) {
+                own = result;
+            } else {
+                others.add(result);
+            }
+        }
+        fire(book, others);
+        if (own == null) {
+            return new MatchResult(order.snapshot(now), List.of(), List.of());
+        }
+        stopsTriggered.increment();
+        journal.record(own);
+        return own;
+    }
+
+    private void fire(OrderBook book, List<MatchResult> results) {
+        trackStops(book);
+        if (!results.isEmpty()) {
+            stopsTriggered.increment(results.size());
+            results.forEach(journal::record);
+        }
+    }
+
+    private void trackStops(OrderBook book) {
+        if (book.armedStops() == 0) {
+            symbolsWithStops.remove(book.getSymbol());
+        }
+    }
+
+    private EngineShard shardFor(String symbol) {
+        return shards[Math.floorMod(symbol.hashCode(), shards.length)];
+    }
+
+    private double bookCount() {
+        int count = 0;
+        for (EngineShard shard : shards) {
+            count += shard.bookCount;
+        }
+        return count;
+    }
+
+    private static final class EngineShard {
+
+        private final ExecutorService executor;
+        private final Map<String, OrderBook> books = new HashMap<>();
+        private volatile int bookCount;
+
+        EngineShard(int index) {
+            this.executor = Executors.newSingleThreadExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "matching-engine-" + index);
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+
+        OrderBook book(String symbol) {
+            OrderBook book = books.get(symbol);
+            if (book == null) {
+                book = new OrderBook(symbol);
+                books.put(symbol, book);
+                bookCount = books.size();
+            }
+            return book;
+        }
+    }
+}
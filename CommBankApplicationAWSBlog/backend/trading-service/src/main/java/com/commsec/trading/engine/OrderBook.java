@@ -0,0 +1,216 @@
+package com.commsec.trading.engine;
+
+import com.commsec.trading.model.OrderSide;
+import com.commsec.trading.model.OrderStatus;
+import com.commsec.trading.model.TimeInForce;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.UUID;
+
+/**
+ * Price-time priority limit order book for a single symbol, together with the
+ * symbol's armed stop orders.
+ * <p>
+ * Not thread-safe by design: every book is owned by exactly one engine thread
+ * (see {@link MatchingEngine}), so matching needs neither locks nor database
+ * round trips.
+ */
+public final class OrderBook {
+
+    private final String symbol;
+    private final TreeMap<Long, PriceLevel> bids = new TreeMap<>(Comparator.reverseOrder());
+    private final TreeMap<Long, PriceLevel> asks = new TreeMap<>();
+    private final Map<UUID, BookOrder> ordersById = new HashMap<>();
+    private final StopTriggerIndex stops = new StopTriggerIndex();
+    private final Set<Long> changedBids = new LinkedHashSet<>();
+    private final Set<Long> changedAsks = new LinkedHashSet<>();
+
+    public OrderBook(String symbol) {
+        this.symbol = symbol;
+    }
+
+    /**
+     * Matches an incoming order against the opposite side and, depending on its
+     * type and time in force, rests or cancels whatever is left.
+     */
+    public MatchResult process(BookOrder taker, Instant now) {
+        if (taker.getTimeInForce() == TimeInForce.FOK && !canFillCompletely(taker)) {
+            taker.close(OrderStatus.CANCELLED);
+            return new MatchResult(taker.snapshot(now), List.of(), List.of());
+        }
+
+        List<Execution> executions = new ArrayList<>();
+        List<OrderState> makers = new ArrayList<>();
+        TreeMap<Long, PriceLevel> opposite = oppositeSide(taker.getSide());
+
+        while (taker.remaining() > 0 && !opposite.isEmpty()) {
+            PriceLevel level = opposite.firstEntry().getValue();
+            if (!taker.crosses(level.price())) {
+                break;
+            }
+            while (taker.remaining() > 0 && !level.isEmpty()) {
+                BookOrder maker = level.peek();
+                long quantity = Math.min(taker.remaining(), maker.remaining());
+                taker.fill(level.price(), quantity);
+                maker.fill(level.price(), quantity);
+                level.reduce(quantity);
+                changed(opposite, level.price());
+                executions.add(new Execution(symbol, taker.getId(), maker.getId(), taker.getSide(),
+                    level.price(), quantity, now));
+                if (maker.remaining() == 0) {
+                    level.poll();
+                    ordersById.remove(maker.getId());
+                }
+                makers.add(maker.snapshot(now));
+            }
+            if (level.isEmpty()) {
+                opposite.pollFirstEntry();
+            }
+        }
+
+        if (taker.remaining() > 0) {
+            if (taker.isMarket() || taker.getTimeInForce() == TimeInForce.IOC
+                    || taker.getTimeInForce() == TimeInForce.FOK) {
+                taker.close(OrderStatus.CANCELLED);
+            } else {
+                rest(taker);
+            }
+        }
+
+        return new MatchResult(taker.snapshot(now), makers, executions);
+    }
+
+    /**
+     * Places an order on the book without matching. Used when rebuilding state
+     * for orders that were already resting before a restart.
+     */
+    public void rest(BookOrder order) {
+        order.rest();
+        TreeMap<Long, PriceLevel> side = ownSide(order.getSide());
+        side.computeIfAbsent(order.getPrice(), PriceLevel::new).add(order);
+        changed(side, order.getPrice());
+        ordersById.put(order.getId(), order);
+    }
+
+    /**
+     * Parks a STOP or STOP_LIMIT order until market data crosses its stop price.
+     */
+    public void arm(BookOrder order) {
+        stops.add(order);
+    }
+
+    /**
+     * Fires every armed stop crossed by the last traded price and matches the
+     * resulting orders in trigger order.
+     */
+    public List<MatchResult> triggerStops(long lastPrice, Instant now) {
+        List<BookOrder> fired = stops.trigger(lastPrice);
+        if (fired.isEmpty()) {
+            return List.of();
+        }
+        List<MatchResult> results = new ArrayList<>(fired.size());
+        for (BookOrder order : fired) {
+            results.add(process(order, now));
+        }
+        return results;
+    }
+
+    public Optional<OrderState> cancel(UUID orderId, OrderStatus terminalStatus, Instant now) {
+        BookOrder armedStop = stops.remove(orderId);
+        if (armedStop != null) {
+            armedStop.close(terminalStatus);
+            return Optional.of(armedStop.snapshot(now));
+        }
+        BookOrder order = ordersById.remove(orderId);
+        if (order == null) {
+            return Optional.empty();
+        }
+        TreeMap<Long, PriceLevel> side = ownSide(order.getSide());
+        PriceLevel level = side.get(order.getPrice());
+        if (level != null) {
+            level.remove(order);
+            if (level.isEmpty()) {
+                side.remove(order.getPrice());
+            }
+            changed(side, order.getPrice());
+        }
+        order.close(terminalStatus);
+        return Optional.of(order.snapshot(now));
+    }
+
+    /**
+     * The price levels changed since the last call, with their current
+     * aggregates; a level that has emptied is reported with quantity 0.
+     */
+    public List<DepthLevel> drainDepthChanges() {
+        if (changedBids.isEmpty() && changedAsks.isEmpty()) {
+            return List.of();
+        }
+        List<DepthLevel> levels = new ArrayList<>(changedBids.size() + changedAsks.size());
+        drain(changedBids, bids, OrderSide.BUY, levels);
+        drain(changedAsks, asks, OrderSide.SELL, levels);
+        return levels;
+    }
+
+    public boolean contains(UUID orderId) {
+        return ordersById.containsKey(orderId) || stops.contains(orderId);
+    }
+
+    public int armedStops() {
+        return stops.size();
+    }
+
+    public int size() {
+        return ordersById.size();
+    }
+
+    public String getSymbol() {
+        return symbol;
+    }
+
+    private boolean canFillCompletely(BookOrder taker) {
+        long needed = taker.remaining();
+        for (PriceLevel level : oppositeSide(taker.getSide()).values()) {
+            if (!taker.crosses(level.price())) {
+                return false;
+            }
+            needed -= level.totalQuantity();
+            if (needed <= 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void changed(TreeMap<Long, PriceLevel> side, long price) {
+        (side == bids ? changedBids : changedAsks).add(price);
+    }
+
+    private static void drain(Set<Long> changed, TreeMap<Long, PriceLevel> side, OrderSide orderSide,
+                              List<DepthLevel> into) {
+        for (long price : changed) {
+            PriceLevel level = side.get(price);
+            into.add(level == null
+                ? new DepthLevel(orderSide, price, 0, 0)
+                : new DepthLevel(orderSide, price, level.totalQuantity(), level.orderCount()));
+        }
+        changed.clear();
+    }
+
+    private TreeMap<Long, PriceLevel> ownSide(OrderSide side) {
+        return side == OrderSide.BUY ? bids : asks;
+    }
+
+    private TreeMap<Long, PriceLevel> oppositeSide(OrderSide side) {
+        return side == OrderSide.BUY ? asks : bids;
+    }
+}
@@ -0,0 +1,29 @@
+package com.commsec.trading.engine;
+
+import com.commsec.trading.model.OrderStatus;
+
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * Immutable view of an order's execution state as decided by the engine.
+ * Quantities and prices are in {@link EngineScale} units.
+ */
+public record OrderState(
+    UUID orderId,
+    String accountId,
+    String symbol,
+    OrderStatus status,
+    long filledQuantity,
+    long avgFillPrice,
+    long filledNotional,
+    Instant timestamp
+) {
+
+    public boolean isTerminal() {
+        return status == OrderStatus.FILLED
+            || status == OrderStatus.CANCELLED
+            || status == OrderStatus.EXPIRED
+            || status == OrderStatus.REJECTED;
+    }
+}
@@ -0,0 +1,59 @@
+package com.commsec.trading.engine;
+
+import java.util.ArrayDeque;
+
+/**
+ * FIFO queue of resting orders at one price. Arrival order in the deque is the
+ * time priority within the level.
+ */
+final class PriceLevel {
+
+    private final long price;
+    private final ArrayDeque<BookOrder> orders = new ArrayDeque<>();
+    private long totalQuantity;
+
+    PriceLevel(long price) {
+        this.price = price;
+    }
+
+    void add(BookOrder order) {
+        orders.addLast(order);
+        totalQuantity += order.remaining();
+    }
+
+    BookOrder peek() {
+        return orders.peekFirst();
+    }
+
+    void poll() {
+        orders.pollFirst();
+    }
+
+    boolean remove(BookOrder order) {
+        if (orders.remove(order)) {
+            totalQuantity -= order.remaining();
+            return true;
+        }
+        return false;
+    }
+
+    void reduce(long quantity) {
+        totalQuantity -= quantity;
+    }
+
+    boolean isEmpty() {
+        return orders.isEmpty();
+    }
+
+    long price() {
+        return price;
+    }
+
+    long totalQuantity() {
+        return totalQuantity;
+    }
+
+    int orderCount() {
+        return orders.size();
+    }
+}
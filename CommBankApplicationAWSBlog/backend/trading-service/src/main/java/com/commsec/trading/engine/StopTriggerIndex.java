@@ -0,0 +1,86 @@
+package com.commsec.trading.engine;
+
+import com.commsec.trading.model.OrderSide;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.UUID;
+
+/**
+ * Armed STOP and STOP_LIMIT orders for one symbol, sorted by stop price and
+ * split by side. A tick only walks the prefix of each side whose threshold it
+ * crossed, so firing costs O(log n + k) rather than a scan of every stop.
+ * <p>
+ * Confined to the engine thread that owns the symbol's {@link OrderBook}.
+ */
+final class StopTriggerIndex {
+
+    // Buy stops fire as the price rises: lowest stop first
+    private final TreeMap<Long, ArrayDeque<BookOrder>> buyStops = new TreeMap<>();
+    // Sell stops fire as the price falls: highest stop first
+    private final TreeMap<Long, ArrayDeque<BookOrder>> sellStops = new TreeMap<>(Comparator.reverseOrder());
+    private final Map<UUID, BookOrder> armed = new HashMap<>();
+
+    void add(BookOrder order) {
+        sideOf(order).computeIfAbsent(order.getStopPrice(), price -> new ArrayDeque<>()).addLast(order);
+        armed.put(order.getId(), order);
+    }
+
+    BookOrder remove(UUID orderId) {
+        BookOrder order = armed.remove(orderId);
+        if (order == null) {
+            return null;
+        }
+        TreeMap<Long, ArrayDeque<BookOrder>> side = sideOf(order);
+        ArrayDeque<BookOrder> queue = side.get(order.getStopPrice());
+        if (queue != null) {
+            queue.remove(order);
+            if (queue.isEmpty()) {
+                side.remove(order.getStopPrice());
+            }
+        }
+        return order;
+    }
+
+    /**
+     * Removes and returns every stop crossed by the given last price, in stop
+     * price then arrival order.
+     */
+    List<BookOrder> trigger(long lastPrice) {
+        if (armed.isEmpty() || lastPrice <= 0) {
+            return List.of();
+        }
+        List<BookOrder> fired = new ArrayList<>();
+        while (!buyStops.isEmpty() && buyStops.firstKey() <= lastPrice) {
+            drain(buyStops.pollFirstEntry().getValue(), fired);
+        }
+        while (!sellStops.isEmpty() && sellStops.firstKey() >= lastPrice) {
+            drain(sellStops.pollFirstEntry().getValue(), fired);
+        }
+        return fired;
+    }
+
+    boolean contains(UUID orderId) {
+        return armed.containsKey(orderId);
+    }
+
+    int size() {
+        return armed.size();
+    }
+
+    private void drain(ArrayDeque<BookOrder> queue, List<BookOrder> fired) {
+        for (BookOrder order : queue) {
+            armed.remove(order.getId());
+            fired.add(order);
+        }
+    }
+
+    private TreeMap<Long, ArrayDeque<BookOrder>> sideOf(BookOrder order) {
+        return order.getSide() == OrderSide.BUY ? buyStops : sellStops;
+    }
+}
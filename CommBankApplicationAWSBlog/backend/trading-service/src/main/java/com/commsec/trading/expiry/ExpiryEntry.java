@@ -0,0 +1,9 @@
+package com.commsec.trading.expiry;
+
+import java.util.UUID;
+
+/**
+ * An order scheduled to expire, with its deadline in epoch milliseconds.
+ */
+record ExpiryEntry(UUID orderId, String symbol, long deadline) {
+}
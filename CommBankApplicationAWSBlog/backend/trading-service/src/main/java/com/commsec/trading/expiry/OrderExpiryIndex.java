@@ -0,0 +1,72 @@
+package com.commsec.trading.expiry;
+
+import com.commsec.trading.journal.OrderEvent;
+import com.commsec.trading.journal.OrderEventListener;
+import com.commsec.trading.journal.OrderEventType;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Deadlines of every live order that can expire, kept in a {@link TimerWheel}.
+ * Fed from the order journal: a PLACED event with an expiry schedules the order
+ * and any terminal event unschedules it, so the orders table is never polled.
+ * <p>
+ * Unscheduling takes the entry out of its wheel slot straight away, so orders
+ * that fill or are cancelled long before their deadline hold no memory until
+ * it.
+ */
+@Component
+public class OrderExpiryIndex implements OrderEventListener {
+
+    private final TimerWheel wheel;
+    private final Map<UUID, TimerWheel.Timer> scheduled = new HashMap<>();
+
+    public OrderExpiryIndex(@Value("${trading.expiry.tick-ms:1000}") long tickMs) {
+        this.wheel = new TimerWheel(tickMs, System.currentTimeMillis());
+    }
+
+    @Override
+    public void onEvent(OrderEvent event) {
+        if (event.type() == OrderEventType.PLACED) {
+            if (event.expireAt() != null) {
+                schedule(event.orderId(), event.symbol(), event.expireAt());
+            }
+        } else if (event.isTerminal()) {
+            unschedule(event.orderId());
+        }
+    }
+
+    public synchronized void schedule(UUID orderId, String symbol, Instant expireAt) {
+        if (!scheduled.containsKey(orderId)) {
+            scheduled.put(orderId, wheel.schedule(new ExpiryEntry(orderId, symbol, expireAt.toEpochMilli())));
+        }
+    }
+
+    public synchronized void unschedule(UUID orderId) {
+        TimerWheel.Timer timer = scheduled.remove(orderId);
+        if (timer != null) {
+            wheel.cancel(timer);
+        }
+    }
+
+    /**
+     * Removes and returns every still-scheduled order whose deadline has passed.
+     */
+    synchronized List<ExpiryEntry> due(Instant now) {
+        List<ExpiryEntry> due = wheel.advance(now.toEpochMilli());
+        for (ExpiryEntry entry : due) {
+            scheduled.remove(entry.orderId());
+        }
+        return due;
+    }
+
+    public synchronized int size() {
+        return scheduled.size();
+    }
+}
@@ -0,0 +1,73 @@
+package com.commsec.trading.expiry;
+
+import com.commsec.trading.engine.MatchingEngine;
+import com.commsec.trading.engine.OrderState;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Collectors;
+
+/**
+ * Expires DAY and GTD orders as their deadlines pass. Due orders are grouped by
+ * symbol and removed from each book in a single engine hop, which journals the
+ * EXPIRED events together; write-behind then persists them with set-based
+ * updates.
+ */
+@Service
+@Slf4j
+public class OrderExpiryService {
+
+    private final OrderExpiryIndex expiryIndex;
+    private final MatchingEngine matchingEngine;
+    private final Counter ordersExpired;
+    private final Timer sweepTime;
+
+    public OrderExpiryService(OrderExpiryIndex expiryIndex, MatchingEngine matchingEngine,
+                              MeterRegistry meterRegistry) {
+        this.expiryIndex = expiryIndex;
+        this.matchingEngine = matchingEngine;
+
+        this.ordersExpired = Counter.builder("trading.orders.expired")
+            .description("Number of orders expired")
+            .register(meterRegistry);
+
+        this.sweepTime = Timer.builder("trading.expiry.sweep.time")
+            .description("Time to expire the orders due in one sweep")
+            .register(meterRegistry);
+
+        Gauge.builder("trading.expiry.scheduled", expiryIndex, OrderExpiryIndex::size)
+            .description("Number of live orders with a pending expiry")
+            .register(meterRegistry);
+    }
+
+    @Scheduled(fixedDelayString = "${trading.expiry.tick-ms:1000}")
+    public void expireDueOrders() {
+        List<ExpiryEntry> due = expiryIndex.due(Instant.now());
+        if (due.isEmpty()) {
+            return;
+        }
+        sweepTime.record(() -> {
+            Map<String, List<UUID>> bySymbol = due.stream()
+                .collect(Collectors.groupingBy(ExpiryEntry::symbol,
+                    Collectors.mapping(ExpiryEntry::orderId, Collectors.toList())));
+
+            List<CompletableFuture<List<OrderState>>> pending = bySymbol.entrySet().stream()
+                .map(entry -> matchingEngine.expire(entry.getKey(), entry.getValue()))
+                .toList();
+
+            int expired = pending.stream().mapToInt(future -> future.join().size()).sum();
+            ordersExpired.increment(expired);
+            log.info("Expired {} orders across {} symbols", expired, bySymbol.size());
+        });
+    }
+}
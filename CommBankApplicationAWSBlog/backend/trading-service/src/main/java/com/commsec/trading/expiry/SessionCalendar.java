@@ -0,0 +1,41 @@
+package com.commsec.trading.expiry;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.DayOfWeek;
+import java.time.Instant;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+
+/**
+ * Trading session times used to expire DAY orders. Only weekends are treated
+ * as non-trading days.
+ */
+@Component
+public class SessionCalendar {
+
+    private final LocalTime closeTime;
+    private final ZoneId zone;
+
+    public SessionCalendar(@Value("${trading.session.close-time:16:00}") String closeTime,
+                           @Value("${trading.session.zone:Australia/Sydney}") String zone) {
+        this.closeTime = LocalTime.parse(closeTime);
+        this.zone = ZoneId.of(zone);
+    }
+
+    /**
+     * The first session close strictly after the given instant.
+     */
+    public Instant nextClose(Instant after) {
+        ZonedDateTime close = after.atZone(zone).with(closeTime);
+        if (!close.toInstant().isAfter(after)) {
+            close = close.plusDays(1);
+        }
+        while (close.getDayOfWeek() == DayOfWeek.SATURDAY || close.getDayOfWeek() == DayOfWeek.SUNDAY) {
+            close = close.plusDays(1);
+        }
+        return close.toInstant();
+    }
+}
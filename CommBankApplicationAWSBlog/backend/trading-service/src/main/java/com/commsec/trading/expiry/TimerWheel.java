@@ -0,0 +1,221 @@
+package com.commsec.trading.expiry;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Hierarchical timing wheel: five levels of 64 slots, each level's slot
+ * spanning 64 times the one below. With a one second tick this covers about 34
+ * years, so both DAY and GTD deadlines fit without an overflow list; anything
+ * further out is parked at the edge of the range and placed again from there.
+ * <p>
+ * Scheduling and cancelling are O(1): each slot is a doubly linked list of
+ * {@link Timer}s, and a cancelled timer is unlinked from its slot at once
+ * rather than left to be skipped when the slot comes due. An entry is
+ * cascaded to a finer level when its coarse slot comes due, at most once per
+ * level, so advancing costs O(1) amortised per entry no matter how many
+ * deadlines share a tick (e.g. every DAY order at the session close).
+ * Stretches in which nothing can fire or cascade are skipped rather than
+ * stepped through a tick at a time. Not thread-safe.
+ */
+final class TimerWheel {
+
+    private static final int SLOT_BITS = 6;
+    private static final int SLOTS = 1 << SLOT_BITS;
+    private static final int SLOT_MASK = SLOTS - 1;
+    private static final int LEVELS = 5;
+    private static final long MAX_DELTA = (1L << (SLOT_BITS * LEVELS)) - 1;
+
+    /** A scheduled entry and its links within the slot that holds it. */
+    static final class Timer {
+
+        private final ExpiryEntry entry;
+        private Slot slot;
+        private Timer previous;
+        private Timer next;
+
+        private Timer(ExpiryEntry entry) {
+            this.entry = entry;
+        }
+
+        ExpiryEntry entry() {
+            return entry;
+        }
+    }
+
+    private final class Slot {
+
+        /** Level this slot belongs to, or -1 for the overdue list. */
+        private final int level;
+        private Timer head;
+
+        private Slot(int level) {
+            this.level = level;
+        }
+
+        private void add(Timer timer) {
+            count(1);
+            timer.slot = this;
+            timer.previous = null;
+            timer.next = head;
+            if (head != null) {
+                head.previous = timer;
+            }
+            head = timer;
+        }
+
+        private void remove(Timer timer) {
+            count(-1);
+            if (timer.previous != null) {
+                timer.previous.next = timer.next;
+            } else {
+                head = timer.next;
+            }
+            if (timer.next != null) {
+                timer.next.previous = timer.previous;
+            }
+            timer.slot = null;
+            timer.previous = null;
+            timer.next = null;
+        }
+
+        /** Empties the slot, returning its timers unlinked. */
+        private List<Timer> drain() {
+            if (head == null) {
+                return List.of();
+            }
+            List<Timer> timers = new ArrayList<>();
+            Timer timer = head;
+            head = null;
+            while (timer != null) {
+                Timer next = timer.next;
+                timer.slot = null;
+                timer.previous = null;
+                timer.next = null;
+                timers.add(timer);
+                timer = next;
+            }
+            count(-timers.size());
+            return timers;
+        }
+
+        private void count(int delta) {
+            if (level >= 0) {
+                levelSizes[level] += delta;
+            }
+        }
+    }
+
+    private final long tickMs;
+    private final Slot[][] slots;
+    private final int[] levelSizes = new int[LEVELS];
+    private final Slot overdue = new Slot(-1);
+    private long currentTick;
+    private int size;
+
+    TimerWheel(long tickMs, long startMs) {
+        this.tickMs = tickMs;
+        this.slots = new Slot[LEVELS][SLOTS];
+        for (int level = 0; level < LEVELS; level++) {
+            for (int index = 0; index < SLOTS; index++) {
+                slots[level][index] = new Slot(level);
+            }
+        }
+        this.currentTick = startMs / tickMs;
+    }
+
+    Timer schedule(ExpiryEntry entry) {
+        Timer timer = new Timer(entry);
+        size++;
+        place(timer);
+        return timer;
+    }
+
+    /** Takes a timer out of the wheel; does nothing if it has already fired or been cancelled. */
+    void cancel(Timer timer) {
+        if (timer.slot != null) {
+            timer.slot.remove(timer);
+            size--;
+        }
+    }
+
+    /**
+     * Moves the wheel up to {@code nowMs} and returns every entry whose deadline
+     * has passed.
+     */
+    List<ExpiryEntry> advance(long nowMs) {
+        List<ExpiryEntry> due = new ArrayList<>();
+        long target = nowMs / tickMs;
+        while (currentTick < target) {
+            currentTick = nextBusyTick(target);
+            for (int level = LEVELS - 1; level > 0; level--) {
+                if ((currentTick & ((1L << (SLOT_BITS * level)) - 1)) == 0) {
+                    cascade(level);
+                }
+            }
+            for (Timer timer : slots[0][(int) (currentTick & SLOT_MASK)].drain()) {
+                if (tickOf(timer) > currentTick) {
+                    // Clamped to the wheel's range when scheduled; goes round again
+                    place(timer);
+                } else {
+                    due.add(timer.entry);
+                }
+            }
+        }
+        // Scheduled in the past, or cascaded onto the tick just reached
+        for (Timer timer : overdue.drain()) {
+            due.add(timer.entry);
+        }
+        size -= due.size();
+        return due;
+    }
+
+    int size() {
+        return size;
+    }
+
+    private void place(Timer timer) {
+        long tick = tickOf(timer);
+        long delta = tick - currentTick;
+        if (delta <= 0) {
+            overdue.add(timer);
+            return;
+        }
+        if (delta > MAX_DELTA) {
+            delta = MAX_DELTA;
+            tick = currentTick + delta;
+        }
+        int level = 0;
+        while (delta >= (1L << (SLOT_BITS * (level + 1)))) {
+            level++;
+        }
+        slots[level][(int) ((tick >>> (SLOT_BITS * level)) & SLOT_MASK)].add(timer);
+    }
+
+    /**
+     * The next tick, up to {@code target}, on which anything can happen. While
+     * the levels below the lowest occupied one are empty, nothing fires or
+     * cascades until that level's next slot boundary.
+     */
+    private long nextBusyTick(long target) {
+        for (int level = 0; level < LEVELS; level++) {
+            if (levelSizes[level] > 0) {
+                if (level == 0) {
+                    return currentTick + 1;
+                }
+                long span = 1L << (SLOT_BITS * level);
+                return Math.min(target, (currentTick / span + 1) * span);
+            }
+        }
+        return target;
+    }
+
+    /** Rounded up so an entry never fires before its deadline. */
+    private long tickOf(Timer timer) {
+        return Math.floorDiv(timer.entry.deadline() + tickMs - 1, tickMs);
+    }
+
+    private void cascade(int level) {
+        slots[level][(int) ((currentTick >>> (SLOT_BITS * level)) & SLOT_MASK)].drain().forEach(this::place);
+    }
+}
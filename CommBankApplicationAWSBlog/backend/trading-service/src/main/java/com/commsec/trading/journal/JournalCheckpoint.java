@@ -0,0 +1,54 @@
+package com.commsec.trading.journal;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * Sequence of the last journaled event committed to the database, kept in a
+ * file next to the journal. Everything up to it can be read back from the
+ * orders table, so journal segments wholly below it are no longer needed and
+ * recovery only replays what follows it.
+ */
+@Component
+@Slf4j
+public class JournalCheckpoint {
+
+    private static final String CHECKPOINT_FILE = "write-behind.checkpoint";
+
+    private final Path file;
+
+    public JournalCheckpoint(@Value("${trading.journal.directory:data/journal}") String directory) {
+        this.file = Path.of(directory).resolve(CHECKPOINT_FILE);
+    }
+
+    /** The checkpointed sequence, 0 if nothing has been committed. */
+    public long read() {
+        try {
+            return Files.exists(file) ? Long.parseLong(Files.readString(file).trim()) : 0L;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read write-behind checkpoint", e);
+        }
+    }
+
+    /**
+     * Replaces the checkpoint atomically. A failed write only leaves the
+     * checkpoint behind, which costs a longer replay.
+     */
+    void write(long sequence) {
+        try {
+            Files.createDirectories(file.getParent());
+            Path temp = file.resolveSibling(CHECKPOINT_FILE + ".tmp");
+            Files.writeString(temp, Long.toString(sequence));
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            log.warn("Failed to write write-behind checkpoint {}: {}", sequence, e.getMessage());
+        }
+    }
+}
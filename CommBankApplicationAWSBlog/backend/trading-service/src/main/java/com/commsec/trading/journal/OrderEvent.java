@@ -0,0 +1,174 @@
+package com.commsec.trading.journal;
+
+import com.commsec.trading.engine.EngineScale;
+import com.commsec.trading.engine.OrderState;
+import com.commsec.trading.model.*;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * One order lifecycle event as written to the {@link OrderJournal}.
+ * <p>
+ * PLACED events carry the full order; state events carry only the execution
+ * state, with the order-entry fields left empty. Prices and quantities are in
+ * {@link EngineScale} units.
+ */
+public record OrderEvent(
+    long sequence,
+    OrderEventType type,
+    UUID orderId,
+    String accountId,
+    String symbol,
+    OrderSide side,
+    OrderType orderType,
+    TimeInForce timeInForce,
+    long quantity,
+    long limitPrice,
+    long stopPrice,
+    BigDecimal brokerage,
+    Instant expireAt,
+    OrderStatus status,
+    long filledQuantity,
+    long avgFillPrice,
+    long filledNotional,
+    Instant timestamp
+) {
+
+    public static OrderEvent placed(Order order) {
+        return new OrderEvent(
+            0L,
+            OrderEventType.PLACED,
+            order.getId(),
+            order.getAccountId(),
+            order.getSymbol(),
+            order.getSide(),
+            order.getType(),
+            order.getTimeInForce(),
+            EngineScale.toQuantity(order.getQuantity()),
+            EngineScale.toPrice(order.getLimitPrice()),
+            EngineScale.toPrice(order.getStopPrice()),
+            order.getBrokerage(),
+            order.getExpireAt(),
+            OrderStatus.PENDING,
+            0L,
+            0L,
+            0L,
+            order.getSubmittedAt()
+        );
+    }
+
+    public static OrderEvent stateChange(OrderState state) {
+        return new OrderEvent(
+            0L,
+            OrderEventType.forStatus(state.status()),
+            state.orderId(),
+            state.accountId(),
+            state.symbol(),
+            null,
+            null,
+            null,
+            0L,
+            0L,
+            0L,
+            null,
+            null,
+            state.status(),
+            state.filledQuantity(),
+            state.avgFillPrice(),
+            state.filledNotional(),
+            state.timestamp()
+        );
+    }
+
+    /**
+     * The execution state of an order loaded from the database, as the state
+     * event that would have produced it, or null while it is still PENDING.
+     */
+    public static OrderEvent stateOf(Order order) {
+        if (order.getStatus() == OrderStatus.PENDING) {
+            return null;
+        }
+        long filledQuantity = EngineScale.toQuantity(order.getFilledQuantity());
+        long avgFillPrice = EngineScale.toPrice(order.getAvgFillPrice());
+        return stateChange(new OrderState(order.getId(), order.getAccountId(), order.getSymbol(),
+            order.getStatus(), filledQuantity, avgFillPrice, Math.multiplyExact(filledQuantity, avgFillPrice),
+            order.getUpdatedAt() != null ? order.getUpdatedAt() : order.getSubmittedAt()));
+    }
+
+    public OrderEvent withSequence(long sequence) {
+        return new OrderEvent(sequence, type, orderId, accountId, symbol, side, orderType, timeInForce,
+            quantity, limitPrice, stopPrice, brokerage, expireAt, status, filledQuantity, avgFillPrice,
+            filledNotional, timestamp);
+    }
+
+    public boolean isTerminal() {
+        return status == OrderStatus.FILLED
+            || status == OrderStatus.CANCELLED
+            || status == OrderStatus.EXPIRED
+            || status == OrderStatus.REJECTED;
+    }
+
+    /**
+     * Same rule as the guarded UPDATE on the orders table: fills only grow and a
+     * terminal status is final, so events can be merged in any order.
+     */
+    public boolean supersedes(OrderEvent previous) {
+        if (previous == null) {
+            return true;
+        }
+        if (previous.isTerminal()) {
+            return false;
+        }
+        return filledQuantity >= previous.filledQuantity;
+    }
+
+    /**
+     * Copies this event's execution state onto an entity.
+     */
+    public Order applyTo(Order order) {
+        order.setStatus(status);
+        order.setFilledQuantity(EngineScale.fromQuantity(filledQuantity));
+        if (filledQuantity > 0) {
+            order.setAvgFillPrice(EngineScale.fromPrice(avgFillPrice));
+            order.setTotalValue(EngineScale.fromNotional(filledNotional));
+        }
+        if (status == OrderStatus.FILLED) {
+            order.setFilledAt(timestamp);
+        } else if (status == OrderStatus.CANCELLED) {
+            order.setCancelledAt(timestamp);
+        }
+        order.setUpdatedAt(timestamp);
+        return order;
+    }
+
+    /**
+     * Rebuilds the entity for an order from its PLACED event and, if any, its
+     * latest state event.
+     */
+    public static Order toOrder(OrderEvent placed, OrderEvent latest) {
+        Order order = Order.builder()
+            .id(placed.orderId())
+            .accountId(placed.accountId())
+            .symbol(placed.symbol())
+            .side(placed.side())
+            .type(placed.orderType())
+            .status(OrderStatus.PENDING)
+            .quantity(EngineScale.fromQuantity(placed.quantity()))
+            .filledQuantity(BigDecimal.ZERO)
+            .limitPrice(placed.limitPrice() > 0 ? EngineScale.fromPrice(placed.limitPrice()) : null)
+            .stopPrice(placed.stopPrice() > 0 ? EngineScale.fromPrice(placed.stopPrice()) : null)
+            .brokerage(placed.brokerage())
+            .timeInForce(placed.timeInForce())
+            .expireAt(placed.expireAt())
+            .submittedAt(placed.timestamp())
+            .createdAt(placed.timestamp())
+            .updatedAt(placed.timestamp())
+            .build();
+        if (latest != null) {
+            latest.applyTo(order);
+        }
+        return order;
+    }
+}
@@ -0,0 +1,166 @@
+package com.commsec.trading.journal;
+
+import com.commsec.trading.model.OrderSide;
+import com.commsec.trading.model.OrderStatus;
+import com.commsec.trading.model.OrderType;
+import com.commsec.trading.model.TimeInForce;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * Fixed-layout binary encoding of {@link OrderEvent}. Enums are written as
+ * ordinals, so new constants must only ever be appended.
+ */
+final class OrderEventCodec {
+
+    static final int MAX_RECORD_SIZE = 512;
+
+    /**
+     * Longest account id or symbol, in UTF-8 bytes: 50 four-byte characters.
+     * With both at the limit a PLACED event still fits {@link #MAX_RECORD_SIZE}.
+     */
+    static final int MAX_STRING_BYTES = 200;
+
+    private static final byte NULL = -1;
+
+    private OrderEventCodec() {
+    }
+
+    static void encode(OrderEvent event, ByteBuffer out) {
+        out.putLong(event.sequence());
+        out.put((byte) event.type().ordinal());
+        out.putLong(event.orderId().getMostSignificantBits());
+        out.putLong(event.orderId().getLeastSignificantBits());
+        putString(out, event.accountId());
+        putString(out, event.symbol());
+        out.put((byte) event.status().ordinal());
+        out.putLong(event.filledQuantity());
+        out.putLong(event.avgFillPrice());
+        out.putLong(event.filledNotional());
+        putInstant(out, event.timestamp());
+        if (event.type() == OrderEventType.PLACED) {
+            out.put((byte) event.side().ordinal());
+            out.put((byte) event.orderType().ordinal());
+            out.put(event.timeInForce() == null ? NULL : (byte) event.timeInForce().ordinal());
+            out.putLong(event.quantity());
+            out.putLong(event.limitPrice());
+            out.putLong(event.stopPrice());
+            putDecimal(out, event.brokerage());
+            putInstant(out, event.expireAt());
+        }
+    }
+
+    /**
+     * Throws if the event cannot be encoded, so a journal can refuse it
+     * before writing anything.
+     */
+    static void checkEncodable(OrderEvent event) {
+        checkLength(event.accountId(), "Account id");
+        checkLength(event.symbol(), "Symbol");
+    }
+
+    static OrderEvent decode(ByteBuffer in) {
+        long sequence = in.getLong();
+        OrderEventType type = OrderEventType.values()[in.get()];
+        UUID orderId = new UUID(in.getLong(), in.getLong());
+        String accountId = getString(in);
+        String symbol = getString(in);
+        OrderStatus status = OrderStatus.values()[in.get()];
+        long filledQuantity = in.getLong();
+        long avgFillPrice = in.getLong();
+        long filledNotional = in.getLong();
+        Instant timestamp = getInstant(in);
+
+        OrderSide side = null;
+        OrderType orderType = null;
+        TimeInForce timeInForce = null;
+        long quantity = 0L;
+        long limitPrice = 0L;
+        long stopPrice = 0L;
+        BigDecimal brokerage = null;
+        Instant expireAt = null;
+        if (type == OrderEventType.PLACED) {
+            side = OrderSide.values()[in.get()];
+            orderType = OrderType.values()[in.get()];
+            byte tif = in.get();
+            timeInForce = tif == NULL ? null : TimeInForce.values()[tif];
+            quantity = in.getLong();
+            limitPrice = in.getLong();
+            stopPrice = in.getLong();
+            brokerage = getDecimal(in);
+            expireAt = getInstant(in);
+        }
+
+        return new OrderEvent(sequence, type, orderId, accountId, symbol, side, orderType, timeInForce,
+            quantity, limitPrice, stopPrice, brokerage, expireAt, status, filledQuantity, avgFillPrice,
+            filledNotional, timestamp);
+    }
+
+    private static void putString(ByteBuffer out, String value) {
+        if (value == null) {
+            out.putShort((short) -1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length > MAX_STRING_BYTES) {
+            throw new IllegalArgumentException("String of " + bytes.length + " bytes is too long for an order event");
+        }
+        out.putShort((short) bytes.length);
+        out.put(bytes);
+    }
+
+    private static void checkLength(String value, String name) {
+        if (value != null && value.getBytes(StandardCharsets.UTF_8).length > MAX_STRING_BYTES) {
+            throw new IllegalArgumentException(name + " is too long for an order event: " + value.length() + " characters");
+        }
+    }
+
+    private static String getString(ByteBuffer in) {
+        short length = in.getShort();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static void putInstant(ByteBuffer out, Instant value) {
+        if (value == null) {
+            out.putLong(Long.MIN_VALUE);
+            return;
+        }
+        out.putLong(value.getEpochSecond());
+        out.putInt(value.getNano());
+    }
+
+    private static Instant getInstant(ByteBuffer in) {
+        long seconds = in.getLong();
+        if (seconds == Long.MIN_VALUE) {
+            return null;
+        }
+        return Instant.ofEpochSecond(seconds, in.getInt());
+    }
+
+    private static void putDecimal(ByteBuffer out, BigDecimal value) {
+        if (value == null) {
+            out.put(NULL);
+            return;
+        }
+        out.put((byte) value.scale());
+        out.putLong(value.unscaledValue().longValueExact());
+    }
+
+    private static BigDecimal getDecimal(ByteBuffer in) {
+        byte scale = in.get();
+        if (scale == NULL) {
+            return null;
+        }
+        return new BigDecimal(BigInteger.valueOf(in.getLong()), scale);
+    }
+}
@@ -0,0 +1,20 @@
+package com.commsec.trading.journal;
+
+/**
+ * Receives every event after it has been appended to the journal, in journal
+ * order. Called on the journal's single dispatch thread, outside the append
+ * lock; a slow listener delays the others and callers waiting in
+ * {@link OrderJournal#awaitDispatch}, but never order entry's appends.
+ */
+public interface OrderEventListener {
+
+    void onEvent(OrderEvent event);
+
+    /**
+     * Called once when the journal has been opened, with the sequence of the
+     * last event it recovered (0 for a new journal). Events passed to
+     * {@link #onEvent} follow on from it.
+     */
+    default void onJournalOpened(long lastSequence) {
+    }
+}
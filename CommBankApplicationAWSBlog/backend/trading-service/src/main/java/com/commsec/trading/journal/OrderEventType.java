@@ -0,0 +1,25 @@
+package com.commsec.trading.journal;
+
+import com.commsec.trading.model.OrderStatus;
+
+public enum OrderEventType {
+    PLACED,             // Order accepted by the service, not yet worked
+    ACCEPTED,           // Resting on the book with no fills
+    PARTIALLY_FILLED,
+    FILLED,
+    CANCELLED,
+    EXPIRED,
+    REJECTED;
+
+    public static OrderEventType forStatus(OrderStatus status) {
+        return switch (status) {
+            case PENDING -> PLACED;
+            case OPEN -> ACCEPTED;
+            case PARTIALLY_FILLED -> PARTIALLY_FILLED;
+            case FILLED -> FILLED;
+            case CANCELLED -> CANCELLED;
+            case EXPIRED -> EXPIRED;
+            case REJECTED -> REJECTED;
+        };
+    }
+}
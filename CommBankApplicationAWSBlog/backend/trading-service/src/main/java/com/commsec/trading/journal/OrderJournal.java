@@ -0,0 +1,516 @@
+package com.commsec.trading.journal;
+
+import com.commsec.trading.engine.ExecutionJournal;
+import com.commsec.trading.engine.MatchResult;
+import com.commsec.trading.engine.OrderState;
+import com.commsec.trading.model.Order;
+import com.commsec.trading.model.OrderStatus;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only journal of order lifecycle events, written to fixed-size
+ * memory-mapped segment files.
+ * <p>
+ * Each record is {@code [int length][int crc32][body]}. The length is written
+ * last, so a record torn by a crash reads as the end of the journal. A write
+ * reaches the page cache as soon as {@link #append} returns and survives a
+ * process crash; a background thread forces dirty pages to disk every
+ * {@code trading.journal.fsync-interval-ms}, which bounds what an OS crash can
+ * lose without putting an fsync on the order-entry path.
+ * <p>
+ * The append lock only covers sequencing and writing. Appended events are
+ * queued and handed to the listeners in journal order by a single dispatch
+ * thread, so order entry on different engine shards never waits on a
+ * listener; callers that need listeners to have seen their events use
+ * {@link #awaitDispatch}.
+ * <p>
+ * Everything up to the {@link JournalCheckpoint} is in the orders table, so
+ * closed segments wholly at or below it are deleted, or moved to
+ * {@code trading.journal.archive-directory} if one is set, on startup and
+ * whenever the journal rolls. Opening the journal only reads the first record
+ * of each segment and scans the newest one in full.
+ */
+@Component
+@Slf4j
+public class OrderJournal implements ExecutionJournal {
+
+    private static final int HEADER_SIZE = 8;
+    private static final String SEGMENT_SUFFIX = ".journal";
+    private static final List<OrderEvent> STOP = List.of();
+
+    private final Path directory;
+    private final Path archiveDirectory;
+    private final int segmentSize;
+    private final JournalCheckpoint checkpoint;
+    private final List<OrderEventListener> listeners;
+    private final ByteBuffer scratch = ByteBuffer.allocate(OrderEventCodec.MAX_RECORD_SIZE);
+    private final CRC32 crc = new CRC32();
+    private final ScheduledExecutorService flusher;
+    private final ExecutorService dispatcher;
+    private final BlockingQueue<List<OrderEvent>> dispatchQueue = new LinkedBlockingQueue<>();
+    private final Object dispatchMonitor = new Object();
+    private final Timer appendTime;
+    private final Counter eventsAppended;
+    /** First sequence in each segment that has one, by segment index. */
+    private final NavigableMap<Long, Long> segmentStarts = new TreeMap<>();
+
+    private FileChannel channel;
+    private volatile MappedByteBuffer segment;
+    private long segmentIndex;
+    private long nextSequence = 1;
+    private final long lastSequenceAtOpen;
+    private volatile long appendedSequence;
+    private volatile long dispatchedSequence;
+    private volatile boolean dirty;
+
+    public OrderJournal(@Value("${trading.journal.directory:data/journal}") String directory,
+                        @Value("${trading.journal.segment-size-mb:64}") int segmentSizeMb,
+                        @Value("${trading.journal.fsync-interval-ms:5}") long fsyncIntervalMs,
+                        @Value("${trading.journal.archive-directory:}") String archiveDirectory,
+                        JournalCheckpoint checkpoint,
+                        List<OrderEventListener> listeners,
+                        MeterRegistry meterRegistry) throws IOException {
+        this.directory = Path.of(directory);
+        this.archiveDirectory = archiveDirectory.isBlank() ? null : Path.of(archiveDirectory);
+        this.segmentSize = segmentSizeMb * 1024 * 1024;
+        this.checkpoint = checkpoint;
+        this.listeners = listeners;
+
+        Files.createDirectories(this.directory);
+        if (this.archiveDirectory != null) {
+            Files.createDirectories(this.archiveDirectory);
+        }
+        open();
+        this.lastSequenceAtOpen = nextSequence - 1;
+        this.appendedSequence = lastSequenceAtOpen;
+        this.dispatchedSequence = lastSequenceAtOpen;
+        compact(checkpoint.read());
+        for (OrderEventListener listener : listeners) {
+            listener.onJournalOpened(lastSequenceAtOpen);
+        }
+
+        this.appendTime = Timer.builder("trading.journal.append.time")
+            .description("Time to append order events to the journal")
+            .register(meterRegistry);
+
+        this.eventsAppended = Counter.builder("trading.journal.events")
+            .description("Number of order events appended to the journal")
+            .register(meterRegistry);
+
+        Gauge.builder("trading.journal.dispatch.backlog", this,
+                journal -> journal.appendedSequence - journal.dispatchedSequence)
+            .description("Journaled order events not yet handed to the listeners")
+            .register(meterRegistry);
+
+        this.flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "order-journal-fsync");
+            thread.setDaemon(true);
+            return thread;
+        });
+        flusher.scheduleWithFixedDelay(this::force, fsyncIntervalMs, fsyncIntervalMs, TimeUnit.MILLISECONDS);
+
+        this.dispatcher = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "order-journal-dispatch");
+            thread.setDaemon(true);
+            return thread;
+        });
+        dispatcher.execute(this::dispatch);
+
+        log.info("Order journal opened at {} (segment {}, last sequence {})",
+            this.directory.toAbsolutePath(), segmentIndex, lastSequenceAtOpen);
+    }
+
+    public void recordPlaced(Order order) {
+        append(List.of(OrderEvent.placed(order)));
+    }
+
+    /**
+     * Journals a basket of new orders in a single append, so they share one
+     * write and one fsync window.
+     */
+    public void recordPlaced(Collection<Order> orders) {
+        append(orders.stream().map(OrderEvent::placed).toList());
+    }
+
+    @Override
+    public void record(MatchResult result) {
+        List<OrderEvent> events = new ArrayList<>(result.makers().size() + 1);
+        for (OrderState maker : result.makers()) {
+            events.add(OrderEvent.stateChange(maker));
+        }
+        if (result.taker().status() != OrderStatus.PENDING) {
+            events.add(OrderEvent.stateChange(result.taker()));
+        }
+        append(events);
+    }
+
+    @Override
+    public void record(OrderState state) {
+        append(List.of(OrderEvent.stateChange(state)));
+    }
+
+    @Override
+    public void record(List<OrderState> states) {
+        append(states.stream().map(OrderEvent::stateChange).toList());
+    }
+
+    /**
+     * True when the journal held no events at startup, e.g. on first deployment
+     * onto an existing database.
+     */
+    public boolean isEmpty() {
+        return lastSequenceAtOpen == 0;
+    }
+
+    /**
+     * Reads the events after sequence {@code after} in sequence order, skipping
+     * segments that end at or before it. Only meant for startup, before the
+     * engine accepts orders.
+     */
+    public synchronized void replay(long after, Consumer<OrderEvent> consumer) {
+        // The newest segment starting at or before the first wanted event; older ones hold nothing after it
+        long from = segmentStarts.entrySet().stream()
+            .filter(start -> start.getValue() <= after + 1)
+            .mapToLong(Map.Entry::getKey)
+            .max()
+            .orElse(0L);
+        try {
+            for (Path file : segmentFiles()) {
+                if (indexOf(file) < from) {
+                    continue;
+                }
+                try (FileChannel readChannel = FileChannel.open(file, StandardOpenOption.READ)) {
+                    scan(readChannel.map(FileChannel.MapMode.READ_ONLY, 0, readChannel.size()), event -> {
+                        if (event.sequence() > after) {
+                            consumer.accept(event);
+                        }
+                    });
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to replay order journal", e);
+        }
+    }
+
+    /**
+     * Waits until the listeners have been handed every event appended so far,
+     * without holding the append lock. Order entry calls this once the engine
+     * has answered, so a caller reads its own orders from the listeners' views.
+     */
+    public void awaitDispatch() {
+        long target = appendedSequence;
+        if (dispatchedSequence >= target) {
+            return;
+        }
+        synchronized (dispatchMonitor) {
+            while (dispatchedSequence < target) {
+                try {
+                    dispatchMonitor.wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IllegalStateException("Interrupted while waiting for order event " + target
+                        + " to be dispatched", e);
+                }
+            }
+        }
+    }
+
+    /**
+     * Appends events atomically with respect to other appends and queues them
+     * for the listeners in journal order. Never waits on a listener.
+     */
+    synchronized void append(List<OrderEvent> events) {
+        if (events.isEmpty()) {
+            return;
+        }
+        // Refused before any sequence is taken, so a bad event never leaves part of a batch written
+        events.forEach(OrderEventCodec::checkEncodable);
+        long start = System.nanoTime();
+        List<OrderEvent> sequenced = new ArrayList<>(events.size());
+        for (OrderEvent event : events) {
+            OrderEvent next = event.withSequence(nextSequence++);
+            write(next);
+            sequenced.add(next);
+        }
+        dirty = true;
+        appendedSequence = nextSequence - 1;
+        dispatchQueue.add(sequenced);
+        eventsAppended.increment(events.size());
+        appendTime.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Lets the listeners finish what was already appended, then closes the
+     * current segment.
+     */
+    @PreDestroy
+    public void close() throws IOException {
+        dispatchQueue.add(STOP);
+        dispatcher.shutdown();
+        try {
+            if (!dispatcher.awaitTermination(10, TimeUnit.SECONDS)) {
+                log.warn("{} order events not dispatched at shutdown; they will be replayed from the journal",
+                    appendedSequence - dispatchedSequence);
+                dispatcher.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            dispatcher.shutdownNow();
+        }
+        synchronized (this) {
+            flusher.shutdown();
+            segment.force();
+            channel.close();
+        }
+    }
+
+    /**
+     * Runs on the dispatch thread. A failing listener is logged and skipped so
+     * it cannot hold back the others.
+     */
+    private void dispatch() {
+        try {
+            while (true) {
+                List<OrderEvent> batch = dispatchQueue.take();
+                if (batch == STOP) {
+                    return;
+                }
+                for (OrderEvent event : batch) {
+                    for (OrderEventListener listener : listeners) {
+                        try {
+                            listener.onEvent(event);
+                        } catch (RuntimeException e) {
+                            log.error("Order event listener {} failed on event {}: {}",
+                                listener.getClass().getSimpleName(), event.sequence(), e.getMessage(), e);
+                        }
+                    }
+                }
+                dispatchedSequence = batch.get(batch.size() - 1).sequence();
+                synchronized (dispatchMonitor) {
+                    dispatchMonitor.notifyAll();
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void write(OrderEvent event) {
+        scratch.clear();
+        OrderEventCodec.encode(event, scratch);
+        scratch.flip();
+        int length = scratch.remaining();
+
+        if (segment.remaining() < HEADER_SIZE + length + HEADER_SIZE) {
+            roll();
+        }
+
+        crc.reset();
+        crc.update(scratch.array(), 0, length);
+        int position = segment.position();
+        if (position == 0) {
+            segmentStarts.put(segmentIndex, event.sequence());
+        }
+        segment.putInt(position + 4, (int) crc.getValue());
+        segment.put(position + HEADER_SIZE, scratch.array(), 0, length);
+        segment.putInt(position, length);
+        segment.position(position + HEADER_SIZE + length);
+    }
+
+    /**
+     * Runs outside the append lock so a slow fsync never stalls order entry.
+     */
+    private void force() {
+        if (dirty) {
+            dirty = false;
+            segment.force();
+        }
+    }
+
+    private void roll() {
+        try {
+            segment.force();
+            channel.close();
+            mapSegment(segmentIndex + 1);
+            log.info("Order journal rolled to segment {}", segmentIndex);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to roll order journal segment", e);
+        }
+        compact(checkpoint.read());
+    }
+
+    /**
+     * Retires closed segments whose every event is at or below the checkpoint,
+     * i.e. the segment after them starts no later than {@code checkpoint + 1}.
+     * A segment that cannot be removed is left for the next attempt.
+     */
+    private void compact(long checkpoint) {
+        Iterator<Map.Entry<Long, Long>> starts = segmentStarts.entrySet().iterator();
+        if (!starts.hasNext()) {
+            return;
+        }
+        Map.Entry<Long, Long> current = starts.next();
+        while (starts.hasNext()) {
+            Map.Entry<Long, Long> next = starts.next();
+            if (current.getKey() >= segmentIndex || next.getValue() - 1 > checkpoint) {
+                return;
+            }
+            Path file = segmentPath(current.getKey());
+            try {
+                if (archiveDirectory != null) {
+                    Files.move(file, archiveDirectory.resolve(file.getFileName()), StandardCopyOption.REPLACE_EXISTING);
+                } else {
+                    Files.deleteIfExists(file);
+                }
+            } catch (IOException e) {
+                log.warn("Failed to retire order journal segment {}: {}", file, e.getMessage());
+                return;
+            }
+            log.info("Retired order journal segment {} (checkpoint {})", current.getKey(), checkpoint);
+            segmentStarts.remove(current.getKey());
+            current = next;
+        }
+    }
+
+    /**
+     * Records where each segment starts, then scans the newest segment that
+     * holds anything to find the last sequence and the write position, and
+     * clears the rest of the newest segment so a torn tail can never be read
+     * back.
+     */
+    private void open() throws IOException {
+        List<Path> files = segmentFiles();
+        if (files.isEmpty()) {
+            mapSegment(0);
+            return;
+        }
+        for (Path file : files) {
+            try (FileChannel readChannel = FileChannel.open(file, StandardOpenOption.READ)) {
+                OrderEvent first = first(readChannel.map(FileChannel.MapMode.READ_ONLY, 0, readChannel.size()));
+                if (first != null) {
+                    segmentStarts.put(indexOf(file), first.sequence());
+                }
+            }
+        }
+
+        Path last = files.get(files.size() - 1);
+        int end = 0;
+        // A crash straight after a roll leaves the newest segment empty; the sequence carries on from an older one
+        for (int i = files.size() - 1; i >= 0 && nextSequence == 1; i--) {
+            try (FileChannel readChannel = FileChannel.open(files.get(i), StandardOpenOption.READ)) {
+                int position = scan(readChannel.map(FileChannel.MapMode.READ_ONLY, 0, readChannel.size()),
+                    event -> nextSequence = event.sequence() + 1);
+                if (i == files.size() - 1) {
+                    end = position;
+                }
+            }
+        }
+
+        mapSegment(indexOf(last));
+        segment.position(end);
+        byte[] zeros = new byte[8192];
+        for (int position = end; position < segment.limit(); position += zeros.length) {
+            segment.put(position, zeros, 0, Math.min(zeros.length, segment.limit() - position));
+        }
+        segment.force();
+    }
+
+    /**
+     * Decodes records until the first empty or corrupt one and returns the
+     * position after the last valid record.
+     */
+    private int scan(ByteBuffer buffer, Consumer<OrderEvent> consumer) {
+        CRC32 check = new CRC32();
+        int position = 0;
+        ByteBuffer body;
+        while ((body = record(buffer, position, check)) != null) {
+            consumer.accept(OrderEventCodec.decode(body));
+            position += HEADER_SIZE + body.limit();
+        }
+        return position;
+    }
+
+    /** The first valid record in a segment, or null if there is none. */
+    private OrderEvent first(ByteBuffer buffer) {
+        ByteBuffer body = record(buffer, 0, new CRC32());
+        return body == null ? null : OrderEventCodec.decode(body);
+    }
+
+    /** The body of the record at {@code position}, or null if it is empty or corrupt. */
+    private ByteBuffer record(ByteBuffer buffer, int position, CRC32 check) {
+        if (position + HEADER_SIZE > buffer.limit()) {
+            return null;
+        }
+        int length = buffer.getInt(position);
+        if (length <= 0 || length > OrderEventCodec.MAX_RECORD_SIZE
+                || position + HEADER_SIZE + length > buffer.limit()) {
+            return null;
+        }
+        ByteBuffer body = buffer.slice(position + HEADER_SIZE, length);
+        check.reset();
+        check.update(body.duplicate());
+        if ((int) check.getValue() != buffer.getInt(position + 4)) {
+            log.warn("Order journal record at {} failed its checksum, treating it as the end", position);
+            return null;
+        }
+        return body;
+    }
+
+    private void mapSegment(long index) throws IOException {
+        channel = FileChannel.open(segmentPath(index),
+            StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        segment = channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentSize);
+        segmentIndex = index;
+    }
+
+    private Path segmentPath(long index) {
+        return directory.resolve(String.format("%010d%s", index, SEGMENT_SUFFIX));
+    }
+
+    private static long indexOf(Path file) {
+        String name = file.getFileName().toString();
+        return Long.parseLong(name.substring(0, name.length() - SEGMENT_SUFFIX.length()));
+    }
+
+    private List<Path> segmentFiles() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files
+                .filter(file -> file.getFileName().toString().endsWith(SEGMENT_SUFFIX))
+                .sorted()
+                .toList();
+        }
+    }
+}
@@ -0,0 +1,282 @@
+package com.commsec.trading.journal;
+
+import com.commsec.trading.engine.EngineScale;
+import com.commsec.trading.model.Order;
+import com.commsec.trading.repository.OrderJdbcRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.function.Supplier;
+
+/**
+ * Feeds journaled order events into Postgres in the background. Events are
+ * drained in batches, coalesced to one insert and one guarded update per order,
+ * and written in a single JDBC batch transaction. Plain expiries are folded
+ * into one set-based update.
+ * <p>
+ * Until an event has been committed, {@link #find} overlays it on whatever the
+ * database returns, so callers always read their own writes. The sequence of
+ * the last committed event is checkpointed next to the journal; on restart
+ * everything after it is replayed through {@link #resubmit}.
+ * <p>
+ * A batch the database refuses as invalid, rather than failing to reach it, is
+ * written again one order at a time. Orders that are still refused are logged,
+ * counted and appended to {@code write-behind.rejected} next to the journal,
+ * and the rest of the batch goes through. Any other failure retries the whole
+ * batch.
+ */
+@Component
+@Slf4j
+public class OrderWriteBehind implements OrderEventListener {
+
+    private static final String REJECTED_FILE = "write-behind.rejected";
+
+    private final OrderJdbcRepository orderJdbcRepository;
+    private final BlockingQueue<OrderEvent> queue;
+    private final Map<UUID, PendingOrder> unflushed = new ConcurrentHashMap<>();
+    private final JournalCheckpoint checkpoint;
+    private final Path rejectedFile;
+    private final int maxBatchSize;
+    private final Timer flushTime;
+    private final Counter rejectedOrders;
+    private List<OrderEvent> retry = List.of();
+
+    public OrderWriteBehind(OrderJdbcRepository orderJdbcRepository,
+                            JournalCheckpoint checkpoint,
+                            @Value("${trading.journal.directory:data/journal}") String directory,
+                            @Value("${trading.write-behind.queue-capacity:100000}") int queueCapacity,
+                            @Value("${trading.write-behind.max-batch-size:500}") int maxBatchSize,
+                            MeterRegistry meterRegistry) {
+        this.orderJdbcRepository = orderJdbcRepository;
+        this.queue = new LinkedBlockingQueue<>(queueCapacity);
+        this.checkpoint = checkpoint;
+        this.rejectedFile = Path.of(directory).resolve(REJECTED_FILE);
+        this.maxBatchSize = maxBatchSize;
+
+        this.flushTime = Timer.builder("trading.write-behind.flush.time")
+            .description("Time to write a batch of order events to the database")
+            .register(meterRegistry);
+
+        this.rejectedOrders = Counter.builder("trading.write-behind.rejected")
+            .description("Orders the database refused, set aside so the rest of their batch could be written")
+            .register(meterRegistry);
+
+        Gauge.builder("trading.write-behind.queue.size", queue, BlockingQueue::size)
+            .description("Journaled order events waiting to be written to the database")
+            .register(meterRegistry);
+    }
+
+    /**
+     * Blocks the journal's dispatch thread when the queue is full. Order entry
+     * waits for dispatch before answering, so the push-back still reaches it
+     * rather than letting the database fall arbitrarily far behind the journal.
+     */
+    @Override
+    public void onEvent(OrderEvent event) {
+        unflushed.compute(event.orderId(), (id, pending) -> PendingOrder.merge(pending, event));
+        try {
+            queue.put(event);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while queueing order event " + event.sequence(), e);
+        }
+    }
+
+    /**
+     * Queues events replayed from the journal that were never committed to the
+     * database.
+     */
+    public void resubmit(List<OrderEvent> events) {
+        events.forEach(this::onEvent);
+        log.info("Resubmitted {} journaled order events for write-behind", events.size());
+    }
+
+    /**
+     * Looks up an order, preferring state that has not reached the database yet.
+     * Pending state is captured before the database is read, so a flush that
+     * lands in between can only make the database copy newer.
+     */
+    public Optional<Order> find(UUID orderId, Supplier<Optional<Order>> persisted) {
+        PendingOrder pending = unflushed.get(orderId);
+        if (pending != null && pending.placed() != null) {
+            return Optional.of(OrderEvent.toOrder(pending.placed(), pending.latest()));
+        }
+        Optional<Order> order = persisted.get();
+        if (pending != null && pending.latest() != null) {
+            order.filter(o -> !isTerminal(o) && pending.latest().filledQuantity() >= scaledFills(o))
+                .ifPresent(pending.latest()::applyTo);
+        }
+        return order;
+    }
+
+    /**
+     * Sequence of the last event committed to the database, 0 if none.
+     */
+    public long checkpoint() {
+        return checkpoint.read();
+    }
+
+    @Scheduled(fixedDelayString = "${trading.write-behind.flush-interval-ms:20}")
+    public synchronized void flush() {
+        try {
+            if (!retry.isEmpty()) {
+                write(retry);
+                retry = List.of();
+            }
+            List<OrderEvent> batch = new ArrayList<>(maxBatchSize);
+            while (queue.drainTo(batch, maxBatchSize) > 0) {
+                retry = batch;
+                write(batch);
+                retry = List.of();
+                batch = new ArrayList<>(maxBatchSize);
+            }
+        } catch (RuntimeException e) {
+            log.error("Write-behind of {} order events failed, will retry: {}", retry.size(), e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flush();
+        if (!queue.isEmpty() || !retry.isEmpty()) {
+            log.warn("{} order events not written to the database; they will be replayed from the journal",
+                queue.size() + retry.size());
+        }
+    }
+
+    private void write(List<OrderEvent> batch) {
+        try {
+            persist(batch);
+        } catch (DataIntegrityViolationException e) {
+            log.warn("Database refused a batch of {} order events, writing them one order at a time: {}",
+                batch.size(), e.getMessage());
+            Map<UUID, List<OrderEvent>> byOrder = new LinkedHashMap<>();
+            for (OrderEvent event : batch) {
+                byOrder.computeIfAbsent(event.orderId(), id -> new ArrayList<>()).add(event);
+            }
+            for (List<OrderEvent> events : byOrder.values()) {
+                try {
+                    persist(events);
+                } catch (DataIntegrityViolationException refused) {
+                    reject(events, refused);
+                }
+            }
+        }
+
+        long sequence = batch.get(batch.size() - 1).sequence();
+        checkpoint.write(sequence);
+        for (OrderEvent event : batch) {
+            unflushed.computeIfPresent(event.orderId(),
+                (id, pending) -> pending.sequence() <= sequence ? null : pending);
+        }
+    }
+
+    private void persist(List<OrderEvent> batch) {
+        Map<UUID, OrderEvent> placed = new LinkedHashMap<>();
+        Map<UUID, OrderEvent> latest = new LinkedHashMap<>();
+        Set<UUID> expiredOnly = new HashSet<>();
+        for (OrderEvent event : batch) {
+            UUID orderId = event.orderId();
+            if (event.type() == OrderEventType.PLACED) {
+                placed.put(orderId, event);
+                continue;
+            }
+            // An expiry with no other event for the order in this batch changes only the status
+            if (event.type() == OrderEventType.EXPIRED && !placed.containsKey(orderId) && !latest.containsKey(orderId)) {
+                expiredOnly.add(orderId);
+            } else {
+                expiredOnly.remove(orderId);
+            }
+            latest.merge(orderId, event, (previous, next) -> next.supersedes(previous) ? next : previous);
+        }
+
+        List<Order> inserts = placed.values().stream()
+            .map(event -> OrderEvent.toOrder(event, latest.get(event.orderId())))
+            .toList();
+        List<Order> updates = latest.values().stream()
+            .filter(event -> !expiredOnly.contains(event.orderId()))
+            .map(event -> event.applyTo(Order.builder().id(event.orderId()).build()))
+            .toList();
+        Map<UUID, Instant> expired = new LinkedHashMap<>();
+        for (UUID orderId : expiredOnly) {
+            expired.put(orderId, latest.get(orderId).timestamp());
+        }
+
+        flushTime.record(() -> orderJdbcRepository.writeBatch(inserts, updates, expired));
+    }
+
+    /**
+     * Sets aside an order the database will not take. Its events stay in the
+     * journal; the record here is for whoever repairs the row by hand.
+     */
+    private void reject(List<OrderEvent> events, RuntimeException e) {
+        rejectedOrders.increment();
+        log.error("Order {} refused by the database and left out of write-behind: {}",
+            events.get(0).orderId(), e.getMessage());
+        StringBuilder lines = new StringBuilder();
+        for (OrderEvent event : events) {
+            lines.append(event).append(System.lineSeparator());
+        }
+        try {
+            Files.writeString(rejectedFile, lines, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        } catch (IOException io) {
+            log.warn("Failed to record rejected order {}: {}", events.get(0).orderId(), io.getMessage());
+        }
+    }
+
+    private static boolean isTerminal(Order order) {
+        return switch (order.getStatus()) {
+            case FILLED, CANCELLED, REJECTED, EXPIRED -> true;
+            default -> false;
+        };
+    }
+
+    private static long scaledFills(Order order) {
+        return EngineScale.toQuantity(order.getFilledQuantity());
+    }
+
+    /**
+     * What is known about an order beyond the database: its PLACED event if the
+     * row has not been inserted yet, the latest superseding state, and the
+     * sequence of the newest event seen for it.
+     */
+    private record PendingOrder(OrderEvent placed, OrderEvent latest, long sequence) {
+
+        static PendingOrder merge(PendingOrder pending, OrderEvent event) {
+            if (pending == null) {
+                return event.type() == OrderEventType.PLACED
+                    ? new PendingOrder(event, null, event.sequence())
+                    : new PendingOrder(null, event, event.sequence());
+            }
+            if (event.type() == OrderEventType.PLACED) {
+                return new PendingOrder(event, pending.latest(), event.sequence());
+            }
+            OrderEvent latest = event.supersedes(pending.latest()) ? event : pending.latest();
+            return new PendingOrder(pending.placed(), latest, event.sequence());
+        }
+    }
+}
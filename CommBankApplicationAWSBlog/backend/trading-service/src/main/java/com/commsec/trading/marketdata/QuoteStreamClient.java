@@ -0,0 +1,121 @@
+package com.commsec.trading.marketdata;
+
+import com.commsec.trading.dto.QuoteTick;
+import com.commsec.trading.engine.EngineScale;
+import com.commsec.trading.engine.MatchingEngine;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PreDestroy;
+import jakarta.websocket.ContainerProvider;
+import jakarta.websocket.WebSocketContainer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.messaging.converter.MappingJackson2MessageConverter;
+import org.springframework.messaging.simp.stomp.StompFrameHandler;
+import org.springframework.messaging.simp.stomp.StompHeaders;
+import org.springframework.messaging.simp.stomp.StompSession;
+import org.springframework.messaging.simp.stomp.StompSessionHandlerAdapter;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.client.standard.StandardWebSocketClient;
+import org.springframework.web.socket.messaging.WebSocketStompClient;
+
+import java.lang.reflect.Type;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * STOMP subscriber for market-data-service's quote stream. Every tick's last
+ * price is handed to the {@link MatchingEngine} so armed stop orders can fire.
+ * The connection is (re)established by a fixed-delay check rather than from
+ * inside error callbacks.
+ * <p>
+ * The risk engine prices market orders from these last prices, so the whole
+ * universe is needed and the broadcast topic is used rather than per-symbol
+ * destinations. The broadcast is split into frames of
+ * {@code market.feed.broadcast-batch-size} quotes; the STOMP and WebSocket
+ * inbound limits are raised to {@code trading.market-data.max-frame-kb} so a
+ * frame is never refused, which would drop the connection and stall stops.
+ */
+@Component
+@Slf4j
+public class QuoteStreamClient extends StompSessionHandlerAdapter {
+
+    private static final String QUOTES_TOPIC = "/topic/quotes";
+
+    private final MatchingEngine matchingEngine;
+    private final WebSocketStompClient stompClient;
+    private final String streamUrl;
+    private final AtomicBoolean connecting = new AtomicBoolean();
+    private volatile StompSession session;
+
+    public QuoteStreamClient(MatchingEngine matchingEngine,
+                             ObjectMapper objectMapper,
+                             @Value("${trading.market-data.stream-url}") String streamUrl,
+                             @Value("${trading.market-data.max-frame-kb:512}") int maxFrameKb) {
+        this.matchingEngine = matchingEngine;
+        this.streamUrl = streamUrl;
+
+        MappingJackson2MessageConverter converter = new MappingJackson2MessageConverter();
+        converter.setObjectMapper(objectMapper);
+        WebSocketContainer container = ContainerProvider.getWebSocketContainer();
+        container.setDefaultMaxTextMessageBufferSize(maxFrameKb * 1024);
+        this.stompClient = new WebSocketStompClient(new StandardWebSocketClient(container));
+        this.stompClient.setInboundMessageSizeLimit(maxFrameKb * 1024);
+        this.stompClient.setMessageConverter(converter);
+    }
+
+    @Scheduled(fixedDelayString = "${trading.market-data.reconnect-interval-ms:5000}")
+    public void ensureConnected() {
+        StompSession current = session;
+        if (current != null && current.isConnected()) {
+            return;
+        }
+        if (!connecting.compareAndSet(false, true)) {
+            return;
+        }
+        log.info("Connecting to market data stream at {}", streamUrl);
+        stompClient.connectAsync(streamUrl, this).whenComplete((connected, ex) -> {
+            connecting.set(false);
+            if (ex != null) {
+                log.warn("Market data stream connection failed: {}", ex.getMessage());
+            }
+        });
+    }
+
+    @Override
+    public void afterConnected(StompSession session, StompHeaders connectedHeaders) {
+        this.session = session;
+        session.subscribe(QUOTES_TOPIC, new StompFrameHandler() {
+            @Override
+            public Type getPayloadType(StompHeaders headers) {
+                return QuoteTick[].class;
+            }
+
+            @Override
+            public void handleFrame(StompHeaders headers, Object payload) {
+                onQuotes((QuoteTick[]) payload);
+            }
+        });
+        log.info("Subscribed to {} on {}", QUOTES_TOPIC, streamUrl);
+    }
+
+    @Override
+    public void handleTransportError(StompSession session, Throwable exception) {
+        log.warn("Market data stream transport error: {}", exception.getMessage());
+    }
+
+    @PreDestroy
+    public void disconnect() {
+        StompSession current = session;
+        if (current != null && current.isConnected()) {
+            current.disconnect();
+        }
+    }
+
+    private void onQuotes(QuoteTick[] ticks) {
+        for (QuoteTick tick : ticks) {
+            if (tick.getSymbol() != null && tick.getLastPrice() != null) {
+                matchingEngine.onTick(tick.getSymbol(), EngineScale.toPrice(tick.getLastPrice()));
+            }
+        }
+    }
+}
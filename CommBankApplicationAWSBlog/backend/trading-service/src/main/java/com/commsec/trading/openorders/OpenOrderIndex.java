@@ -0,0 +1,183 @@
+package com.commsec.trading.openorders;
+
+import com.commsec.trading.dto.OrderResponse;
+import com.commsec.trading.journal.OrderEvent;
+import com.commsec.trading.journal.OrderEventListener;
+import com.commsec.trading.journal.OrderEventType;
+import com.commsec.trading.model.Order;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Every account's open orders, kept in memory from the order journal so that
+ * the open-orders query never reaches the database.
+ * <p>
+ * An account's orders are an immutable map replaced on each event, so readers
+ * take no lock. Only the PLACED event and the latest state event of each live
+ * order are held, and an order leaves the index when it reaches a terminal
+ * state, so an account with nothing open costs nothing. The response list is
+ * rendered on first read and kept until the account changes or goes
+ * {@code trading.open-orders.idle-ms} without being read.
+ */
+@Component
+@Slf4j
+public class OpenOrderIndex implements OrderEventListener {
+
+    private record OpenOrder(OrderEvent placed, OrderEvent latest) {
+
+        OrderResponse render() {
+            return OrderResponse.fromEntity(OrderEvent.toOrder(placed, latest));
+        }
+    }
+
+    private static final class AccountOrders {
+
+        final Map<UUID, OpenOrder> orders;
+        volatile List<OrderResponse> view;
+        volatile long lastReadMillis;
+
+        AccountOrders(Map<UUID, OpenOrder> orders) {
+            this.orders = orders;
+        }
+
+        List<OrderResponse> view(long now) {
+            lastReadMillis = now;
+            List<OrderResponse> rendered = view;
+            if (rendered == null) {
+                List<OrderResponse> responses = new ArrayList<>(orders.size());
+                orders.values().forEach(order -> responses.add(order.render()));
+                rendered = Collections.unmodifiableList(responses);
+                view = rendered;
+            }
+            return rendered;
+        }
+    }
+
+    private final Map<String, AccountOrders> accounts = new ConcurrentHashMap<>();
+    private final long idleMillis;
+    private final Counter reads;
+    private final Counter renders;
+
+    public OpenOrderIndex(MeterRegistry meterRegistry,
+                          @Value("${trading.open-orders.idle-ms:300000}") long idleMillis) {
+        this.idleMillis = idleMillis;
+
+        this.reads = Counter.builder("trading.open-orders.reads")
+            .description("Open-order queries served from memory")
+            .register(meterRegistry);
+
+        this.renders = Counter.builder("trading.open-orders.renders")
+            .description("Open-order queries that had to render the account's orders")
+            .register(meterRegistry);
+
+        Gauge.builder("trading.open-orders.accounts", accounts, Map::size)
+            .description("Accounts with at least one open order")
+            .register(meterRegistry);
+
+        Gauge.builder("trading.open-orders.orders", this, OpenOrderIndex::orderCount)
+            .description("Open orders held in the index")
+            .register(meterRegistry);
+    }
+
+    /** The account's open orders in the order they were placed. */
+    public List<OrderResponse> openOrders(String accountId) {
+        reads.increment();
+        AccountOrders account = accounts.get(accountId);
+        if (account == null) {
+            return List.of();
+        }
+        if (account.view == null) {
+            renders.increment();
+        }
+        return account.view(System.currentTimeMillis());
+    }
+
+    @Override
+    public void onEvent(OrderEvent event) {
+        if (event.type() == OrderEventType.PLACED) {
+            put(event.accountId(), event.orderId(), new OpenOrder(event, null));
+        } else {
+            update(event);
+        }
+    }
+
+    /** Adds a live order during startup recovery. */
+    public void restore(Order order) {
+        put(order.getAccountId(), order.getId(), new OpenOrder(OrderEvent.placed(order), OrderEvent.stateOf(order)));
+    }
+
+    /**
+     * Drops the rendered responses of accounts that have not been read for
+     * {@code trading.open-orders.idle-ms}; their orders stay indexed.
+     */
+    @Scheduled(fixedDelayString = "${trading.open-orders.sweep-interval-ms:60000}")
+    public void evictIdle() {
+        long cutoff = System.currentTimeMillis() - idleMillis;
+        int evicted = 0;
+        for (AccountOrders account : accounts.values()) {
+            if (account.view != null && account.lastReadMillis < cutoff) {
+                account.view = null;
+                evicted++;
+            }
+        }
+        if (evicted > 0) {
+            log.debug("Evicted open-order views of {} idle accounts", evicted);
+        }
+    }
+
+    private void put(String accountId, UUID orderId, OpenOrder order) {
+        accounts.compute(accountId, (id, current) -> {
+            Map<UUID, OpenOrder> orders = current != null ? new LinkedHashMap<>(current.orders) : new LinkedHashMap<>();
+            orders.putIfAbsent(orderId, order);
+            return replaced(current, orders);
+        });
+    }
+
+    private void update(OrderEvent event) {
+        accounts.computeIfPresent(event.accountId(), (id, current) -> {
+            OpenOrder order = current.orders.get(event.orderId());
+            if (order == null || !event.supersedes(order.latest())) {
+                return current;
+            }
+            Map<UUID, OpenOrder> orders = new LinkedHashMap<>(current.orders);
+            if (event.isTerminal()) {
+                orders.remove(event.orderId());
+                if (orders.isEmpty()) {
+                    return null;
+                }
+            } else {
+                orders.put(event.orderId(), new OpenOrder(order.placed(), event));
+            }
+            return replaced(current, orders);
+        });
+    }
+
+    private static AccountOrders replaced(AccountOrders current, Map<UUID, OpenOrder> orders) {
+        AccountOrders next = new AccountOrders(Collections.unmodifiableMap(orders));
+        if (current != null) {
+            next.lastReadMillis = current.lastReadMillis;
+        }
+        return next;
+    }
+
+    private double orderCount() {
+        long count = 0;
+        for (AccountOrders account : accounts.values()) {
+            count += account.orders.size();
+        }
+        return count;
+    }
+}
@@ -0,0 +1,112 @@
+package com.commsec.trading.outbox;
+
+import com.commsec.trading.dto.FillMessage;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Moves fills from the outbox to portfolio-service. A batch is leased to this
+ * relay in one short statement, delivered with no transaction or row lock
+ * held, then deleted; a failed delivery releases the lease. Rows are removed
+ * only once delivered. A crash after delivery, or a delivery that outlasts
+ * {@code trading.outbox.lease-ms}, sends them again, which the consumer
+ * tolerates. Several replicas can relay at once without sharing rows.
+ * <p>
+ * Delivery blocks on portfolio-service, so the relay polls on a thread of
+ * its own rather than Spring's shared scheduler: a slow or hung consumer must
+ * not hold up write-behind, expiry or depth publishing.
+ */
+@Component
+@Slf4j
+public class FillOutboxRelay {
+
+    private final FillOutboxRepository fillOutboxRepository;
+    private final FillPublisher fillPublisher;
+    private final String relayId = UUID.randomUUID().toString();
+    private final int batchSize;
+    private final long leaseMillis;
+    private final Counter fillsPublished;
+    private final Counter publishFailures;
+    private final Timer publishTime;
+    private final ScheduledExecutorService poller;
+
+    public FillOutboxRelay(FillOutboxRepository fillOutboxRepository,
+                           FillPublisher fillPublisher,
+                           MeterRegistry meterRegistry,
+                           @Value("${trading.outbox.batch-size:500}") int batchSize,
+                           @Value("${trading.outbox.lease-ms:30000}") long leaseMillis,
+                           @Value("${trading.outbox.poll-interval-ms:100}") long pollIntervalMs) {
+        this.fillOutboxRepository = fillOutboxRepository;
+        this.fillPublisher = fillPublisher;
+        this.batchSize = batchSize;
+        this.leaseMillis = leaseMillis;
+
+        this.fillsPublished = Counter.builder("trading.outbox.fills.published")
+            .description("Outbox fills delivered to portfolio-service")
+            .register(meterRegistry);
+
+        this.publishFailures = Counter.builder("trading.outbox.publish.failures")
+            .description("Outbox batches that failed to deliver and were left for retry")
+            .register(meterRegistry);
+
+        this.publishTime = Timer.builder("trading.outbox.publish.time")
+            .description("Time to deliver one batch of outbox fills")
+            .register(meterRegistry);
+
+        this.poller = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "fill-outbox-relay");
+            thread.setDaemon(true);
+            return thread;
+        });
+        // A zero interval leaves relaying to the caller
+        if (pollIntervalMs > 0) {
+            poller.scheduleWithFixedDelay(this::relay, pollIntervalMs, pollIntervalMs, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    public void relay() {
+        try {
+            int sent;
+            do {
+                sent = relayBatch();
+            } while (sent == batchSize);
+        } catch (RuntimeException e) {
+            publishFailures.increment();
+            log.warn("Fill outbox delivery failed, will retry: {}", e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        poller.shutdownNow();
+    }
+
+    private int relayBatch() {
+        Instant now = Instant.now();
+        List<FillMessage> fills = fillOutboxRepository.claim(relayId, now, now.plusMillis(leaseMillis), batchSize);
+        if (fills.isEmpty()) {
+            return 0;
+        }
+        try {
+            publishTime.record(() -> fillPublisher.publish(fills));
+        } catch (RuntimeException e) {
+            fillOutboxRepository.release(relayId, fills);
+            throw e;
+        }
+        fillOutboxRepository.delete(fills);
+        fillsPublished.increment(fills.size());
+        return fills.size();
+    }
+}
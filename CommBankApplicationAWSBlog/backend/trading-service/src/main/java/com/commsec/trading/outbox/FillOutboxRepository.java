@@ -0,0 +1,89 @@
+package com.commsec.trading.outbox;
+
+import com.commsec.trading.dto.FillMessage;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.UUID;
+
+@Repository
+@RequiredArgsConstructor
+public class FillOutboxRepository {
+
+    /**
+     * Leases the oldest unclaimed or lapsed rows to one relay. A single
+     * statement, so its row locks end with it; rows another claim has locked
+     * are skipped rather than waited on.
+     */
+    private static final String CLAIM = """
+        UPDATE fill_outbox SET claimed_by = ?, claimed_until = ?
+        WHERE id IN (
+            SELECT id FROM fill_outbox
+            WHERE claimed_until IS NULL OR claimed_until < ?
+            ORDER BY id LIMIT ? FOR UPDATE SKIP LOCKED)
+        RETURNING id, order_id, account_id, symbol, side, filled_quantity, filled_notional, created_at
+        """;
+
+    private static final String RELEASE = """
+        UPDATE fill_outbox SET claimed_by = NULL, claimed_until = NULL WHERE id = ANY (?) AND claimed_by = ?
+        """;
+
+    private static final String DELETE = """
+        DELETE FROM fill_outbox WHERE id = ANY (?)
+        """;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Claims up to {@code limit} rows for {@code relayId} until {@code until},
+     * oldest first. Runs in its own short transaction; nothing is held while
+     * the rows are delivered.
+     */
+    public List<FillMessage> claim(String relayId, Instant now, Instant until, int limit) {
+        List<FillMessage> fills = new ArrayList<>(jdbcTemplate.query(CLAIM, (rs, rowNum) -> FillMessage.builder()
+            .id(rs.getLong("id"))
+            .orderId(rs.getObject("order_id", UUID.class))
+            .accountId(rs.getString("account_id"))
+            .symbol(rs.getString("symbol"))
+            .side(rs.getString("side"))
+            .filledQuantity(rs.getBigDecimal("filled_quantity"))
+            .filledNotional(rs.getBigDecimal("filled_notional"))
+            .createdAt(rs.getTimestamp("created_at").toInstant())
+            .build(), relayId, Timestamp.from(until), Timestamp.from(now), limit));
+        // RETURNING has no order of its own
+        fills.sort(Comparator.comparingLong(FillMessage::getId));
+        return fills;
+    }
+
+    /** Gives back rows this relay failed to deliver, so any relay can retry them straight away. */
+    public void release(String relayId, List<FillMessage> fills) {
+        Long[] ids = ids(fills);
+        jdbcTemplate.update(connection -> {
+            PreparedStatement ps = connection.prepareStatement(RELEASE);
+            ps.setArray(1, connection.createArrayOf("bigint", ids));
+            ps.setString(2, relayId);
+            return ps;
+        });
+    }
+
+    /** Removes delivered rows. */
+    public void delete(List<FillMessage> fills) {
+        Long[] ids = ids(fills);
+        jdbcTemplate.update(connection -> {
+            PreparedStatement ps = connection.prepareStatement(DELETE);
+            ps.setArray(1, connection.createArrayOf("bigint", ids));
+            return ps;
+        });
+    }
+
+    private static Long[] ids(List<FillMessage> fills) {
+        return fills.stream().map(FillMessage::getId).toArray(Long[]::new);
+    }
+}
@@ -0,0 +1,14 @@
+package com.commsec.trading.outbox;
+
+import com.commsec.trading.dto.FillMessage;
+
+import java.util.List;
+
+/**
+ * Delivers a batch of outbox fills. Returning normally means the consumer has
+ * durably applied them; anything thrown leaves them in the outbox for retry.
+ */
+public interface FillPublisher {
+
+    void publish(List<FillMessage> fills);
+}
@@ -0,0 +1,39 @@
+package com.commsec.trading.outbox;
+
+import com.commsec.trading.dto.FillMessage;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.client.SimpleClientHttpRequestFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.RestClient;
+
+import java.util.List;
+
+/**
+ * Posts fill batches to portfolio-service, which answers once they are
+ * applied to holdings. The read timeout outlasts portfolio-service's own
+ * acknowledgement timeout, and both stay well inside the relay's lease.
+ */
+@Component
+public class PortfolioFillPublisher implements FillPublisher {
+
+    private final RestClient restClient;
+
+    public PortfolioFillPublisher(RestClient.Builder builder,
+                                  @Value("${trading.outbox.portfolio-url}") String portfolioUrl,
+                                  @Value("${trading.outbox.connect-timeout-ms:2000}") int connectTimeoutMs,
+                                  @Value("${trading.outbox.read-timeout-ms:15000}") int readTimeoutMs) {
+        SimpleClientHttpRequestFactory requestFactory = new SimpleClientHttpRequestFactory();
+        requestFactory.setConnectTimeout(connectTimeoutMs);
+        requestFactory.setReadTimeout(readTimeoutMs);
+        this.restClient = builder.baseUrl(portfolioUrl).requestFactory(requestFactory).build();
+    }
+
+    @Override
+    public void publish(List<FillMessage> fills) {
+        restClient.post()
+            .uri("/api/v1/portfolio/fills")
+            .body(fills)
+            .retrieve()
+            .toBodilessEntity();
+    }
+}
@@ -0,0 +1,339 @@
+package com.commsec.trading.reports;
+
+import com.commsec.trading.dto.ExecutionReport;
+import com.commsec.trading.engine.EngineScale;
+import com.commsec.trading.journal.OrderEvent;
+import com.commsec.trading.journal.OrderEventListener;
+import com.commsec.trading.journal.OrderEventType;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Per-account push of execution reports, taken from the order journal as
+ * events are appended and sent to the account's server-sent event streams.
+ * <p>
+ * Every report is sent with its journal sequence as the SSE id. The last
+ * {@code trading.reports.buffer-per-account} reports of each account are
+ * kept, so a client that reconnects with {@code Last-Event-ID} (or
+ * {@code ?since=}) is sent what it missed before going live. If what it
+ * missed is no longer held, or predates a restart, it is sent a {@code reset}
+ * event instead and should reload its orders over REST; reports after the
+ * reset follow as normal. A sequence ahead of anything journaled, which can
+ * only come from another journal, gets the same reset rather than a stream
+ * that stays silent until the journal catches up.
+ * <p>
+ * A new order is reported as {@code ACCEPTED} with status {@code PENDING} as
+ * soon as it is journaled, so stops and orders that fill at once are reported
+ * from the start too. An order that goes on to rest unfilled is reported
+ * {@code ACCEPTED} again with status {@code OPEN}.
+ * <p>
+ * The journal listener only buffers the report and wakes the account's
+ * subscribers; sending happens on {@code trading.reports.sender-threads}, one
+ * flush at a time per subscriber, so a slow client holds up nobody else.
+ */
+@Component
+@Slf4j
+public class ExecutionReportStream implements OrderEventListener {
+
+    public static final String REPORT_EVENT = "report";
+    public static final String RESET_EVENT = "reset";
+
+    /**
+     * One account's recent reports. {@code floor} is the highest sequence for
+     * which reports may be missing: anything after it and up to the newest
+     * report is held.
+     */
+    private static final class AccountReports {
+
+        private final ArrayDeque<ExecutionReport> recent = new ArrayDeque<>();
+        private final Set<Subscriber> subscribers = new CopyOnWriteArraySet<>();
+        private long floor;
+        private volatile long lastActiveMillis = System.currentTimeMillis();
+
+        private AccountReports(long floor) {
+            this.floor = floor;
+        }
+
+        private synchronized void add(ExecutionReport report, int capacity) {
+            if (recent.size() == capacity) {
+                floor = recent.removeFirst().getSequence();
+            }
+            recent.addLast(report);
+            lastActiveMillis = System.currentTimeMillis();
+        }
+
+        /** Reports after {@code sequence}, or null if some of them are no longer held. */
+        private synchronized List<ExecutionReport> after(long sequence) {
+            if (sequence < floor) {
+                return null;
+            }
+            List<ExecutionReport> reports = new ArrayList<>();
+            for (ExecutionReport report : recent) {
+                if (report.getSequence() > sequence) {
+                    reports.add(report);
+                }
+            }
+            return reports;
+        }
+
+        private synchronized long latest() {
+            return recent.isEmpty() ? floor : recent.peekLast().getSequence();
+        }
+
+        private boolean idleSince(long cutoff) {
+            return subscribers.isEmpty() && lastActiveMillis < cutoff;
+        }
+    }
+
+    private final ExecutorService sender;
+    private final int bufferPerAccount;
+    private final long emitterTimeoutMs;
+    private final long idleMillis;
+    private final Map<String, AccountReports> accounts = new ConcurrentHashMap<>();
+    private final Counter reportsSent;
+    private final Counter resets;
+    private volatile long lastSequence;
+
+    public ExecutionReportStream(MeterRegistry meterRegistry,
+                                 @Value("${trading.reports.buffer-per-account:256}") int bufferPerAccount,
+                                 @Value("${trading.reports.sender-threads:2}") int senderThreads,
+                                 @Value("${trading.reports.emitter-timeout-ms:1800000}") long emitterTimeoutMs,
+                                 @Value("${trading.reports.idle-ms:600000}") long idleMillis) {
+        this.bufferPerAccount = bufferPerAccount;
+        this.emitterTimeoutMs = emitterTimeoutMs;
+        this.idleMillis = idleMillis;
+        this.sender = Executors.newFixedThreadPool(senderThreads, runnable -> {
+            Thread thread = new Thread(runnable, "execution-report-sender");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        this.reportsSent = Counter.builder("trading.reports.sent")
+            .description("Execution reports sent to account streams")
+            .register(meterRegistry);
+
+        this.resets = Counter.builder("trading.reports.resets")
+            .description("Streams told to reload because the reports they missed were no longer held")
+            .register(meterRegistry);
+
+        Gauge.builder("trading.reports.subscribers", this, ExecutionReportStream::subscriberCount)
+            .description("Open execution-report streams")
+            .register(meterRegistry);
+    }
+
+    @Override
+    public void onJournalOpened(long lastSequence) {
+        this.lastSequence = lastSequence;
+    }
+
+    @Override
+    public void onEvent(OrderEvent event) {
+        ExecutionReport report = toReport(event);
+        // Added inside compute so the idle sweep cannot drop the account in between
+        AccountReports account = accounts.compute(event.accountId(), (id, current) -> {
+            // An account seen for the first time may have had reports before this one that were not kept
+            AccountReports reports = current != null ? current : new AccountReports(event.sequence() - 1);
+            reports.add(report, bufferPerAccount);
+            return reports;
+        });
+        for (Subscriber subscriber : account.subscribers) {
+            if (subscriber.wake()) {
+                schedule(subscriber);
+            }
+        }
+        lastSequence = event.sequence();
+    }
+
+    /**
+     * Opens a stream of the account's execution reports. With {@code since},
+     * the reports after that sequence are sent first; without it the stream
+     * starts with the next report. A {@code since} beyond the last journaled
+     * sequence starts the stream with a reset.
+     */
+    public SseEmitter subscribe(String accountId, Long since) {
+        SseEmitter emitter = new SseEmitter(emitterTimeoutMs);
+        Subscriber[] created = new Subscriber[1];
+        accounts.compute(accountId, (id, current) -> {
+            AccountReports account = current != null ? current : new AccountReports(lastSequence);
+            boolean ahead = since != null && since > lastSequence;
+            created[0] = new Subscriber(account, emitter, since != null && !ahead ? since : account.latest(), ahead);
+            account.subscribers.add(created[0]);
+            return account;
+        });
+        Subscriber subscriber = created[0];
+        emitter.onCompletion(subscriber::close);
+        emitter.onTimeout(subscriber::close);
+        emitter.onError(error -> subscriber.close());
+        // Starts pending, so the first flush sends the backlog or the reset
+        schedule(subscriber);
+        log.debug("Execution report stream opened for {} (since {})", accountId, since);
+        return emitter;
+    }
+
+    /** Keeps idle connections from being closed by proxies and notices clients that have gone. */
+    @Scheduled(fixedDelayString = "${trading.reports.heartbeat-interval-ms:15000}")
+    public void heartbeat() {
+        for (AccountReports account : accounts.values()) {
+            for (Subscriber subscriber : account.subscribers) {
+                subscriber.heartbeatDue = true;
+                if (subscriber.wake()) {
+                    schedule(subscriber);
+                }
+            }
+        }
+    }
+
+    /** Forgets accounts with no open stream and no reports for {@code trading.reports.idle-ms}. */
+    @Scheduled(fixedDelayString = "${trading.reports.sweep-interval-ms:60000}")
+    public void evictIdle() {
+        long cutoff = System.currentTimeMillis() - idleMillis;
+        for (String accountId : accounts.keySet()) {
+            accounts.computeIfPresent(accountId, (id, account) -> account.idleSince(cutoff) ? null : account);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        sender.shutdownNow();
+        for (AccountReports account : accounts.values()) {
+            for (Subscriber subscriber : account.subscribers) {
+                subscriber.emitter.complete();
+            }
+        }
+    }
+
+    private void schedule(Subscriber subscriber) {
+        try {
+            sender.execute(subscriber::flush);
+        } catch (RejectedExecutionException e) {
+            log.debug("Execution report sender stopped, dropping flush");
+        }
+    }
+
+    private static ExecutionReport toReport(OrderEvent event) {
+        return new ExecutionReport(
+            event.sequence(),
+            event.type() == OrderEventType.PLACED ? OrderEventType.ACCEPTED : event.type(),
+            event.orderId(),
+            event.symbol(),
+            event.status(),
+            EngineScale.fromQuantity(event.filledQuantity()),
+            event.filledQuantity() > 0 ? EngineScale.fromPrice(event.avgFillPrice()) : null,
+            event.filledQuantity() > 0 ? EngineScale.fromNotional(event.filledNotional()) : null,
+            event.timestamp());
+    }
+
+    private double subscriberCount() {
+        long count = 0;
+        for (AccountReports account : accounts.values()) {
+            count += account.subscribers.size();
+        }
+        return count;
+    }
+
+    /**
+     * One open stream. {@code lastSent} is the sequence the client has seen up
+     * to and, like {@code resetDue}, is only touched by the flushing thread.
+     */
+    private final class Subscriber {
+
+        private final AccountReports account;
+        private final SseEmitter emitter;
+        private long lastSent;
+        private boolean resetDue;
+        private volatile boolean heartbeatDue;
+        private boolean pending = true;
+        private boolean flushing = true;
+
+        private Subscriber(AccountReports account, SseEmitter emitter, long lastSent, boolean resetDue) {
+            this.account = account;
+            this.emitter = emitter;
+            this.lastSent = lastSent;
+            this.resetDue = resetDue;
+        }
+
+        /**
+         * Returns true if the caller must schedule a flush, i.e. no flush is
+         * pending or running for this subscriber.
+         */
+        private synchronized boolean wake() {
+            pending = true;
+            if (flushing) {
+                return false;
+            }
+            flushing = true;
+            return true;
+        }
+
+        private synchronized boolean takePending() {
+            if (!pending) {
+                flushing = false;
+                return false;
+            }
+            pending = false;
+            return true;
+        }
+
+        private void flush() {
+            try {
+                while (takePending()) {
+                    List<ExecutionReport> reports = resetDue ? null : account.after(lastSent);
+                    if (reports == null) {
+                        resetDue = false;
+                        lastSent = account.latest();
+                        emitter.send(SseEmitter.event()
+                            .id(Long.toString(lastSent))
+                            .name(RESET_EVENT)
+                            .data(Map.of("sequence", lastSent), MediaType.APPLICATION_JSON));
+                        resets.increment();
+                        continue;
+                    }
+                    for (ExecutionReport report : reports) {
+                        emitter.send(SseEmitter.event()
+                            .id(Long.toString(report.getSequence()))
+                            .name(REPORT_EVENT)
+                            .data(report, MediaType.APPLICATION_JSON));
+                        lastSent = report.getSequence();
+                        reportsSent.increment();
+                    }
+                    if (heartbeatDue) {
+                        heartbeatDue = false;
+                        if (reports.isEmpty()) {
+                            emitter.send(SseEmitter.event().comment("heartbeat"));
+                        }
+                    }
+                }
+            } catch (IOException | IllegalStateException e) {
+                // The client has gone or the emitter has completed; the container cleans up the response
+                log.debug("Execution report stream closed: {}", e.getMessage());
+                close();
+            }
+        }
+
+        private void close() {
+            if (account.subscribers.remove(this)) {
+                account.lastActiveMillis = System.currentTimeMillis();
+            }
+        }
+    }
+}
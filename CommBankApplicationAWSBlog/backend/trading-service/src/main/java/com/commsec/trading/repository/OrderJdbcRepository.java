@@ -0,0 +1,166 @@
+package com.commsec.trading.repository;
+
+import com.commsec.trading.model.Order;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+/**
+ * Plain JDBC batch writes for the orders table, used where rows are written in
+ * bulk and the per-entity overhead of JPA is not wanted.
+ */
+@Repository
+@RequiredArgsConstructor
+public class OrderJdbcRepository {
+
+    private static final String INSERT_ORDER = """
+        INSERT INTO orders (id, account_id, symbol, company_name, side, type, status, quantity,
+            filled_quantity, limit_price, stop_price, avg_fill_price, total_value, brokerage,
+            time_in_force, expire_at, submitted_at, filled_at, cancelled_at, rejection_reason,
+            external_order_id, created_at, updated_at, version)
+        VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, 0)
+        ON CONFLICT (id) DO NOTHING
+        """;
+
+    /**
+     * Same monotonic guard as journal replay: fills only grow and a terminal
+     * status is final, so updates may be re-applied or arrive out of order.
+     */
+    private static final String UPDATE_EXECUTION_STATE = """
+        UPDATE orders SET status = ?, filled_quantity = ?, avg_fill_price = ?, total_value = ?,
+            filled_at = COALESCE(?, filled_at), cancelled_at = COALESCE(?, cancelled_at),
+            updated_at = ?, version = version + 1
+        WHERE id = ? AND filled_quantity <= ?
+          AND status NOT IN ('FILLED', 'CANCELLED', 'REJECTED', 'EXPIRED')
+        """;
+
+    /**
+     * Expiry touches no fill columns, so a whole sweep is one set-based
+     * statement rather than one update per order: it joins on {@code unnest}
+     * of parallel id and timestamp arrays, so each order still gets the time
+     * of its own expiry as {@code updated_at}.
+     */
+    private static final String EXPIRE_ORDERS = """
+        UPDATE orders o SET status = 'EXPIRED', updated_at = e.expired_at, version = o.version + 1
+        FROM unnest(?, ?) AS e(id, expired_at)
+        WHERE o.id = e.id
+          AND o.status NOT IN ('FILLED', 'CANCELLED', 'REJECTED', 'EXPIRED')
+        """;
+
+    /**
+     * Outbox row carrying the order's cumulative fill as it stands after this
+     * transaction's writes. Cumulative rather than per-fill values make a
+     * replayed or duplicated row harmless to the consumer.
+     */
+    private static final String INSERT_FILL_OUTBOX = """
+        INSERT INTO fill_outbox (order_id, account_id, symbol, side, filled_quantity, filled_notional, created_at)
+        SELECT id, account_id, symbol, side, filled_quantity, total_value, ?
+        FROM orders WHERE id = ? AND filled_quantity > 0
+        """;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Inserts new orders, applies execution state updates and expires orders in
+     * one transaction. Inserts of rows that already exist are ignored; expired
+     * orders are given to this method with the time each one expired. Orders
+     * that gained fills are added to the fill outbox in the same transaction.
+     */
+    @Transactional
+    public void writeBatch(List<Order> inserts, List<Order> updates, Map<UUID, Instant> expired) {
+        if (!inserts.isEmpty()) {
+            jdbcTemplate.batchUpdate(INSERT_ORDER, inserts, inserts.size(), this::bindInsert);
+        }
+        if (!updates.isEmpty()) {
+            jdbcTemplate.batchUpdate(UPDATE_EXECUTION_STATE, updates, updates.size(), this::bindUpdate);
+        }
+        if (!expired.isEmpty()) {
+            jdbcTemplate.update(connection -> {
+                PreparedStatement ps = connection.prepareStatement(EXPIRE_ORDERS);
+                ps.setArray(1, connection.createArrayOf("uuid", expired.keySet().toArray()));
+                ps.setArray(2, connection.createArrayOf("timestamptz",
+                    expired.values().stream().map(Timestamp::from).toArray()));
+                return ps;
+            });
+        }
+        // An order placed in this batch is in both lists; one outbox row covers it
+        Map<UUID, Instant> filled = new LinkedHashMap<>();
+        Stream.concat(inserts.stream(), updates.stream())
+            .filter(OrderJdbcRepository::hasNewFills)
+            .forEach(order -> filled.put(order.getId(), order.getUpdatedAt()));
+        if (!filled.isEmpty()) {
+            jdbcTemplate.batchUpdate(INSERT_FILL_OUTBOX, filled.entrySet(), filled.size(), (ps, entry) -> {
+                setInstant(ps, 1, entry.getValue());
+                ps.setObject(2, entry.getKey());
+            });
+        }
+    }
+
+    /**
+     * Any order with fills, whatever its status: an IOC or market order that
+     * fills in part and is then cancelled, or a partial fill that expires in
+     * the same batch, arrives here already terminal. Outbox rows are
+     * cumulative, so one repeated for a later cancel or expiry is harmless.
+     */
+    private static boolean hasNewFills(Order order) {
+        return order.getFilledQuantity() != null && order.getFilledQuantity().signum() > 0;
+    }
+
+    private void bindInsert(PreparedStatement ps, Order order) throws SQLException {
+        ps.setObject(1, order.getId());
+        ps.setString(2, order.getAccountId());
+        ps.setString(3, order.getSymbol());
+        ps.setString(4, order.getCompanyName());
+        ps.setString(5, order.getSide().name());
+        ps.setString(6, order.getType().name());
+        ps.setString(7, order.getStatus().name());
+        ps.setBigDecimal(8, order.getQuantity());
+        ps.setBigDecimal(9, order.getFilledQuantity());
+        ps.setBigDecimal(10, order.getLimitPrice());
+        ps.setBigDecimal(11, order.getStopPrice());
+        ps.setBigDecimal(12, order.getAvgFillPrice());
+        ps.setBigDecimal(13, order.getTotalValue());
+        ps.setBigDecimal(14, order.getBrokerage());
+        ps.setString(15, order.getTimeInForce() != null ? order.getTimeInForce().name() : null);
+        setInstant(ps, 16, order.getExpireAt());
+        setInstant(ps, 17, order.getSubmittedAt());
+        setInstant(ps, 18, order.getFilledAt());
+        setInstant(ps, 19, order.getCancelledAt());
+        ps.setString(20, order.getRejectionReason());
+        ps.setString(21, order.getExternalOrderId());
+        setInstant(ps, 22, order.getCreatedAt());
+        setInstant(ps, 23, order.getUpdatedAt());
+    }
+
+    private void bindUpdate(PreparedStatement ps, Order order) throws SQLException {
+        ps.setString(1, order.getStatus().name());
+        ps.setBigDecimal(2, order.getFilledQuantity());
+        ps.setBigDecimal(3, order.getAvgFillPrice());
+        ps.setBigDecimal(4, order.getTotalValue());
+        setInstant(ps, 5, order.getFilledAt());
+        setInstant(ps, 6, order.getCancelledAt());
+        setInstant(ps, 7, order.getUpdatedAt());
+        ps.setObject(8, order.getId());
+        ps.setBigDecimal(9, order.getFilledQuantity());
+    }
+
+    private static void setInstant(PreparedStatement ps, int index, Instant value) throws SQLException {
+        if (value == null) {
+            ps.setNull(index, Types.TIMESTAMP_WITH_TIMEZONE);
+        } else {
+            ps.setTimestamp(index, Timestamp.from(value));
+        }
+    }
+}
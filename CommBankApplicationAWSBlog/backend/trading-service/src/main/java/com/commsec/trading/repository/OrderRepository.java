@@ -2,6 +2,7 @@ package com.commsec.trading.repository;
 
 import com.commsec.trading.model.Order;
 import com.commsec.trading.model.OrderStatus;
+import com.commsec.trading.model.OrderType;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
@@ -31,6 +32,29 @@ public interface OrderRepository extends JpaRepository<Order, UUID> {
         Pageable pageable
     );
 
+    /**
+     * First page of an account's order history, newest first. Served by
+     * {@code idx_orders_account_created_id}.
+     */
+    @Query(value = "SELECT * FROM orders WHERE account_id = :accountId " +
+                   "ORDER BY created_at DESC, id DESC LIMIT :limit", nativeQuery = true)
+    List<Order> findHistory(@Param("accountId") String accountId, @Param("limit") int limit);
+
+    /**
+     * Next page of an account's order history: the orders strictly after the
+     * given (created_at, id) in newest-first order. The row comparison lets
+     * Postgres seek straight to the position instead of skipping rows.
+     */
+    @Query(value = "SELECT * FROM orders WHERE account_id = :accountId " +
+                   "AND (created_at, id) < (:createdAt, :id) " +
+                   "ORDER BY created_at DESC, id DESC LIMIT :limit", nativeQuery = true)
+    List<Order> findHistoryAfter(
+        @Param("accountId") String accountId,
+        @Param("createdAt") Instant createdAt,
+        @Param("id") UUID id,
+        @Param("limit") int limit
+    );
+
     @Query("SELECT o FROM Order o WHERE o.status = :status AND o.expireAt < :now")
     List<Order> findExpiredOrders(@Param("status") OrderStatus status, @Param("now") Instant now);
 
@@ -40,6 +64,9 @@ public interface OrderRepository extends JpaRepository<Order, UUID> {
         @Param("statuses") List<OrderStatus> statuses
     );
 
+    @Query("SELECT o FROM Order o WHERE o.type IN :types AND o.status IN :statuses ORDER BY o.submittedAt ASC")
+    List<Order> findRestingOrders(@Param("types") List<OrderType> types, @Param("statuses") List<OrderStatus> statuses);
+
     Optional<Order> findByIdAndAccountId(UUID id, String accountId);
 
     Optional<Order> findByExternalOrderId(String externalOrderId);
@@ -0,0 +1,145 @@
+package com.commsec.trading.risk;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * One account's buying power and positions as seen by pre-trade risk.
+ * <p>
+ * Cash, reserved cash and the open-order count live in one immutable
+ * {@link Exposure} swapped by compare-and-set, so a check and the reservation
+ * it allows happen as a single atomic step without a lock. Each symbol's
+ * position is swapped the same way. Cash is at notional scale and quantities
+ * at quantity scale ({@link com.commsec.trading.engine.EngineScale}).
+ */
+final class AccountRisk {
+
+    record Exposure(long cash, long reservedCash, int openOrders) {
+
+        long buyingPower() {
+            return cash - reservedCash;
+        }
+    }
+
+    record Position(long held, long reservedSell) {
+
+        long available() {
+            return held - reservedSell;
+        }
+    }
+
+    private static final Position FLAT = new Position(0, 0);
+
+    private final AtomicReference<Exposure> exposure;
+    private final Map<String, AtomicReference<Position>> positions = new ConcurrentHashMap<>();
+
+    AccountRisk(long cash) {
+        this.exposure = new AtomicReference<>(new Exposure(cash, 0, 0));
+    }
+
+    Exposure exposure() {
+        return exposure.get();
+    }
+
+    Position position(String symbol) {
+        AtomicReference<Position> position = positions.get(symbol);
+        return position != null ? position.get() : FLAT;
+    }
+
+    /**
+     * Reserves cash for a buy. Returns the reason it was refused, or null.
+     */
+    String reserveBuy(long notional, int maxOpenOrders) {
+        while (true) {
+            Exposure current = exposure.get();
+            if (current.openOrders() >= maxOpenOrders) {
+                return "Maximum of " + maxOpenOrders + " open orders reached";
+            }
+            if (notional > current.buyingPower()) {
+                return "Insufficient buying power";
+            }
+            Exposure next = new Exposure(current.cash(), current.reservedCash() + notional, current.openOrders() + 1);
+            if (exposure.compareAndSet(current, next)) {
+                return null;
+            }
+        }
+    }
+
+    /**
+     * Reserves quantity for a sell, allowing the position to go at most
+     * {@code maxShort} below zero. Returns the reason it was refused, or null.
+     * <p>
+     * The position is reserved before the order is counted, so a sell refused
+     * for its size never holds an open-order slot, even briefly. Only a sell
+     * that loses the last slot to a concurrent order gives its quantity back.
+     */
+    String reserveSell(String symbol, long quantity, long maxShort, int maxOpenOrders) {
+        if (exposure.get().openOrders() >= maxOpenOrders) {
+            return "Maximum of " + maxOpenOrders + " open orders reached";
+        }
+        AtomicReference<Position> position = positionRef(symbol);
+        while (true) {
+            Position current = position.get();
+            if (quantity > current.available() + maxShort) {
+                return maxShort > 0 ? "Sell exceeds position plus short-sell limit" : "Sell exceeds available position";
+            }
+            if (position.compareAndSet(current, new Position(current.held(), current.reservedSell() + quantity))) {
+                break;
+            }
+        }
+        while (true) {
+            Exposure current = exposure.get();
+            if (current.openOrders() >= maxOpenOrders) {
+                releaseSell(symbol, quantity);
+                return "Maximum of " + maxOpenOrders + " open orders reached";
+            }
+            if (exposure.compareAndSet(current, new Exposure(current.cash(), current.reservedCash(), current.openOrders() + 1))) {
+                return null;
+            }
+        }
+    }
+
+    /** Books a buy fill: cash is spent and {@code released} of the reservation freed. */
+    void buyFilled(String symbol, long quantity, long notional, long released) {
+        exposure.updateAndGet(current ->
+            new Exposure(current.cash() - notional, current.reservedCash() - released, current.openOrders()));
+        positionRef(symbol).updateAndGet(current -> new Position(current.held() + quantity, current.reservedSell()));
+    }
+
+    /** Books a sell fill: cash comes in, the position shrinks and {@code released} of its reservation is freed. */
+    void sellFilled(String symbol, long quantity, long notional, long released) {
+        exposure.updateAndGet(current ->
+            new Exposure(current.cash() + notional, current.reservedCash(), current.openOrders()));
+        positionRef(symbol).updateAndGet(current ->
+            new Position(current.held() - quantity, current.reservedSell() - released));
+    }
+
+    /** Ends an order, freeing whatever cash it still had reserved. */
+    void closeOrder(long releasedCash) {
+        exposure.updateAndGet(current ->
+            new Exposure(current.cash(), current.reservedCash() - releasedCash, current.openOrders() - 1));
+    }
+
+    /** Frees the unfilled part of a sell's reservation. */
+    void releaseSell(String symbol, long quantity) {
+        positionRef(symbol).updateAndGet(current -> new Position(current.held(), current.reservedSell() - quantity));
+    }
+
+    /** Adds an order's reservation without checking it, for orders restored on startup. */
+    void restore(String symbol, long reservedCash, long reservedSell) {
+        exposure.updateAndGet(current ->
+            new Exposure(current.cash(), current.reservedCash() + reservedCash, current.openOrders() + 1));
+        if (reservedSell > 0) {
+            positionRef(symbol).updateAndGet(current -> new Position(current.held(), current.reservedSell() + reservedSell));
+        }
+    }
+
+    void setHeld(String symbol, long held) {
+        positionRef(symbol).updateAndGet(current -> new Position(held, current.reservedSell()));
+    }
+
+    private AtomicReference<Position> positionRef(String symbol) {
+        return positions.computeIfAbsent(symbol, s -> new AtomicReference<>(FLAT));
+    }
+}
@@ -0,0 +1,32 @@
+package com.commsec.trading.risk;
+
+import com.commsec.trading.model.OrderSide;
+
+/**
+ * What pre-trade risk has set aside for one live order: cash for a buy,
+ * quantity for a sell. Created on the order-entry thread and from then on
+ * only touched by journal listener calls, which are serialised.
+ */
+final class OrderReservation {
+
+    final String accountId;
+    final String symbol;
+    final OrderSide side;
+    final long unitPrice;
+    long reservedCash;
+    long reservedQuantity;
+    long filledQuantity;
+    long filledNotional;
+
+    OrderReservation(String accountId, String symbol, OrderSide side, long unitPrice,
+                     long reservedCash, long reservedQuantity, long filledQuantity, long filledNotional) {
+        this.accountId = accountId;
+        this.symbol = symbol;
+        this.side = side;
+        this.unitPrice = unitPrice;
+        this.reservedCash = reservedCash;
+        this.reservedQuantity = reservedQuantity;
+        this.filledQuantity = filledQuantity;
+        this.filledNotional = filledNotional;
+    }
+}
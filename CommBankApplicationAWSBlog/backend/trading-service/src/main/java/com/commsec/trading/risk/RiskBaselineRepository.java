@@ -0,0 +1,76 @@
+package com.commsec.trading.risk;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.BiConsumer;
+
+/**
+ * Reads the opening cash and holdings that pre-trade risk starts from, at
+ * startup, in the background refresh and the first time an order arrives for
+ * an account opened since.
+ * <p>
+ * Orders and holdings identify an account by {@code accounts.account_number},
+ * the id clients send, so that is the key here too; holdings of accounts that
+ * are missing or not active are left out.
+ */
+@Repository
+@RequiredArgsConstructor
+public class RiskBaselineRepository {
+
+    private static final String SELECT_CASH = """
+        SELECT account_number, available_cash FROM accounts WHERE status = 'ACTIVE'
+        """;
+
+    private static final String SELECT_HOLDINGS = """
+        SELECT h.account_id, h.symbol, h.quantity FROM holdings h
+        JOIN accounts a ON a.account_number = h.account_id AND a.status = 'ACTIVE'
+        """;
+
+    private static final String SELECT_ACCOUNT_CASH = """
+        SELECT available_cash FROM accounts WHERE account_number = ? AND status = 'ACTIVE'
+        """;
+
+    private static final String SELECT_ACCOUNT_HOLDINGS = """
+        SELECT account_id, symbol, quantity FROM holdings WHERE account_id = ?
+        """;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public void forEachAccount(BiConsumer<String, BigDecimal> consumer) {
+        jdbcTemplate.query(SELECT_CASH, rs -> {
+            consumer.accept(rs.getString("account_number"), rs.getBigDecimal("available_cash"));
+        });
+    }
+
+    public void forEachHolding(HoldingConsumer consumer) {
+        jdbcTemplate.query(SELECT_HOLDINGS, rs -> {
+            consumer.accept(rs.getString("account_id"), rs.getString("symbol"), rs.getBigDecimal("quantity"));
+        });
+    }
+
+    /**
+     * Reads one active account's cash and passes its holdings to
+     * {@code holdings}. Empty if there is no such account.
+     */
+    public Optional<BigDecimal> findAccount(String accountNumber, HoldingConsumer holdings) {
+        List<BigDecimal> cash = jdbcTemplate.query(SELECT_ACCOUNT_CASH,
+            (rs, rowNum) -> rs.getBigDecimal("available_cash"), accountNumber);
+        if (cash.isEmpty()) {
+            return Optional.empty();
+        }
+        jdbcTemplate.query(SELECT_ACCOUNT_HOLDINGS, rs -> {
+            holdings.accept(rs.getString("account_id"), rs.getString("symbol"), rs.getBigDecimal("quantity"));
+        }, accountNumber);
+        return Optional.of(cash.get(0));
+    }
+
+    @FunctionalInterface
+    public interface HoldingConsumer {
+        void accept(String accountId, String symbol, BigDecimal quantity);
+    }
+}
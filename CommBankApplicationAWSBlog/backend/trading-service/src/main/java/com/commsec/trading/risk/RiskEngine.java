@@ -0,0 +1,297 @@
+package com.commsec.trading.risk;
+
+import com.commsec.trading.engine.EngineScale;
+import com.commsec.trading.engine.MatchingEngine;
+import com.commsec.trading.journal.OrderEvent;
+import com.commsec.trading.journal.OrderEventListener;
+import com.commsec.trading.journal.OrderEventType;
+import com.commsec.trading.model.Order;
+import com.commsec.trading.model.OrderSide;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Pre-trade risk checks against in-memory account state.
+ * <p>
+ * An order is checked and its cash or quantity reserved in one atomic step
+ * per account (see {@link AccountRisk}), so nothing on the order-entry path
+ * reads the database or takes a lock. Reservations are then settled from the
+ * order journal: fills move cash and positions, and a terminal event frees
+ * whatever is left.
+ * <p>
+ * Cash starts from {@code accounts.available_cash} and positions from
+ * {@code holdings} when the service starts. Accounts opened later are picked
+ * up by a background refresh, or read on their first order if that comes
+ * sooner. Orders for an account that is not active are refused. Nothing is
+ * accepted until the baseline has loaded and live orders have their
+ * reservations back ({@link #open}); if the baseline cannot be read, startup
+ * fails rather than checking every account against zero cash.
+ */
+@Component
+@Slf4j
+public class RiskEngine implements OrderEventListener {
+
+    private final MatchingEngine matchingEngine;
+    private final RiskBaselineRepository baselineRepository;
+    private final Map<String, AccountRisk> accounts = new ConcurrentHashMap<>();
+    private final Map<UUID, OrderReservation> reservations = new ConcurrentHashMap<>();
+    private final long maxOrderValue;
+    private final int maxOpenOrders;
+    private final long maxShortQuantity;
+    private final Timer checkTime;
+    private final Counter rejections;
+    private volatile boolean open;
+
+    public RiskEngine(MatchingEngine matchingEngine,
+                      RiskBaselineRepository baselineRepository,
+                      MeterRegistry meterRegistry,
+                      @Value("${trading.risk.max-order-value:1000000}") BigDecimal maxOrderValue,
+                      @Value("${trading.order.max-open-orders:100}") int maxOpenOrders,
+                      @Value("${trading.risk.max-short-quantity:0}") BigDecimal maxShortQuantity) {
+        this.matchingEngine = matchingEngine;
+        this.baselineRepository = baselineRepository;
+        this.maxOrderValue = toNotional(maxOrderValue);
+        this.maxOpenOrders = maxOpenOrders;
+        this.maxShortQuantity = EngineScale.toQuantity(maxShortQuantity);
+
+        this.checkTime = Timer.builder("trading.risk.check.time")
+            .description("Time to check and reserve a single order")
+            .register(meterRegistry);
+
+        this.rejections = Counter.builder("trading.risk.rejections")
+            .description("Orders refused by pre-trade risk checks")
+            .register(meterRegistry);
+    }
+
+    /**
+     * Checks the order against its account's limits and, if it passes,
+     * reserves what it needs. Returns the reason it was refused, or null.
+     * An accepted order must reach the journal or be handed to
+     * {@link #release}.
+     */
+    public String check(Order order) {
+        long start = System.nanoTime();
+        String rejection = reserve(order);
+        checkTime.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        if (rejection != null) {
+            rejections.increment();
+        }
+        return rejection;
+    }
+
+    /** Frees the reservation of an order that was checked but never placed. */
+    public void release(UUID orderId) {
+        OrderReservation reservation = reservations.remove(orderId);
+        if (reservation != null) {
+            close(reservation);
+        }
+    }
+
+    /**
+     * Re-creates the reservation of a live order during startup recovery,
+     * without checking limits: the order was accepted before the restart.
+     */
+    public void restore(Order order) {
+        long quantity = EngineScale.toQuantity(order.getQuantity());
+        long filled = EngineScale.toQuantity(order.getFilledQuantity());
+        long price = referencePrice(order);
+        long remaining = quantity - filled;
+        boolean buy = order.getSide() == OrderSide.BUY;
+        OrderReservation reservation = new OrderReservation(order.getAccountId(), order.getSymbol(), order.getSide(),
+            price, buy ? Math.multiplyExact(remaining, price) : 0, buy ? 0 : remaining,
+            filled, Math.multiplyExact(EngineScale.toPrice(order.getAvgFillPrice()), filled));
+        if (reservations.putIfAbsent(order.getId(), reservation) == null) {
+            account(order.getAccountId()).restore(order.getSymbol(), reservation.reservedCash, reservation.reservedQuantity);
+        }
+    }
+
+    @Override
+    public void onEvent(OrderEvent event) {
+        if (event.type() == OrderEventType.PLACED) {
+            return;
+        }
+        OrderReservation reservation = reservations.get(event.orderId());
+        if (reservation == null) {
+            return;
+        }
+        long quantity = event.filledQuantity() - reservation.filledQuantity;
+        if (quantity > 0) {
+            long notional = event.filledNotional() - reservation.filledNotional;
+            reservation.filledQuantity = event.filledQuantity();
+            reservation.filledNotional = event.filledNotional();
+            AccountRisk account = account(reservation.accountId);
+            if (reservation.side == OrderSide.BUY) {
+                long released = Math.min(reservation.reservedCash, Math.multiplyExact(quantity, reservation.unitPrice));
+                reservation.reservedCash -= released;
+                account.buyFilled(reservation.symbol, quantity, notional, released);
+            } else {
+                long released = Math.min(reservation.reservedQuantity, quantity);
+                reservation.reservedQuantity -= released;
+                account.sellFilled(reservation.symbol, quantity, notional, released);
+            }
+        }
+        if (event.isTerminal() && reservations.remove(event.orderId(), reservation)) {
+            close(reservation);
+        }
+    }
+
+    /**
+     * Loads opening cash and holdings. Called once at startup, before orders
+     * are restored or accepted; throws if the database cannot be read.
+     */
+    public void loadBaseline() {
+        try {
+            int[] loaded = new int[2];
+            baselineRepository.forEachAccount((accountId, cash) -> {
+                accounts.put(accountId, new AccountRisk(toNotional(cash)));
+                loaded[0]++;
+            });
+            baselineRepository.forEachHolding((accountId, symbol, quantity) -> {
+                account(accountId).setHeld(symbol, EngineScale.toQuantity(quantity));
+                loaded[1]++;
+            });
+            log.info("Risk baseline loaded: {} accounts, {} holdings", loaded[0], loaded[1]);
+        } catch (DataAccessException e) {
+            throw new IllegalStateException("Risk baseline could not be loaded; refusing to start without it", e);
+        }
+    }
+
+    /** Starts accepting orders, once the baseline is loaded and live orders are restored. */
+    public void open() {
+        open = true;
+    }
+
+    /** Picks up accounts opened since startup; accounts already in memory keep their live state. */
+    @Scheduled(fixedDelayString = "${trading.risk.refresh-interval-ms:60000}",
+               initialDelayString = "${trading.risk.refresh-interval-ms:60000}")
+    public void refreshAccounts() {
+        try {
+            baselineRepository.forEachAccount((accountId, cash) ->
+                accounts.putIfAbsent(accountId, new AccountRisk(toNotional(cash))));
+        } catch (DataAccessException e) {
+            log.warn("Risk account refresh failed: {}", e.getMessage());
+        }
+    }
+
+    /** Current buying power and exposure of an account, in dollars. */
+    public Map<String, Object> exposure(String accountId) {
+        AccountRisk account = open ? active(accountId) : accounts.get(accountId);
+        AccountRisk.Exposure exposure = (account != null ? account : new AccountRisk(0)).exposure();
+        Map<String, Object> summary = new LinkedHashMap<>();
+        summary.put("accountId", accountId);
+        summary.put("cash", EngineScale.fromNotional(exposure.cash()));
+        summary.put("reservedCash", EngineScale.fromNotional(exposure.reservedCash()));
+        summary.put("buyingPower", EngineScale.fromNotional(exposure.buyingPower()));
+        summary.put("openOrders", exposure.openOrders());
+        summary.put("maxOpenOrders", maxOpenOrders);
+        return summary;
+    }
+
+    private String reserve(Order order) {
+        if (!open) {
+            return "Pre-trade risk is still starting; try again shortly";
+        }
+        long quantity = EngineScale.toQuantity(order.getQuantity());
+        long price = referencePrice(order);
+        boolean buy = order.getSide() == OrderSide.BUY;
+        if (price == 0 && buy) {
+            return "No reference price for " + order.getSymbol() + "; use a limit order";
+        }
+        long notional;
+        try {
+            notional = Math.multiplyExact(quantity, price);
+        } catch (ArithmeticException e) {
+            // Beyond the notional scale's range, so over any configurable maximum
+            notional = Long.MAX_VALUE;
+        }
+        if (notional > maxOrderValue) {
+            return "Order value exceeds the maximum of " + EngineScale.fromNotional(maxOrderValue);
+        }
+
+        AccountRisk account;
+        try {
+            account = active(order.getAccountId());
+        } catch (DataAccessException e) {
+            log.warn("Risk state for account {} could not be loaded: {}", order.getAccountId(), e.getMessage());
+            return "Account " + order.getAccountId() + " could not be checked; try again shortly";
+        }
+        if (account == null) {
+            return "Account " + order.getAccountId() + " is not an active trading account";
+        }
+        String rejection = buy
+            ? account.reserveBuy(notional, maxOpenOrders)
+            : account.reserveSell(order.getSymbol(), quantity, maxShortQuantity, maxOpenOrders);
+        if (rejection == null) {
+            reservations.put(order.getId(), new OrderReservation(order.getAccountId(), order.getSymbol(),
+                order.getSide(), price, buy ? notional : 0, buy ? 0 : quantity, 0, 0));
+        }
+        return rejection;
+    }
+
+    private void close(OrderReservation reservation) {
+        AccountRisk account = account(reservation.accountId);
+        if (reservation.reservedQuantity > 0) {
+            account.releaseSell(reservation.symbol, reservation.reservedQuantity);
+        }
+        account.closeOrder(reservation.reservedCash);
+    }
+
+    /** Limit price, else stop price, else the last traded price; 0 if there is none. */
+    private long referencePrice(Order order) {
+        long limit = EngineScale.toPrice(order.getLimitPrice());
+        if (limit > 0) {
+            return limit;
+        }
+        long stop = EngineScale.toPrice(order.getStopPrice());
+        return stop > 0 ? stop : matchingEngine.lastPrice(order.getSymbol());
+    }
+
+    /**
+     * An account's risk state, read from the database the first time it is
+     * needed if the account was opened after the last refresh. Null if there
+     * is no active account with this id.
+     */
+    private AccountRisk active(String accountId) {
+        AccountRisk account = accounts.get(accountId);
+        if (account != null) {
+            return account;
+        }
+        Map<String, Long> held = new LinkedHashMap<>();
+        Optional<BigDecimal> cash = baselineRepository.findAccount(accountId,
+            (id, symbol, quantity) -> held.put(symbol, EngineScale.toQuantity(quantity)));
+        if (cash.isEmpty()) {
+            return null;
+        }
+        AccountRisk loaded = new AccountRisk(toNotional(cash.get()));
+        held.forEach(loaded::setHeld);
+        AccountRisk existing = accounts.putIfAbsent(accountId, loaded);
+        return existing != null ? existing : loaded;
+    }
+
+    /**
+     * Risk state of an account that already has orders. One that has since
+     * been closed, or was never in the baseline, is tracked from zero cash so
+     * its live orders still settle.
+     */
+    private AccountRisk account(String accountId) {
+        return accounts.computeIfAbsent(accountId, id -> new AccountRisk(0));
+    }
+
+    private static long toNotional(BigDecimal amount) {
+        return amount == null ? 0L : amount.movePointRight(EngineScale.NOTIONAL_SCALE).longValue();
+    }
+}
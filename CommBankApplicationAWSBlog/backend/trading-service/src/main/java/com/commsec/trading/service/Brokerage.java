@@ -0,0 +1,50 @@
+package com.commsec.trading.service;
+
+import com.commsec.trading.engine.EngineScale;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * Brokerage on scaled longs: price and quantity in {@link EngineScale} units,
+ * fee at notional scale. Called once per order, so it stays off BigDecimal
+ * unless the trade is too large for the scaled longs.
+ */
+final class Brokerage {
+
+    static final long FLAT_FEE = 9_950_000L;                 // $9.95
+    static final long PERCENTAGE_BASIS_POINTS = 11L;         // 0.11%
+    static final long DEFAULT_PRICE = 100L * 10_000L;        // $100, for orders without a limit price
+
+    private Brokerage() {
+    }
+
+    /**
+     * The greater of the flat fee and the percentage fee on the trade value.
+     * The percentage fee is rounded half up straight to the cent, in one step,
+     * so it matches rounding the exact BigDecimal product. Throws
+     * {@link ArithmeticException} if the trade value overflows.
+     */
+    static long fee(long price, long quantity) {
+        long tradeValue = Math.multiplyExact(price > 0 ? price : DEFAULT_PRICE, quantity);
+        long cents = (Math.multiplyExact(tradeValue, PERCENTAGE_BASIS_POINTS) + 50_000_000L) / 100_000_000L;
+        long percentageFee = cents * 10_000L;
+        return Math.max(percentageFee, FLAT_FEE);
+    }
+
+    /**
+     * The fee in dollars. Trades whose value overflows the scaled longs, which
+     * validation allows but risk then refuses, are worked in BigDecimal.
+     */
+    static BigDecimal amount(long price, long quantity) {
+        try {
+            return EngineScale.fromNotional(fee(price, quantity));
+        } catch (ArithmeticException e) {
+            BigDecimal tradeValue = EngineScale.fromPrice(price > 0 ? price : DEFAULT_PRICE)
+                .multiply(EngineScale.fromQuantity(quantity));
+            BigDecimal percentageFee = tradeValue.multiply(BigDecimal.valueOf(PERCENTAGE_BASIS_POINTS, 4))
+                .setScale(2, RoundingMode.HALF_UP);
+            return percentageFee.max(EngineScale.fromNotional(FLAT_FEE));
+        }
+    }
+}
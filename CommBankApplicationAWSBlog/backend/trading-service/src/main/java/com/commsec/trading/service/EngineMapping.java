@@ -0,0 +1,56 @@
+package com.commsec.trading.service;
+
+import com.commsec.trading.engine.BookOrder;
+import com.commsec.trading.engine.EngineScale;
+import com.commsec.trading.engine.OrderState;
+import com.commsec.trading.model.Order;
+import com.commsec.trading.model.OrderStatus;
+
+/**
+ * Translates between the JPA {@link Order} entity and the engine's scaled-long
+ * representation.
+ */
+final class EngineMapping {
+
+    private EngineMapping() {
+    }
+
+    static BookOrder toBookOrder(Order order) {
+        BookOrder bookOrder = new BookOrder(
+            order.getId(),
+            order.getAccountId(),
+            order.getSymbol(),
+            order.getSide(),
+            order.getType(),
+            order.getTimeInForce(),
+            EngineScale.toPrice(order.getLimitPrice()),
+            EngineScale.toPrice(order.getStopPrice()),
+            EngineScale.toQuantity(order.getQuantity()),
+            order.getSubmittedAt()
+        );
+        if (order.getStatus() == OrderStatus.OPEN || order.getStatus() == OrderStatus.PARTIALLY_FILLED) {
+            long filledQuantity = EngineScale.toQuantity(order.getFilledQuantity());
+            long avgFillPrice = EngineScale.toPrice(order.getAvgFillPrice());
+            bookOrder.withFills(filledQuantity, Math.multiplyExact(filledQuantity, avgFillPrice));
+        }
+        return bookOrder;
+    }
+
+    /**
+     * Copies engine state onto an entity instance, e.g. to build a response.
+     */
+    static Order apply(Order order, OrderState state) {
+        order.setStatus(state.status());
+        order.setFilledQuantity(EngineScale.fromQuantity(state.filledQuantity()));
+        if (state.filledQuantity() > 0) {
+            order.setAvgFillPrice(EngineScale.fromPrice(state.avgFillPrice()));
+            order.setTotalValue(EngineScale.fromNotional(state.filledNotional()));
+        }
+        if (state.status() == OrderStatus.FILLED) {
+            order.setFilledAt(state.timestamp());
+        } else if (state.status() == OrderStatus.CANCELLED) {
+            order.setCancelledAt(state.timestamp());
+        }
+        return order;
+    }
+}
@@ -0,0 +1,42 @@
+package com.commsec.trading.service;
+
+import com.commsec.trading.exception.OrderValidationException;
+
+import java.nio.ByteBuffer;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.Base64;
+import java.util.UUID;
+
+/**
+ * Position in an account's order history: the (created_at, id) of the last
+ * order returned. Handed to clients as an opaque URL-safe token so the
+ * encoding can change without breaking them.
+ */
+record HistoryCursor(Instant createdAt, UUID id) {
+
+    private static final int LENGTH = Long.BYTES * 3;
+
+    String encode() {
+        ByteBuffer buffer = ByteBuffer.allocate(LENGTH)
+            .putLong(ChronoUnit.MICROS.between(Instant.EPOCH, createdAt))
+            .putLong(id.getMostSignificantBits())
+            .putLong(id.getLeastSignificantBits());
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(buffer.array());
+    }
+
+    static HistoryCursor decode(String token) {
+        byte[] bytes;
+        try {
+            bytes = Base64.getUrlDecoder().decode(token);
+        } catch (IllegalArgumentException e) {
+            throw new OrderValidationException("Invalid cursor");
+        }
+        if (bytes.length != LENGTH) {
+            throw new OrderValidationException("Invalid cursor");
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        Instant createdAt = Instant.EPOCH.plus(buffer.getLong(), ChronoUnit.MICROS);
+        return new HistoryCursor(createdAt, new UUID(buffer.getLong(), buffer.getLong()));
+    }
+}
@@ -0,0 +1,167 @@
+package com.commsec.trading.service;
+
+import com.commsec.trading.engine.BookOrder;
+import com.commsec.trading.engine.EngineScale;
+import com.commsec.trading.engine.MatchingEngine;
+import com.commsec.trading.engine.OrderState;
+import com.commsec.trading.expiry.OrderExpiryIndex;
+import com.commsec.trading.journal.OrderEvent;
+import com.commsec.trading.journal.OrderEventType;
+import com.commsec.trading.journal.OrderJournal;
+import com.commsec.trading.journal.OrderWriteBehind;
+import com.commsec.trading.model.Order;
+import com.commsec.trading.model.OrderStatus;
+import com.commsec.trading.model.OrderType;
+import com.commsec.trading.openorders.OpenOrderIndex;
+import com.commsec.trading.repository.OrderRepository;
+import com.commsec.trading.risk.RiskEngine;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Rebuilds the in-memory order books on startup: resting limit orders keep
+ * their price-time priority and untriggered stops are re-armed.
+ * <p>
+ * The order journal is the source of truth. Everything up to the write-behind
+ * checkpoint is already in the database, so live orders are read from there and
+ * only the journal past the checkpoint is replayed over them. When the journal
+ * is empty, i.e. the first start after it was introduced, the database is used
+ * alone.
+ * Pre-trade risk is loaded first; every restored order gets its reservation
+ * back and is added to the open-order index, and only then does risk start
+ * accepting orders.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class OrderBookRecovery {
+
+    private final OrderRepository orderRepository;
+    private final MatchingEngine matchingEngine;
+    private final OrderJournal orderJournal;
+    private final OrderWriteBehind orderWriteBehind;
+    private final OrderExpiryIndex orderExpiryIndex;
+    private final RiskEngine riskEngine;
+    private final OpenOrderIndex openOrderIndex;
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional(readOnly = true)
+    public void restoreOrderBooks() {
+        riskEngine.loadBaseline();
+        if (orderJournal.isEmpty()) {
+            restoreFromDatabase();
+        } else {
+            replayJournal();
+        }
+        riskEngine.open();
+    }
+
+    /**
+     * Starts from the live orders in the database, folds the journal past the
+     * write-behind checkpoint over them and queues those events for the
+     * database again. Rows written after the checkpoint was taken only make the
+     * starting state newer, which the fold ignores. Live orders are restored in
+     * the order they were placed, which preserves time priority.
+     */
+    private void replayJournal() {
+        long checkpoint = orderWriteBehind.checkpoint();
+        Map<UUID, OrderEvent> placed = new LinkedHashMap<>();
+        Map<UUID, OrderEvent> latest = new LinkedHashMap<>();
+        List<OrderEvent> unwritten = new ArrayList<>();
+
+        for (Order order : orderRepository.findRestingOrders(List.of(OrderType.values()),
+                List.of(OrderStatus.PENDING, OrderStatus.OPEN, OrderStatus.PARTIALLY_FILLED))) {
+            placed.put(order.getId(), OrderEvent.placed(order));
+            OrderEvent state = OrderEvent.stateOf(order);
+            if (state != null) {
+                latest.put(order.getId(), state);
+            }
+        }
+
+        orderJournal.replay(checkpoint, event -> {
+            unwritten.add(event);
+            if (event.type() == OrderEventType.PLACED) {
+                placed.put(event.orderId(), event);
+            } else if (event.supersedes(latest.get(event.orderId()))) {
+                latest.put(event.orderId(), event);
+            }
+            if (event.isTerminal()) {
+                placed.remove(event.orderId());
+                latest.remove(event.orderId());
+            }
+        });
+        orderWriteBehind.resubmit(unwritten);
+
+        List<BookOrder> live = new ArrayList<>();
+        int abandoned = 0;
+        for (OrderEvent event : placed.values()) {
+            Order order = OrderEvent.toOrder(event, latest.get(event.orderId()));
+            if (isRestorable(order)) {
+                live.add(EngineMapping.toBookOrder(order));
+                riskEngine.restore(order);
+                openOrderIndex.restore(order);
+                scheduleExpiry(order);
+            } else {
+                // Never reached the book before the restart; working it now could fill at a stale price
+                orderJournal.record(cancelled(order));
+                abandoned++;
+            }
+        }
+        matchingEngine.restore(live);
+        log.info("Replayed order journal: {} live orders, {} cancelled, {} events queued for write-behind",
+            live.size(), abandoned, unwritten.size());
+    }
+
+    private static boolean isRestorable(Order order) {
+        return switch (order.getStatus()) {
+            case OPEN, PARTIALLY_FILLED -> order.getType() == OrderType.LIMIT || order.getType() == OrderType.STOP_LIMIT;
+            case PENDING -> order.getType() == OrderType.STOP || order.getType() == OrderType.STOP_LIMIT;
+            default -> false;
+        };
+    }
+
+    private static OrderState cancelled(Order order) {
+        long filledQuantity = EngineScale.toQuantity(order.getFilledQuantity());
+        long avgFillPrice = EngineScale.toPrice(order.getAvgFillPrice());
+        return new OrderState(order.getId(), order.getAccountId(), order.getSymbol(), OrderStatus.CANCELLED,
+            filledQuantity, avgFillPrice, Math.multiplyExact(filledQuantity, avgFillPrice), Instant.now());
+    }
+
+    private void restoreFromDatabase() {
+        List<Order> resting = orderRepository.findRestingOrders(
+            List.of(OrderType.LIMIT, OrderType.STOP_LIMIT),
+            List.of(OrderStatus.OPEN, OrderStatus.PARTIALLY_FILLED));
+        matchingEngine.restore(resting.stream().map(EngineMapping::toBookOrder).toList());
+        resting.forEach(this::scheduleExpiry);
+        resting.forEach(riskEngine::restore);
+        resting.forEach(openOrderIndex::restore);
+
+        List<Order> armedStops = orderRepository.findRestingOrders(
+            List.of(OrderType.STOP, OrderType.STOP_LIMIT),
+            List.of(OrderStatus.PENDING));
+        matchingEngine.restore(armedStops.stream().map(EngineMapping::toBookOrder).toList());
+        armedStops.forEach(this::scheduleExpiry);
+        armedStops.forEach(riskEngine::restore);
+        armedStops.forEach(openOrderIndex::restore);
+    }
+
+    /**
+     * Orders already past their expiry are picked up by the first sweep.
+     */
+    private void scheduleExpiry(Order order) {
+        if (order.getExpireAt() != null) {
+            orderExpiryIndex.schedule(order.getId(), order.getSymbol(), order.getExpireAt());
+        }
+    }
+}
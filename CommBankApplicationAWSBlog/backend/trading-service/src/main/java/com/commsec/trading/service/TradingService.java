@@ -1,14 +1,28 @@
 package com.commsec.trading.service;
 
+import com.commsec.trading.dto.BatchOrderResponse;
+import com.commsec.trading.dto.OrderHistoryResponse;
 import com.commsec.trading.dto.OrderRequest;
 import com.commsec.trading.dto.OrderResponse;
+import com.commsec.trading.engine.EngineScale;
+import com.commsec.trading.engine.MatchResult;
+import com.commsec.trading.engine.MatchingEngine;
+import com.commsec.trading.engine.OrderState;
 import com.commsec.trading.exception.OrderNotFoundException;
 import com.commsec.trading.exception.OrderValidationException;
+import com.commsec.trading.expiry.SessionCalendar;
+import com.commsec.trading.journal.OrderJournal;
+import com.commsec.trading.journal.OrderWriteBehind;
 import com.commsec.trading.model.*;
+import com.commsec.trading.openorders.OpenOrderIndex;
 import com.commsec.trading.repository.OrderRepository;
+import com.commsec.trading.risk.RiskEngine;
 import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
 import io.micrometer.core.instrument.MeterRegistry;
 import io.micrometer.core.instrument.Timer;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
@@ -17,23 +31,51 @@ import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
 import java.time.Instant;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Collectors;
 
 @Service
 @Slf4j
 public class TradingService {
 
+    private static final int MAX_HISTORY_PAGE_SIZE = 200;
+    /** Widths of orders.account_id and orders.symbol, checked before anything is journaled. */
+    private static final int MAX_ACCOUNT_ID_LENGTH = 50;
+    private static final int MAX_SYMBOL_LENGTH = 10;
+
     private final OrderRepository orderRepository;
+    private final MatchingEngine matchingEngine;
+    private final OrderJournal orderJournal;
+    private final OrderWriteBehind orderWriteBehind;
+    private final Validator validator;
+    private final SessionCalendar sessionCalendar;
+    private final RiskEngine riskEngine;
+    private final OpenOrderIndex openOrderIndex;
     private final Counter ordersPlaced;
     private final Counter ordersCancelled;
     private final Timer orderProcessingTime;
+    private final Timer batchProcessingTime;
+    private final DistributionSummary batchSize;
 
-    private static final BigDecimal BROKERAGE_FEE = new BigDecimal("9.95");
-    private static final BigDecimal BROKERAGE_PERCENTAGE = new BigDecimal("0.0011"); // 0.11%
-
-    public TradingService(OrderRepository orderRepository, MeterRegistry meterRegistry) {
+    public TradingService(OrderRepository orderRepository, MatchingEngine matchingEngine,
+                          OrderJournal orderJournal, OrderWriteBehind orderWriteBehind,
+                          Validator validator, SessionCalendar sessionCalendar,
+                          RiskEngine riskEngine, OpenOrderIndex openOrderIndex,
+                          MeterRegistry meterRegistry) {
         this.orderRepository = orderRepository;
+        this.matchingEngine = matchingEngine;
+        this.orderJournal = orderJournal;
+        this.orderWriteBehind = orderWriteBehind;
+        this.validator = validator;
+        this.sessionCalendar = sessionCalendar;
+        this.riskEngine = riskEngine;
+        this.openOrderIndex = openOrderIndex;
         
         this.ordersPlaced = Counter.builder("trading.orders.placed")
             .description("Number of orders placed")
@@ -46,37 +88,121 @@ public class TradingService {
         this.orderProcessingTime = Timer.builder("trading.order.processing.time")
             .description("Time to process orders")
             .register(meterRegistry);
+
+        this.batchProcessingTime = Timer.builder("trading.order.batch.processing.time")
+            .description("Time to process a batch of orders")
+            .register(meterRegistry);
+
+        this.batchSize = DistributionSummary.builder("trading.order.batch.size")
+            .description("Number of orders per batch submission")
+            .register(meterRegistry);
     }
 
-    @Transactional
+    /**
+     * The order is journaled before it reaches the book and every state change
+     * the engine makes is journaled before this returns. The orders table is
+     * written behind from the journal, so there is no database round trip here.
+     * Pre-trade risk is checked in memory before anything is journaled.
+     */
     public OrderResponse placeOrder(String accountId, OrderRequest request) {
         return orderProcessingTime.record(() -> {
             log.info("Placing order for account: {}, symbol: {}, side: {}", 
                 accountId, request.getSymbol(), request.getSide());
 
+            validateAccountId(accountId);
             validateOrderRequest(request);
 
-            Order order = Order.builder()
-                .accountId(accountId)
-                .symbol(request.getSymbol().toUpperCase())
-                .side(request.getSide())
-                .type(request.getType())
-                .status(OrderStatus.PENDING)
-                .quantity(request.getQuantity())
-                .filledQuantity(BigDecimal.ZERO)
-                .limitPrice(request.getLimitPrice())
-                .stopPrice(request.getStopPrice())
-                .timeInForce(request.getTimeInForce())
-                .expireAt(request.getExpireAt())
-                .submittedAt(Instant.now())
-                .brokerage(calculateBrokerage(request))
-                .build();
+            Order order = newOrder(accountId, request, Instant.now());
 
-            Order savedOrder = orderRepository.save(order);
+            String rejection = riskEngine.check(order);
+            if (rejection != null) {
+                throw new OrderValidationException(rejection);
+            }
+            try {
+                orderJournal.recordPlaced(order);
+            } catch (RuntimeException e) {
+                riskEngine.release(order.getId());
+                throw e;
+            }
             ordersPlaced.increment();
 
-            log.info("Order placed successfully: {}", savedOrder.getId());
-            return OrderResponse.fromEntity(savedOrder);
+            MatchResult result = matchingEngine.submit(EngineMapping.toBookOrder(order)).join();
+            EngineMapping.apply(order, result.taker());
+            orderJournal.awaitDispatch();
+
+            log.info("Order placed successfully: {} with status {}", order.getId(), order.getStatus());
+            return OrderResponse.fromEntity(order);
+        });
+    }
+
+    /**
+     * Places a basket of orders. Every order is validated, priced and risk
+     * checked first; the accepted ones are then journaled in one append and
+     * worked through the engine concurrently. Refused orders are reported
+     * without affecting the others.
+     */
+    public BatchOrderResponse placeOrders(String accountId, List<OrderRequest> requests) {
+        return batchProcessingTime.record(() -> {
+            log.info("Placing batch of {} orders for account: {}", requests.size(), accountId);
+            batchSize.record(requests.size());
+            validateAccountId(accountId);
+
+            Instant now = Instant.now();
+            BatchOrderResponse.Result[] results = new BatchOrderResponse.Result[requests.size()];
+            List<Order> orders = new ArrayList<>(requests.size());
+            List<Integer> positions = new ArrayList<>(requests.size());
+            boolean journaled = false;
+            try {
+                for (int i = 0; i < requests.size(); i++) {
+                    OrderRequest request = requests.get(i);
+                    String error = validationError(request);
+                    Order order = null;
+                    if (error == null) {
+                        order = newOrder(accountId, request, now);
+                        error = riskEngine.check(order);
+                    }
+                    if (error != null) {
+                        results[i] = BatchOrderResponse.Result.builder().index(i).accepted(false).error(error).build();
+                        continue;
+                    }
+                    orders.add(order);
+                    positions.add(i);
+                }
+                if (!orders.isEmpty()) {
+                    orderJournal.recordPlaced(orders);
+                }
+                journaled = true;
+            } finally {
+                if (!journaled) {
+                    // A later order or the journal failed; the orders already checked hold reservations
+                    orders.forEach(order -> riskEngine.release(order.getId()));
+                }
+            }
+
+            if (!orders.isEmpty()) {
+                ordersPlaced.increment(orders.size());
+
+                List<CompletableFuture<MatchResult>> pending = orders.stream()
+                    .map(order -> matchingEngine.submit(EngineMapping.toBookOrder(order)))
+                    .toList();
+                for (int k = 0; k < orders.size(); k++) {
+                    Order order = EngineMapping.apply(orders.get(k), pending.get(k).join().taker());
+                    results[positions.get(k)] = BatchOrderResponse.Result.builder()
+                        .index(positions.get(k))
+                        .accepted(true)
+                        .order(OrderResponse.fromEntity(order))
+                        .build();
+                }
+                orderJournal.awaitDispatch();
+            }
+
+            log.info("Batch placed for account: {}, {} accepted, {} rejected",
+                accountId, orders.size(), requests.size() - orders.size());
+            return BatchOrderResponse.builder()
+                .accepted(orders.size())
+                .rejected(requests.size() - orders.size())
+                .results(List.of(results))
+                .build();
         });
     }
 
@@ -91,48 +217,147 @@ public class TradingService {
         return orders.map(OrderResponse::fromEntity);
     }
 
+    /**
+     * A page of the account's orders, newest first, continuing from
+     * {@code cursor} if given. Pages are found by seeking the
+     * (account_id, created_at, id) index, so a deep page costs the same as the
+     * first and no total is counted.
+     */
     @Transactional(readOnly = true)
+    public OrderHistoryResponse getOrderHistory(String accountId, String cursor, int limit) {
+        int pageSize = Math.max(1, Math.min(limit, MAX_HISTORY_PAGE_SIZE));
+        List<Order> orders;
+        if (cursor == null || cursor.isBlank()) {
+            orders = orderRepository.findHistory(accountId, pageSize + 1);
+        } else {
+            HistoryCursor after = HistoryCursor.decode(cursor);
+            orders = orderRepository.findHistoryAfter(accountId, after.createdAt(), after.id(), pageSize + 1);
+        }
+
+        String nextCursor = null;
+        if (orders.size() > pageSize) {
+            orders = orders.subList(0, pageSize);
+            Order last = orders.get(pageSize - 1);
+            nextCursor = new HistoryCursor(last.getCreatedAt(), last.getId()).encode();
+        }
+        return OrderHistoryResponse.builder()
+            .orders(orders.stream().map(OrderResponse::fromEntity).toList())
+            .nextCursor(nextCursor)
+            .build();
+    }
+
     public OrderResponse getOrder(String accountId, UUID orderId) {
-        Order order = orderRepository.findByIdAndAccountId(orderId, accountId)
-            .orElseThrow(() -> new OrderNotFoundException("Order not found: " + orderId));
-        return OrderResponse.fromEntity(order);
+        return OrderResponse.fromEntity(findOrder(accountId, orderId));
     }
 
-    @Transactional
+    /**
+     * The engine journals the cancel; the orders table catches up through
+     * write-behind.
+     */
     public OrderResponse cancelOrder(String accountId, UUID orderId) {
         log.info("Cancelling order: {} for account: {}", orderId, accountId);
 
-        Order order = orderRepository.findByIdAndAccountId(orderId, accountId)
-            .orElseThrow(() -> new OrderNotFoundException("Order not found: " + orderId));
+        Order order = findOrder(accountId, orderId);
 
         if (!canCancel(order)) {
             throw new OrderValidationException("Order cannot be cancelled. Current status: " + order.getStatus());
         }
 
-        order.setStatus(OrderStatus.CANCELLED);
-        order.setCancelledAt(Instant.now());
-
-        Order savedOrder = orderRepository.save(order);
+        Optional<OrderState> cancelled = matchingEngine.cancel(order.getSymbol(), orderId).join();
+        if (cancelled.isEmpty()) {
+            throw new OrderValidationException("Order cannot be cancelled. It is no longer open");
+        }
+        Order savedOrder = EngineMapping.apply(order, cancelled.get());
+        orderJournal.awaitDispatch();
         ordersCancelled.increment();
 
         log.info("Order cancelled successfully: {}", orderId);
         return OrderResponse.fromEntity(savedOrder);
     }
 
-    @Transactional(readOnly = true)
+    /**
+     * Served from the in-memory index, which has every event of this caller's
+     * own requests by the time they return.
+     */
     public List<OrderResponse> getOpenOrders(String accountId) {
-        List<OrderStatus> openStatuses = List.of(
-            OrderStatus.PENDING, 
-            OrderStatus.OPEN, 
-            OrderStatus.PARTIALLY_FILLED
-        );
-        return orderRepository.findByAccountIdAndStatusIn(accountId, openStatuses)
-            .stream()
-            .map(OrderResponse::fromEntity)
-            .toList();
+        return openOrderIndex.openOrders(accountId);
+    }
+
+    public Map<String, Object> getBuyingPower(String accountId) {
+        return riskEngine.exposure(accountId);
+    }
+
+    /**
+     * Reads through write-behind so an order is visible as soon as it has been
+     * journaled, before its row is committed.
+     */
+    private Order findOrder(String accountId, UUID orderId) {
+        return orderWriteBehind.find(orderId, () -> orderRepository.findByIdAndAccountId(orderId, accountId))
+            .filter(order -> order.getAccountId().equals(accountId))
+            .orElseThrow(() -> new OrderNotFoundException("Order not found: " + orderId));
+    }
+
+    /**
+     * A time in force sent as an explicit null means DAY. It is defaulted here
+     * once, so the stored order, its expiry and the book all agree on it.
+     */
+    private Order newOrder(String accountId, OrderRequest request, Instant now) {
+        TimeInForce timeInForce = request.getTimeInForce() != null ? request.getTimeInForce() : TimeInForce.DAY;
+        return Order.builder()
+            .id(UUID.randomUUID())
+            .accountId(accountId)
+            .symbol(request.getSymbol().toUpperCase())
+            .side(request.getSide())
+            .type(request.getType())
+            .status(OrderStatus.PENDING)
+            .quantity(request.getQuantity())
+            .filledQuantity(BigDecimal.ZERO)
+            .limitPrice(request.getLimitPrice())
+            .stopPrice(request.getStopPrice())
+            .timeInForce(timeInForce)
+            .expireAt(expiryFor(timeInForce, request.getExpireAt(), now))
+            .submittedAt(now)
+            .brokerage(calculateBrokerage(request))
+            .createdAt(now)
+            .updatedAt(now)
+            .build();
+    }
+
+    /**
+     * Applies the same checks as a single order submission: bean validation
+     * first, then the type-specific price rules.
+     */
+    private String validationError(OrderRequest request) {
+        if (request == null) {
+            return "Order is required";
+        }
+        Set<ConstraintViolation<OrderRequest>> violations = validator.validate(request);
+        if (!violations.isEmpty()) {
+            return violations.stream()
+                .map(violation -> violation.getPropertyPath() + ": " + violation.getMessage())
+                .sorted()
+                .collect(Collectors.joining(", "));
+        }
+        try {
+            validateOrderRequest(request);
+            return null;
+        } catch (OrderValidationException e) {
+            return e.getMessage();
+        }
+    }
+
+    private void validateAccountId(String accountId) {
+        if (accountId == null || accountId.isBlank() || accountId.length() > MAX_ACCOUNT_ID_LENGTH) {
+            throw new OrderValidationException("Account id must be between 1 and " + MAX_ACCOUNT_ID_LENGTH + " characters");
+        }
     }
 
     private void validateOrderRequest(OrderRequest request) {
+        // Checked as stored, since upper-casing can lengthen some characters
+        if (request.getSymbol().toUpperCase().length() > MAX_SYMBOL_LENGTH) {
+            throw new OrderValidationException("Symbol must be between 1 and " + MAX_SYMBOL_LENGTH + " characters");
+        }
+
         if (request.getType() == OrderType.LIMIT || request.getType() == OrderType.STOP_LIMIT) {
             if (request.getLimitPrice() == null || request.getLimitPrice().compareTo(BigDecimal.ZERO) <= 0) {
                 throw new OrderValidationException("Limit price is required for LIMIT and STOP_LIMIT orders");
@@ -144,17 +369,33 @@ public class TradingService {
                 throw new OrderValidationException("Stop price is required for STOP and STOP_LIMIT orders");
             }
         }
+
+        if (request.getTimeInForce() == TimeInForce.GTD && request.getExpireAt() == null) {
+            throw new OrderValidationException("Expiry date is required for GTD orders");
+        }
+    }
+
+    /**
+     * DAY orders expire at the next session close and GTD orders at their
+     * requested time; other orders never expire.
+     */
+    private Instant expiryFor(TimeInForce timeInForce, Instant expireAt, Instant now) {
+        if (timeInForce == TimeInForce.DAY) {
+            return sessionCalendar.nextClose(now);
+        }
+        if (timeInForce == TimeInForce.GTD) {
+            return expireAt;
+        }
+        return null;
     }
 
     private BigDecimal calculateBrokerage(OrderRequest request) {
-        BigDecimal price = request.getLimitPrice() != null ? request.getLimitPrice() : new BigDecimal("100");
-        BigDecimal tradeValue = price.multiply(request.getQuantity());
-        BigDecimal percentageFee = tradeValue.multiply(BROKERAGE_PERCENTAGE);
-        return percentageFee.max(BROKERAGE_FEE);
+        return Brokerage.amount(EngineScale.toPrice(request.getLimitPrice()), EngineScale.toQuantity(request.getQuantity()));
     }
 
     private boolean canCancel(Order order) {
         return order.getStatus() == OrderStatus.PENDING || 
-               order.getStatus() == OrderStatus.OPEN;
+               order.getStatus() == OrderStatus.OPEN ||
+               order.getStatus() == OrderStatus.PARTIALLY_FILLED;
     }
 }
@@ -0,0 +1,18 @@
+-- V2__Fill_Outbox.sql
+-- Transactional outbox of order fills for portfolio-service
+
+-- Written in the same transaction as the orders row, removed once delivered
+CREATE TABLE IF NOT EXISTS fill_outbox (
+    id BIGSERIAL PRIMARY KEY,
+    order_id UUID NOT NULL,
+    account_id VARCHAR(50) NOT NULL,
+    symbol VARCHAR(10) NOT NULL,
+    side VARCHAR(10) NOT NULL,
+    filled_quantity DECIMAL(15, 2) NOT NULL,
+    filled_notional DECIMAL(18, 2) NOT NULL,
+    created_at TIMESTAMP WITH TIME ZONE NOT NULL DEFAULT CURRENT_TIMESTAMP
+);
+
+COMMENT ON TABLE fill_outbox IS 'Order fills awaiting delivery to portfolio-service';
+COMMENT ON COLUMN fill_outbox.filled_quantity IS 'Cumulative filled quantity of the order, not the size of one fill';
+COMMENT ON COLUMN fill_outbox.filled_notional IS 'Cumulative filled value of the order';
@@ -0,0 +1,5 @@
+-- V3__Order_History_Index.sql
+-- Keyset pagination of an account's order history
+
+-- Matches the history query's ORDER BY so each page is a bounded index range scan
+CREATE INDEX IF NOT EXISTS idx_orders_account_created_id ON orders(account_id, created_at DESC, id DESC);
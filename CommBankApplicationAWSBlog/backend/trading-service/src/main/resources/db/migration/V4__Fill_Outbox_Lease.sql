@@ -0,0 +1,8 @@
+-- V4__Fill_Outbox_Lease.sql
+-- Outbox rows are leased to a relay for delivery instead of locked for its duration
+
+ALTER TABLE fill_outbox ADD COLUMN IF NOT EXISTS claimed_by VARCHAR(36);
+ALTER TABLE fill_outbox ADD COLUMN IF NOT EXISTS claimed_until TIMESTAMP WITH TIME ZONE;
+
+COMMENT ON COLUMN fill_outbox.claimed_by IS 'Relay delivering the row, if any';
+COMMENT ON COLUMN fill_outbox.claimed_until IS 'When an undelivered claim lapses and the row may be claimed again';
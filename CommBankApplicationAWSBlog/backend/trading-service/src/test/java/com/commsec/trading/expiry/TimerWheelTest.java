@@ -0,0 +1,164 @@
+package com.commsec.trading.expiry;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Drives the wheel tick by tick and checks when each entry fires. Most tests
+ * use a one millisecond tick, so a deadline is also the tick it is due on.
+ */
+class TimerWheelTest {
+
+    /** Ticks covered by each level: 64, 64^2, 64^3, 64^4, 64^5. */
+    private static final long[] LEVEL_SPANS = {64, 4_096, 262_144, 16_777_216, 1_073_741_824};
+    private static final long MAX_DELTA = LEVEL_SPANS[4] - 1;
+
+    @Test
+    void entriesAroundEveryLevelBoundaryFireOnceOnTheirOwnTick() {
+        // Started off a boundary so cascades happen part way through each level's span
+        long start = 37;
+        TimerWheel wheel = new TimerWheel(1, start);
+        Map<UUID, Long> deadlines = new HashMap<>();
+        for (int level = 0; level < 3; level++) {
+            for (long offset = -2; offset <= 2; offset++) {
+                long boundary = LEVEL_SPANS[level] + offset;
+                schedule(wheel, deadlines, start + boundary);
+                // Absolute boundaries as well as distances from the start
+                schedule(wheel, deadlines, boundary);
+            }
+        }
+        Random random = new Random(7);
+        for (int i = 0; i < 2_000; i++) {
+            schedule(wheel, deadlines, start + 1 + random.nextInt((int) LEVEL_SPANS[2] * 2));
+        }
+        assertEquals(deadlines.size(), wheel.size());
+
+        Map<UUID, Long> fired = new HashMap<>();
+        long end = start + LEVEL_SPANS[2] * 2 + 1;
+        for (long now = start + 1; now <= end; now++) {
+            for (ExpiryEntry entry : wheel.advance(now)) {
+                assertNull(fired.put(entry.orderId(), now), "fired twice: " + entry);
+                assertEquals((long) deadlines.get(entry.orderId()), now, "fired on the wrong tick: " + entry);
+            }
+        }
+
+        assertEquals(deadlines.keySet(), fired.keySet());
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    void entriesOnTheTopLevelsCascadeDownAndFireOnTime() {
+        TimerWheel wheel = new TimerWheel(1, 0);
+        Map<UUID, Long> deadlines = new HashMap<>();
+        for (long deadline : new long[] {LEVEL_SPANS[3] - 1, LEVEL_SPANS[3], LEVEL_SPANS[3] + 65, 3 * LEVEL_SPANS[3] + 4_097}) {
+            schedule(wheel, deadlines, deadline);
+        }
+
+        for (long deadline : deadlines.values().stream().sorted().toList()) {
+            assertTrue(wheel.advance(deadline - 1).isEmpty(), "fired before " + deadline);
+            List<ExpiryEntry> due = wheel.advance(deadline);
+            assertEquals(1, due.size());
+            assertEquals(deadline, due.get(0).deadline());
+        }
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    void deadlineBetweenTicksFiresOnTheTickAfterIt() {
+        TimerWheel wheel = new TimerWheel(1_000, 0);
+        wheel.schedule(entry(1_500));
+
+        assertTrue(wheel.advance(1_999).isEmpty());
+        assertEquals(1, wheel.advance(2_000).size());
+    }
+
+    @Test
+    void pastAndCurrentDeadlinesFireOnTheNextAdvance() {
+        TimerWheel wheel = new TimerWheel(1_000, 10_000);
+        wheel.schedule(entry(3_000));
+        wheel.schedule(entry(10_000));
+
+        assertEquals(2, wheel.size());
+        assertEquals(2, wheel.advance(10_000).size());
+        assertEquals(0, wheel.size());
+        assertTrue(wheel.advance(11_000).isEmpty());
+    }
+
+    @Test
+    void deadlinesBeyondTheWheelAreHeldUntilTheyAreDue() {
+        TimerWheel wheel = new TimerWheel(1, 0);
+        long deadline = MAX_DELTA + 5;
+        wheel.schedule(entry(deadline));
+
+        assertTrue(wheel.advance(MAX_DELTA).isEmpty(), "fired at the edge of the wheel's range");
+        assertEquals(1, wheel.size());
+        assertTrue(wheel.advance(deadline - 1).isEmpty());
+        assertEquals(1, wheel.advance(deadline).size());
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    void cancelledTimersNeverFire() {
+        TimerWheel wheel = new TimerWheel(1, 0);
+        TimerWheel.Timer near = wheel.schedule(entry(10));
+        TimerWheel.Timer far = wheel.schedule(entry(5_000));
+        TimerWheel.Timer kept = wheel.schedule(entry(5_001));
+
+        wheel.cancel(near);
+        wheel.cancel(far);
+
+        assertEquals(1, wheel.size());
+        List<ExpiryEntry> due = wheel.advance(10_000);
+        assertEquals(List.of(kept.entry()), due);
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    void cancelAfterACascadeUnlinksFromTheFinerLevel() {
+        TimerWheel wheel = new TimerWheel(1, 0);
+        TimerWheel.Timer timer = wheel.schedule(entry(100));
+
+        // At tick 64 the entry moves from level 1 to level 0
+        assertTrue(wheel.advance(64).isEmpty());
+        wheel.cancel(timer);
+
+        assertEquals(0, wheel.size());
+        assertTrue(wheel.advance(200).isEmpty());
+    }
+
+    @Test
+    void cancelAfterFiringOrTwiceChangesNothing() {
+        TimerWheel wheel = new TimerWheel(1, 0);
+        TimerWheel.Timer fired = wheel.schedule(entry(5));
+        TimerWheel.Timer cancelled = wheel.schedule(entry(50));
+        TimerWheel.Timer pending = wheel.schedule(entry(500));
+
+        assertEquals(1, wheel.advance(5).size());
+        wheel.cancel(fired);
+        wheel.cancel(cancelled);
+        wheel.cancel(cancelled);
+
+        assertEquals(1, wheel.size());
+        assertEquals(List.of(pending.entry()), wheel.advance(500));
+        assertEquals(0, wheel.size());
+    }
+
+    private static void schedule(TimerWheel wheel, Map<UUID, Long> deadlines, long deadline) {
+        ExpiryEntry entry = entry(deadline);
+        wheel.schedule(entry);
+        deadlines.put(entry.orderId(), deadline);
+    }
+
+    private static ExpiryEntry entry(long deadline) {
+        return new ExpiryEntry(UUID.randomUUID(), "BHP", deadline);
+    }
+}
@@ -0,0 +1,183 @@
+package com.commsec.trading.outbox;
+
+import com.commsec.trading.dto.FillMessage;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Relays through an in-memory outbox to an in-memory broker standing in for
+ * portfolio-service.
+ */
+class FillOutboxRelayTest {
+
+    private final InMemoryOutbox outbox = new InMemoryOutbox();
+    private final InMemoryBroker broker = new InMemoryBroker();
+
+    @Test
+    void deliversInBatchesAndDeletesWhatWasDelivered() {
+        for (int i = 0; i < 5; i++) {
+            outbox.add(fill(UUID.randomUUID(), 100));
+        }
+
+        relay(2).relay();
+
+        assertEquals(List.of(2, 2, 1), broker.batchSizes());
+        assertTrue(outbox.isEmpty());
+    }
+
+    @Test
+    void failedDeliveryIsReleasedAndRetriedByTheNextRelay() {
+        outbox.add(fill(UUID.randomUUID(), 100));
+        outbox.add(fill(UUID.randomUUID(), 200));
+        broker.failNext = true;
+
+        FillOutboxRelay relay = relay(10);
+        relay.relay();
+
+        assertEquals(0, broker.delivered.size());
+        assertEquals(2, outbox.unclaimed());
+
+        relay.relay();
+
+        assertEquals(2, broker.delivered.size());
+        assertTrue(outbox.isEmpty());
+    }
+
+    @Test
+    void rowsLeasedToAnotherRelayAreSkippedUntilTheLeaseLapses() {
+        outbox.add(fill(UUID.randomUUID(), 100));
+        Instant now = Instant.now();
+        outbox.claim("stalled-relay", now, now.plusSeconds(60), 10);
+        outbox.add(fill(UUID.randomUUID(), 200));
+
+        relay(10).relay();
+
+        assertEquals(1, broker.delivered.size());
+        assertEquals(1, outbox.size());
+
+        outbox.lapseAll();
+        relay(10).relay();
+
+        assertEquals(2, broker.delivered.size());
+        assertTrue(outbox.isEmpty());
+    }
+
+    private FillOutboxRelay relay(int batchSize) {
+        return new FillOutboxRelay(outbox, broker, new SimpleMeterRegistry(), batchSize, 30_000, 0);
+    }
+
+    private static FillMessage fill(UUID orderId, long cumulativeQuantity) {
+        return FillMessage.builder()
+            .orderId(orderId)
+            .accountId("ACC-1")
+            .symbol("BHP")
+            .side("BUY")
+            .filledQuantity(BigDecimal.valueOf(cumulativeQuantity))
+            .filledNotional(BigDecimal.valueOf(cumulativeQuantity * 45))
+            .createdAt(Instant.now())
+            .build();
+    }
+
+    /** Outbox rows and their leases in memory, with the repository's claim rules. */
+    private static final class InMemoryOutbox extends FillOutboxRepository {
+
+        private final Map<Long, FillMessage> rows = new TreeMap<>();
+        private final Map<Long, String> claimedBy = new TreeMap<>();
+        private final Map<Long, Instant> claimedUntil = new TreeMap<>();
+        private long nextId = 1;
+
+        InMemoryOutbox() {
+            super(null);
+        }
+
+        void add(FillMessage fill) {
+            fill.setId(nextId++);
+            rows.put(fill.getId(), fill);
+        }
+
+        @Override
+        public synchronized List<FillMessage> claim(String relayId, Instant now, Instant until, int limit) {
+            List<FillMessage> claimed = new ArrayList<>();
+            for (FillMessage fill : rows.values()) {
+                if (claimed.size() == limit) {
+                    break;
+                }
+                Instant lease = claimedUntil.get(fill.getId());
+                if (lease == null || lease.isBefore(now)) {
+                    claimedBy.put(fill.getId(), relayId);
+                    claimedUntil.put(fill.getId(), until);
+                    claimed.add(fill);
+                }
+            }
+            return claimed;
+        }
+
+        @Override
+        public synchronized void release(String relayId, List<FillMessage> fills) {
+            for (FillMessage fill : fills) {
+                if (relayId.equals(claimedBy.get(fill.getId()))) {
+                    claimedBy.remove(fill.getId());
+                    claimedUntil.remove(fill.getId());
+                }
+            }
+        }
+
+        @Override
+        public synchronized void delete(List<FillMessage> fills) {
+            for (FillMessage fill : fills) {
+                rows.remove(fill.getId());
+                claimedBy.remove(fill.getId());
+                claimedUntil.remove(fill.getId());
+            }
+        }
+
+        synchronized void lapseAll() {
+            claimedUntil.replaceAll((id, until) -> Instant.EPOCH);
+        }
+
+        synchronized int size() {
+            return rows.size();
+        }
+
+        synchronized int unclaimed() {
+            return rows.size() - claimedUntil.size();
+        }
+
+        synchronized boolean isEmpty() {
+            return rows.isEmpty();
+        }
+    }
+
+    /** Accepts batches like portfolio-service would, or refuses the next one. */
+    private static final class InMemoryBroker implements FillPublisher {
+
+        private final List<FillMessage> delivered = new ArrayList<>();
+        private final List<Integer> batches = new ArrayList<>();
+        private boolean failNext;
+
+        @Override
+        public void publish(List<FillMessage> fills) {
+            if (failNext) {
+                failNext = false;
+                throw new IllegalStateException("503 Service Unavailable");
+            }
+            delivered.addAll(fills);
+            batches.add(fills.size());
+        }
+
+        List<Integer> batchSizes() {
+            return batches;
+        }
+    }
+}
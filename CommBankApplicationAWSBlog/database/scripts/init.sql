@@ -104,6 +104,51 @@ CREATE TABLE IF NOT EXISTS watchlist_items (
     UNIQUE(watchlist_id, symbol)
 );
 
+-- Cumulative fill applied to holdings per order, so redelivered fills are not applied twice
+CREATE TABLE IF NOT EXISTS position_fills (
+    order_id UUID PRIMARY KEY,
+    account_id VARCHAR(50) NOT NULL,
+    symbol VARCHAR(10) NOT NULL,
+    filled_quantity DECIMAL(15, 2) NOT NULL,
+    filled_notional DECIMAL(18, 2) NOT NULL,
+    updated_at TIMESTAMP WITH TIME ZONE NOT NULL
+);
+
+-- End-of-day mark-to-market: closing prices captured once per run
+CREATE TABLE IF NOT EXISTS eod_mark_prices (
+    run_date DATE NOT NULL,
+    symbol VARCHAR(10) NOT NULL,
+    price DECIMAL(15, 4) NOT NULL,
+    PRIMARY KEY (run_date, symbol)
+);
+
+-- End-of-day mark-to-market: account-id ranges, claimed and checkpointed by workers
+CREATE TABLE IF NOT EXISTS eod_mark_partitions (
+    run_date DATE NOT NULL,
+    partition_no INT NOT NULL,
+    lower_bound VARCHAR(50),
+    upper_bound VARCHAR(50),
+    last_account_id VARCHAR(50),
+    holdings_marked BIGINT NOT NULL DEFAULT 0,
+    status VARCHAR(20) NOT NULL CHECK (status IN ('PENDING', 'RUNNING', 'COMPLETED')),
+    owner VARCHAR(100),
+    heartbeat_at TIMESTAMP WITH TIME ZONE,
+    completed_at TIMESTAMP WITH TIME ZONE,
+    PRIMARY KEY (run_date, partition_no)
+);
+
+-- Portfolio value history: one row per account, tier and block of delta-encoded points
+CREATE TABLE IF NOT EXISTS portfolio_value_blocks (
+    account_id VARCHAR(50) NOT NULL,
+    tier VARCHAR(10) NOT NULL CHECK (tier IN ('MINUTE', 'DAY')),
+    block_start BIGINT NOT NULL,
+    point_count INT NOT NULL,
+    last_at BIGINT NOT NULL,
+    data BYTEA NOT NULL,
+    updated_at TIMESTAMP WITH TIME ZONE NOT NULL,
+    PRIMARY KEY (account_id, tier, block_start)
+);
+
 -- Indexes for performance
 CREATE INDEX IF NOT EXISTS idx_orders_account_id ON orders(account_id);
 CREATE INDEX IF NOT EXISTS idx_orders_symbol ON orders(symbol);
@@ -133,3 +178,8 @@ COMMENT ON TABLE trades IS 'Executed trade records';
 COMMENT ON TABLE accounts IS 'User trading accounts with balance information';
 COMMENT ON TABLE watchlists IS 'User-defined watchlists for tracking securities';
 COMMENT ON TABLE watchlist_items IS 'Securities in each watchlist';
+COMMENT ON TABLE position_fills IS 'Order fills already applied to holdings';
+COMMENT ON TABLE eod_mark_prices IS 'Closing prices used by each end-of-day mark-to-market run';
+COMMENT ON TABLE eod_mark_partitions IS 'Progress of each end-of-day mark-to-market run by account range';
+COMMENT ON TABLE portfolio_value_blocks IS 'Portfolio value history as delta-encoded blocks per account and tier';
+COMMENT ON COLUMN accounts.account_number IS 'Account id that orders, holdings and fills carry as account_id';